@@ -221,6 +221,29 @@ public interface AccountLedgerService {
      */
     Result<List<TransactionInfo>> getTxInfoList(byte[] address);
 
+    /**
+     * 按时间倒序分页获取账户交易，直接从时间索引读取当前页，不加载账户的全部交易
+     *
+     * @param address address
+     * @param cursor  上一页最后一条交易的游标，为null时从最新的交易开始
+     * @param offset  从游标开始跳过的条数
+     * @param limit   每页条数
+     * @return Result
+     */
+    Result<List<TransactionInfo>> getTxInfoList(byte[] address, byte[] cursor, int offset, int limit);
+
+    /**
+     * @param info 交易
+     * @return 交易在账户交易列表中的游标，用于获取下一页
+     */
+    byte[] getTxInfoCursor(TransactionInfo info);
+
+    /**
+     * @param address address
+     * @return 账户交易列表中的交易数
+     */
+    long getTxCount(byte[] address);
+
     /**
      * @param address address
      * @return Result
@@ -25,6 +25,7 @@ package io.nuls.account.ledger.base.module.impl;
 
 import io.nuls.account.constant.AccountConstant;
 import io.nuls.account.ledger.base.manager.BalanceManager;
+import io.nuls.account.ledger.base.service.TransactionInfoService;
 import io.nuls.account.ledger.base.task.CheckUnConfirmTxThread;
 import io.nuls.account.ledger.constant.AccountLedgerConstant;
 import io.nuls.account.ledger.module.AbstractAccountLedgerModule;
@@ -51,6 +52,7 @@ public class AccountLedgerModuleBootstrap extends AbstractAccountLedgerModule {
     @Override
     public void start() {
         this.waitForDependencyRunning(AccountConstant.MODULE_ID_ACCOUNT, ProtocolConstant.MODULE_ID_PROTOCOL);
+        NulsContext.getServiceBean(TransactionInfoService.class).buildTimeIndexIfAbsent();
         BalanceManager balanceManager = NulsContext.getServiceBean(BalanceManager.class);
         balanceManager.initAccountBalance();
         ScheduledThreadPoolExecutor executor = TaskManager.createScheduledThreadPool(1, new NulsThreadFactory(AccountLedgerConstant.MODULE_ID_ACCOUNTLEDGER, "CheckUnConfirmTxThread"));
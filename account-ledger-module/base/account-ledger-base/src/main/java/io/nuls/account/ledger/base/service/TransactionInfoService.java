@@ -41,6 +41,22 @@ public interface TransactionInfoService {
 
     Result<List<TransactionInfo>> getTxInfoList(byte[] address);
 
+    /**
+     * 按时间倒序分页获取账户交易，不包含红黄牌惩罚交易
+     *
+     * @param cursor 上一页最后一条交易的游标，为null时从最新的交易开始
+     */
+    Result<List<TransactionInfo>> getTxInfoList(byte[] address, byte[] cursor, int offset, int limit);
+
+    byte[] getTxInfoCursor(TransactionInfo info);
+
+    long getTxCount(byte[] address);
+
+    /**
+     * 升级后第一次启动时根据已有的账户交易建立时间索引
+     */
+    Result buildTimeIndexIfAbsent();
+
     Result<Integer> saveTransactionInfo(TransactionInfoPo infoPo, List<byte[]> addresses);
 
     Result deleteTransactionInfo(TransactionInfoPo infoPo);
@@ -1521,6 +1521,21 @@ public class AccountLedgerServiceImpl implements AccountLedgerService, Initializ
         return transactionInfoService.getTxInfoList(address);
     }
 
+    @Override
+    public Result<List<TransactionInfo>> getTxInfoList(byte[] address, byte[] cursor, int offset, int limit) {
+        return transactionInfoService.getTxInfoList(address, cursor, offset, limit);
+    }
+
+    @Override
+    public byte[] getTxInfoCursor(TransactionInfo info) {
+        return transactionInfoService.getTxInfoCursor(info);
+    }
+
+    @Override
+    public long getTxCount(byte[] address) {
+        return transactionInfoService.getTxCount(address);
+    }
+
     @Override
     public Result<List<Coin>> getLockedUtxo(byte[] address) {
         Result<List<Coin>> result = new Result<>();
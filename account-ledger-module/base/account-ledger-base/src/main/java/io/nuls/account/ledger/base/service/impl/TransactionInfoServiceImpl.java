@@ -62,7 +62,7 @@ public class TransactionInfoServiceImpl implements TransactionInfoService {
             List<TransactionInfoPo> infoPoList = transactionInfoStorageService.getTransactionInfoListByAddress(address);
             List<TransactionInfo> infoList = new ArrayList<>();
             for (TransactionInfoPo po : infoPoList) {
-                if (po.getTxType() == ConsensusConstant.TX_TYPE_RED_PUNISH || po.getTxType() == ConsensusConstant.TX_TYPE_YELLOW_PUNISH) {
+                if (!isListed(po.getTxType())) {
                     continue;
                 }
                 infoList.add(po.toTransactionInfo());
@@ -76,6 +76,59 @@ public class TransactionInfoServiceImpl implements TransactionInfoService {
         }
     }
 
+    @Override
+    public Result<List<TransactionInfo>> getTxInfoList(byte[] address, byte[] cursor, int offset, int limit) {
+        try {
+            List<TransactionInfoPo> infoPoList = transactionInfoStorageService.getTransactionInfoList(address, cursor, offset, limit);
+            List<TransactionInfo> infoList = new ArrayList<>(infoPoList.size());
+            for (TransactionInfoPo po : infoPoList) {
+                infoList.add(po.toTransactionInfo());
+            }
+            return Result.getSuccess().setData(infoList);
+        } catch (NulsException e) {
+            Log.error(e);
+            return Result.getFailed(e.getErrorCode());
+        }
+    }
+
+    @Override
+    public byte[] getTxInfoCursor(TransactionInfo info) {
+        try {
+            return transactionInfoStorageService.getTransactionInfoCursor(new TransactionInfoPo(info));
+        } catch (IOException e) {
+            Log.error(e);
+            return null;
+        }
+    }
+
+    @Override
+    public long getTxCount(byte[] address) {
+        return transactionInfoStorageService.getTransactionInfoCount(address);
+    }
+
+    @Override
+    public Result buildTimeIndexIfAbsent() {
+        if (transactionInfoStorageService.isTimeIndexBuilt()) {
+            return Result.getSuccess();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            transactionInfoStorageService.rebuildTimeIndex(po -> isListed(po.getTxType()));
+            Log.info("account transaction time index built, cost: {}ms", System.currentTimeMillis() - start);
+            return Result.getSuccess();
+        } catch (NulsException e) {
+            Log.error(e);
+            return Result.getFailed(e.getErrorCode());
+        }
+    }
+
+    /**
+     * 红黄牌惩罚交易不显示在账户交易列表中
+     */
+    private boolean isListed(int txType) {
+        return txType != ConsensusConstant.TX_TYPE_RED_PUNISH && txType != ConsensusConstant.TX_TYPE_YELLOW_PUNISH;
+    }
+
     @Override
     public Result<Integer> saveTransactionInfo(TransactionInfoPo infoPo, List<byte[]> addresses) {
         if (infoPo == null) {
@@ -87,13 +140,14 @@ public class TransactionInfoServiceImpl implements TransactionInfoService {
         }
 
         List<byte[]> savedKeyList = new ArrayList<>();
+        boolean listed = isListed(infoPo.getTxType());
 
         try {
             for (int i = 0; i < addresses.size(); i++) {
                 byte[] infoKey = new byte[Address.ADDRESS_LENGTH + infoPo.getTxHash().size()];
                 System.arraycopy(addresses.get(i), 0, infoKey, 0, Address.ADDRESS_LENGTH);
                 System.arraycopy(infoPo.getTxHash().serialize(), 0, infoKey, Address.ADDRESS_LENGTH, infoPo.getTxHash().size());
-                transactionInfoStorageService.saveTransactionInfo(infoKey, infoPo);
+                transactionInfoStorageService.saveTransactionInfo(infoKey, infoPo, listed);
                 savedKeyList.add(infoKey);
             }
         } catch (IOException e) {
@@ -56,6 +56,8 @@ import io.nuls.core.tools.log.Log;
 import io.nuls.core.tools.map.MapUtil;
 import io.nuls.core.tools.page.Page;
 import io.nuls.core.tools.str.StringUtils;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.DBSnapshot;
 import io.nuls.kernel.cfg.NulsConfig;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.constant.NulsConstant;
@@ -104,6 +106,9 @@ public class AccountLedgerResource {
     @Autowired
     private AccountLedgerService accountLedgerService;
 
+    @Autowired
+    private DBService dbService;
+
     @Autowired
     private LedgerService ledgerService;
 
@@ -855,6 +860,29 @@ public class AccountLedgerResource {
             return Result.getFailed(AccountLedgerErrorCode.PARAMETER_ERROR).toRpcClientResult();
         }
 
+        // 只查询基础币的全部交易时，直接从时间索引读取当前页，总数和当前页在同一个快照上读取
+        if ("NULS".equals(assetType) && type == -1) {
+            DBSnapshot snapshot = dbService.getSnapshot();
+            snapshot.bind();
+            try {
+                long total = accountLedgerService.getTxCount(addressBytes);
+                Page<TransactionInfoDto> page = new Page<>(pageNumber, pageSize, (int) total);
+                int start = pageNumber * pageSize - pageSize;
+                if (start < total) {
+                    Result<List<TransactionInfo>> rawResult = accountLedgerService.getTxInfoList(addressBytes, null, start, pageSize);
+                    if (rawResult.isFailed()) {
+                        return rawResult.toRpcClientResult();
+                    }
+                    page.setList(toTransactionInfoDtoList(rawResult.getData(), addressBytes));
+                }
+                dtoResult.setData(page);
+                return dtoResult.toRpcClientResult();
+            } finally {
+                snapshot.unbind();
+                snapshot.close();
+            }
+        }
+
         List<TransactionInfo> result = new ArrayList<TransactionInfo>();
 
         boolean isEmptyAssetType = StringUtils.isBlank(assetType);
@@ -949,9 +977,63 @@ public class AccountLedgerResource {
             end = (int) page.getTotal();
         }
 
+        page.setList(toTransactionInfoDtoList(result.subList(start, end), addressBytes));
+
+        dtoResult.setSuccess(true);
+        dtoResult.setData(page);
+        return dtoResult.toRpcClientResult();
+    }
+
+    @GET
+    @Path("/tx/list/cursor/{address}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "按游标查询账户基础币交易列表", notes = "result.data: list 交易列表, nextCursor 下一页游标, total 交易总数")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "success", response = Map.class)
+    })
+    public RpcClientResult getTxInfoListByCursor(@ApiParam(name = "address", value = "账户地址", required = true)
+                                                 @PathParam("address") String address,
+                                                 @ApiParam(name = "cursor", value = "上一页返回的nextCursor，为空时从最新的交易开始")
+                                                 @QueryParam("cursor") String cursor,
+                                                 @ApiParam(name = "pageSize", value = "每页条数")
+                                                 @QueryParam("pageSize") Integer pageSize) {
+        if (null == pageSize || pageSize == 0) {
+            pageSize = 10;
+        }
+        if (pageSize < 0 || pageSize > 100) {
+            return Result.getFailed(KernelErrorCode.PARAMETER_ERROR).toRpcClientResult();
+        }
+        byte[] addressBytes;
+        byte[] cursorBytes = null;
+        try {
+            addressBytes = AddressTool.getAddress(address.trim());
+            if (StringUtils.isNotBlank(cursor)) {
+                cursorBytes = Hex.decode(cursor.trim());
+            }
+        } catch (Exception e) {
+            return Result.getFailed(AccountLedgerErrorCode.PARAMETER_ERROR).toRpcClientResult();
+        }
+
+        Result<List<TransactionInfo>> rawResult = accountLedgerService.getTxInfoList(addressBytes, cursorBytes, 0, pageSize);
+        if (rawResult.isFailed()) {
+            return rawResult.toRpcClientResult();
+        }
+        List<TransactionInfo> infoList = rawResult.getData();
+        String nextCursor = null;
+        if (infoList.size() == pageSize) {
+            byte[] next = accountLedgerService.getTxInfoCursor(infoList.get(infoList.size() - 1));
+            nextCursor = next == null ? null : Hex.encode(next);
+        }
+        Map<String, Object> map = new HashMap<>();
+        map.put("list", toTransactionInfoDtoList(infoList, addressBytes));
+        map.put("nextCursor", nextCursor);
+        map.put("total", accountLedgerService.getTxCount(addressBytes));
+        return Result.getSuccess().setData(map).toRpcClientResult();
+    }
+
+    private List<TransactionInfoDto> toTransactionInfoDtoList(List<TransactionInfo> infoList, byte[] addressBytes) {
         List<TransactionInfoDto> infoDtoList = new ArrayList<>();
-        for (int i = start; i < end; i++) {
-            TransactionInfo info = result.get(i);
+        for (TransactionInfo info : infoList) {
             Transaction tx = ledgerService.getTx(info.getTxHash());
             if (tx == null) {
                 tx = accountLedgerService.getUnconfirmedTransaction(info.getTxHash()).getData();
@@ -965,13 +1047,8 @@ public class AccountLedgerResource {
                 info.setInfo(tx.getInfo(addressBytes));
             }
             infoDtoList.add(new TransactionInfoDto(info));
-
         }
-        page.setList(infoDtoList);
-
-        dtoResult.setSuccess(true);
-        dtoResult.setData(page);
-        return dtoResult.toRpcClientResult();
+        return infoDtoList;
     }
 
     @GET
@@ -36,6 +36,12 @@ public interface AccountLedgerStorageConstant {
      * The name of the account table
      */
     String DB_NAME_ACCOUNT_LEDGER_TX_INDEX = "account_ledger_tx_index";
+    /**
+     * 按时间倒序的账户交易索引和每个账户的交易数
+     * Account transactions ordered by time descending and the transaction count of each account
+     */
+    String DB_NAME_ACCOUNT_LEDGER_TX_TIME_INDEX = "account_ledger_tx_time_index";
+    String DB_NAME_ACCOUNT_LEDGER_TX_COUNT = "account_ledger_tx_count";
     String DB_NAME_ACCOUNT_LEDGER_TX = "account_ledger_tx";
     String DB_NAME_ACCOUNT_LEDGER_COINDATA = "account_ledger_coindata";
 
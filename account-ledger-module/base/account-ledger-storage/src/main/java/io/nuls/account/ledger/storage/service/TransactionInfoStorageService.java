@@ -28,7 +28,9 @@ import io.nuls.account.ledger.storage.po.TransactionInfoPo;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.model.Result;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * author Facjas
@@ -36,9 +38,42 @@ import java.util.List;
  */
 public interface TransactionInfoStorageService {
 
-    Result saveTransactionInfo(byte[] key, TransactionInfoPo tx);
+    /**
+     * 保存账户交易
+     *
+     * @param key    地址 + 交易hash
+     * @param tx
+     * @param listed 是否加入按时间排序的交易列表和交易数
+     */
+    Result saveTransactionInfo(byte[] key, TransactionInfoPo tx, boolean listed);
 
     Result deleteTransactionInfo(byte[] infoKey);
 
     List<TransactionInfoPo> getTransactionInfoListByAddress(byte[] address) throws NulsException;
+
+    /**
+     * 按时间倒序分页获取账户交易，直接定位到起始位置
+     *
+     * @param address
+     * @param cursor  上一页最后一条交易的游标，为null时从最新的交易开始
+     * @param offset  从游标开始跳过的条数
+     * @param limit   每页条数
+     */
+    List<TransactionInfoPo> getTransactionInfoList(byte[] address, byte[] cursor, int offset, int limit) throws NulsException;
+
+    /**
+     * 交易在账户交易列表中的游标
+     */
+    byte[] getTransactionInfoCursor(TransactionInfoPo tx) throws IOException;
+
+    long getTransactionInfoCount(byte[] address);
+
+    boolean isTimeIndexBuilt();
+
+    /**
+     * 从账户交易数据重建时间索引和交易数，用于已有数据的升级
+     *
+     * @param listed 判断交易是否加入交易列表
+     */
+    void rebuildTimeIndex(Predicate<TransactionInfoPo> listed) throws NulsException;
 }
@@ -31,6 +31,8 @@ import io.nuls.account.ledger.storage.service.TransactionInfoStorageService;
 import io.nuls.core.tools.array.ArraysTool;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.model.Entry;
+import io.nuls.db.service.BatchOperation;
 import io.nuls.db.service.DBService;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
@@ -41,12 +43,14 @@ import io.nuls.kernel.lite.core.bean.InitializingBean;
 import io.nuls.kernel.model.Address;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.utils.AddressTool;
+import io.nuls.kernel.utils.SerializeUtils;
 
-import javax.naming.PartialResultException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * author Facjas
@@ -54,50 +58,185 @@ import java.util.Set;
  */
 @Component
 public class TransactionInfoStorageServiceImpl implements TransactionInfoStorageService, InitializingBean {
+
+    /**
+     * 时间索引key: 地址 + (Long.MAX_VALUE - 交易时间) + 交易hash，按字节顺序遍历即为时间倒序
+     */
+    private static final int TIME_LENGTH = 8;
+
+    /**
+     * 记录时间索引是否已经建立，和地址长度不同，不会与交易数的key冲突
+     */
+    private static final byte[] TIME_INDEX_BUILT_KEY = "time-index-version".getBytes();
+
     @Autowired
     private DBService dbService;
 
     @Override
     public void afterPropertiesSet() throws NulsException {
-        Result result = dbService.createArea(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+        createArea(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+        createArea(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_TIME_INDEX);
+        createArea(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_COUNT);
+    }
+
+    private void createArea(String area) {
+        Result result = dbService.createArea(area);
         if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
             throw new NulsRuntimeException(result.getErrorCode());
         }
     }
 
     @Override
-    public Result saveTransactionInfo(byte[] infoKey, TransactionInfoPo infoPo) {
+    public synchronized Result saveTransactionInfo(byte[] infoKey, TransactionInfoPo infoPo, boolean listed) {
         try {
-            dbService.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, infoKey, infoPo.serialize());
+            byte[] address = getAddress(infoKey);
+            byte[] oldValue = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, infoKey);
+            boolean counted = false;
+            if (oldValue != null) {
+                TransactionInfoPo oldPo = new TransactionInfoPo();
+                oldPo.parse(oldValue, 0);
+                byte[] oldTimeKey = ArraysTool.concatenate(address, getTransactionInfoCursor(oldPo));
+                if (dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_TIME_INDEX, oldTimeKey) != null) {
+                    counted = true;
+                    dbService.delete(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_TIME_INDEX, oldTimeKey);
+                }
+            }
+            byte[] value = infoPo.serialize();
+            dbService.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, infoKey, value);
+            if (listed) {
+                byte[] timeKey = ArraysTool.concatenate(address, getTransactionInfoCursor(infoPo));
+                dbService.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_TIME_INDEX, timeKey, value);
+                if (!counted) {
+                    addCount(address, 1);
+                }
+            } else if (counted) {
+                addCount(address, -1);
+            }
             return Result.getSuccess();
         } catch (Exception e) {
+            Log.error(e);
             return Result.getFailed();
         }
     }
 
     @Override
     public List<TransactionInfoPo> getTransactionInfoListByAddress(byte[] address) throws NulsException {
-        List<TransactionInfoPo> infoPoList = new ArrayList<>();
-        Set<byte[]> keySet = dbService.keySet(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
-        if (keySet == null || keySet.isEmpty()) {
-            return infoPoList;
+        List<Entry<byte[], byte[]>> entryList = dbService.prefixEntryList(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, address, null, 0, Integer.MAX_VALUE);
+        return parseList(entryList);
+    }
+
+    @Override
+    public List<TransactionInfoPo> getTransactionInfoList(byte[] address, byte[] cursor, int offset, int limit) throws NulsException {
+        byte[] startKey = cursor == null ? null : ArraysTool.concatenate(address, cursor);
+        List<Entry<byte[], byte[]>> entryList = dbService.prefixEntryList(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_TIME_INDEX, address, startKey, offset, limit);
+        return parseList(entryList);
+    }
+
+    private List<TransactionInfoPo> parseList(List<Entry<byte[], byte[]>> entryList) throws NulsException {
+        if (entryList == null || entryList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<TransactionInfoPo> infoPoList = new ArrayList<>(entryList.size());
+        for (Entry<byte[], byte[]> entry : entryList) {
+            TransactionInfoPo transactionInfoPo = new TransactionInfoPo();
+            transactionInfoPo.parse(entry.getValue(), 0);
+            infoPoList.add(transactionInfoPo);
         }
+        return infoPoList;
+    }
+
+    @Override
+    public byte[] getTransactionInfoCursor(TransactionInfoPo infoPo) throws IOException {
+        byte[] hash = infoPo.getTxHash().serialize();
+        byte[] cursor = new byte[TIME_LENGTH + hash.length];
+        long time = Long.MAX_VALUE - infoPo.getTime();
+        for (int i = TIME_LENGTH - 1; i >= 0; i--) {
+            cursor[i] = (byte) time;
+            time >>>= 8;
+        }
+        System.arraycopy(hash, 0, cursor, TIME_LENGTH, hash.length);
+        return cursor;
+    }
 
-        byte[] addressKey = new byte[Address.ADDRESS_LENGTH];
-        for (byte[] key : keySet) {
-            System.arraycopy(key, 0, addressKey, 0, Address.ADDRESS_LENGTH);
-            if (java.util.Arrays.equals(addressKey, address)) {
-                byte[] values = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, key);
-                TransactionInfoPo transactionInfoPo = new TransactionInfoPo();
-                transactionInfoPo.parse(values, 0);
-                infoPoList.add(transactionInfoPo);
+    @Override
+    public long getTransactionInfoCount(byte[] address) {
+        byte[] value = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_COUNT, address);
+        if (value == null) {
+            return 0;
+        }
+        return SerializeUtils.readInt64LE(value, 0);
+    }
+
+    private void addCount(byte[] address, long delta) {
+        long count = Math.max(0, getTransactionInfoCount(address) + delta);
+        dbService.put(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_COUNT, address, SerializeUtils.uint64ToByteArray(count));
+    }
+
+    @Override
+    public boolean isTimeIndexBuilt() {
+        return dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_COUNT, TIME_INDEX_BUILT_KEY) != null;
+    }
+
+    @Override
+    public synchronized void rebuildTimeIndex(Predicate<TransactionInfoPo> listed) throws NulsException {
+        List<Entry<byte[], byte[]>> entryList = dbService.entryList(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX);
+        BatchOperation timeBatch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_TIME_INDEX);
+        Map<String, Long> countMap = new HashMap<>();
+        if (entryList != null) {
+            try {
+                for (Entry<byte[], byte[]> entry : entryList) {
+                    TransactionInfoPo infoPo = new TransactionInfoPo();
+                    infoPo.parse(entry.getValue(), 0);
+                    if (!listed.test(infoPo)) {
+                        continue;
+                    }
+                    byte[] address = getAddress(entry.getKey());
+                    timeBatch.put(ArraysTool.concatenate(address, getTransactionInfoCursor(infoPo)), entry.getValue());
+                    countMap.merge(AddressTool.getStringAddressByBytes(address), 1L, Long::sum);
+                }
+            } catch (IOException e) {
+                throw new NulsException(e);
             }
         }
-        return infoPoList;
+        Result result = timeBatch.executeBatch();
+        if (result.isFailed()) {
+            throw new NulsException(result.getErrorCode());
+        }
+        BatchOperation countBatch = dbService.createWriteBatch(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_COUNT);
+        for (Map.Entry<String, Long> entry : countMap.entrySet()) {
+            countBatch.put(AddressTool.getAddress(entry.getKey()), SerializeUtils.uint64ToByteArray(entry.getValue()));
+        }
+        countBatch.put(TIME_INDEX_BUILT_KEY, SerializeUtils.uint64ToByteArray(1));
+        result = countBatch.executeBatch();
+        if (result.isFailed()) {
+            throw new NulsException(result.getErrorCode());
+        }
     }
 
     @Override
-    public Result deleteTransactionInfo(byte[] infoKey) {
+    public synchronized Result deleteTransactionInfo(byte[] infoKey) {
+        byte[] oldValue = dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, infoKey);
+        if (oldValue != null) {
+            try {
+                TransactionInfoPo oldPo = new TransactionInfoPo();
+                oldPo.parse(oldValue, 0);
+                byte[] address = getAddress(infoKey);
+                byte[] oldTimeKey = ArraysTool.concatenate(address, getTransactionInfoCursor(oldPo));
+                if (dbService.get(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_TIME_INDEX, oldTimeKey) != null) {
+                    dbService.delete(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_TIME_INDEX, oldTimeKey);
+                    addCount(address, -1);
+                }
+            } catch (Exception e) {
+                Log.error(e);
+                return Result.getFailed();
+            }
+        }
         return dbService.delete(AccountLedgerStorageConstant.DB_NAME_ACCOUNT_LEDGER_TX_INDEX, infoKey);
     }
+
+    private byte[] getAddress(byte[] infoKey) {
+        byte[] address = new byte[Address.ADDRESS_LENGTH];
+        System.arraycopy(infoKey, 0, address, 0, Address.ADDRESS_LENGTH);
+        return address;
+    }
 }
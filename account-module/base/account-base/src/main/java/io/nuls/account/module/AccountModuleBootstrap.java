@@ -25,8 +25,11 @@
 
 package io.nuls.account.module;
 
+import io.nuls.account.process.AliasTxProcessor;
 import io.nuls.account.service.AccountService;
+import io.nuls.account.tx.AliasTransaction;
 import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.utils.TransactionManager;
 
 /**
  * @author: Niels Wang
@@ -37,7 +40,7 @@ public class AccountModuleBootstrap extends AbstractAccountModuleBootstrap {
      */
     @Override
     public void init() throws Exception {
-
+        TransactionManager.putTx(AliasTransaction.class, AliasTxProcessor.class, AliasTransaction::new);
     }
 
     /**
@@ -45,6 +45,23 @@ public interface ConsensusService {
      */
     Result newTx(Transaction<? extends BaseNulsData> tx);
 
+    /**
+     * receive a new transaction from a peer, the peer is used for the orphan quota
+     * @param tx
+     * @param fromNode the peer sending this transaction, null for local transactions
+     * @return Result
+     */
+    Result newTx(Transaction<? extends BaseNulsData> tx, Node fromNode);
+
+    /**
+     * Whether the transaction admission queue is close to its limit, new transactions should not be requested from
+     * other peers while it is busy
+     *
+     * 交易处理队列是否接近上限，繁忙时不再向其它节点请求新的交易
+     * @return boolean
+     */
+    boolean isTxQueueBusy();
+
     /**
      * receive block from other peers
      * @param block
@@ -0,0 +1,325 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2019 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+package io.nuls.consensus.poc.cache;
+
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+import io.nuls.kernel.utils.VarInt;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 孤儿交易池，按缺失的输入(交易hash+序号)建立索引
+ * 一笔交易被接受后只唤醒花费它的输出的孤儿交易，不再周期性地重新验证所有孤儿交易。
+ * 容量同时按条数和字节数限制，超出时淘汰最早的孤儿交易；每个来源节点有单独的条数配额，
+ * 超出配额时淘汰该节点自己最早的孤儿交易，一个节点的孤儿交易洪水不会挤掉其他节点的交易。
+ * <p>
+ * Orphan transactions indexed by their missing input outpoints (tx hash + index).
+ * Accepting a transaction only wakes the orphans spending its outputs. The pool is bounded by count and bytes with
+ * oldest-first eviction, and every source peer has its own count quota so a flooding peer only displaces its own orphans.
+ */
+public class OrphanTxPool {
+
+    private static final String LOCAL_SOURCE = "local";
+
+    private int maxCount;
+    private long maxBytes;
+    private int maxCountPerPeer;
+
+    /**
+     * 插入顺序即淘汰顺序
+     */
+    private final LinkedHashMap<NulsDigestData, OrphanTx> orphans = new LinkedHashMap<>();
+    private final Map<ByteArrayWrapper, Set<NulsDigestData>> waitingMap = new HashMap<>();
+    private final Map<String, LinkedHashSet<NulsDigestData>> sourceMap = new HashMap<>();
+    private long totalBytes;
+
+    private long addedCount;
+    private long evictedCount;
+    private long wokenCount;
+
+    public OrphanTxPool(int maxCount, long maxBytes, int maxCountPerPeer) {
+        setLimits(maxCount, maxBytes, maxCountPerPeer);
+    }
+
+    public synchronized void setLimits(int maxCount, long maxBytes, int maxCountPerPeer) {
+        this.maxCount = Math.max(maxCount, 1);
+        this.maxBytes = Math.max(maxBytes, 1);
+        this.maxCountPerPeer = Math.max(maxCountPerPeer, 1);
+        evict();
+    }
+
+    /**
+     * 放入一笔孤儿交易
+     *
+     * @param fromNodeId       来源节点，本地交易为null
+     * @param missingOutpoints 缺失的输入，为空时按全部输入建立索引
+     * @return 是否放入，已存在或者比整个池还大时返回false
+     */
+    public synchronized boolean add(Transaction tx, String fromNodeId, Collection<byte[]> missingOutpoints) {
+        NulsDigestData hash = tx.getHash();
+        if (orphans.containsKey(hash)) {
+            return false;
+        }
+        int size = tx.size();
+        if (size > maxBytes) {
+            return false;
+        }
+        Set<ByteArrayWrapper> missing = new HashSet<>();
+        if (missingOutpoints == null || missingOutpoints.isEmpty()) {
+            if (tx.getCoinData() != null) {
+                for (Coin coin : tx.getCoinData().getFrom()) {
+                    missing.add(new ByteArrayWrapper(coin.getOwner()));
+                }
+            }
+        } else {
+            for (byte[] outpoint : missingOutpoints) {
+                missing.add(new ByteArrayWrapper(outpoint));
+            }
+        }
+        if (missing.isEmpty()) {
+            return false;
+        }
+        String source = fromNodeId == null ? LOCAL_SOURCE : fromNodeId;
+        LinkedHashSet<NulsDigestData> sourceSet = sourceMap.get(source);
+        while (sourceSet != null && sourceSet.size() >= maxCountPerPeer) {
+            removeInternal(sourceSet.iterator().next());
+            evictedCount++;
+        }
+
+        OrphanTx orphan = new OrphanTx(tx, fromNodeId, source, size, missing, addedCount);
+        orphans.put(hash, orphan);
+        sourceMap.computeIfAbsent(source, k -> new LinkedHashSet<>()).add(hash);
+        for (ByteArrayWrapper outpoint : missing) {
+            waitingMap.computeIfAbsent(outpoint, k -> new HashSet<>(2)).add(hash);
+        }
+        totalBytes += size;
+        addedCount++;
+        evict();
+        return orphans.containsKey(hash);
+    }
+
+    /**
+     * 交易被接受后调用，返回所有输入都已到齐的孤儿交易(已从池中移除)，按放入的先后排序
+     * Called after a transaction is accepted, returns (and removes) the orphans whose inputs are now all available
+     */
+    public synchronized List<OrphanTx> wake(Transaction parent) {
+        if (orphans.isEmpty() || parent.getCoinData() == null) {
+            return Collections.emptyList();
+        }
+        byte[] hashBytes;
+        try {
+            hashBytes = parent.getHash().serialize();
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+        List<OrphanTx> readyList = null;
+        int count = parent.getCoinData().getTo().size();
+        for (int i = 0; i < count; i++) {
+            readyList = resolve(new ByteArrayWrapper(ArraysTool.concatenate(hashBytes, new VarInt(i).encode())), readyList);
+        }
+        return release(readyList);
+    }
+
+    /**
+     * 缺失的输入已经可用(例如父交易已经打包进区块)时调用
+     */
+    public synchronized List<OrphanTx> wake(byte[] outpoint) {
+        return release(resolve(new ByteArrayWrapper(outpoint), null));
+    }
+
+    private List<OrphanTx> resolve(ByteArrayWrapper outpoint, List<OrphanTx> readyList) {
+        Set<NulsDigestData> waiting = waitingMap.remove(outpoint);
+        if (waiting == null) {
+            return readyList;
+        }
+        for (NulsDigestData hash : waiting) {
+            OrphanTx orphan = orphans.get(hash);
+            if (orphan == null) {
+                continue;
+            }
+            orphan.missing.remove(outpoint);
+            if (orphan.missing.isEmpty()) {
+                if (readyList == null) {
+                    readyList = new ArrayList<>();
+                }
+                readyList.add(orphan);
+            }
+        }
+        return readyList;
+    }
+
+    private List<OrphanTx> release(List<OrphanTx> readyList) {
+        if (readyList == null) {
+            return Collections.emptyList();
+        }
+        readyList.sort(Comparator.comparingLong(orphan -> orphan.sequence));
+        for (OrphanTx orphan : readyList) {
+            removeInternal(orphan.tx.getHash());
+        }
+        wokenCount += readyList.size();
+        return readyList;
+    }
+
+    /**
+     * 所有孤儿交易仍在等待的输入
+     */
+    public synchronized List<byte[]> getMissingOutpoints() {
+        List<byte[]> list = new ArrayList<>(waitingMap.size());
+        for (ByteArrayWrapper outpoint : waitingMap.keySet()) {
+            list.add(outpoint.getBytes());
+        }
+        return list;
+    }
+
+    /**
+     * 移除交易时间早于指定时间的孤儿交易
+     *
+     * @return 移除的数量
+     */
+    public synchronized int removeBefore(long time) {
+        List<NulsDigestData> expired = new ArrayList<>();
+        for (OrphanTx orphan : orphans.values()) {
+            if (orphan.tx.getTime() < time) {
+                expired.add(orphan.tx.getHash());
+            }
+        }
+        for (NulsDigestData hash : expired) {
+            removeInternal(hash);
+        }
+        return expired.size();
+    }
+
+    public synchronized boolean remove(NulsDigestData hash) {
+        return removeInternal(hash);
+    }
+
+    public synchronized boolean contains(NulsDigestData hash) {
+        return orphans.containsKey(hash);
+    }
+
+    public synchronized List<Transaction> getAll() {
+        List<Transaction> list = new ArrayList<>(orphans.size());
+        for (OrphanTx orphan : orphans.values()) {
+            list.add(orphan.tx);
+        }
+        return list;
+    }
+
+    public synchronized int size() {
+        return orphans.size();
+    }
+
+    public synchronized long getBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getPeerCount(String fromNodeId) {
+        Set<NulsDigestData> set = sourceMap.get(fromNodeId == null ? LOCAL_SOURCE : fromNodeId);
+        return set == null ? 0 : set.size();
+    }
+
+    public synchronized long getAddedCount() {
+        return addedCount;
+    }
+
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    public synchronized long getWokenCount() {
+        return wokenCount;
+    }
+
+    public synchronized void clear() {
+        orphans.clear();
+        waitingMap.clear();
+        sourceMap.clear();
+        totalBytes = 0;
+    }
+
+    private void evict() {
+        while (!orphans.isEmpty() && (orphans.size() > maxCount || totalBytes > maxBytes)) {
+            removeInternal(orphans.keySet().iterator().next());
+            evictedCount++;
+        }
+    }
+
+    private boolean removeInternal(NulsDigestData hash) {
+        OrphanTx orphan = orphans.remove(hash);
+        if (orphan == null) {
+            return false;
+        }
+        totalBytes -= orphan.size;
+        for (ByteArrayWrapper outpoint : orphan.missing) {
+            Set<NulsDigestData> waiting = waitingMap.get(outpoint);
+            if (waiting != null) {
+                waiting.remove(hash);
+                if (waiting.isEmpty()) {
+                    waitingMap.remove(outpoint);
+                }
+            }
+        }
+        Set<NulsDigestData> sourceSet = sourceMap.get(orphan.source);
+        if (sourceSet != null) {
+            sourceSet.remove(hash);
+            if (sourceSet.isEmpty()) {
+                sourceMap.remove(orphan.source);
+            }
+        }
+        return true;
+    }
+
+    public static class OrphanTx {
+        private final Transaction tx;
+        private final String fromNodeId;
+        private final String source;
+        private final int size;
+        private final Set<ByteArrayWrapper> missing;
+        private final long sequence;
+
+        OrphanTx(Transaction tx, String fromNodeId, String source, int size, Set<ByteArrayWrapper> missing, long sequence) {
+            this.tx = tx;
+            this.fromNodeId = fromNodeId;
+            this.source = source;
+            this.size = size;
+            this.missing = missing;
+            this.sequence = sequence;
+        }
+
+        public Transaction getTx() {
+            return tx;
+        }
+
+        public String getFromNodeId() {
+            return fromNodeId;
+        }
+    }
+}
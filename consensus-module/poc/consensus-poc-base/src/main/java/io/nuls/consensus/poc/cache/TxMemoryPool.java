@@ -26,7 +26,6 @@
 
 package io.nuls.consensus.poc.cache;
 
-import io.nuls.cache.LimitHashMap;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Transaction;
 
@@ -48,13 +47,13 @@ public final class TxMemoryPool {
 
     private Queue<Transaction> txQueue;
 
-    private LimitHashMap<NulsDigestData, Transaction> orphanContainer;
+    private final OrphanTxPool orphanPool;
 
     private TxMemoryPool() {
         txQueue = new LinkedBlockingDeque<>();
 
 //        orphanContainer = new CacheMap<>("orphan-txs", 256, NulsDigestData.class, TxContainer.class, 3600, 0, null);
-        this.orphanContainer = new LimitHashMap(200000);
+        this.orphanPool = new OrphanTxPool(200000, 32 * 1024L * 1024L, 5000);
     }
 
     public static TxMemoryPool getInstance() {
@@ -68,8 +67,7 @@ public final class TxMemoryPool {
             }
             //check Repeatability
             if (isOrphan) {
-                NulsDigestData hash = tx.getHash();
-                orphanContainer.put(hash, tx);
+                orphanPool.add(tx, null, null);
             } else {
                 ((LinkedBlockingDeque) txQueue).addFirst(tx);
             }
@@ -85,8 +83,7 @@ public final class TxMemoryPool {
             }
             //check Repeatability
             if (isOrphan) {
-                NulsDigestData hash = tx.getHash();
-                orphanContainer.put(hash, tx);
+                orphanPool.add(tx, null, null);
             } else {
                 txQueue.offer(tx);
             }
@@ -116,7 +113,7 @@ public final class TxMemoryPool {
     }
 
     public List<Transaction> getAllOrphan() {
-        return new ArrayList<>(orphanContainer.values());
+        return orphanPool.getAll();
     }
 
     public boolean remove(NulsDigestData hash) {
@@ -124,20 +121,20 @@ public final class TxMemoryPool {
 //        if (obj != null) {
 //            txHashQueue.remove(hash);
 //        } else {
-        orphanContainer.remove(hash);
+        orphanPool.remove(hash);
 //        }
         return true;
     }
 
     public boolean exist(NulsDigestData hash) {
-        return /*container.containsKey(hash) || */orphanContainer.containsKey(hash);
+        return /*container.containsKey(hash) || */orphanPool.contains(hash);
     }
 
     public void clear() {
         try {
             txQueue.clear();
 
-            orphanContainer.clear();
+            orphanPool.clear();
         } finally {
         }
     }
@@ -151,10 +148,14 @@ public final class TxMemoryPool {
     }
 
     public int getOrphanPoolSize() {
-        return orphanContainer.size();
+        return orphanPool.size();
     }
 
     public void removeOrphan(NulsDigestData hash) {
-        this.orphanContainer.remove(hash);
+        this.orphanPool.remove(hash);
+    }
+
+    public OrphanTxPool getOrphanPool() {
+        return orphanPool;
     }
 }
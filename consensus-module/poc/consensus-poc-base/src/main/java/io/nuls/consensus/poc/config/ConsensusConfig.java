@@ -45,6 +45,11 @@ public class ConsensusConfig {
     private final static String PROPERTY_SEED_NODES = "seed.nodes";
     private final static String MIN_PROTOCOL_UPGRADE_DELAY = "min.upgrade.delay";
     private final static String SEED_NODES_DELIMITER = ",";
+    private final static String PROPERTY_ORPHAN_MAX_COUNT = "orphan.max.count";
+    private final static String PROPERTY_ORPHAN_MAX_SIZE = "orphan.max.size";
+    private final static String PROPERTY_ORPHAN_PEER_MAX_COUNT = "orphan.peer.max.count";
+    private final static String PROPERTY_TX_QUEUE_MAX_SIZE = "tx.queue.max.size";
+    private final static String PROPERTY_TX_VERIFY_THREADS = "tx.verify.threads";
 
     private static boolean partakePacking = false;
     private static List<byte[]> seedNodeBytesList = new ArrayList<>();
@@ -53,6 +58,23 @@ public class ConsensusConfig {
 
     private static int minProtocolUpgradeDelay;
 
+    /**
+     * 孤儿交易池的总条数、总大小(MB)和每个节点的条数上限
+     */
+    private static int orphanMaxCount = 200000;
+    private static int orphanMaxSize = 32;
+    private static int orphanPeerMaxCount = 5000;
+
+    /**
+     * 待处理交易队列的总大小(MB)
+     */
+    private static int txQueueMaxSize = 128;
+
+    /**
+     * 交易验证的线程数，0表示 cpu核数-1
+     */
+    private static int txVerifyThreads = 0;
+
 
     public static void initConfiguration() throws Exception {
 
@@ -60,6 +82,11 @@ public class ConsensusConfig {
         NulsContext.getInstance().setGenesisBlock(genesisBlock);
 
         partakePacking = NulsConfig.MODULES_CONFIG.getCfgValue(CFG_CONSENSUS_SECTION, PROPERTY_PARTAKE_PACKING, false);
+        orphanMaxCount = NulsConfig.MODULES_CONFIG.getCfgValue(CFG_CONSENSUS_SECTION, PROPERTY_ORPHAN_MAX_COUNT, orphanMaxCount);
+        orphanMaxSize = NulsConfig.MODULES_CONFIG.getCfgValue(CFG_CONSENSUS_SECTION, PROPERTY_ORPHAN_MAX_SIZE, orphanMaxSize);
+        orphanPeerMaxCount = NulsConfig.MODULES_CONFIG.getCfgValue(CFG_CONSENSUS_SECTION, PROPERTY_ORPHAN_PEER_MAX_COUNT, orphanPeerMaxCount);
+        txQueueMaxSize = NulsConfig.MODULES_CONFIG.getCfgValue(CFG_CONSENSUS_SECTION, PROPERTY_TX_QUEUE_MAX_SIZE, txQueueMaxSize);
+        txVerifyThreads = NulsConfig.MODULES_CONFIG.getCfgValue(CFG_CONSENSUS_SECTION, PROPERTY_TX_VERIFY_THREADS, txVerifyThreads);
         Set<String> seedAddressSet = new HashSet<>();
         String addresses = NulsConfig.MODULES_CONFIG.getCfgValue(CFG_CONSENSUS_SECTION, PROPERTY_SEED_NODES, "");
         if (StringUtils.isBlank(addresses)) {
@@ -96,4 +123,24 @@ public class ConsensusConfig {
     public static int getMinProtocolUpgradeDelay() {
         return minProtocolUpgradeDelay;
     }
+
+    public static int getOrphanMaxCount() {
+        return orphanMaxCount;
+    }
+
+    public static int getOrphanMaxSize() {
+        return orphanMaxSize;
+    }
+
+    public static int getOrphanPeerMaxCount() {
+        return orphanPeerMaxCount;
+    }
+
+    public static int getTxQueueMaxSize() {
+        return txQueueMaxSize;
+    }
+
+    public static int getTxVerifyThreads() {
+        return txVerifyThreads;
+    }
 }
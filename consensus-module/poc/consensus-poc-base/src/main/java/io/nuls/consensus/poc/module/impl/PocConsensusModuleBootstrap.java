@@ -27,18 +27,33 @@ package io.nuls.consensus.poc.module.impl;
 
 import io.nuls.consensus.module.AbstractConsensusModule;
 import io.nuls.consensus.poc.block.validator.BifurcationUtil;
+import io.nuls.consensus.poc.cache.TxMemoryPool;
 import io.nuls.consensus.poc.config.ConsensusConfig;
 import io.nuls.consensus.poc.constant.ConsensusStatus;
 import io.nuls.consensus.poc.context.ConsensusStatusContext;
 import io.nuls.consensus.poc.model.Evidence;
+import io.nuls.consensus.poc.protocol.tx.CancelDepositTransaction;
+import io.nuls.consensus.poc.protocol.tx.CreateAgentTransaction;
+import io.nuls.consensus.poc.protocol.tx.DepositTransaction;
+import io.nuls.consensus.poc.protocol.tx.RedPunishTransaction;
+import io.nuls.consensus.poc.protocol.tx.StopAgentTransaction;
+import io.nuls.consensus.poc.protocol.tx.YellowPunishTransaction;
 import io.nuls.consensus.poc.scheduler.ConsensusScheduler;
 import io.nuls.consensus.poc.storage.po.EvidencePo;
 import io.nuls.consensus.poc.storage.service.BifurcationEvidenceStorageService;
+import io.nuls.consensus.poc.storage.service.TransactionQueueStorageService;
+import io.nuls.consensus.poc.tx.processor.CancelDepositTxProcessor;
+import io.nuls.consensus.poc.tx.processor.CreateAgentTxProcessor;
+import io.nuls.consensus.poc.tx.processor.DepositTxProcessor;
+import io.nuls.consensus.poc.tx.processor.RedPunishTxProcessor;
+import io.nuls.consensus.poc.tx.processor.StopAgentTxProcessor;
+import io.nuls.consensus.poc.tx.processor.YellowPunishTxProcessor;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.ModuleStatusEnum;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.thread.BaseThread;
 import io.nuls.kernel.thread.manager.TaskManager;
+import io.nuls.kernel.utils.TransactionManager;
 import io.nuls.protocol.constant.ProtocolConstant;
 
 import java.util.List;
@@ -51,8 +66,17 @@ public class PocConsensusModuleBootstrap extends AbstractConsensusModule {
 
     @Override
     public void init() throws Exception {
+        TransactionManager.putTx(CreateAgentTransaction.class, CreateAgentTxProcessor.class, CreateAgentTransaction::new);
+        TransactionManager.putTx(DepositTransaction.class, DepositTxProcessor.class, DepositTransaction::new);
+        TransactionManager.putTx(CancelDepositTransaction.class, CancelDepositTxProcessor.class, CancelDepositTransaction::new);
+        TransactionManager.putTx(StopAgentTransaction.class, StopAgentTxProcessor.class, StopAgentTransaction::new);
+        TransactionManager.putTx(YellowPunishTransaction.class, YellowPunishTxProcessor.class, YellowPunishTransaction::new);
+        TransactionManager.putTx(RedPunishTransaction.class, RedPunishTxProcessor.class, RedPunishTransaction::new);
         ConsensusStatusContext.setConsensusStatus(ConsensusStatus.INITING);
         ConsensusConfig.initConfiguration();
+        TxMemoryPool.getInstance().getOrphanPool().setLimits(ConsensusConfig.getOrphanMaxCount(),
+                ConsensusConfig.getOrphanMaxSize() * 1024L * 1024L, ConsensusConfig.getOrphanPeerMaxCount());
+        NulsContext.getServiceBean(TransactionQueueStorageService.class).setMaxBytes(ConsensusConfig.getTxQueueMaxSize() * 1024L * 1024L);
         BifurcationEvidenceStorageService bes = NulsContext.getServiceBean(BifurcationEvidenceStorageService.class);
 
         Map<String, List<EvidencePo>> map = bes.getBifurcationEvidence();
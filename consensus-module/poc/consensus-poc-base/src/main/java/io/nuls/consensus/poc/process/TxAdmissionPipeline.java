@@ -0,0 +1,379 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.consensus.poc.process;
+
+import io.nuls.consensus.constant.ConsensusConstant;
+import io.nuls.consensus.poc.storage.model.QueuedTx;
+import io.nuls.consensus.poc.storage.service.TransactionCacheStorageService;
+import io.nuls.consensus.poc.storage.service.TransactionQueueStorageService;
+import io.nuls.consensus.poc.task.TxProcessTask;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
+import io.nuls.ledger.service.LedgerService;
+import io.nuls.protocol.service.TransactionService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 交易准入流水线
+ * 1. 验证阶段：多个工作线程从待处理队列取交易，并行执行与状态无关的验证(格式、签名、脚本，即 tx.verify())；
+ * 2. 写入阶段：单线程(TxProcessTask)做重复检查、coinData(UTXO冲突)验证、放入内存池和孤儿交易处理；
+ * 3. 持久化阶段：单线程把已接受的交易批量写入交易缓存后再转发，写入期间已被区块确认的交易从缓存中删除，重试后仍写入失败的批次不转发。
+ * 阶段之间使用有界队列，后一阶段处理不过来时前一阶段阻塞，最终待处理队列达到字节额度，
+ * 此时 isBusy() 为true，网络层不再向其它节点请求新交易。
+ * 多个验证线程之间不保证顺序，子交易先于父交易到达写入阶段时作为孤儿交易，父交易被接受后再被唤醒。
+ * <p>
+ * Transaction admission pipeline: parallel stateless verification, a single writer for utxo conflicts and mempool
+ * insertion, then asynchronous batched persistence and relay. Stages are joined by bounded queues so a slow stage
+ * pushes back on the previous one and finally on the network layer through isBusy().
+ */
+public class TxAdmissionPipeline {
+
+    private static final TxAdmissionPipeline INSTANCE = new TxAdmissionPipeline();
+
+    /**
+     * 验证线程每次从待处理队列取出的交易数
+     */
+    private static final int VERIFY_BATCH_SIZE = 64;
+
+    /**
+     * 阶段之间的队列最多缓存的批次数
+     */
+    private static final int STAGE_QUEUE_CAPACITY = 64;
+
+    /**
+     * 待处理队列的字节数达到额度的该比例时认为繁忙
+     */
+    private static final int BUSY_PERCENT = 75;
+
+    /**
+     * 写入交易缓存失败时的最多尝试次数和重试间隔(毫秒，逐次递增)
+     */
+    private static final int PERSIST_ATTEMPTS = 3;
+    private static final long PERSIST_RETRY_INTERVAL = 100L;
+
+    private final BlockingQueue<List<QueuedTx>> verifiedQueue = new LinkedBlockingQueue<>(STAGE_QUEUE_CAPACITY);
+
+    private final BlockingQueue<List<Transaction>> persistQueue = new LinkedBlockingQueue<>(STAGE_QUEUE_CAPACITY);
+
+    private final StageCounter verifyCounter = new StageCounter();
+    private final StageCounter writeCounter = new StageCounter();
+    private final StageCounter persistCounter = new StageCounter();
+
+    private TransactionQueueStorageService transactionQueueStorageService;
+    private TransactionCacheStorageService transactionCacheStorageService;
+    private TransactionService transactionService;
+    private LedgerService ledgerService;
+
+    private volatile boolean running;
+
+    private ThreadPoolExecutor verifyPool;
+
+    private TxAdmissionPipeline() {
+    }
+
+    public static TxAdmissionPipeline getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param verifyThreads 验证线程数，小于1时使用 cpu核数-1
+     */
+    public synchronized void start(int verifyThreads) {
+        if (running) {
+            return;
+        }
+        if (verifyThreads < 1) {
+            verifyThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        }
+        transactionQueueStorageService = NulsContext.getServiceBean(TransactionQueueStorageService.class);
+        transactionCacheStorageService = NulsContext.getServiceBean(TransactionCacheStorageService.class);
+        transactionService = NulsContext.getServiceBean(TransactionService.class);
+        ledgerService = NulsContext.getServiceBean(LedgerService.class);
+        running = true;
+
+        verifyPool = TaskManager.createThreadPool(verifyThreads, 0,
+                new NulsThreadFactory(ConsensusConstant.MODULE_ID_CONSENSUS, "tx-verify"));
+        for (int i = 0; i < verifyThreads; i++) {
+            verifyPool.execute(this::verifyLoop);
+        }
+        TaskManager.createAndRunThread(ConsensusConstant.MODULE_ID_CONSENSUS, "tx-process", new TxProcessTask(this));
+        TaskManager.createAndRunThread(ConsensusConstant.MODULE_ID_CONSENSUS, "tx-persist", this::persistLoop);
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        verifyPool.shutdownNow();
+        verifyPool = null;
+        verifiedQueue.clear();
+        persistQueue.clear();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 流水线是否已经处理不过来，繁忙时网络层不再请求新的交易
+     * Whether the pipeline is saturated, the network layer stops pulling new transactions while busy
+     */
+    public boolean isBusy() {
+        TransactionQueueStorageService queueService = transactionQueueStorageService;
+        if (queueService == null) {
+            return false;
+        }
+        return queueService.getQueuedBytes() * 100 >= queueService.getMaxBytes() * BUSY_PERCENT;
+    }
+
+    /**
+     * 写入阶段取出一批已通过验证的交易，超时返回null
+     */
+    public List<QueuedTx> takeVerified(long timeout, TimeUnit unit) throws InterruptedException {
+        return verifiedQueue.poll(timeout, unit);
+    }
+
+    /**
+     * 写入阶段把已接受的交易交给持久化阶段，队列已满时阻塞
+     */
+    public void persist(List<Transaction> txList) throws InterruptedException {
+        if (txList.isEmpty()) {
+            return;
+        }
+        persistQueue.put(txList);
+    }
+
+    public StageCounter getWriteCounter() {
+        return writeCounter;
+    }
+
+    private void verifyLoop() {
+        while (running) {
+            try {
+                List<QueuedTx> itemList = transactionQueueStorageService.pollTxs(VERIFY_BATCH_SIZE);
+                if (itemList.isEmpty()) {
+                    Thread.sleep(10L);
+                    continue;
+                }
+                long start = System.nanoTime();
+                List<QueuedTx> passedList = new ArrayList<>(itemList.size());
+                for (QueuedTx item : itemList) {
+                    if (verify(item.getTx())) {
+                        passedList.add(item);
+                    }
+                }
+                verifyCounter.add(itemList.size(), itemList.size() - passedList.size(), System.nanoTime() - start);
+                if (!passedList.isEmpty()) {
+                    verifiedQueue.put(passedList);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                Log.error(e);
+            }
+        }
+    }
+
+    private boolean verify(Transaction tx) {
+        try {
+            Result result = tx.verify();
+            return result.isSuccess();
+        } catch (Exception e) {
+            Log.error(e);
+            return false;
+        }
+    }
+
+    private void persistLoop() {
+        while (running) {
+            List<Transaction> txList;
+            try {
+                txList = persistQueue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (txList == null) {
+                continue;
+            }
+            try {
+                persistBatch(txList);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                Log.error(e);
+            }
+        }
+    }
+
+    /**
+     * 把一批交易写入交易缓存后转发，写入失败时重试，仍然失败的批次不转发：
+     * 其它节点收到转发后会来请求交易，缓存中没有时无法响应，这些交易留在内存池中等待打包
+     *
+     * @return 是否写入成功
+     */
+    boolean persistBatch(List<Transaction> txList) throws InterruptedException {
+        long start = System.nanoTime();
+        boolean saved = transactionCacheStorageService.putTxs(txList);
+        for (int i = 1; !saved && i < PERSIST_ATTEMPTS; i++) {
+            Thread.sleep(PERSIST_RETRY_INTERVAL * i);
+            saved = transactionCacheStorageService.putTxs(txList);
+        }
+        if (!saved) {
+            Log.error("persist " + txList.size() + " transactions to the tx cache failed, skip forwarding them");
+            persistCounter.add(txList.size(), txList.size(), System.nanoTime() - start);
+            return false;
+        }
+        for (Transaction tx : txList) {
+            // 交易可能在写入阶段之后被区块确认，区块处理先保存区块再从缓存中删除交易，
+            // 所以写入缓存后再检查一次，已确认的交易由这里删除，不再转发
+            if (ledgerService.getTx(tx.getHash()) != null) {
+                transactionCacheStorageService.removeTx(tx.getHash());
+                continue;
+            }
+            transactionService.forwardTx(tx, null);
+        }
+        persistCounter.add(txList.size(), 0, System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * 各阶段的统计，依次为待处理队列、验证、写入、持久化
+     * Statistics of each stage: incoming queue, verify, write and persist
+     */
+    public List<StageStats> getStats() {
+        List<StageStats> list = new ArrayList<>(4);
+        StageStats incoming = new StageStats("incoming");
+        if (transactionQueueStorageService != null) {
+            incoming.setQueueSize(transactionQueueStorageService.size());
+            incoming.setQueuedBytes(transactionQueueStorageService.getQueuedBytes());
+            incoming.setFailedCount(transactionQueueStorageService.getRejectedCount());
+        }
+        list.add(incoming);
+        list.add(verifyCounter.toStats("verify", transactionQueueStorageService == null ? 0 : transactionQueueStorageService.size()));
+        list.add(writeCounter.toStats("write", verifiedQueue.size()));
+        list.add(persistCounter.toStats("persist", persistQueue.size()));
+        return list;
+    }
+
+    /**
+     * 单个阶段的累计计数
+     */
+    public static class StageCounter {
+        private final AtomicLong processedCount = new AtomicLong();
+        private final AtomicLong failedCount = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+
+        public void add(int processed, int failed, long nanos) {
+            processedCount.addAndGet(processed);
+            failedCount.addAndGet(failed);
+            busyNanos.addAndGet(nanos);
+        }
+
+        StageStats toStats(String name, int queueSize) {
+            StageStats stats = new StageStats(name);
+            stats.setQueueSize(queueSize);
+            stats.setProcessedCount(processedCount.get());
+            stats.setFailedCount(failedCount.get());
+            stats.setBusyMillis(busyNanos.get() / 1000000);
+            return stats;
+        }
+    }
+
+    /**
+     * 单个阶段的统计：等待该阶段处理的队列长度(待处理队列和验证阶段为交易数，其它阶段为批次数)、
+     * 已处理的交易数、未通过(或拒绝)的交易数和累计处理耗时
+     */
+    public static class StageStats {
+        private final String name;
+        private int queueSize;
+        private long queuedBytes;
+        private long processedCount;
+        private long failedCount;
+        private long busyMillis;
+
+        public StageStats(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+
+        public long getQueuedBytes() {
+            return queuedBytes;
+        }
+
+        public void setQueuedBytes(long queuedBytes) {
+            this.queuedBytes = queuedBytes;
+        }
+
+        public long getProcessedCount() {
+            return processedCount;
+        }
+
+        public void setProcessedCount(long processedCount) {
+            this.processedCount = processedCount;
+        }
+
+        public long getFailedCount() {
+            return failedCount;
+        }
+
+        public void setFailedCount(long failedCount) {
+            this.failedCount = failedCount;
+        }
+
+        public long getBusyMillis() {
+            return busyMillis;
+        }
+
+        public void setBusyMillis(long busyMillis) {
+            this.busyMillis = busyMillis;
+        }
+    }
+}
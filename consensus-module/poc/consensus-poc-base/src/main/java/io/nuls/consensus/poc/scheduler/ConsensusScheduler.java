@@ -26,6 +26,7 @@
 
 package io.nuls.consensus.poc.scheduler;
 
+import io.nuls.consensus.poc.config.ConsensusConfig;
 import io.nuls.consensus.poc.constant.ConsensusStatus;
 import io.nuls.consensus.poc.context.ConsensusStatusContext;
 import io.nuls.consensus.poc.context.PocConsensusContext;
@@ -113,7 +114,7 @@ public class ConsensusScheduler {
 
         threadPool.scheduleAtFixedRate(new RewardCalculatorTask(NulsContext.getServiceBean(RewardStatisticsProcess.class)), ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND, ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND, TimeUnit.SECONDS);
 
-        threadPool.scheduleAtFixedRate(new TxProcessTask(), 5, 1, TimeUnit.SECONDS);
+        TxAdmissionPipeline.getInstance().start(ConsensusConfig.getTxVerifyThreads());
 
         ConsensusProcess consensusProcess = new ConsensusProcess(chainManager);
         threadPool.scheduleAtFixedRate(new ConsensusProcessTask(consensusProcess), 1000L, 1000L, TimeUnit.MILLISECONDS);
@@ -170,6 +171,7 @@ public class ConsensusScheduler {
         clear();
 
         orphanBlockProcess.stop();
+        TxAdmissionPipeline.getInstance().stop();
         threadPool.shutdown();
 
         return true;
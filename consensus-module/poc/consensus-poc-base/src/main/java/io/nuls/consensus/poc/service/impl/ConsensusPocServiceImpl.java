@@ -33,6 +33,7 @@ import io.nuls.consensus.poc.container.BlockContainer;
 import io.nuls.consensus.poc.locker.Lockers;
 import io.nuls.consensus.poc.process.NulsProtocolProcess;
 import io.nuls.consensus.poc.process.RewardStatisticsProcess;
+import io.nuls.consensus.poc.process.TxAdmissionPipeline;
 import io.nuls.consensus.poc.provider.BlockQueueProvider;
 import io.nuls.consensus.poc.scheduler.ConsensusScheduler;
 import io.nuls.consensus.poc.storage.constant.ConsensusStorageConstant;
@@ -92,10 +93,20 @@ public class ConsensusPocServiceImpl implements ConsensusService {
 //        }
 
 //        boolean success = txMemoryPool.add(new TxContainer(tx), false);
-        boolean success = transactionQueueStorageService.putTx(tx);
+        return newTx(tx, null);
+    }
+
+    @Override
+    public Result newTx(Transaction<? extends BaseNulsData> tx, Node fromNode) {
+        boolean success = transactionQueueStorageService.putTx(tx, fromNode == null ? null : fromNode.getId());
         return new Result(success, null);
     }
 
+    @Override
+    public boolean isTxQueueBusy() {
+        return TxAdmissionPipeline.getInstance().isBusy();
+    }
+
     @Override
     public Result newBlock(Block block) {
         return newBlock(block, null);
@@ -32,11 +32,13 @@ import io.nuls.account.service.AccountService;
 import io.nuls.consensus.poc.model.RewardItem;
 import io.nuls.core.tools.crypto.Base58;
 import io.nuls.core.tools.log.Log;
-import io.nuls.kernel.context.NulsContext;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.DBSnapshot;
 import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
 import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.Na;
 import io.nuls.kernel.utils.AddressTool;
@@ -71,21 +73,45 @@ public class PocRewardCacheService {
     private BlockService blockService;
     @Autowired
     private LedgerService ledgerService;
+    @Autowired
+    private DBService dbService;
 
+    /**
+     * 在同一个快照上读取区块、账户交易和UTXO总量，统计结果对应快照的高度，之后的区块由 addBlock 继续累加
+     */
     public void initCache() {
         Collection<Account> accountList = accountService.getAccountList().getData();
         if (null == accountList || accountList.isEmpty()) {
             return;
         }
+        DBSnapshot snapshot = dbService.getSnapshot();
+        snapshot.bind();
+        try {
+            long bestHeight = snapshot.getHeight();
+            if (bestHeight < 0) {
+                // 升级后还没有提交过区块，从快照中读取最新区块高度，保证和快照一致
+                BlockHeader bestBlockHeader = blockService.getBestBlockHeader().getData();
+                if (null == bestBlockHeader) {
+                    return;
+                }
+                bestHeight = bestBlockHeader.getHeight();
+            }
+            this.initCache(accountList, bestHeight);
+        } finally {
+            snapshot.unbind();
+            snapshot.close();
+        }
+    }
 
+    private void initCache(Collection<Account> accountList, long bestHeight) {
         long startTime = TimeService.currentTimeMillis() - 24 * 3600000L;
-        long startHeight = NulsContext.getInstance().getBestHeight() - (24 * 3600 / ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND);
+        long startHeight = bestHeight - (24 * 3600 / ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND);
 
         if (startHeight <= 0) {
             startHeight = 1;
         }
         long index = startHeight;
-        while (true) {
+        while (index <= bestHeight) {
             Block block = blockService.getBlock(index++).getData();
             if (null == block) {
                 break;
@@ -108,7 +134,7 @@ public class PocRewardCacheService {
         }
 
         long totalValue = ledgerService.getWholeUTXO();
-        this.totalRewardHeight = NulsContext.getInstance().getBestHeight();
+        this.totalRewardHeight = bestHeight;
         this.totalReward = Na.valueOf(totalValue - Na.MAX_NA_VALUE);
     }
 
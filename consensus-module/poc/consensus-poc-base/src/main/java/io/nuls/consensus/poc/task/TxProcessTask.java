@@ -25,104 +25,179 @@
 
 package io.nuls.consensus.poc.task;
 
+import io.nuls.consensus.poc.cache.OrphanTxPool;
 import io.nuls.consensus.poc.cache.TxMemoryPool;
-import io.nuls.consensus.poc.storage.service.TransactionCacheStorageService;
-import io.nuls.consensus.poc.storage.service.TransactionQueueStorageService;
+import io.nuls.consensus.poc.process.TxAdmissionPipeline;
+import io.nuls.consensus.poc.storage.model.QueuedTx;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.TransactionErrorCode;
 import io.nuls.kernel.context.NulsContext;
-import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.func.TimeService;
 import io.nuls.kernel.model.Coin;
-import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
 import io.nuls.kernel.validate.ValidateResult;
 import io.nuls.ledger.service.LedgerService;
 import io.nuls.ledger.util.LedgerUtil;
-import io.nuls.protocol.service.TransactionService;
-import io.nuls.protocol.utils.TransactionTimeComparator;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * 交易准入流水线的写入阶段，单线程执行，见 TxAdmissionPipeline
+ * 从验证阶段取出已通过 tx.verify() 的交易，做重复检查和coinData验证后放入内存池，已接受的交易按批交给持久化阶段。
+ * 孤儿交易按缺失的输入放入 OrphanTxPool，交易被接受后只重新验证花费它的输出的孤儿交易；
+ * 父交易通过区块确认的孤儿交易由定时的扫描唤醒，扫描只查询缺失的输入是否已经存在，不重新验证交易。
+ *
  * @author: Niels Wang
  * @date: 2018/7/5
  */
 public class TxProcessTask implements Runnable {
 
-    private TxMemoryPool pool = TxMemoryPool.getInstance();
+    /**
+     * 扫描孤儿交易池的间隔
+     */
+    private static final long ORPHAN_SWEEP_INTERVAL = 10000L;
+
+    /**
+     * 交易时间早于该时长的孤儿交易直接丢弃
+     */
+    private static final long ORPHAN_EXPIRE_TIME = 3600000L;
 
-    private LedgerService ledgerService = NulsContext.getServiceBean(LedgerService.class);
-    private TransactionCacheStorageService transactionCacheStorageService = NulsContext.getServiceBean(TransactionCacheStorageService.class);
-    private TransactionQueueStorageService transactionQueueStorageService = NulsContext.getServiceBean(TransactionQueueStorageService.class);
+    /**
+     * 交给持久化阶段的每批交易的最大条数
+     */
+    private static final int BATCH_SIZE = 1000;
 
-    private TransactionService transactionService = NulsContext.getServiceBean(TransactionService.class);
+    /**
+     * 内存池中的交易数达到该值时暂停处理
+     */
+    private static final int MAX_POOL_SIZE = 1000000;
+
+    private final TxAdmissionPipeline pipeline;
+
+    private TxMemoryPool pool = TxMemoryPool.getInstance();
 
-    private TransactionTimeComparator txComparator = TransactionTimeComparator.getInstance();
+    private OrphanTxPool orphanPool = pool.getOrphanPool();
+
+    private final LedgerService ledgerService;
 
     private Map<String, Coin> temporaryToMap = new HashMap<>();
     private Set<String> temporaryFromSet = new HashSet<>();
 
-    private List<Transaction> orphanTxList = new ArrayList<>();
+    /**
+     * 已接受、还未交给持久化阶段的交易
+     */
+    private List<Transaction> acceptedList = new ArrayList<>();
+
+    private long lastSweepTime;
 
-    private static int maxOrphanSize = 200000;
+    private long acceptedCount;
 
-//    int count = 0;
-//    int size = 0;
+    public TxProcessTask(TxAdmissionPipeline pipeline) {
+        this(pipeline, NulsContext.getServiceBean(LedgerService.class));
+    }
+
+    TxProcessTask(TxAdmissionPipeline pipeline, LedgerService ledgerService) {
+        this.pipeline = pipeline;
+        this.ledgerService = ledgerService;
+    }
 
     @Override
     public void run() {
-        try {
-            doTask();
-        } catch (Exception e) {
-            Log.error(e);
-        }
-        try {
-            doOrphanTxTask();
-        } catch (Exception e) {
-            Log.error(e);
+        while (pipeline.isRunning()) {
+            try {
+                doTask();
+                doOrphanTxTask();
+                flushAccepted();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                Log.error(e);
+            }
         }
-//        System.out.println("count: " + count + " , size : " + size + " , orphan size : " + orphanTxList.size());
     }
 
-    private void doTask() {
-
-        if (TxMemoryPool.getInstance().getPoolSize() >= 1000000L) {
+    private void doTask() throws InterruptedException {
+        if (pool.getPoolSize() >= MAX_POOL_SIZE) {
+            Thread.sleep(1000L);
             return;
         }
-
-        Transaction tx = null;
-        while ((tx = transactionQueueStorageService.pollTx()) != null && orphanTxList.size() < maxOrphanSize) {
-//            size++;
-            processTx(tx, false);
+        List<QueuedTx> itemList = pipeline.takeVerified(1, TimeUnit.SECONDS);
+        if (itemList == null) {
+            return;
         }
+        long start = System.nanoTime();
+        long accepted = acceptedCount;
+        for (QueuedTx item : itemList) {
+            processTx(item.getTx(), item.getFromNodeId());
+            if (acceptedList.size() >= BATCH_SIZE) {
+                flushAccepted();
+            }
+        }
+        pipeline.getWriteCounter().add(itemList.size(), itemList.size() - (int) (acceptedCount - accepted), System.nanoTime() - start);
     }
 
+    /**
+     * 已接受的交易交给持久化阶段，由它批量写入交易缓存后再转发，保证其它节点来请求时缓存中已经有该交易
+     */
+    void flushAccepted() throws InterruptedException {
+        if (acceptedList.isEmpty()) {
+            return;
+        }
+        List<Transaction> txList = acceptedList;
+        acceptedList = new ArrayList<>();
+        pipeline.persist(txList);
+    }
 
+    /**
+     * 丢弃过期的孤儿交易，唤醒缺失的输入已经存在(父交易已被区块确认)的孤儿交易
+     */
     private void doOrphanTxTask() {
-        orphanTxList.sort(txComparator);
-
-        Iterator<Transaction> it = orphanTxList.iterator();
-        while (it.hasNext()) {
-            Transaction tx = it.next();
-            boolean success = processTx(tx, true);
-            if (success) {
-                it.remove();
+        long now = TimeService.currentTimeMillis();
+        if (now - lastSweepTime < ORPHAN_SWEEP_INTERVAL || orphanPool.size() == 0) {
+            return;
+        }
+        lastSweepTime = now;
+        orphanPool.removeBefore(now - ORPHAN_EXPIRE_TIME);
+        for (byte[] outpoint : orphanPool.getMissingOutpoints()) {
+            if (isAvailable(outpoint)) {
+                processOrphans(orphanPool.wake(outpoint));
             }
         }
     }
 
+    /**
+     * 验证交易的coinData，通过后放入内存池并唤醒依赖它的孤儿交易，缺少输入时放入孤儿交易池
+     * 进入这里的交易都已经通过了 tx.verify()
+     */
+    void processTx(Transaction tx, String fromNodeId) {
+        if (accept(tx, fromNodeId)) {
+            processOrphans(orphanPool.wake(tx));
+        }
+    }
 
-    private boolean processTx(Transaction tx, boolean isOrphanTx) {
-        try {
-            Result result = tx.verify();
-            if (result.isFailed()) {
-                return false;
+    /**
+     * 依次处理被唤醒的孤儿交易，被接受的孤儿交易继续唤醒它自己的子交易
+     */
+    private void processOrphans(List<OrphanTxPool.OrphanTx> orphanList) {
+        if (orphanList.isEmpty()) {
+            return;
+        }
+        Deque<OrphanTxPool.OrphanTx> deque = new ArrayDeque<>(orphanList);
+        while (!deque.isEmpty()) {
+            OrphanTxPool.OrphanTx orphan = deque.poll();
+            if (accept(orphan.getTx(), orphan.getFromNodeId())) {
+                deque.addAll(orphanPool.wake(orphan.getTx()));
             }
+        }
+    }
 
+    private boolean accept(Transaction tx, String fromNodeId) {
+        try {
             Transaction tempTx = ledgerService.getTx(tx.getHash());
             if (tempTx != null) {
-                return isOrphanTx;
+                return false;
             }
 
             ValidateResult validateResult = ledgerService.verifyCoinData(tx, temporaryToMap, temporaryFromSet);
@@ -135,16 +210,12 @@ public class TxProcessTask implements Runnable {
                     temporaryFromSet.remove(key);
                     temporaryToMap.remove(key);
                 }
-//                count++;
-
-                transactionCacheStorageService.putTx(tx);
-                transactionService.forwardTx(tx, null);
 
+                acceptedCount++;
+                acceptedList.add(tx);
                 return true;
-            } else if (validateResult.getErrorCode().equals(TransactionErrorCode.ORPHAN_TX) && !isOrphanTx) {
-                processOrphanTx(tx);
-            } else if (isOrphanTx) {
-                return tx.getTime() < (TimeService.currentTimeMillis() - 3600000L);
+            } else if (validateResult.getErrorCode().equals(TransactionErrorCode.ORPHAN_TX)) {
+                orphanPool.add(tx, fromNodeId, getMissingOutpoints(tx));
             }
         } catch (Exception e) {
             Log.error(e);
@@ -152,7 +223,20 @@ public class TxProcessTask implements Runnable {
         return false;
     }
 
-    private void processOrphanTx(Transaction tx) throws NulsException {
-        orphanTxList.add(tx);
+    /**
+     * 交易引用的、在账本和已接受的未确认交易中都不存在的输入
+     */
+    private List<byte[]> getMissingOutpoints(Transaction tx) {
+        List<byte[]> list = new ArrayList<>();
+        for (Coin coin : tx.getCoinData().getFrom()) {
+            if (!isAvailable(coin.getOwner())) {
+                list.add(coin.getOwner());
+            }
+        }
+        return list;
+    }
+
+    private boolean isAvailable(byte[] outpoint) {
+        return temporaryToMap.containsKey(LedgerUtil.asString(outpoint)) || ledgerService.getUtxo(outpoint) != null;
     }
 }
@@ -0,0 +1,136 @@
+package io.nuls.consensus.poc.cache;
+
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.CoinData;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.VarInt;
+import io.nuls.protocol.model.tx.TransferTransaction;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OrphanTxPoolTest {
+
+    private long time = 1540000000000L;
+
+    @Test
+    public void wakeByParent() throws IOException {
+        OrphanTxPool pool = new OrphanTxPool(100, 1024 * 1024, 100);
+        Transaction parent = createTx(null, 2);
+        Transaction child = createTx(parent, 1);
+        Transaction grandChild = createTx(child, 1);
+        Transaction other = createTx(createTx(null, 1), 1);
+
+        assertTrue(pool.add(child, "node1", Collections.singletonList(outpoint(parent, 0))));
+        assertTrue(pool.add(grandChild, "node1", null));
+        assertTrue(pool.add(other, "node2", null));
+        assertFalse(pool.add(child, "node2", null));
+        assertEquals(3, pool.size());
+
+        List<OrphanTxPool.OrphanTx> woken = pool.wake(parent);
+        assertEquals(1, woken.size());
+        assertEquals(child.getHash(), woken.get(0).getTx().getHash());
+        assertEquals("node1", woken.get(0).getFromNodeId());
+
+        woken = pool.wake(outpoint(child, 0));
+        assertEquals(1, woken.size());
+        assertEquals(grandChild.getHash(), woken.get(0).getTx().getHash());
+
+        assertEquals(1, pool.size());
+        assertTrue(pool.contains(other.getHash()));
+        assertEquals(1, pool.getMissingOutpoints().size());
+        assertTrue(pool.wake(parent).isEmpty());
+    }
+
+    @Test
+    public void waitAllInputs() throws IOException {
+        OrphanTxPool pool = new OrphanTxPool(100, 1024 * 1024, 100);
+        Transaction parent1 = createTx(null, 1);
+        Transaction parent2 = createTx(null, 1);
+        Transaction child = createTx(parent1, 1);
+        child.getCoinData().addFrom(new Coin(outpoint(parent2, 0), Na.valueOf(1), 0));
+
+        assertTrue(pool.add(child, null, null));
+        assertTrue(pool.wake(parent1).isEmpty());
+        assertEquals(1, pool.wake(parent2).size());
+        assertEquals(0, pool.size());
+        assertTrue(pool.getMissingOutpoints().isEmpty());
+    }
+
+    @Test
+    public void limits() throws IOException {
+        OrphanTxPool pool = new OrphanTxPool(10, 1024 * 1024, 3);
+        Transaction first = null;
+        for (int i = 0; i < 5; i++) {
+            Transaction tx = createTx(createTx(null, 1), 1);
+            if (first == null) {
+                first = tx;
+            }
+            pool.add(tx, "flood", null);
+        }
+        assertEquals(3, pool.getPeerCount("flood"));
+        assertFalse(pool.contains(first.getHash()));
+        for (int i = 0; i < 20; i++) {
+            pool.add(createTx(createTx(null, 1), 1), "node" + i, null);
+        }
+        assertEquals(10, pool.size());
+
+        Transaction tx = createTx(createTx(null, 1), 1);
+        int size = tx.size();
+        pool.setLimits(100, size * 4, 100);
+        assertEquals(4, pool.size());
+        assertTrue(pool.getBytes() <= size * 4);
+        pool.setLimits(100, size - 1, 100);
+        assertFalse(pool.add(tx, null, null));
+        assertEquals(0, pool.size());
+        assertEquals(0, pool.getBytes());
+    }
+
+    @Test
+    public void expire() throws IOException {
+        OrphanTxPool pool = new OrphanTxPool(100, 1024 * 1024, 100);
+        Transaction old = createTx(createTx(null, 1), 1);
+        Transaction recent = createTx(createTx(null, 1), 1);
+        pool.add(old, null, null);
+        pool.add(recent, null, null);
+        assertEquals(1, pool.removeBefore(recent.getTime()));
+        assertFalse(pool.contains(old.getHash()));
+        assertEquals(1, pool.getMissingOutpoints().size());
+    }
+
+    private Transaction createTx(Transaction parent, int outputs) throws IOException {
+        TransferTransaction tx = new TransferTransaction();
+        tx.setTime(time++);
+        CoinData coinData = new CoinData();
+        byte[] owner;
+        if (parent == null) {
+            byte[] hash = new byte[32];
+            new Random(time).nextBytes(hash);
+            owner = ArraysTool.concatenate(new NulsDigestData(NulsDigestData.DIGEST_ALG_SHA256, hash).serialize(), new VarInt(0).encode());
+        } else {
+            owner = outpoint(parent, 0);
+        }
+        coinData.addFrom(new Coin(owner, Na.valueOf(100000000L), 0));
+        for (int i = 0; i < outputs; i++) {
+            byte[] address = new byte[23];
+            address[0] = 4;
+            address[1] = 1;
+            coinData.addTo(new Coin(address, Na.valueOf(1000L + i), 0));
+        }
+        tx.setCoinData(coinData);
+        tx.setHash(NulsDigestData.calcDigestData(tx.serializeForHash()));
+        return tx;
+    }
+
+    private byte[] outpoint(Transaction tx, int index) throws IOException {
+        return ArraysTool.concatenate(tx.getHash().serialize(), new VarInt(index).encode());
+    }
+}
@@ -67,6 +67,12 @@ public class ConsensusNetworkService implements NetworkService {
         return null;
     }
 
+    @Override
+    public List<Node> getNodesByBestHeight(int count) {
+        // todo auto-generated method stub
+        return null;
+    }
+
     @Override
     public NodeGroup getNodeGroup(String groupName) {
         return null;
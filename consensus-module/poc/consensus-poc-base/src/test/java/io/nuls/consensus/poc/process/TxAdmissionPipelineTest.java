@@ -0,0 +1,108 @@
+package io.nuls.consensus.poc.process;
+
+import io.nuls.consensus.poc.storage.service.TransactionCacheStorageService;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.ledger.service.LedgerService;
+import io.nuls.protocol.model.tx.TransferTransaction;
+import io.nuls.protocol.service.TransactionService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TxAdmissionPipelineTest {
+
+    private TxAdmissionPipeline pipeline = TxAdmissionPipeline.getInstance();
+
+    private int putAttempts;
+    private int failAttempts;
+    private List<NulsDigestData> forwarded = new ArrayList<>();
+    private List<NulsDigestData> removed = new ArrayList<>();
+    private NulsDigestData confirmed;
+
+    @Before
+    public void init() throws Exception {
+        inject("transactionCacheStorageService", stub(TransactionCacheStorageService.class, (name, args) -> {
+            if ("putTxs".equals(name)) {
+                return ++putAttempts > failAttempts;
+            }
+            removed.add((NulsDigestData) args[0]);
+            return true;
+        }));
+        inject("transactionService", stub(TransactionService.class, (name, args) -> {
+            forwarded.add(((Transaction) args[0]).getHash());
+            return null;
+        }));
+        inject("ledgerService", stub(LedgerService.class, (name, args) -> args[0].equals(confirmed) ? new TransferTransaction() : null));
+    }
+
+    @After
+    public void clear() throws Exception {
+        inject("transactionCacheStorageService", null);
+        inject("transactionService", null);
+        inject("ledgerService", null);
+    }
+
+    @Test
+    public void forwardAfterPersist() throws Exception {
+        List<Transaction> txList = createTxs(3);
+        confirmed = txList.get(1).getHash();
+        assertTrue(pipeline.persistBatch(txList));
+        assertEquals(Arrays.asList(txList.get(0).getHash(), txList.get(2).getHash()), forwarded);
+        assertEquals(Arrays.asList(confirmed), removed);
+    }
+
+    @Test
+    public void retryFailedBatch() throws Exception {
+        failAttempts = 2;
+        List<Transaction> txList = createTxs(2);
+        assertTrue(pipeline.persistBatch(txList));
+        assertEquals(3, putAttempts);
+        assertEquals(2, forwarded.size());
+    }
+
+    /**
+     * 重试后仍写入失败的批次不转发
+     */
+    @Test
+    public void failedBatchNotForwarded() throws Exception {
+        failAttempts = Integer.MAX_VALUE;
+        assertFalse(pipeline.persistBatch(createTxs(2)));
+        assertEquals(3, putAttempts);
+        assertTrue(forwarded.isEmpty());
+    }
+
+    private List<Transaction> createTxs(int count) {
+        List<Transaction> txList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TransferTransaction tx = new TransferTransaction();
+            tx.setTime(1540000000000L + i);
+            tx.setHash(NulsDigestData.calcDigestData(new byte[]{(byte) i}));
+            txList.add(tx);
+        }
+        return txList;
+    }
+
+    private void inject(String name, Object value) throws Exception {
+        Field field = TxAdmissionPipeline.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(pipeline, value);
+    }
+
+    private interface Handler {
+        Object handle(String name, Object[] args);
+    }
+
+    private <T> T stub(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{type},
+                (proxy, method, args) -> handler.handle(method.getName(), args)));
+    }
+}
@@ -0,0 +1,139 @@
+package io.nuls.consensus.poc.task;
+
+import io.nuls.consensus.poc.cache.TxMemoryPool;
+import io.nuls.consensus.poc.process.TxAdmissionPipeline;
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.kernel.constant.TransactionErrorCode;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.CoinData;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.VarInt;
+import io.nuls.kernel.validate.ValidateResult;
+import io.nuls.ledger.service.LedgerService;
+import io.nuls.ledger.util.LedgerUtil;
+import io.nuls.protocol.model.tx.TransferTransaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TxProcessTaskTest {
+
+    private long time = 1540000000000L;
+
+    private TxMemoryPool pool = TxMemoryPool.getInstance();
+
+    /**
+     * 已确认的输出，key为 LedgerUtil.asString(outpoint)
+     */
+    private Set<String> utxos = new HashSet<>();
+
+    private TxProcessTask task;
+
+    @Before
+    public void init() {
+        pool.clear();
+        task = new TxProcessTask(TxAdmissionPipeline.getInstance(), createLedgerService());
+    }
+
+    @After
+    public void clear() {
+        pool.clear();
+    }
+
+    /**
+     * 子交易先于父交易到达写入阶段时作为孤儿交易，父交易被接受后随之被接受
+     */
+    @Test
+    public void childBeforeParent() throws IOException {
+        Transaction parent = createTx(null);
+        Transaction child = createTx(parent);
+        utxos.add(LedgerUtil.asString(parent.getCoinData().getFrom().get(0).getOwner()));
+
+        task.processTx(child, "node1");
+        assertEquals(0, pool.getPoolSize());
+        assertTrue(pool.getOrphanPool().contains(child.getHash()));
+
+        task.processTx(parent, "node2");
+        assertEquals(0, pool.getOrphanPoolSize());
+        List<Transaction> accepted = pool.getAll();
+        assertEquals(2, accepted.size());
+        assertEquals(parent.getHash(), accepted.get(0).getHash());
+        assertEquals(child.getHash(), accepted.get(1).getHash());
+    }
+
+    @Test
+    public void missingParentStaysOrphan() throws IOException {
+        Transaction child = createTx(createTx(null));
+        Transaction other = createTx(null);
+        utxos.add(LedgerUtil.asString(other.getCoinData().getFrom().get(0).getOwner()));
+        task.processTx(child, "node1");
+        task.processTx(other, "node1");
+        assertTrue(pool.getOrphanPool().contains(child.getHash()));
+        assertEquals(1, pool.getPoolSize());
+        assertEquals(1, pool.getOrphanPoolSize());
+    }
+
+    /**
+     * 输入在已确认的输出或已接受交易的输出中时通过，接受后把自己的输出加入临时输出
+     */
+    private LedgerService createLedgerService() {
+        return (LedgerService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{LedgerService.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getTx":
+                        case "getUtxo":
+                            return null;
+                        case "verifyCoinData":
+                            Transaction tx = (Transaction) args[0];
+                            Map<String, Coin> toMap = (Map<String, Coin>) args[1];
+                            for (Coin coin : tx.getCoinData().getFrom()) {
+                                String key = LedgerUtil.asString(coin.getOwner());
+                                if (!utxos.contains(key) && !toMap.containsKey(key)) {
+                                    return ValidateResult.getFailedResult(getClass().getName(), TransactionErrorCode.ORPHAN_TX);
+                                }
+                            }
+                            List<Coin> toList = tx.getCoinData().getTo();
+                            for (int i = 0; i < toList.size(); i++) {
+                                toMap.put(LedgerUtil.asString(outpoint(tx, i)), toList.get(i));
+                            }
+                            return ValidateResult.getSuccessResult();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private Transaction createTx(Transaction parent) throws IOException {
+        TransferTransaction tx = new TransferTransaction();
+        tx.setTime(time++);
+        CoinData coinData = new CoinData();
+        byte[] owner;
+        if (parent == null) {
+            byte[] hash = new byte[32];
+            new Random(time).nextBytes(hash);
+            owner = ArraysTool.concatenate(new NulsDigestData(NulsDigestData.DIGEST_ALG_SHA256, hash).serialize(), new VarInt(0).encode());
+        } else {
+            owner = outpoint(parent, 0);
+        }
+        coinData.addFrom(new Coin(owner, Na.valueOf(100000000L), 0));
+        byte[] address = new byte[23];
+        address[0] = 4;
+        address[1] = 1;
+        coinData.addTo(new Coin(address, Na.valueOf(1000L), 0));
+        tx.setCoinData(coinData);
+        tx.setHash(NulsDigestData.calcDigestData(tx.serializeForHash()));
+        return tx;
+    }
+
+    private byte[] outpoint(Transaction tx, int index) throws IOException {
+        return ArraysTool.concatenate(tx.getHash().serialize(), new VarInt(index).encode());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.consensus.poc.storage.model;
+
+import io.nuls.kernel.model.Transaction;
+
+/**
+ * 待处理队列中的交易及其来源节点，本地创建的交易来源为null
+ * A queued transaction and the id of the peer it came from, null for local transactions
+ */
+public class QueuedTx {
+
+    private final Transaction tx;
+
+    private final String fromNodeId;
+
+    /**
+     * 入队时交易的序列化长度，出队时按该值归还队列的字节额度
+     */
+    private final int size;
+
+    public QueuedTx(Transaction tx, String fromNodeId) {
+        this(tx, fromNodeId, tx.size());
+    }
+
+    public QueuedTx(Transaction tx, String fromNodeId, int size) {
+        this.tx = tx;
+        this.fromNodeId = fromNodeId;
+        this.size = size;
+    }
+
+    public Transaction getTx() {
+        return tx;
+    }
+
+    public String getFromNodeId() {
+        return fromNodeId;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
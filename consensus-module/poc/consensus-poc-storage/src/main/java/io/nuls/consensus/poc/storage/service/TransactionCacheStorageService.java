@@ -27,10 +27,18 @@ package io.nuls.consensus.poc.storage.service;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Transaction;
 
+import java.util.List;
+
 public interface TransactionCacheStorageService {
 
     boolean putTx(Transaction tx);
 
+    /**
+     * 在一个批量写操作中保存多笔交易
+     * Saves the transactions in one write batch
+     */
+    boolean putTxs(List<Transaction> txList);
+
     Transaction getTx(NulsDigestData hash);
 
     boolean removeTx(NulsDigestData hash);
@@ -24,11 +24,47 @@
  */
 package io.nuls.consensus.poc.storage.service;
 
+import io.nuls.consensus.poc.storage.model.QueuedTx;
 import io.nuls.kernel.model.Transaction;
 
+import java.util.List;
+
 public interface TransactionQueueStorageService {
 
     boolean putTx(Transaction tx);
 
-    Transaction pollTx();
+    /**
+     * 交易对象直接入队，不做复制，入队后调用方不能再修改该交易
+     * The transaction object is queued as it is, callers must not modify it afterwards
+     *
+     * @param fromNodeId 发送该交易的节点，本地交易为null
+     */
+    boolean putTx(Transaction tx, String fromNodeId);
+
+    QueuedTx pollTx();
+
+    /**
+     * 一次取出最多maxCount条交易，队列为空时返回空列表
+     * Polls up to maxCount transactions, returns an empty list when the queue is empty
+     */
+    List<QueuedTx> pollTxs(int maxCount);
+
+    int size();
+
+    /**
+     * 队列中交易序列化后的总字节数
+     */
+    long getQueuedBytes();
+
+    /**
+     * 队列的字节额度，超过额度的交易直接拒绝
+     */
+    void setMaxBytes(long maxBytes);
+
+    long getMaxBytes();
+
+    /**
+     * 因超过字节额度被拒绝的交易数
+     */
+    long getRejectedCount();
 }
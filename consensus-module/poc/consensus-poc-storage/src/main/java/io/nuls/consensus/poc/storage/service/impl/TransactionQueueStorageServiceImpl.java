@@ -22,53 +22,130 @@
  * SOFTWARE.
  *
  */
-
 package io.nuls.consensus.poc.storage.service.impl;
 
+import io.nuls.consensus.poc.storage.model.QueuedTx;
 import io.nuls.consensus.poc.storage.service.TransactionQueueStorageService;
-import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.model.Transaction;
-import io.nuls.kernel.utils.NulsByteBuffer;
-import io.nuls.kernel.utils.TransactionManager;
 
-import java.io.IOException;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * 待处理交易队列
+ * 队列中直接保存解析好的交易对象(网络上收到的交易保留了原始字节，缓存时不再重新序列化)，
+ * 按交易序列化后的总字节数限制队列大小，超过额度时拒绝新的交易。
+ * 队列和后面的处理阶段共用调用方传入的交易对象，不做复制，调用方在入队后不能再修改该交易。
+ * <p>
+ * Queue of incoming transactions. Parsed transaction objects are kept as they are (transactions received from the
+ * network still hold their encoded bytes), and the queue is bounded by the total serialized size instead of a count.
+ * The queued transaction object is shared with the later stages without a copy, callers must not modify it after
+ * putting it into the queue.
+ *
  * @author: Niels Wang
  * @date: 2018/7/8
  */
 @Component
 public class TransactionQueueStorageServiceImpl implements TransactionQueueStorageService {
 
-    private LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue(10000000);
+    /**
+     * 默认的字节额度：128M
+     */
+    private static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+    private final Queue<QueuedTx> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private volatile long maxBytes = DEFAULT_MAX_BYTES;
 
     public TransactionQueueStorageServiceImpl() throws Exception {
     }
 
     @Override
     public boolean putTx(Transaction tx) {
-        try {
-            queue.offer(tx.serialize());
-            return true;
-        } catch (IOException e) {
-            Log.error(e);
+        return putTx(tx, null);
+    }
+
+    @Override
+    public boolean putTx(Transaction tx, String fromNodeId) {
+        if (tx == null) {
+            return false;
         }
-        return false;
+        int size = tx.size();
+        // 先预留字节额度再入队，并发入队时总字节数也不会超过额度；队列为空时总是接受，避免单笔超大交易永远无法入队
+        long current;
+        do {
+            current = queuedBytes.get();
+            if (current > 0 && current + size > maxBytes) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+        } while (!queuedBytes.compareAndSet(current, current + size));
+        queue.offer(new QueuedTx(tx, fromNodeId, size));
+        count.incrementAndGet();
+        return true;
     }
 
     @Override
-    public Transaction pollTx() {
-        byte[] bytes = queue.poll();
-        if (null == bytes) {
+    public QueuedTx pollTx() {
+        QueuedTx item = queue.poll();
+        if (null == item) {
             return null;
         }
-        try {
-            return TransactionManager.getInstance(new NulsByteBuffer(bytes));
-        } catch (Exception e) {
-            Log.error(e);
+        count.decrementAndGet();
+        queuedBytes.addAndGet(-item.getSize());
+        return item;
+    }
+
+    @Override
+    public List<QueuedTx> pollTxs(int maxCount) {
+        QueuedTx item = pollTx();
+        if (item == null) {
+            return Collections.emptyList();
+        }
+        List<QueuedTx> list = new ArrayList<>(Math.min(maxCount, count.get() + 1));
+        list.add(item);
+        while (list.size() < maxCount && (item = pollTx()) != null) {
+            list.add(item);
+        }
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return count.get();
+    }
+
+    @Override
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    @Override
+    public void setMaxBytes(long maxBytes) {
+        if (maxBytes > 0) {
+            this.maxBytes = maxBytes;
         }
-        return null;
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.get();
     }
 }
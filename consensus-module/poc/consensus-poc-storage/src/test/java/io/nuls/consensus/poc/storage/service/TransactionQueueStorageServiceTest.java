@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.consensus.poc.storage.service;
+
+import io.nuls.consensus.poc.storage.model.QueuedTx;
+import io.nuls.consensus.poc.storage.service.impl.TransactionQueueStorageServiceImpl;
+import io.nuls.kernel.model.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TransactionQueueStorageServiceTest {
+
+    private TransactionQueueStorageService service;
+
+    @Before
+    public void init() throws Exception {
+        service = new TransactionQueueStorageServiceImpl();
+    }
+
+    @Test
+    public void keepsTxObject() {
+        Transaction tx = createTx(1);
+        assertTrue(service.putTx(tx, "node-1"));
+        assertEquals(tx.size(), service.getQueuedBytes());
+
+        QueuedTx item = service.pollTx();
+        assertSame(tx, item.getTx());
+        assertEquals("node-1", item.getFromNodeId());
+        assertEquals(0, service.getQueuedBytes());
+        assertNull(service.pollTx());
+    }
+
+    @Test
+    public void byteBudget() {
+        int size = createTx(0).size();
+        service.setMaxBytes(size * 10L);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(service.putTx(createTx(i)));
+        }
+        assertFalse(service.putTx(createTx(10)));
+        assertEquals(1, service.getRejectedCount());
+        assertEquals(10, service.size());
+
+        List<QueuedTx> list = service.pollTxs(4);
+        assertEquals(4, list.size());
+        assertEquals(0L, list.get(0).getTx().getTime());
+        assertEquals(size * 6L, service.getQueuedBytes());
+        assertTrue(service.putTx(createTx(11)));
+
+        assertEquals(7, service.pollTxs(100).size());
+        assertTrue(service.pollTxs(100).isEmpty());
+        assertEquals(0, service.getQueuedBytes());
+    }
+
+    @Test
+    public void oversizedTxOnEmptyQueue() {
+        service.setMaxBytes(1);
+        assertTrue(service.putTx(createTx(0)));
+        assertFalse(service.putTx(createTx(1)));
+    }
+
+    @Test
+    public void concurrentByteBudget() throws Exception {
+        int size = createTx(0).size();
+        long maxBytes = size * 100L;
+        service.setMaxBytes(maxBytes);
+        int threadCount = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicBoolean overshoot = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            int offset = t * 1000;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    if (service.putTx(createTx(offset + i))) {
+                        accepted.incrementAndGet();
+                    }
+                    if (service.getQueuedBytes() > maxBytes) {
+                        overshoot.set(true);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertFalse(overshoot.get());
+        assertEquals(100, accepted.get());
+        assertEquals(100, service.size());
+        assertEquals(maxBytes, service.getQueuedBytes());
+        assertEquals(threadCount * 100 - 100, service.getRejectedCount());
+    }
+
+    private Transaction createTx(long time) {
+        Transaction tx = new TransactionPoTest(1);
+        tx.setTime(time);
+        tx.setRemark("queue test".getBytes());
+        return tx;
+    }
+}
@@ -26,6 +26,16 @@ package io.nuls.contract.module.impl;
 
 import io.nuls.consensus.constant.ConsensusConstant;
 import io.nuls.contract.constant.ContractConstant;
+import io.nuls.contract.entity.tx.CallContractTransaction;
+import io.nuls.contract.entity.tx.ContractTransferTransaction;
+import io.nuls.contract.entity.tx.CreateContractTransaction;
+import io.nuls.contract.entity.tx.DeleteContractTransaction;
+import io.nuls.contract.entity.tx.processor.CallContractTxProcessor;
+import io.nuls.contract.entity.tx.processor.ContractTransferTxProcessor;
+import io.nuls.contract.entity.tx.processor.CreateContractTxProcessor;
+import io.nuls.contract.entity.tx.processor.DeleteContractTxProcessor;
+import io.nuls.contract.helper.ContractViewExecutor;
+import io.nuls.contract.helper.VMHelper;
 import io.nuls.contract.ledger.manager.ContractBalanceManager;
 import io.nuls.contract.module.AbstractContractModule;
 import io.nuls.contract.util.VMContext;
@@ -35,7 +45,12 @@ import io.nuls.core.tools.json.JSONUtils;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.cfg.NulsConfig;
 import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.utils.TransactionManager;
+import org.ethereum.config.CommonConfig;
+import org.ethereum.config.DefaultConfig;
+import org.ethereum.config.SystemProperties;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -52,8 +67,33 @@ public class ContractModuleBootstrap extends AbstractContractModule {
     @Override
     public void init() {
         Log.debug("contract init");
+        TransactionManager.putTx(CreateContractTransaction.class, CreateContractTxProcessor.class, CreateContractTransaction::new);
+        TransactionManager.putTx(CallContractTransaction.class, CallContractTxProcessor.class, CallContractTransaction::new);
+        TransactionManager.putTx(DeleteContractTransaction.class, DeleteContractTxProcessor.class, DeleteContractTransaction::new);
+        TransactionManager.putTx(ContractTransferTransaction.class, ContractTransferTxProcessor.class, ContractTransferTransaction::new);
         initERC20Standard();
         initMaxViewGas();
+        initStateCache();
+    }
+
+    /**
+     * 合约状态树的读缓存大小(MB)和刷盘间隔的区块数，刷盘间隔大于1时节点异常退出可能丢失最近几个区块的合约状态
+     * <p>
+     * 状态裁剪保留最近 state.prune.depth 个区块的历史状态，更早的不可达节点由后台线程删除；
+     * state.archive=true 时为归档模式，保留全部历史状态
+     */
+    private void initStateCache() {
+        int stateCacheSize = NulsConfig.MODULES_CONFIG.getCfgValue(ContractConstant.CFG_CONTRACT_SECTION, ContractConstant.CFG_CONTRACT_STATE_CACHE_SIZE, ContractConstant.DEFAULT_STATE_CACHE_SIZE);
+        int flushBlocks = NulsConfig.MODULES_CONFIG.getCfgValue(ContractConstant.CFG_CONTRACT_SECTION, ContractConstant.CFG_CONTRACT_STATE_FLUSH_BLOCKS, ContractConstant.DEFAULT_STATE_FLUSH_BLOCKS);
+        int pruneDepth = NulsConfig.MODULES_CONFIG.getCfgValue(ContractConstant.CFG_CONTRACT_SECTION, ContractConstant.CFG_CONTRACT_STATE_PRUNE_DEPTH, ContractConstant.DEFAULT_STATE_PRUNE_DEPTH);
+        boolean archive = NulsConfig.MODULES_CONFIG.getCfgValue(ContractConstant.CFG_CONTRACT_SECTION, ContractConstant.CFG_CONTRACT_STATE_ARCHIVE, ContractConstant.DEFAULT_STATE_ARCHIVE);
+        Map<String, Object> options = new HashMap<>(8);
+        options.put("cache.stateCacheSize", stateCacheSize);
+        options.put("cache.flush.blocks", Math.max(1, flushBlocks));
+        options.put("database.prune.enabled", !archive);
+        options.put("database.prune.maxDepth", Math.max(ContractConstant.MIN_STATE_PRUNE_DEPTH, pruneDepth));
+        SystemProperties.getDefault().overrideCacheParams(options);
+        CommonConfig.getDefault().applyConfig();
     }
 
     private void initMaxViewGas() {
@@ -92,11 +132,26 @@ public class ContractModuleBootstrap extends AbstractContractModule {
         ContractBalanceManager balanceManager = NulsContext.getServiceBean(ContractBalanceManager.class);
         balanceManager.initContractBalance();
         balanceManager.initAllTokensForAllAccounts();
+        startViewExecutor();
+    }
+
+    private void startViewExecutor() {
+        int threads = NulsConfig.MODULES_CONFIG.getCfgValue(ContractConstant.CFG_CONTRACT_SECTION, ContractConstant.CFG_CONTRACT_VIEW_THREADS, ContractConstant.DEFAULT_VIEW_THREADS);
+        int maxConcurrent = NulsConfig.MODULES_CONFIG.getCfgValue(ContractConstant.CFG_CONTRACT_SECTION, ContractConstant.CFG_CONTRACT_VIEW_MAX_CONCURRENT, ContractConstant.DEFAULT_VIEW_MAX_CONCURRENT);
+        long cacheSize = NulsConfig.MODULES_CONFIG.getCfgValue(ContractConstant.CFG_CONTRACT_SECTION, ContractConstant.CFG_CONTRACT_VIEW_CACHE_SIZE, ContractConstant.DEFAULT_VIEW_CACHE_SIZE);
+        long cacheExpire = NulsConfig.MODULES_CONFIG.getCfgValue(ContractConstant.CFG_CONTRACT_SECTION, ContractConstant.CFG_CONTRACT_VIEW_CACHE_EXPIRE, ContractConstant.DEFAULT_VIEW_CACHE_EXPIRE);
+        long timeout = NulsConfig.MODULES_CONFIG.getCfgValue(ContractConstant.CFG_CONTRACT_SECTION, ContractConstant.CFG_CONTRACT_VIEW_TIMEOUT, ContractConstant.DEFAULT_VIEW_TIMEOUT);
+        if(threads <= 0) {
+            return;
+        }
+        VMHelper vmHelper = NulsContext.getServiceBean(VMHelper.class);
+        NulsContext.getServiceBean(ContractViewExecutor.class).start(vmHelper.getProgramExecutor(), threads, maxConcurrent, cacheSize, cacheExpire, timeout);
     }
 
     @Override
     public void shutdown() {
-        //TODO do something or not
+        NulsContext.getServiceBean(ContractViewExecutor.class).shutdown();
+        DefaultConfig.getDefault().shutdown();
     }
 
     @Override
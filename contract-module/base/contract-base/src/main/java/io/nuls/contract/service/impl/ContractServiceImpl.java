@@ -1055,6 +1055,38 @@ public class ContractServiceImpl implements ContractService, InitializingBean {
 
     }
 
+    @Override
+    public Result<ContractTokenInfo> getContractToken(String address, String contractAddress) {
+        try {
+            if (StringUtils.isBlank(contractAddress) || StringUtils.isBlank(address)) {
+                return Result.getFailed(ContractErrorCode.NULL_PARAMETER);
+            }
+
+            if (!AddressTool.validAddress(contractAddress) || !AddressTool.validAddress(address)) {
+                return Result.getFailed(AccountErrorCode.ADDRESS_ERROR);
+            }
+
+            Result<ContractAddressInfoPo> contractAddressInfoResult = contractAddressStorageService.getContractAddressInfo(AddressTool.getAddress(contractAddress));
+            ContractAddressInfoPo po = contractAddressInfoResult.getData();
+            if (po == null) {
+                return Result.getFailed(ContractErrorCode.CONTRACT_ADDRESS_NOT_EXIST);
+            }
+            if (!po.isNrc20()) {
+                return Result.getFailed(ContractErrorCode.CONTRACT_NOT_NRC20);
+            }
+
+            BigInteger amount = vmHelper.getTokenBalance(po, address);
+            if (amount == null) {
+                return Result.getFailed(ContractErrorCode.DATA_ERROR);
+            }
+            ContractTokenInfo tokenInfo = new ContractTokenInfo(contractAddress, po.getNrc20TokenName(), po.getDecimals(), amount, po.getNrc20TokenSymbol(), po.getBlockHeight());
+            return Result.getSuccess().setData(tokenInfo);
+        } catch (Exception e) {
+            Log.error("get contract token error.", e);
+            return Result.getFailed(ContractErrorCode.SYS_UNKOWN_EXCEPTION);
+        }
+    }
+
     @Override
     public Result initAllTokensByAccount(String address) {
         try {
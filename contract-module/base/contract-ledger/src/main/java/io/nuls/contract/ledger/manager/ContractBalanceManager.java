@@ -318,17 +318,18 @@ public class ContractBalanceManager {
     }
 
     public void initialContractToken(String account, String contract) {
+        // 余额来自token余额索引，只有索引中没有的账户才会执行虚拟机
+        Result<ContractTokenInfo> result = contractService.getContractToken(account, contract);
+        if(result.isFailed()) {
+            return;
+        }
+        ContractTokenInfo tokenInfo = result.getData();
+        BigInteger amount = tokenInfo.getAmount();
+        if(amount == null || amount.equals(BigInteger.ZERO)) {
+            return;
+        }
         tokenLock.lock();
         try {
-            Result<ContractTokenInfo> result = contractService.getContractTokenViaVm(account, contract);
-            if(result.isFailed()) {
-                return;
-            }
-            ContractTokenInfo tokenInfo = result.getData();
-            BigInteger amount = tokenInfo.getAmount();
-            if(amount == null || amount.equals(BigInteger.ZERO)) {
-                return;
-            }
             Map<String, ContractTokenInfo> tokens = contractTokenOfLocalAccount.get(account);
             if(tokens == null) {
                 tokens = new HashMap<>();
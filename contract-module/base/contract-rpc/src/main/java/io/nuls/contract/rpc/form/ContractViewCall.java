@@ -39,6 +39,8 @@ public class ContractViewCall {
     private String methodDesc;
     @ApiModelProperty(name = "args", value = "参数列表", required = false)
     private Object[] args;
+    @ApiModelProperty(name = "gasLimit", value = "本次调用的gas上限，不传则使用节点配置的最大值", required = false)
+    private long gasLimit;
 
     public String getContractAddress() {
         return contractAddress;
@@ -75,4 +77,12 @@ public class ContractViewCall {
     public void setArgs(Object[] args) {
         this.args = args;
     }
+
+    public long getGasLimit() {
+        return gasLimit;
+    }
+
+    public void setGasLimit(long gasLimit) {
+        this.gasLimit = gasLimit;
+    }
 }
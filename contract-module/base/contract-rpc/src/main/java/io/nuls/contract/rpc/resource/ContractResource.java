@@ -638,7 +638,7 @@ public class ContractResource implements InitializingBean {
             }
 
             ProgramResult programResult = vmHelper.invokeCustomGasViewMethod(contractAddressBytes, methodName, viewCall.getMethodDesc(),
-                    viewCall.getArgs(method.argsType2Array()));
+                    viewCall.getArgs(method.argsType2Array()), viewCall.getGasLimit());
 
             Result result;
             if(!programResult.isSuccess()) {
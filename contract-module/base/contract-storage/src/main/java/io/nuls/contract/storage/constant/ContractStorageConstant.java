@@ -39,6 +39,9 @@ public interface ContractStorageConstant {
     String DB_NAME_CONTRACT_SPECIAL_TX = "contract_special_tx";
     String DB_NAME_CONTRACT_EXECUTE_RESULT = "contract_execute_result";
     String DB_NAME_CONTRACT_COLLECTION = "contract_collection";
+    String DB_NAME_CONTRACT_CLASS_INDEX = "contract_class_index";
+    String DB_NAME_CONTRACT_CLASS_CODE = "contract_class_code";
 
     String DB_NAME_CONTRACT_NRC20_TOKEN_TRANSFER = "contract_nrc20_token_transfer";
+    String DB_NAME_CONTRACT_NRC20_TOKEN_BALANCE = "contract_nrc20_token_balance";
 }
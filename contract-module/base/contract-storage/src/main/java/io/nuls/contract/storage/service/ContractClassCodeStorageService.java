@@ -0,0 +1,67 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2017-2019 nuls.io
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.contract.storage.service;
+
+/**
+ * 已部署合约的类代码缓存，节点重启后无需重新解压合约jar
+ *
+ * @desription:
+ * @author: PierreLuo
+ * @date: 2019/3/12
+ */
+public interface ContractClassCodeStorageService {
+
+    /**
+     * 获取合约代码的类索引(类名 -> 类哈希)
+     *
+     * @param codeHash 合约代码哈希
+     * @return
+     */
+    byte[] getClassIndex(String codeHash);
+
+    /**
+     * 保存合约代码的类索引
+     *
+     * @param codeHash 合约代码哈希
+     * @param index
+     */
+    void saveClassIndex(String codeHash, byte[] index);
+
+    /**
+     * 获取单个类的字节码
+     *
+     * @param classHash 类字节码哈希
+     * @return
+     */
+    byte[] getClassCode(String classHash);
+
+    /**
+     * 保存单个类的字节码
+     *
+     * @param classHash 类字节码哈希
+     * @param classBytes
+     */
+    void saveClassCode(String classHash, byte[] classBytes);
+
+}
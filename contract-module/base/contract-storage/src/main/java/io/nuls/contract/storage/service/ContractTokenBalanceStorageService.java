@@ -0,0 +1,43 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2017-2019 nuls.io
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.contract.storage.service;
+
+import io.nuls.contract.storage.po.ContractTokenBalancePo;
+import io.nuls.kernel.model.Result;
+
+/**
+ * NRC20 token余额索引，key为 账户地址 + 合约地址
+ *
+ * @desription:
+ * @author: PierreLuo
+ * @date: 2019/3/18
+ */
+public interface ContractTokenBalanceStorageService {
+
+    Result saveTokenBalance(byte[] address, byte[] contractAddress, ContractTokenBalancePo po);
+
+    Result deleteTokenBalance(byte[] address, byte[] contractAddress);
+
+    ContractTokenBalancePo getTokenBalance(byte[] address, byte[] contractAddress);
+}
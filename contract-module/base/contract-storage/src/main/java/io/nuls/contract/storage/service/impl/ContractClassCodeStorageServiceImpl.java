@@ -0,0 +1,92 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2017-2019 nuls.io
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.contract.storage.service.impl;
+
+import io.nuls.contract.storage.constant.ContractStorageConstant;
+import io.nuls.contract.storage.service.ContractClassCodeStorageService;
+import io.nuls.core.tools.crypto.Hex;
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.service.DBService;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.exception.NulsRuntimeException;
+import io.nuls.kernel.lite.annotation.Autowired;
+import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.lite.core.bean.InitializingBean;
+import io.nuls.kernel.model.Result;
+
+/**
+ * @desription:
+ * @author: PierreLuo
+ * @date: 2019/3/12
+ */
+@Component
+public class ContractClassCodeStorageServiceImpl implements ContractClassCodeStorageService, InitializingBean {
+
+    @Autowired
+    private DBService dbService;
+
+    @Override
+    public void afterPropertiesSet() throws NulsException {
+        createArea(ContractStorageConstant.DB_NAME_CONTRACT_CLASS_INDEX);
+        createArea(ContractStorageConstant.DB_NAME_CONTRACT_CLASS_CODE);
+    }
+
+    private void createArea(String areaName) {
+        Result result = dbService.createArea(areaName);
+        if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
+    }
+
+    @Override
+    public byte[] getClassIndex(String codeHash) {
+        return dbService.get(ContractStorageConstant.DB_NAME_CONTRACT_CLASS_INDEX, key(codeHash));
+    }
+
+    @Override
+    public void saveClassIndex(String codeHash, byte[] index) {
+        Result result = dbService.put(ContractStorageConstant.DB_NAME_CONTRACT_CLASS_INDEX, key(codeHash), index);
+        if (result.isFailed()) {
+            Log.warn("save contract class index error, codeHash: " + codeHash);
+        }
+    }
+
+    @Override
+    public byte[] getClassCode(String classHash) {
+        return dbService.get(ContractStorageConstant.DB_NAME_CONTRACT_CLASS_CODE, key(classHash));
+    }
+
+    @Override
+    public void saveClassCode(String classHash, byte[] classBytes) {
+        Result result = dbService.put(ContractStorageConstant.DB_NAME_CONTRACT_CLASS_CODE, key(classHash), classBytes);
+        if (result.isFailed()) {
+            Log.warn("save contract class code error, classHash: " + classHash);
+        }
+    }
+
+    private byte[] key(String hash) {
+        return Hex.decode(hash);
+    }
+}
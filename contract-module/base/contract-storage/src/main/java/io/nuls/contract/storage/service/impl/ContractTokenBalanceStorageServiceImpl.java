@@ -0,0 +1,72 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2017-2019 nuls.io
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.contract.storage.service.impl;
+
+import io.nuls.contract.storage.constant.ContractStorageConstant;
+import io.nuls.contract.storage.po.ContractTokenBalancePo;
+import io.nuls.contract.storage.service.ContractTokenBalanceStorageService;
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.service.DBService;
+import io.nuls.kernel.exception.NulsRuntimeException;
+import io.nuls.kernel.lite.annotation.Autowired;
+import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.lite.core.bean.InitializingBean;
+import io.nuls.kernel.model.Result;
+
+/**
+ * @desription:
+ * @author: PierreLuo
+ * @date: 2019/3/18
+ */
+@Component
+public class ContractTokenBalanceStorageServiceImpl implements ContractTokenBalanceStorageService, InitializingBean {
+    @Autowired
+    private DBService dbService;
+    private String area;
+
+    @Override
+    public void afterPropertiesSet() {
+        this.area = ContractStorageConstant.DB_NAME_CONTRACT_NRC20_TOKEN_BALANCE;
+        Result result = dbService.createArea(this.area);
+        if (result.isFailed() && !DBErrorCode.DB_AREA_EXIST.equals(result.getErrorCode())) {
+            throw new NulsRuntimeException(result.getErrorCode());
+        }
+    }
+
+    @Override
+    public Result saveTokenBalance(byte[] address, byte[] contractAddress, ContractTokenBalancePo po) {
+        return dbService.putModel(this.area, ArraysTool.concatenate(address, contractAddress), po);
+    }
+
+    @Override
+    public Result deleteTokenBalance(byte[] address, byte[] contractAddress) {
+        return dbService.delete(this.area, ArraysTool.concatenate(address, contractAddress));
+    }
+
+    @Override
+    public ContractTokenBalancePo getTokenBalance(byte[] address, byte[] contractAddress) {
+        return dbService.getModel(this.area, ArraysTool.concatenate(address, contractAddress), ContractTokenBalancePo.class);
+    }
+}
@@ -116,6 +116,8 @@ public class CallContractTxProcessor implements TransactionProcessor<CallContrac
             Result<ContractAddressInfoPo> senderContractAddressInfoResult = contractAddressStorageService.getContractAddressInfo(senderContractAddressBytes);
             ContractAddressInfoPo po = senderContractAddressInfoResult.getData();
             if (po != null) {
+                // 回滚token余额索引
+                vmHelper.rollbackTokenBalanceIndex(tx.getBlockHeight(), contractResult);
                 if (contractResult != null) {
                     // 处理合约执行失败 - 没有transferEvent的情况, 直接从数据库中删除
                     if (!contractResult.isSuccess()) {
@@ -319,10 +321,10 @@ public class CallContractTxProcessor implements TransactionProcessor<CallContrac
                         } else {
 
                             if (po.getFrom() != null) {
-                                vmHelper.refreshTokenBalance(newestStateRoot, contractAddressInfoPo, AddressTool.getStringAddressByBytes(po.getFrom()), po.getContractAddress());
+                                vmHelper.refreshTokenBalance(newestStateRoot, blockHeight, contractAddressInfoPo, AddressTool.getStringAddressByBytes(po.getFrom()), po.getContractAddress());
                             }
                             if (po.getTo() != null) {
-                                vmHelper.refreshTokenBalance(newestStateRoot, contractAddressInfoPo, AddressTool.getStringAddressByBytes(po.getTo()), po.getContractAddress());
+                                vmHelper.refreshTokenBalance(newestStateRoot, blockHeight, contractAddressInfoPo, AddressTool.getStringAddressByBytes(po.getTo()), po.getContractAddress());
                             }
                         }
                     }
@@ -94,6 +94,12 @@ public class CreateContractTxProcessor implements TransactionProcessor<CreateCon
     public Result onRollback(CreateContractTransaction tx, Object secondaryData) {
         CreateContractData txData = tx.getTxData();
         byte[] contractAddress = txData.getContractAddress();
+        // 回滚token余额索引
+        ContractResult contractResult = tx.getContractResult();
+        if (contractResult == null) {
+            contractResult = contractService.getContractExecuteResult(tx.getHash());
+        }
+        vmHelper.rollbackTokenBalanceIndex(tx.getBlockHeight(), contractResult);
         contractCollectionStorageService.deleteContractAddress(contractAddress);
         contractAddressStorageService.deleteContractAddress(contractAddress);
         contractService.deleteContractExecuteResult(tx.getHash());
@@ -178,7 +184,7 @@ public class CreateContractTxProcessor implements TransactionProcessor<CreateCon
                 }
             }
             // 刷新创建者的token余额
-            vmHelper.refreshTokenBalance(newestStateRoot, info, senderStr, contractAddressStr);
+            vmHelper.refreshTokenBalance(newestStateRoot, blockHeight, info, senderStr, contractAddressStr);
             // 处理合约事件
             vmHelper.dealEvents(newestStateRoot, tx, contractResult, info);
         }
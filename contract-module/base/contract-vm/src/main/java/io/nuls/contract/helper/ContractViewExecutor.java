@@ -0,0 +1,337 @@
+/**
+ * MIT License
+ * <p>
+ * Copyright (c) 2017-2019 nuls.io
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.contract.helper;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import io.nuls.contract.constant.ContractConstant;
+import io.nuls.contract.util.VMContext;
+import io.nuls.contract.vm.program.ProgramCall;
+import io.nuls.contract.vm.program.ProgramExecutor;
+import io.nuls.contract.vm.program.ProgramMethod;
+import io.nuls.contract.vm.program.ProgramResult;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 只读(view)合约方法的独立执行服务
+ * <p>
+ * 钱包和浏览器频繁查询token余额等view方法，如果直接在请求线程上调用共享的 ProgramExecutor，会和区块处理争抢资源。
+ * 这里使用独立的线程池执行view调用，每个工作线程持有一个绑定到某个状态根的只读快照(从不commit)，
+ * 同一个状态根上的调用复用该快照的读缓存；状态根变化后快照随之重建。
+ * 执行结果按(状态根, 合约地址, 方法, 参数, gasLimit, 是否view方法)缓存，同时限制并发数和单次调用的gas上限。
+ *
+ * @author: PierreLuo
+ */
+@Component
+public class ContractViewExecutor {
+
+    private static final String THREAD_POOL_NAME = "contract-view";
+
+    private volatile ProgramExecutor programExecutor;
+    private volatile ThreadPoolExecutor viewPool;
+    private Cache<ViewCallKey, ProgramResult> resultCache;
+    private Semaphore permits;
+    private long timeoutMillis;
+
+    private final ThreadLocal<ViewSnapshot> snapshots = new ThreadLocal<>();
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timeout = new AtomicLong();
+
+    /**
+     * 启动view执行服务，未启动时 VMHelper 在调用线程上直接执行
+     *
+     * @param programExecutor 用于创建只读快照的执行器
+     * @param threadCount     工作线程数
+     * @param maxConcurrent   同时排队和执行的最大请求数
+     * @param cacheSize       结果缓存的最大条数
+     * @param cacheExpire     结果缓存的有效时间(秒)，缓存键包含状态根，过期只用于释放旧状态根上的结果
+     * @param timeoutMillis   单次请求的最大等待时间
+     */
+    public synchronized void start(ProgramExecutor programExecutor, int threadCount, int maxConcurrent, long cacheSize, long cacheExpire, long timeoutMillis) {
+        if (viewPool != null) {
+            return;
+        }
+        this.programExecutor = programExecutor;
+        this.timeoutMillis = timeoutMillis;
+        int maxTasks = Math.max(maxConcurrent, threadCount);
+        this.permits = new Semaphore(maxTasks);
+        this.resultCache = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheExpire, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        // 排队的任务都持有许可，队列长度不会超过许可数
+        this.viewPool = TaskManager.createThreadPool(threadCount, maxTasks,
+                new NulsThreadFactory(ContractConstant.MODULE_ID_CONTRACT, THREAD_POOL_NAME));
+    }
+
+    public synchronized void shutdown() {
+        if (viewPool == null) {
+            return;
+        }
+        viewPool.shutdown();
+        viewPool = null;
+        resultCache.invalidateAll();
+    }
+
+    public boolean isRunning() {
+        return viewPool != null;
+    }
+
+    /**
+     * 在指定状态根上执行view方法，返回结果的副本，缓存中的结果不会被调用方修改
+     *
+     * @param gasLimit   本次调用的gas上限，viewMethod为true时超过 VMContext.getCustomMaxViewGasLimit() 按最大值处理
+     * @param viewMethod 是否按view方法执行，内部调用(如token余额查询)为false，使用调用方给出的gasLimit
+     */
+    public ProgramResult call(byte[] stateRoot, long blockHeight, byte[] contractAddress, String methodName, String methodDesc, String[][] args, long gasLimit, boolean viewMethod) {
+        if (viewMethod) {
+            long maxGasLimit = VMContext.getCustomMaxViewGasLimit();
+            if (gasLimit <= 0 || gasLimit > maxGasLimit) {
+                gasLimit = maxGasLimit;
+            }
+        }
+        ViewCallKey key = new ViewCallKey(stateRoot, contractAddress, methodName, methodDesc, args, gasLimit, viewMethod);
+        ProgramResult cached = resultCache.getIfPresent(key);
+        if (cached != null) {
+            return cached.copy();
+        }
+
+        ProgramCall programCall = new ProgramCall();
+        programCall.setContractAddress(contractAddress);
+        programCall.setValue(BigInteger.ZERO);
+        programCall.setGasLimit(gasLimit);
+        programCall.setPrice(ContractConstant.CONTRACT_CONSTANT_PRICE);
+        programCall.setNumber(blockHeight);
+        programCall.setMethodName(methodName);
+        programCall.setMethodDesc(methodDesc);
+        programCall.setArgs(args);
+        programCall.setViewMethod(viewMethod);
+
+        ProgramResult programResult;
+        try {
+            programResult = submit(() -> snapshot(stateRoot).startTracking().call(programCall));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            Log.error("contract view call error.", cause);
+            return new ProgramResult().revert(cause.getMessage() != null ? cause.getMessage() : cause.toString());
+        }
+        if (programResult == null) {
+            return new ProgramResult().revert("contract view service is busy, please try again later");
+        }
+        executed.incrementAndGet();
+        resultCache.put(key, programResult);
+        return programResult.copy();
+    }
+
+    /**
+     * 在指定状态根上查询合约的方法列表，服务繁忙或执行出错时返回null
+     */
+    public List<ProgramMethod> method(byte[] stateRoot, byte[] contractAddress) {
+        try {
+            return submit(() -> snapshot(stateRoot).startTracking().method(contractAddress));
+        } catch (ExecutionException e) {
+            Log.error("contract view method error.", e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * 在view线程池中执行，服务未启动、繁忙、超时时返回null，执行本身抛出的异常通过 ExecutionException 抛给调用方
+     * 许可在任务执行结束时释放，超时返回不释放，仍在执行的任务继续占用许可
+     */
+    private <T> T submit(Callable<T> callable) throws ExecutionException {
+        ThreadPoolExecutor pool = viewPool;
+        if (pool == null) {
+            return null;
+        }
+        if (!permits.tryAcquire()) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        ViewTask<T> task = new ViewTask<>(callable);
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.release();
+            Log.error("contract view call error.", e);
+            return null;
+        }
+        try {
+            return task.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeout.incrementAndGet();
+            cancel(pool, task);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(pool, task);
+            return null;
+        }
+    }
+
+    /**
+     * 还在排队的任务从队列中移除并释放许可，已经开始的任务由工作线程结束时释放
+     */
+    private void cancel(ThreadPoolExecutor pool, ViewTask<?> task) {
+        task.cancel(true);
+        if (pool.remove(task)) {
+            task.release();
+        }
+    }
+
+    /**
+     * 当前工作线程上绑定到指定状态根的只读快照，状态根变化时重建
+     */
+    private ProgramExecutor snapshot(byte[] stateRoot) {
+        ViewSnapshot snapshot = snapshots.get();
+        if (snapshot == null || !Arrays.equals(snapshot.stateRoot, stateRoot)) {
+            snapshot = new ViewSnapshot(stateRoot, programExecutor.begin(stateRoot));
+            snapshots.set(snapshot);
+        }
+        return snapshot.executor;
+    }
+
+    public CacheStats getCacheStats() {
+        return resultCache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : resultCache.stats();
+    }
+
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeout.get();
+    }
+
+    public int getQueueSize() {
+        ThreadPoolExecutor pool = viewPool;
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    /**
+     * 工作线程处理完任务(包括已取消的任务)后释放许可
+     */
+    private class ViewTask<T> extends FutureTask<T> {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ViewTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                release();
+            }
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    private static class ViewSnapshot {
+        private final byte[] stateRoot;
+        private final ProgramExecutor executor;
+
+        ViewSnapshot(byte[] stateRoot, ProgramExecutor executor) {
+            this.stateRoot = stateRoot;
+            this.executor = executor;
+        }
+    }
+
+    private static class ViewCallKey {
+        private final byte[] stateRoot;
+        private final byte[] contractAddress;
+        private final String methodName;
+        private final String methodDesc;
+        private final String[][] args;
+        private final long gasLimit;
+        private final boolean viewMethod;
+        private final int hashCode;
+
+        ViewCallKey(byte[] stateRoot, byte[] contractAddress, String methodName, String methodDesc, String[][] args, long gasLimit, boolean viewMethod) {
+            this.stateRoot = stateRoot;
+            this.contractAddress = contractAddress;
+            this.methodName = methodName;
+            this.methodDesc = methodDesc;
+            this.args = args;
+            this.gasLimit = gasLimit;
+            this.viewMethod = viewMethod;
+            int result = Arrays.hashCode(stateRoot);
+            result = 31 * result + Arrays.hashCode(contractAddress);
+            result = 31 * result + (methodName != null ? methodName.hashCode() : 0);
+            result = 31 * result + (methodDesc != null ? methodDesc.hashCode() : 0);
+            result = 31 * result + Arrays.deepHashCode(args);
+            result = 31 * result + (int) (gasLimit ^ (gasLimit >>> 32));
+            result = 31 * result + (viewMethod ? 1 : 0);
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ViewCallKey that = (ViewCallKey) o;
+            return gasLimit == that.gasLimit &&
+                    viewMethod == that.viewMethod &&
+                    Arrays.equals(stateRoot, that.stateRoot) &&
+                    Arrays.equals(contractAddress, that.contractAddress) &&
+                    (methodName != null ? methodName.equals(that.methodName) : that.methodName == null) &&
+                    (methodDesc != null ? methodDesc.equals(that.methodDesc) : that.methodDesc == null) &&
+                    Arrays.deepEquals(args, that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
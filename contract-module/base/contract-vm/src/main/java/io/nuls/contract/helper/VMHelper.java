@@ -33,10 +33,15 @@ import io.nuls.contract.entity.tx.CreateContractTransaction;
 import io.nuls.contract.entity.txdata.CreateContractData;
 import io.nuls.contract.ledger.manager.ContractBalanceManager;
 import io.nuls.contract.storage.po.ContractAddressInfoPo;
+import io.nuls.contract.storage.po.ContractTokenBalancePo;
 import io.nuls.contract.storage.service.ContractAddressStorageService;
+import io.nuls.contract.storage.service.ContractClassCodeStorageService;
+import io.nuls.contract.storage.service.ContractTokenBalanceStorageService;
 import io.nuls.contract.storage.service.ContractTokenTransferStorageService;
 import io.nuls.contract.util.ContractUtil;
 import io.nuls.contract.util.VMContext;
+import io.nuls.contract.vm.code.ClassCodeLoader;
+import io.nuls.contract.vm.code.ClassCodeStore;
 import io.nuls.contract.vm.program.*;
 import io.nuls.contract.vm.program.impl.ProgramExecutorImpl;
 import io.nuls.core.tools.array.ArraysTool;
@@ -60,6 +65,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static io.nuls.contract.constant.ContractConstant.*;
 
@@ -78,17 +85,49 @@ public class VMHelper implements InitializingBean {
     private ContractAddressStorageService contractAddressStorageService;
     @Autowired
     private ContractTokenTransferStorageService contractTokenTransferStorageService;
+    @Autowired
+    private ContractViewExecutor contractViewExecutor;
+    @Autowired
+    private ContractClassCodeStorageService contractClassCodeStorageService;
+    @Autowired
+    private ContractTokenBalanceStorageService contractTokenBalanceStorageService;
 
     private ProgramExecutor programExecutor;
 
     private ConcurrentHashMap<String, Long> accountLastedPriceMap = MapUtil.createConcurrentHashMap(4);
 
+    /**
+     * token余额索引的读-改-写锁
+     */
+    private final Lock tokenIndexLock = new ReentrantLock();
+
     private static final BigInteger MAXIMUM_DECIMALS = BigInteger.valueOf(18L);
     private static final BigInteger MAXIMUM_TOTAL_SUPPLY = BigInteger.valueOf(2L).pow(256).subtract(BigInteger.ONE);
 
     @Override
     public void afterPropertiesSet() throws NulsException {
         programExecutor = new ProgramExecutorImpl(vmContext, dbService);
+        ClassCodeLoader.setStore(new ClassCodeStore() {
+            @Override
+            public byte[] getIndex(String codeHash) {
+                return contractClassCodeStorageService.getClassIndex(codeHash);
+            }
+
+            @Override
+            public void putIndex(String codeHash, byte[] index) {
+                contractClassCodeStorageService.saveClassIndex(codeHash, index);
+            }
+
+            @Override
+            public byte[] getClassBytes(String classHash) {
+                return contractClassCodeStorageService.getClassCode(classHash);
+            }
+
+            @Override
+            public void putClassBytes(String classHash, byte[] classBytes) {
+                contractClassCodeStorageService.saveClassCode(classHash, classBytes);
+            }
+        });
     }
 
     public ProgramExecutor getProgramExecutor() {
@@ -136,8 +175,14 @@ public class VMHelper implements InitializingBean {
         // 当前区块状态根
         byte[] currentStateRoot = ContractUtil.getStateRoot(header);
 
-        ProgramExecutor track = programExecutor.begin(currentStateRoot);
-        List<ProgramMethod> methods = track.method(contractAddressBytes);
+        List<ProgramMethod> methods = null;
+        if(contractViewExecutor.isRunning()) {
+            methods = contractViewExecutor.method(currentStateRoot, contractAddressBytes);
+        }
+        if(methods == null) {
+            ProgramExecutor track = programExecutor.begin(currentStateRoot);
+            methods = track.method(contractAddressBytes);
+        }
 
         return this.getMethodInfo(methodName, methodDesc, methods);
     }
@@ -178,16 +223,29 @@ public class VMHelper implements InitializingBean {
         // 当前区块状态根
         byte[] currentStateRoot = ContractUtil.getStateRoot(blockHeader);
 
+        if(contractViewExecutor.isRunning()) {
+            return contractViewExecutor.call(currentStateRoot, blockHeight, contractAddressBytes, methodName, methodDesc, args, ContractConstant.CONTRACT_CONSTANT_GASLIMIT, false);
+        }
         return this.invokeViewMethod(null, false, currentStateRoot, blockHeight, contractAddressBytes, methodName, methodDesc, args);
     }
 
     public ProgramResult invokeCustomGasViewMethod(byte[] contractAddressBytes, String methodName, String methodDesc, String[][] args) {
+        return this.invokeCustomGasViewMethod(contractAddressBytes, methodName, methodDesc, args, 0L);
+    }
+
+    /**
+     * @param gasLimit 本次调用的gas上限，小于等于0时使用配置的最大值
+     */
+    public ProgramResult invokeCustomGasViewMethod(byte[] contractAddressBytes, String methodName, String methodDesc, String[][] args, long gasLimit) {
         // 当前区块高度
         BlockHeader blockHeader = NulsContext.getInstance().getBestBlock().getHeader();
         long blockHeight = blockHeader.getHeight();
         // 当前区块状态根
         byte[] currentStateRoot = ContractUtil.getStateRoot(blockHeader);
 
+        if(contractViewExecutor.isRunning()) {
+            return contractViewExecutor.call(currentStateRoot, blockHeight, contractAddressBytes, methodName, methodDesc, args, gasLimit, true);
+        }
         return this.invokeViewMethod(null, true, currentStateRoot, blockHeight, contractAddressBytes, methodName, methodDesc, args);
     }
 
@@ -300,12 +358,18 @@ public class VMHelper implements InitializingBean {
                     tokenTransferInfoPo.setTxHash(txHashBytes);
                     tokenTransferInfoPo.setStatus((byte) (contractResult.isSuccess() ? 1 : 2));
 
+                    BigInteger value = tokenTransferInfoPo.getValue();
+                    boolean indexed = contractResult.isSuccess() && value != null;
                     if(from != null) {
-                        this.refreshTokenBalance(newestStateRoot, contractAddressInfo, AddressTool.getStringAddressByBytes(from), contractAddress);
+                        if(indexed) {
+                            this.applyTokenTransfer(newestStateRoot, tx.getBlockHeight(), contractAddressInfo, from, value.negate());
+                        }
                         this.saveTokenTransferInfo(from, txHashBytes, new VarInt(i).encode(), tokenTransferInfoPo);
                     }
                     if(to != null) {
-                        this.refreshTokenBalance(newestStateRoot, contractAddressInfo, AddressTool.getStringAddressByBytes(to), contractAddress);
+                        if(indexed) {
+                            this.applyTokenTransfer(newestStateRoot, tx.getBlockHeight(), contractAddressInfo, to, value);
+                        }
                         this.saveTokenTransferInfo(to, txHashBytes, new VarInt(i).encode(), tokenTransferInfoPo);
                     }
                 }
@@ -319,20 +383,157 @@ public class VMHelper implements InitializingBean {
         contractTokenTransferStorageService.saveTokenTransferInfo(ArraysTool.concatenate(address, txHashBytes, index), tokenTransferInfoPo);
     }
 
-    public void refreshTokenBalance(byte[] stateRoot, ContractAddressInfoPo po, String address, String contractAddress) {
-        this.refreshTokenBalance(null, stateRoot, po, address, contractAddress);
+    /**
+     * 用token余额索引刷新账户的token余额，索引中没有该账户时在指定区块的状态上调用balanceOf对账
+     *
+     * @param stateRoot   区块的状态根
+     * @param blockHeight 区块高度
+     */
+    public void refreshTokenBalance(byte[] stateRoot, long blockHeight, ContractAddressInfoPo po, String address, String contractAddress) {
+        BigInteger balance;
+        tokenIndexLock.lock();
+        try {
+            balance = this.getOrReconcileTokenBalance(stateRoot, blockHeight, po, AddressTool.getAddress(address));
+        } finally {
+            tokenIndexLock.unlock();
+        }
+        if(balance != null) {
+            contractBalanceManager.refreshContractToken(address, contractAddress, po, balance);
+        }
     }
 
-    private void refreshTokenBalance(ProgramExecutor executor, byte[] stateRoot, ContractAddressInfoPo po, String address, String contractAddress) {
-        long bestBlockHeight = NulsContext.getInstance().getBestHeight();
-        byte[] contractAddressBytes = po.getContractAddress();
-        ProgramResult programResult = this.invokeViewMethod(executor, stateRoot, bestBlockHeight, contractAddressBytes, NRC20_METHOD_BALANCE_OF, null, address);
-        if(!programResult.isSuccess()) {
+    /**
+     * 根据NRC20 TransferEvent增量更新token余额索引
+     * 索引中没有该账户时在区块最终状态上调用balanceOf对账，区块最终状态已包含本区块的所有转账，因此对账高度及之前的事件不再累加
+     */
+    private void applyTokenTransfer(byte[] stateRoot, long blockHeight, ContractAddressInfoPo po, byte[] address, BigInteger delta) {
+        byte[] contractAddress = po.getContractAddress();
+        BigInteger balance;
+        tokenIndexLock.lock();
+        try {
+            ContractTokenBalancePo balancePo = contractTokenBalanceStorageService.getTokenBalance(address, contractAddress);
+            if(balancePo == null) {
+                balance = this.getOrReconcileTokenBalance(stateRoot, blockHeight, po, address);
+            } else if(blockHeight > balancePo.getBlockHeight()) {
+                balance = balancePo.getBalance().add(delta);
+                balancePo.setBalance(balance);
+                contractTokenBalanceStorageService.saveTokenBalance(address, contractAddress, balancePo);
+            } else {
+                balance = balancePo.getBalance();
+            }
+        } finally {
+            tokenIndexLock.unlock();
+        }
+        if(balance != null) {
+            contractBalanceManager.refreshContractToken(AddressTool.getStringAddressByBytes(address), AddressTool.getStringAddressByBytes(contractAddress), po, balance);
+        }
+    }
+
+    /**
+     * 回滚合约执行结果中NRC20 TransferEvent对token余额索引的修改
+     * 对账高度不低于回滚区块的余额已无法还原，直接删除，下次使用时重新对账
+     */
+    public void rollbackTokenBalanceIndex(long blockHeight, ContractResult contractResult) {
+        if(contractResult == null || !contractResult.isSuccess()) {
+            return;
+        }
+        List<String> events = contractResult.getEvents();
+        if(events == null || events.isEmpty()) {
             return;
+        }
+        tokenIndexLock.lock();
+        try {
+            for(String event : events) {
+                ContractTokenTransferInfoPo tokenTransferInfoPo = ContractUtil.convertJsonToTokenTransferInfoPo(event);
+                if(tokenTransferInfoPo == null || tokenTransferInfoPo.getValue() == null) {
+                    continue;
+                }
+                String contractAddress = tokenTransferInfoPo.getContractAddress();
+                if(StringUtils.isBlank(contractAddress) || !AddressTool.validAddress(contractAddress)) {
+                    continue;
+                }
+                byte[] contractAddressBytes = AddressTool.getAddress(contractAddress);
+                ContractAddressInfoPo po = contractAddressStorageService.getContractAddressInfo(contractAddressBytes).getData();
+                if(po == null || !po.isNrc20()) {
+                    continue;
+                }
+                BigInteger value = tokenTransferInfoPo.getValue();
+                if(tokenTransferInfoPo.getFrom() != null) {
+                    this.rollbackTokenTransfer(blockHeight, tokenTransferInfoPo.getFrom(), contractAddressBytes, value);
+                }
+                if(tokenTransferInfoPo.getTo() != null) {
+                    this.rollbackTokenTransfer(blockHeight, tokenTransferInfoPo.getTo(), contractAddressBytes, value.negate());
+                }
+            }
+        } catch (Exception e) {
+            Log.warn("rollback contract token balance index error.", e);
+        } finally {
+            tokenIndexLock.unlock();
+        }
+    }
+
+    private void rollbackTokenTransfer(long blockHeight, byte[] address, byte[] contractAddress, BigInteger delta) {
+        ContractTokenBalancePo balancePo = contractTokenBalanceStorageService.getTokenBalance(address, contractAddress);
+        if(balancePo == null) {
+            return;
+        }
+        if(blockHeight > balancePo.getBlockHeight()) {
+            balancePo.setBalance(balancePo.getBalance().add(delta));
+            contractTokenBalanceStorageService.saveTokenBalance(address, contractAddress, balancePo);
         } else {
-            contractBalanceManager.refreshContractToken(address, contractAddress, po, new BigInteger(programResult.getResult()));
+            contractTokenBalanceStorageService.deleteTokenBalance(address, contractAddress);
         }
+    }
 
+    /**
+     * 从token余额索引获取账户在最新区块上的token余额，索引中没有时通过虚拟机获取并写入索引
+     *
+     * @return 虚拟机调用失败时返回null
+     */
+    public BigInteger getTokenBalance(ContractAddressInfoPo po, String address) {
+        byte[] addressBytes = AddressTool.getAddress(address);
+        byte[] contractAddress = po.getContractAddress();
+        ContractTokenBalancePo balancePo = contractTokenBalanceStorageService.getTokenBalance(addressBytes, contractAddress);
+        if(balancePo != null) {
+            return balancePo.getBalance();
+        }
+        BlockHeader blockHeader = NulsContext.getInstance().getBestBlock().getHeader();
+        BigInteger balance = this.invokeBalanceOf(ContractUtil.getStateRoot(blockHeader), blockHeader.getHeight(), contractAddress, address);
+        if(balance == null) {
+            return null;
+        }
+        tokenIndexLock.lock();
+        try {
+            // 对账期间最新区块发生变化时不写入索引，避免和区块处理交错
+            if(contractTokenBalanceStorageService.getTokenBalance(addressBytes, contractAddress) == null
+                    && blockHeader.getHash().equals(NulsContext.getInstance().getBestBlock().getHeader().getHash())) {
+                contractTokenBalanceStorageService.saveTokenBalance(addressBytes, contractAddress, new ContractTokenBalancePo(balance, blockHeader.getHeight()));
+            }
+        } finally {
+            tokenIndexLock.unlock();
+        }
+        return balance;
+    }
+
+    private BigInteger getOrReconcileTokenBalance(byte[] stateRoot, long blockHeight, ContractAddressInfoPo po, byte[] address) {
+        byte[] contractAddress = po.getContractAddress();
+        ContractTokenBalancePo balancePo = contractTokenBalanceStorageService.getTokenBalance(address, contractAddress);
+        if(balancePo != null) {
+            return balancePo.getBalance();
+        }
+        BigInteger balance = this.invokeBalanceOf(stateRoot, blockHeight, contractAddress, AddressTool.getStringAddressByBytes(address));
+        if(balance != null) {
+            contractTokenBalanceStorageService.saveTokenBalance(address, contractAddress, new ContractTokenBalancePo(balance, blockHeight));
+        }
+        return balance;
+    }
+
+    private BigInteger invokeBalanceOf(byte[] stateRoot, long blockHeight, byte[] contractAddress, String address) {
+        ProgramResult programResult = this.invokeViewMethod(null, stateRoot, blockHeight, contractAddress, NRC20_METHOD_BALANCE_OF, null, address);
+        if(!programResult.isSuccess()) {
+            return null;
+        }
+        return new BigInteger(programResult.getResult());
     }
 
     private boolean checkNrc20Contract(List<ProgramMethod> methods) {
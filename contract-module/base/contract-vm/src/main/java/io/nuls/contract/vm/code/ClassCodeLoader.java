@@ -24,25 +24,29 @@
  */
 package io.nuls.contract.vm.code;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import io.nuls.contract.vm.util.Constants;
+import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.tree.ClassNode;
 
-import javax.annotation.Nonnull;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -55,19 +59,26 @@ public class ClassCodeLoader {
     private static final Map<String, ClassCode> RESOURCE_CLASS_CODES_V3;
     private static final Map<String, ClassCode> RESOURCE_CLASS_CODES_NEWEST;
 
-    private static final LoadingCache<ClassCodeCacheKey, Map<String, ClassCode>> CACHE;
+    private static final Cache<ClassCodeCacheKey, Map<String, ClassCode>> CACHE;
+
+    /**
+     * 按单个类字节码的哈希缓存，不同合约中相同的类只解析一次
+     */
+    private static final Cache<String, ClassCode> CLASS_CACHE;
+
+    private static volatile ClassCodeStore store;
 
     static {
         CACHE = CacheBuilder.newBuilder()
                 .initialCapacity(100)
                 .maximumSize(1024)
                 .expireAfterAccess(10 * 60, TimeUnit.SECONDS)
-                .build(new CacheLoader<ClassCodeCacheKey, Map<String, ClassCode>>() {
-                    @Override
-                    public Map<String, ClassCode> load(@Nonnull final ClassCodeCacheKey cacheKey) {
-                        return ClassCodeLoader.loadJar(cacheKey.getBytes());
-                    }
-                });
+                .build();
+        CLASS_CACHE = CacheBuilder.newBuilder()
+                .initialCapacity(1000)
+                .maximumSize(10240)
+                .expireAfterAccess(10 * 60, TimeUnit.SECONDS)
+                .build();
         RESOURCE_CLASS_CODES = loadFromResource();
         RESOURCE_CLASS_CODES_V3 = loadFromResource_v3();
         RESOURCE_CLASS_CODES_NEWEST = RESOURCE_CLASS_CODES_V3;
@@ -150,14 +161,106 @@ public class ClassCodeLoader {
         return classCodes;
     }
 
+    public static void setStore(ClassCodeStore classCodeStore) {
+        store = classCodeStore;
+    }
+
     public static Map<String, ClassCode> loadJarCache(byte[] bytes) {
+        return loadJarCache(bytes, false);
+    }
+
+    /**
+     * @param persist 是否把解析结果写入持久化存储，只有已部署的合约代码才需要写入
+     */
+    public static Map<String, ClassCode> loadJarCache(byte[] bytes, boolean persist) {
+        ClassCodeCacheKey cacheKey = new ClassCodeCacheKey(bytes);
         try {
-            return CACHE.get(new ClassCodeCacheKey(bytes));
+            return CACHE.get(cacheKey, () -> loadJarCode(cacheKey, persist));
         } catch (ExecutionException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static Map<String, ClassCode> loadJarCode(ClassCodeCacheKey cacheKey, boolean persist) {
+        ClassCodeStore classCodeStore = store;
+        if (classCodeStore != null) {
+            Map<String, ClassCode> classCodes = loadFromStore(classCodeStore, cacheKey.getKey());
+            if (classCodes != null) {
+                return classCodes;
+            }
+        }
+        Map<String, byte[]> classBytesMap = readJar(new ByteArrayInputStream(cacheKey.getBytes()));
+        Map<String, ClassCode> classCodes = new HashMap<>(100);
+        Map<String, String> index = new LinkedHashMap<>(classBytesMap.size() * 2);
+        for (byte[] classBytes : classBytesMap.values()) {
+            String classHash = DigestUtils.sha1Hex(classBytes);
+            ClassCode classCode = loadClass(classHash, () -> load(classBytes));
+            classCodes.put(classCode.name, classCode);
+            index.put(classCode.name, classHash);
+            if (persist && classCodeStore != null && classCodeStore.getClassBytes(classHash) == null) {
+                classCodeStore.putClassBytes(classHash, classBytes);
+            }
+        }
+        if (persist && classCodeStore != null) {
+            classCodeStore.putIndex(cacheKey.getKey(), serializeIndex(index));
+        }
+        return classCodes;
+    }
+
+    /**
+     * 根据存储中的索引逐个加载类，已在内存中的类直接复用，其余的从存储中读取单个类的字节码解析，不需要解压整个jar
+     */
+    private static Map<String, ClassCode> loadFromStore(ClassCodeStore classCodeStore, String codeHash) {
+        byte[] indexBytes = classCodeStore.getIndex(codeHash);
+        if (indexBytes == null) {
+            return null;
+        }
+        try {
+            NulsByteBuffer buffer = new NulsByteBuffer(indexBytes);
+            int size = (int) buffer.readVarInt();
+            Map<String, ClassCode> classCodes = new HashMap<>(100);
+            for (int i = 0; i < size; i++) {
+                String className = buffer.readString();
+                String classHash = buffer.readString();
+                ClassCode classCode = loadClass(classHash, () -> {
+                    byte[] classBytes = classCodeStore.getClassBytes(classHash);
+                    if (classBytes == null) {
+                        throw new IOException("missing class code " + className);
+                    }
+                    return load(classBytes);
+                });
+                classCodes.put(className, classCode);
+            }
+            return classCodes;
+        } catch (Exception e) {
+            Log.warn("load class code from store error, codeHash: " + codeHash, e);
+            return null;
+        }
+    }
+
+    private static ClassCode loadClass(String classHash, Callable<ClassCode> loader) {
+        try {
+            return CLASS_CACHE.get(classHash, loader);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static byte[] serializeIndex(Map<String, String> index) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(index.size() * 64);
+        NulsOutputStreamBuffer buffer = new NulsOutputStreamBuffer(out);
+        try {
+            buffer.writeVarInt(index.size());
+            for (Map.Entry<String, String> entry : index.entrySet()) {
+                buffer.writeString(entry.getKey());
+                buffer.writeString(entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+
     private static boolean isSupport(VariableType variableType) {
         if (variableType.isPrimitiveType()) {
             return false;
@@ -196,29 +299,23 @@ public class ClassCodeLoader {
         }
     }
 
-    private static Map<String, ClassCode> loadJar(byte[] bytes) {
-        InputStream inputStream = new ByteArrayInputStream(bytes);
-        return loadJar(inputStream);
-    }
-
     private static Map<String, ClassCode> loadJar(InputStream inputStream) {
-        try {
-            JarInputStream jarInputStream = new JarInputStream(inputStream);
-            return loadJar(jarInputStream);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        Map<String, ClassCode> map = new HashMap<>(100);
+        for (byte[] bytes : readJar(inputStream).values()) {
+            ClassCode classCode = load(bytes);
+            map.put(classCode.name, classCode);
         }
+        return map;
     }
 
-    private static Map<String, ClassCode> loadJar(JarInputStream jarInputStream) {
-        Map<String, ClassCode> map = new HashMap<>(100);
+    private static Map<String, byte[]> readJar(InputStream inputStream) {
+        Map<String, byte[]> map = new LinkedHashMap<>(100);
         try {
+            JarInputStream jarInputStream = new JarInputStream(inputStream);
             JarEntry jarEntry;
             while ((jarEntry = jarInputStream.getNextJarEntry()) != null) {
                 if (!jarEntry.isDirectory() && jarEntry.getName().endsWith(Constants.CLASS_SUFFIX)) {
-                    byte[] bytes = IOUtils.toByteArray(jarInputStream);
-                    ClassCode classCode = load(bytes);
-                    map.put(classCode.name, classCode);
+                    map.put(jarEntry.getName(), IOUtils.toByteArray(jarInputStream));
                 }
             }
         } catch (IOException e) {
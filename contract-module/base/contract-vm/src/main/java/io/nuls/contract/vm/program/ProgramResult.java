@@ -70,6 +70,25 @@ public class ProgramResult {
     public ProgramResult() {
     }
 
+    /**
+     * 复制一份结果，转账和事件列表也是新的列表
+     * Copies the result, the transfer and event lists are new lists
+     */
+    public ProgramResult copy() {
+        ProgramResult copy = new ProgramResult();
+        copy.gasUsed = this.gasUsed;
+        copy.result = this.result;
+        copy.revert = this.revert;
+        copy.error = this.error;
+        copy.errorMessage = this.errorMessage;
+        copy.stackTrace = this.stackTrace;
+        copy.balance = this.balance;
+        copy.nonce = this.nonce;
+        copy.transfers = this.transfers == null ? null : new ArrayList<>(this.transfers);
+        copy.events = this.events == null ? null : new ArrayList<>(this.events);
+        return copy;
+    }
+
     public boolean isSuccess() {
         return !error && !revert;
     }
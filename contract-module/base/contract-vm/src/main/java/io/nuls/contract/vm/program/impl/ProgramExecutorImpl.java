@@ -46,9 +46,12 @@ import org.ethereum.config.SystemProperties;
 import org.ethereum.core.AccountState;
 import org.ethereum.core.Block;
 import org.ethereum.core.Repository;
+import org.ethereum.datasource.ReadCache;
 import org.ethereum.datasource.Source;
 import org.ethereum.datasource.leveldb.LevelDbDataSource;
 import org.ethereum.db.ByteArrayWrapper;
+import org.ethereum.db.DbFlushManager;
+import org.ethereum.db.PruneManager;
 import org.ethereum.db.RepositoryRoot;
 import org.ethereum.db.StateSource;
 import org.ethereum.util.FastByteComparisons;
@@ -152,7 +155,21 @@ public class ProgramExecutorImpl implements ProgramExecutor {
                     DefaultConfig.getDefault().blockStore().saveBlock(block, BigInteger.ONE, true);
                     DefaultConfig.getDefault().pruneManager().blockCommitted(block.getHeader());
                 }
-                CommonConfig.getDefault().dbFlushManager().flush();
+                // 按 cache.flush.blocks 批量异步刷盘，刷盘期间可以开始执行下一个区块
+                CommonConfig.getDefault().dbFlushManager().commit();
+                if (log.isDebugEnabled()) {
+                    DbFlushManager flushManager = CommonConfig.getDefault().dbFlushManager();
+                    ReadCache<byte[], byte[]> readCache = CommonConfig.getDefault().stateSource().getReadCache();
+                    log.debug("state read cache hit rate: {}, size: {}, flush last: {}ms, avg: {}ms, max: {}ms, wait: {}ms",
+                            String.format("%.4f", readCache.getHitRate()), readCache.estimateCacheSize(),
+                            flushManager.getFlushLastMillis(), flushManager.getFlushAvgMillis(),
+                            flushManager.getFlushMaxMillis(), flushManager.getFlushWaitMillis());
+                    PruneManager pruneManager = DefaultConfig.getDefault().pruneManager();
+                    log.debug("state prune depth: {}, pruned blocks: {}, nodes deleted: {}, {} nodes/block, {}ms/block, queued: {}",
+                            pruneManager.getPruneBlocksCnt(), pruneManager.getBlocksPruned(), pruneManager.getNodesDeleted(),
+                            String.format("%.2f", pruneManager.getNodesDeletedPerBlock()),
+                            String.format("%.2f", pruneManager.getPruneMillisPerBlock()), pruneManager.getQueueSize());
+                }
             }
             logTime("commit");
         }
@@ -270,7 +287,7 @@ public class ProgramExecutorImpl implements ProgramExecutor {
                     return revert(String.format("contract[%s] has stopped", programInvoke.getAddress()));
                 }
                 byte[] codes = repository.getCode(programInvoke.getContractAddress());
-                classCodes = ClassCodeLoader.loadJarCache(codes);
+                classCodes = ClassCodeLoader.loadJarCache(codes, true);
                 logTime("load code");
             }
 
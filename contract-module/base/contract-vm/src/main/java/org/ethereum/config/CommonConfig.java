@@ -204,6 +204,20 @@ public class CommonConfig {
         return blockchainDB;
     }
 
+    /**
+     * Re-applies cache settings after {@link SystemProperties} has been overridden,
+     * the sources which are already created are adjusted in place
+     */
+    public void applyConfig() {
+        SystemProperties config = systemProperties();
+        if (stateSource != null) {
+            stateSource.setConfig(config);
+        }
+        if (dbFlushManager != null) {
+            dbFlushManager.setCommitsCountThreshold(config.cacheFlushBlocks());
+        }
+    }
+
     private DbFlushManager dbFlushManager;
 
     public DbFlushManager dbFlushManager() {
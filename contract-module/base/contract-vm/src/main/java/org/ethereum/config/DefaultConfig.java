@@ -68,11 +68,17 @@ public class DefaultConfig {
         if (pruneManager == null) {
             if (config.databasePruneDepth() >= 0) {
                 pruneManager = new PruneManager((IndexedBlockStore) blockStore(), commonConfig.stateSource().getJournalSource(),
-                        commonConfig.stateSource().getNoJournalSource(), config.databasePruneDepth());
+                        commonConfig.stateSource().getNoJournalSource(), config.databasePruneDepth()).startBackground();
             } else {
                 pruneManager = new PruneManager(null, null, null, -1); // dummy
             }
         }
         return pruneManager;
     }
+
+    public synchronized void shutdown() {
+        if (pruneManager != null) {
+            pruneManager.shutdown();
+        }
+    }
 }
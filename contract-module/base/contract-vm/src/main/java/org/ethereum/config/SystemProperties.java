@@ -145,7 +145,7 @@ public class SystemProperties {
     public SystemProperties() {
         Map<String, Object> values = new HashMap<>();
         values.put("cache.flush.writeCacheSize", 64);
-        values.put("cache.flush.blocks", 0);
+        values.put("cache.flush.blocks", 1);
         values.put("cache.flush.shortSyncFlush", true);
         values.put("cache.stateCacheSize", 384);
         values.put("crypto.providerName", "SC");
@@ -220,6 +220,16 @@ public class SystemProperties {
         overrideParams(cliConf);
     }
 
+    /**
+     * Overrides options without the full config validation, used for the cache
+     * options which are configured from the contract section of modules.ini
+     *
+     * @see CommonConfig#applyConfig()
+     */
+    public void overrideCacheParams(Map<String, ?> options) {
+        config = ConfigFactory.parseMap(options).withFallback(config);
+    }
+
     private void validateConfig() {
         for (Method method : getClass().getMethods()) {
             try {
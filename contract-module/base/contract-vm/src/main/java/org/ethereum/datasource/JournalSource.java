@@ -19,12 +19,14 @@ package org.ethereum.datasource;
 
 import org.ethereum.datasource.inmem.HashMapDB;
 import org.ethereum.db.prune.Pruner;
+import org.ethereum.util.ByteArraySet;
 import org.ethereum.util.RLP;
 import org.ethereum.util.RLPElement;
 import org.ethereum.util.RLPList;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The JournalSource records all the changes which were made before each commitUpdate
@@ -95,6 +97,12 @@ public class JournalSource<V> extends AbstractChainedSource<byte[], V, byte[], V
 
     Source<byte[], Update> journal = new HashMapDB<>();
 
+    /**
+     * Keys inserted by updates which the background {@link Pruner} hasn't been fed with yet,
+     * null when pruning runs in the committing thread
+     */
+    private Set<byte[]> unfedInserts;
+
     /**
      * Constructs instance with the underlying backing Source
      */
@@ -131,6 +139,9 @@ public class JournalSource<V> extends AbstractChainedSource<byte[], V, byte[], V
 
         getSource().put(key, val);
         currentUpdate.insertedKeys.add(key);
+        if (unfedInserts != null) {
+            unfedInserts.add(key);
+        }
     }
 
     /**
@@ -162,6 +173,39 @@ public class JournalSource<V> extends AbstractChainedSource<byte[], V, byte[], V
         return committed;
     }
 
+    /**
+     * Starts tracking inserted keys until the pruner confirms them with {@link #releaseInserts(Update)},
+     * required when the pruner runs in a thread other than the one which modifies the state
+     */
+    public synchronized void trackInserts() {
+        if (unfedInserts == null) {
+            unfedInserts = new ByteArraySet();
+        }
+    }
+
+    /**
+     * Called by the pruner after the update was fed to its filter
+     */
+    public synchronized void releaseInserts(Update update) {
+        if (unfedInserts != null) {
+            update.getInsertedKeys().forEach(unfedInserts::remove);
+        }
+    }
+
+    /**
+     * Deletes the key from the backing Source unless it was inserted by an update
+     * which the pruner doesn't know about yet
+     *
+     * @return true if the key was deleted
+     */
+    public synchronized boolean pruneKey(byte[] key) {
+        if (unfedInserts != null && unfedInserts.contains(key)) {
+            return false;
+        }
+        getSource().delete(key);
+        return true;
+    }
+
     public Source<byte[], Update> getJournal() {
         return journal;
     }
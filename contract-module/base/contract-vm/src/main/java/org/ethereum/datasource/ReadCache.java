@@ -21,10 +21,8 @@ import org.apache.commons.collections4.map.LRUMap;
 import org.ethereum.db.ByteArrayWrapper;
 import org.ethereum.util.ByteArrayMap;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Caches entries get/updated and use LRU algo to purge them if the number
@@ -47,6 +45,14 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
     private Map<Key, Value> cache;
     private boolean byteKeyMap;
 
+    /**
+     * Max estimated memory of cached entries, 0 means the cache is bounded by entries count only
+     */
+    private long maxMemory;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
     public ReadCache(Source<Key, Value> src) {
         super(src);
         withCache(new HashMap<Key, Value>());
@@ -56,6 +62,13 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
      * Installs the specific cache Map implementation
      */
     public ReadCache<Key, Value> withCache(Map<Key, Value> cache) {
+        if (this.cache != null) {
+            synchronized (this.cache) {
+                for (Map.Entry<Key, Value> entry : this.cache.entrySet()) {
+                    cacheRemoved(entry.getKey(), unwrap(entry.getValue()));
+                }
+            }
+        }
         byteKeyMap = cache instanceof ByteArrayMap;
         this.cache = Collections.synchronizedMap(cache);
         return this;
@@ -65,6 +78,7 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
      * Sets the max number of entries to cache
      */
     public ReadCache<Key, Value> withMaxCapacity(int maxCapacity) {
+        maxMemory = 0;
         return withCache(new LRUMap<Key, Value>(maxCapacity) {
             @Override
             protected boolean removeLRU(LinkEntry<Key, Value> entry) {
@@ -74,6 +88,63 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
         });
     }
 
+    /**
+     * Bounds the cache by the estimated memory of its entries instead of entries count.
+     * Least recently accessed entries are purged when the estimate exceeds maxMemory
+     */
+    public ReadCache<Key, Value> withMaxMemory(long maxMemory, MemSizeEstimator<Key> keySizeEstimator,
+                                               MemSizeEstimator<Value> valueSizeEstimator) {
+        return withMaxMemory(new LinkedHashMap<Key, Value>(1024, 0.75f, true), maxMemory, keySizeEstimator, valueSizeEstimator);
+    }
+
+    /**
+     * @param accessOrderedCache the map must iterate from the least recently accessed entry
+     */
+    protected ReadCache<Key, Value> withMaxMemory(Map<Key, Value> accessOrderedCache, long maxMemory,
+                                                  MemSizeEstimator<Key> keySizeEstimator,
+                                                  MemSizeEstimator<Value> valueSizeEstimator) {
+        withCache(accessOrderedCache);
+        withSizeEstimators(keySizeEstimator, valueSizeEstimator);
+        this.maxMemory = maxMemory;
+        return this;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private Value unwrap(Value value) {
+        return value == NULL ? null : value;
+    }
+
+    private void purgeOverflow() {
+        if (maxMemory <= 0 || estimateCacheSize() <= maxMemory) {
+            return;
+        }
+        synchronized (cache) {
+            Iterator<Map.Entry<Key, Value>> it = cache.entrySet().iterator();
+            while (estimateCacheSize() > maxMemory && it.hasNext()) {
+                Map.Entry<Key, Value> entry = it.next();
+                it.remove();
+                cacheRemoved(entry.getKey(), unwrap(entry.getValue()));
+            }
+        }
+    }
+
     // the guard against incorrect Map implementation for byte[] keys
     private boolean checked = false;
 
@@ -96,8 +167,12 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
         if (val == null) {
             delete(key);
         } else {
-            cache.put(key, val);
+            Value old = cache.put(key, val);
+            if (old != null) {
+                cacheRemoved(key, unwrap(old));
+            }
             cacheAdded(key, val);
+            purgeOverflow();
             getSource().put(key, val);
         }
     }
@@ -107,12 +182,20 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
         checkByteArrKey(key);
         Value ret = cache.get(key);
         if (ret == NULL) {
+            hitCount.incrementAndGet();
             return null;
         }
         if (ret == null) {
+            missCount.incrementAndGet();
             ret = getSource().get(key);
-            cache.put(key, ret == null ? NULL : ret);
+            Value old = cache.put(key, ret == null ? NULL : ret);
+            if (old != null) {
+                cacheRemoved(key, unwrap(old));
+            }
             cacheAdded(key, ret);
+            purgeOverflow();
+        } else {
+            hitCount.incrementAndGet();
         }
         return ret;
     }
@@ -121,7 +204,9 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
     public void delete(Key key) {
         checkByteArrKey(key);
         Value value = cache.remove(key);
-        cacheRemoved(key, value);
+        if (value != null) {
+            cacheRemoved(key, unwrap(value));
+        }
         getSource().delete(key);
     }
 
@@ -168,5 +253,17 @@ public class ReadCache<Key, Value> extends AbstractCachedSource<Key, Value> {
             }));
             return this;
         }
+
+        /**
+         * Bounds the cache by estimated memory with byte[] keys, values are estimated
+         * with {@link MemSizeEstimator#ByteArrayEstimator} when they are byte arrays
+         */
+        public ReadCache.BytesKey<V> withMaxMemory(long maxMemory) {
+            MemSizeEstimator<V> valueSizeEstimator = value ->
+                    value instanceof byte[] ? MemSizeEstimator.ByteArrayEstimator.estimateSize((byte[]) value) : 16;
+            withMaxMemory(new ByteArrayMap<V>(new LinkedHashMap<ByteArrayWrapper, V>(1024, 0.75f, true)),
+                    maxMemory, MemSizeEstimator.ByteArrayEstimator, valueSizeEstimator);
+            return this;
+        }
     }
 }
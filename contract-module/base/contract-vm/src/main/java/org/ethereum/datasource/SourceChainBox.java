@@ -48,6 +48,15 @@ public class SourceChainBox<Key, Value, SourceKey, SourceValue>
         lastSource = src;
     }
 
+    /**
+     * Replaces the last Source in the chain, the new Source should be
+     * connected to the same Source as the replaced one
+     */
+    public void replaceLast(Source src) {
+        chain.set(chain.size() - 1, src);
+        lastSource = src;
+    }
+
     @Override
     public void put(Key key, Value val) {
         lastSource.put(key, val);
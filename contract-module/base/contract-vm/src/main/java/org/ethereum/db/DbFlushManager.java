@@ -31,6 +31,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by Anton Nashatyrev on 01.12.2016.
@@ -52,6 +53,12 @@ public class DbFlushManager {
 
     int commitCount = 0;
 
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushTotalNanos = new AtomicLong();
+    private volatile long flushLastNanos;
+    private volatile long flushMaxNanos;
+    private final AtomicLong flushWaitTotalNanos = new AtomicLong();
+
     private final BlockingQueue<Runnable> executorQueue = new ArrayBlockingQueue<>(1);
     private final ExecutorService flushThread = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
             executorQueue, new ThreadFactoryBuilder().setNameFormat("DbFlushManagerThread-%d").build());
@@ -70,6 +77,13 @@ public class DbFlushManager {
         this.sizeThreshold = sizeThreshold;
     }
 
+    /**
+     * Flush once every commitsCountThreshold commits, a value of 1 flushes on every commit
+     */
+    public synchronized void setCommitsCountThreshold(int commitsCountThreshold) {
+        this.commitsCountThreshold = commitsCountThreshold;
+    }
+
     public void addCache(AbstractCachedSource<byte[], ?> cache) {
         writeCaches.add(cache);
     }
@@ -92,10 +106,12 @@ public class DbFlushManager {
     }
 
     public synchronized void commit() {
+        commitCount++;
         long cacheSize = getCacheSize();
         if (sizeThreshold >= 0 && cacheSize >= sizeThreshold) {
             logger.debug("DbFlushManager: flushing db due to write cache size (" + cacheSize + ") reached threshold (" + sizeThreshold + ")");
             flush();
+            commitCount = 0;
         } else if (commitsCountThreshold > 0 && commitCount >= commitsCountThreshold) {
             logger.debug("DbFlushManager: flushing db due to commits (" + commitCount + ") reached threshold (" + commitsCountThreshold + ")");
             flush();
@@ -103,8 +119,8 @@ public class DbFlushManager {
         } else if (flushAfterSyncDone && syncDone) {
             logger.debug("DbFlushManager: flushing db due to short sync");
             flush();
+            commitCount = 0;
         }
-        commitCount++;
     }
 
     public synchronized void flushSync() {
@@ -118,11 +134,13 @@ public class DbFlushManager {
     public synchronized Future<Boolean> flush() {
         if (!lastFlush.isDone()) {
             logger.debug("Waiting for previous flush to complete...");
+            long w = System.nanoTime();
             try {
                 lastFlush.get();
             } catch (Exception e) {
                 logger.error("Error during last flush", e);
             }
+            flushWaitTotalNanos.addAndGet(System.nanoTime() - w);
         }
         logger.debug("Flipping async storages");
         for (AbstractCachedSource<byte[], ?> writeCache : writeCaches) {
@@ -158,12 +176,44 @@ public class DbFlushManager {
                 logger.debug("Flushing to DB");
                 stateDbCache.flush();
             }
-            logger.debug("Flush completed in " + (System.nanoTime() - s) / 1000000 + " ms");
+            long elapsed = System.nanoTime() - s;
+            flushCount.incrementAndGet();
+            flushTotalNanos.addAndGet(elapsed);
+            flushLastNanos = elapsed;
+            if (elapsed > flushMaxNanos) {
+                flushMaxNanos = elapsed;
+            }
+            logger.debug("Flush completed in " + elapsed / 1000000 + " ms");
 
             return ret;
         });
     }
 
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getFlushLastMillis() {
+        return flushLastNanos / 1000000;
+    }
+
+    public long getFlushMaxMillis() {
+        return flushMaxNanos / 1000000;
+    }
+
+    public long getFlushAvgMillis() {
+        long count = flushCount.get();
+        return count == 0 ? 0 : flushTotalNanos.get() / count / 1000000;
+    }
+
+    /**
+     * Total time commits spent waiting for the previous flush to complete,
+     * non zero values mean the flushes do not keep up with block processing
+     */
+    public long getFlushWaitMillis() {
+        return flushWaitTotalNanos.get() / 1000000;
+    }
+
     /**
      * Flushes all caches and closes all databases
      */
@@ -17,6 +17,7 @@
  */
 package org.ethereum.db;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.ethereum.config.SystemProperties;
 import org.ethereum.core.Block;
 import org.ethereum.core.BlockHeader;
@@ -24,9 +25,15 @@ import org.ethereum.datasource.JournalSource;
 import org.ethereum.datasource.Source;
 import org.ethereum.db.prune.Pruner;
 import org.ethereum.db.prune.Segment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +42,11 @@ import java.util.stream.Collectors;
  * <p>
  * Constructs chain segments and prune them when they are complete
  * <p>
+ * After {@link #startBackground()} the journal update is still committed in the block committing thread,
+ * while segment tracking and node deletion run in a single background thread. Keys inserted by updates
+ * which are not yet fed to the pruner are protected by {@link JournalSource#pruneKey(byte[])}.
+ * If the background thread falls behind by more than {@link #QUEUE_CAPACITY} blocks the committing thread waits.
+ * <p>
  * Created by Anton Nashatyrev on 10.11.2016.
  *
  * @see Segment
@@ -42,8 +54,14 @@ import java.util.stream.Collectors;
  */
 public class PruneManager {
 
+    private static final Logger logger = LoggerFactory.getLogger("prune");
+
     private static final int LONGEST_CHAIN = 192;
 
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static final int STATS_INTERVAL = 1000;
+
     private JournalSource<?> journalSource;
 
     private IndexedBlockStore blockStore;
@@ -53,6 +71,14 @@ public class PruneManager {
     private Segment segment;
     private Pruner pruner;
 
+    private volatile BlockingQueue<Committed> queue;
+    private volatile Thread pruneThread;
+    private volatile boolean stopped;
+
+    private final AtomicLong blocksPruned = new AtomicLong();
+    private final AtomicLong pruneNanos = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
     private PruneManager(SystemProperties config) {
         pruneBlocksCnt = config.databasePruneDepth();
     }
@@ -68,6 +94,61 @@ public class PruneManager {
         }
     }
 
+    /**
+     * Moves pruning to a background thread, must be called before the first {@link #blockCommitted(BlockHeader)}
+     */
+    public synchronized PruneManager startBackground() {
+        if (pruneBlocksCnt < 0 || pruneThread != null) {
+            return this;
+        }
+        journalSource.trackInserts();
+        pruner = new Pruner(journalSource.getJournal(), new PruneStorage(journalSource));
+        queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        pruneThread = new ThreadFactoryBuilder().setNameFormat("PruneManagerThread-%d").setDaemon(true).build()
+                .newThread(this::pruneLoop);
+        pruneThread.start();
+        return this;
+    }
+
+    /**
+     * Stops the background thread, blocks which are still queued or committed afterwards are left unpruned
+     */
+    public synchronized void shutdown() {
+        if (pruneThread == null) {
+            return;
+        }
+        stopped = true;
+        pruneThread.interrupt();
+        try {
+            pruneThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pruneThread = null;
+        // a committing thread waiting for a full queue must not wait forever
+        queue.clear();
+    }
+
+    private void pruneLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Committed committed;
+            try {
+                committed = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                prune(committed.block, committed.update);
+            } catch (Exception e) {
+                logger.error("prune block " + committed.block.getNumber() + " error", e);
+                segment = null;
+            }
+        }
+        if (!queue.isEmpty()) {
+            logger.info("pruning stopped, {} blocks left unpruned", queue.size());
+        }
+    }
+
     public void setStateSource(StateSource stateSource) {
         journalSource = stateSource.getJournalSource();
         if (journalSource != null) {
@@ -81,7 +162,42 @@ public class PruneManager {
         }
 
         JournalSource.Update update = journalSource.commitUpdates(block.getHash());
+        BlockingQueue<Committed> queue = this.queue;
+        if (queue == null) {
+            prune(block, update);
+            return;
+        }
+        if (stopped) {
+            return;
+        }
+        if (!queue.offer(new Committed(block, update))) {
+            long w = System.nanoTime();
+            try {
+                queue.put(new Committed(block, update));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            waitNanos.addAndGet(System.nanoTime() - w);
+        }
+    }
+
+    private void prune(BlockHeader block, JournalSource.Update update) {
+        long t = System.nanoTime();
+        try {
+            pruneBlock(block, update);
+        } finally {
+            pruneNanos.addAndGet(System.nanoTime() - t);
+            if (blocksPruned.incrementAndGet() % STATS_INTERVAL == 0) {
+                logger.info("state pruning: {} blocks, {} nodes deleted, {} nodes/block, {}ms/block, {} blocks queued, commit wait {}ms",
+                        getBlocksPruned(), getNodesDeleted(), String.format("%.2f", getNodesDeletedPerBlock()),
+                        String.format("%.2f", getPruneMillisPerBlock()), getQueueSize(), getWaitMillis());
+            }
+        }
+    }
+
+    private void pruneBlock(BlockHeader block, JournalSource.Update update) {
         pruner.feed(update);
+        journalSource.releaseInserts(update);
 
         long forkBlockNum = block.getNumber() - getForkBlocksCnt();
         if (forkBlockNum < 0) {
@@ -113,7 +229,8 @@ public class PruneManager {
 
         if (segment.isComplete()) {
             if (!pruner.isReady()) {
-                List<byte[]> forkWindow = getAllChainsHashes(segment.getRootNumber() + 1, blockStore.getMaxNumber());
+                // the window ends at the block being pruned, blocks committed ahead of the pruning thread are fed later
+                List<byte[]> forkWindow = getAllChainsHashes(segment.getRootNumber() + 1, block.getNumber());
                 pruner.init(forkWindow, getForkBlocksCnt());
 
                 int mainChainWindowSize = pruneBlocksCnt - getForkBlocksCnt();
@@ -136,6 +253,44 @@ public class PruneManager {
         pruner.persist(hash);
     }
 
+    public int getPruneBlocksCnt() {
+        return pruneBlocksCnt;
+    }
+
+    public long getBlocksPruned() {
+        return blocksPruned.get();
+    }
+
+    public long getNodesDeleted() {
+        Pruner pruner = this.pruner;
+        return pruner == null ? 0 : pruner.getNodesDeleted();
+    }
+
+    public double getNodesDeletedPerBlock() {
+        long blocks = blocksPruned.get();
+        return blocks == 0 ? 0 : (double) getNodesDeleted() / blocks;
+    }
+
+    public double getPruneMillisPerBlock() {
+        long blocks = blocksPruned.get();
+        return blocks == 0 ? 0 : pruneNanos.get() / 1000000.0 / blocks;
+    }
+
+    /**
+     * Number of committed blocks waiting for the background thread
+     */
+    public int getQueueSize() {
+        BlockingQueue<Committed> queue = this.queue;
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Total time the committing thread waited for a full queue
+     */
+    public long getWaitMillis() {
+        return waitNanos.get() / 1000000;
+    }
+
     private int getForkBlocksCnt() {
         return Math.min(pruneBlocksCnt, 2 * LONGEST_CHAIN);
     }
@@ -166,4 +321,45 @@ public class PruneManager {
         }
         return ret;
     }
+
+    private static class Committed {
+        private final BlockHeader block;
+        private final JournalSource.Update update;
+
+        Committed(BlockHeader block, JournalSource.Update update) {
+            this.block = block;
+            this.update = update;
+        }
+    }
+
+    /**
+     * Storage view for the background pruner, deletes go through {@link JournalSource#pruneKey(byte[])}
+     */
+    private static class PruneStorage implements Source<byte[], Object> {
+        private final JournalSource<?> journalSource;
+
+        PruneStorage(JournalSource<?> journalSource) {
+            this.journalSource = journalSource;
+        }
+
+        @Override
+        public void put(byte[] key, Object val) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object get(byte[] key) {
+            return journalSource.get(key);
+        }
+
+        @Override
+        public void delete(byte[] key) {
+            journalSource.pruneKey(key);
+        }
+
+        @Override
+        public boolean flush() {
+            return false;
+        }
+    }
 }
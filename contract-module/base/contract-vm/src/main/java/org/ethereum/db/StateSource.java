@@ -33,13 +33,14 @@ public class StateSource extends SourceChainBox<byte[], byte[], byte[], byte[]>
     JournalSource<byte[]> journalSource;
     NoDeleteSource<byte[], byte[]> noDeleteSource;
 
-    ReadCache<byte[], byte[]> readCache;
+    ReadCache.BytesKey<byte[]> readCache;
     AbstractCachedSource<byte[], byte[]> writeCache;
+    Source<byte[], byte[]> journalStore;
 
     public StateSource(Source<byte[], byte[]> src, boolean pruningEnabled) {
         super(src);
         INST = this;
-        add(readCache = new ReadCache.BytesKey<>(src).withMaxCapacity(16 * 1024 * 1024 / 512)); // 512 - approx size of a node
+        add(readCache = new ReadCache.BytesKey<>(src).withMaxMemory(16 * 1024 * 1024));
         readCache.setFlushSource(true);
         writeCache = new AsyncWriteCache<byte[], byte[]>(readCache) {
             @Override
@@ -61,13 +62,35 @@ public class StateSource extends SourceChainBox<byte[], byte[], byte[], byte[]>
     }
 
     public void setConfig(SystemProperties config) {
-        int size = config.getConfig().getInt("cache.stateCacheSize");
-        readCache.withMaxCapacity(size * 1024 * 1024 / 512); // 512 - approx size of a node
+        long size = config.getConfig().getLong("cache.stateCacheSize");
+        readCache.withMaxMemory(size * 1024 * 1024);
+        setPruningEnabled(config.databasePruneDepth() >= 0);
     }
 
     public void setCommonConfig(CommonConfig commonConfig) {
+        journalStore = commonConfig.cachedDbSource("journal");
         if (journalSource != null) {
-            journalSource.setJournalStore(commonConfig.cachedDbSource("journal"));
+            journalSource.setJournalStore(journalStore);
+        }
+    }
+
+    /**
+     * Switches between the journaled (pruned) and the archive (no delete) mode,
+     * must be called before the first block is processed
+     */
+    private void setPruningEnabled(boolean pruningEnabled) {
+        if (pruningEnabled == (journalSource != null)) {
+            return;
+        }
+        if (pruningEnabled) {
+            replaceLast(journalSource = new JournalSource<>(writeCache));
+            if (journalStore != null) {
+                journalSource.setJournalStore(journalStore);
+            }
+            noDeleteSource = null;
+        } else {
+            replaceLast(noDeleteSource = new NoDeleteSource<>(writeCache));
+            journalSource = null;
         }
     }
 
@@ -81,6 +81,8 @@ public class Pruner {
     Stats distantMaxLoad = new Stats();
     Stats distantMaxCollisions = new Stats();
 
+    volatile long nodesDeletedTotal = 0;
+
     public Pruner(Source<byte[], JournalSource.Update> journal, Source<byte[], ?> storage) {
         this.storage = storage;
         this.journal = journal;
@@ -190,6 +192,7 @@ public class Pruner {
             pruning.nodesDeleted += persist(segment.main);
             segment.main.getHashes().forEach(journal::delete);
         }
+        nodesDeletedTotal += pruning.nodesDeleted;
 
         if (logger.isTraceEnabled()) {
             logger.trace("nodes {}, keys in mem: {}, filter load: {}/{}: {}, distinct collisions: {}",
@@ -253,6 +256,7 @@ public class Pruner {
         update.getInsertedKeys().forEach(distantFilter::remove);
         // delete update
         journal.delete(hash);
+        nodesDeletedTotal += nodesDeleted;
 
         if (logger.isDebugEnabled()) {
             int collisions = ((CountingQuotientFilter) distantFilter).getCollisionNumber();
@@ -286,6 +290,13 @@ public class Pruner {
         }
     }
 
+    /**
+     * Total number of nodes deleted from the storage since this pruner was created
+     */
+    public long getNodesDeleted() {
+        return nodesDeletedTotal;
+    }
+
     private int postpone(Chain chain) {
         if (logger.isTraceEnabled()) {
             logger.trace("<~ postponing " + chain + ": " + strSample(chain.getHashes()));
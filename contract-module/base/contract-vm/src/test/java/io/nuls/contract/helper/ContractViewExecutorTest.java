@@ -0,0 +1,171 @@
+package io.nuls.contract.helper;
+
+import io.nuls.contract.constant.ContractConstant;
+import io.nuls.contract.util.VMContext;
+import io.nuls.contract.vm.program.ProgramCall;
+import io.nuls.contract.vm.program.ProgramExecutor;
+import io.nuls.contract.vm.program.ProgramResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class ContractViewExecutorTest {
+
+    private static final byte[] STATE_ROOT = new byte[]{1, 2, 3};
+    private static final byte[] CONTRACT = new byte[]{4, 5, 6};
+
+    private ContractViewExecutor viewExecutor;
+    private List<ProgramCall> calls;
+    private Function<ProgramCall, ProgramResult> behaviour;
+
+    @Before
+    public void init() {
+        VMContext.setCustomMaxViewGasLimit(100000);
+        calls = new ArrayList<>();
+        behaviour = call -> {
+            ProgramResult result = new ProgramResult();
+            result.setResult("100");
+            result.setGasUsed(1000);
+            return result;
+        };
+        viewExecutor = new ContractViewExecutor();
+        viewExecutor.start(createExecutor(), 2, 4, 100, 600, 5000);
+    }
+
+    @After
+    public void shutdown() {
+        viewExecutor.shutdown();
+    }
+
+    /**
+     * 内部调用保持原来的gas上限，不按view方法执行
+     */
+    @Test
+    public void internalCallKeepsConstantGas() {
+        ProgramResult result = viewExecutor.call(STATE_ROOT, 10, CONTRACT, "balanceOf", null, null,
+                ContractConstant.CONTRACT_CONSTANT_GASLIMIT, false);
+        assertTrue(result.isSuccess());
+        assertEquals(1, calls.size());
+        assertEquals(ContractConstant.CONTRACT_CONSTANT_GASLIMIT, calls.get(0).getGasLimit());
+        assertFalse(calls.get(0).isViewMethod());
+    }
+
+    @Test
+    public void viewCallCapped() {
+        viewExecutor.call(STATE_ROOT, 10, CONTRACT, "balanceOf", null, null, 0L, true);
+        viewExecutor.call(STATE_ROOT, 10, CONTRACT, "totalSupply", null, null, Long.MAX_VALUE, true);
+        viewExecutor.call(STATE_ROOT, 10, CONTRACT, "decimals", null, null, 5000L, true);
+        assertEquals(3, calls.size());
+        assertEquals(100000, calls.get(0).getGasLimit());
+        assertEquals(100000, calls.get(1).getGasLimit());
+        assertEquals(5000, calls.get(2).getGasLimit());
+        assertTrue(calls.get(0).isViewMethod());
+    }
+
+    @Test
+    public void cachedResultIsCopy() {
+        ProgramResult first = viewExecutor.call(STATE_ROOT, 10, CONTRACT, "balanceOf", null, new String[][]{{"a"}}, 0L, true);
+        first.setResult("changed");
+        first.getEvents().add("event");
+        first.revert("changed");
+
+        ProgramResult second = viewExecutor.call(STATE_ROOT, 10, CONTRACT, "balanceOf", null, new String[][]{{"a"}}, 0L, true);
+        assertEquals(1, calls.size());
+        assertNotSame(first, second);
+        assertTrue(second.isSuccess());
+        assertEquals("100", second.getResult());
+        assertTrue(second.getEvents().isEmpty());
+
+        // 内部调用和view调用分开缓存
+        viewExecutor.call(STATE_ROOT, 10, CONTRACT, "balanceOf", null, new String[][]{{"a"}}, 100000L, false);
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void executionErrorReported() {
+        behaviour = call -> {
+            throw new RuntimeException("class not found");
+        };
+        ProgramResult result = viewExecutor.call(STATE_ROOT, 10, CONTRACT, "balanceOf", null, null, 0L, true);
+        assertTrue(result.isRevert());
+        assertEquals("class not found", result.getErrorMessage());
+        assertEquals(0, viewExecutor.getRejectedCount());
+
+        // 出错的结果不缓存
+        behaviour = call -> new ProgramResult();
+        assertTrue(viewExecutor.call(STATE_ROOT, 10, CONTRACT, "balanceOf", null, null, 0L, true).isSuccess());
+        assertNull(viewExecutor.method(new byte[]{9}, CONTRACT));
+    }
+
+    /**
+     * 超时返回后任务仍在执行，许可直到任务结束才释放
+     */
+    @Test
+    public void timeoutKeepsPermitUntilFinished() throws Exception {
+        viewExecutor.shutdown();
+        viewExecutor = new ContractViewExecutor();
+        viewExecutor.start(createExecutor(), 1, 1, 100, 600, 50);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        behaviour = call -> {
+            running.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                // 超时取消时中断，继续等待模拟不响应中断的合约执行
+                try {
+                    finish.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+            return new ProgramResult();
+        };
+        assertTrue(viewExecutor.call(STATE_ROOT, 10, CONTRACT, "slow", null, null, 0L, true).isRevert());
+        assertEquals(1, viewExecutor.getTimeoutCount());
+        assertTrue(running.await(1, TimeUnit.SECONDS));
+
+        assertTrue(viewExecutor.call(STATE_ROOT, 10, CONTRACT, "other", null, null, 0L, true).isRevert());
+        assertEquals(1, viewExecutor.getRejectedCount());
+
+        finish.countDown();
+        behaviour = call -> new ProgramResult();
+        long deadline = System.currentTimeMillis() + 1000;
+        ProgramResult result;
+        do {
+            Thread.sleep(10);
+            result = viewExecutor.call(STATE_ROOT, 10, CONTRACT, "other", null, null, 0L, true);
+        } while (!result.isSuccess() && System.currentTimeMillis() < deadline);
+        assertTrue(result.isSuccess());
+        assertEquals(0, viewExecutor.getQueueSize());
+    }
+
+    private ProgramExecutor createExecutor() {
+        return (ProgramExecutor) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ProgramExecutor.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "begin":
+                        case "startTracking":
+                            return proxy;
+                        case "call":
+                            ProgramCall programCall = (ProgramCall) args[0];
+                            synchronized (calls) {
+                                calls.add(programCall);
+                            }
+                            return behaviour.apply(programCall);
+                        case "method":
+                            throw new IllegalStateException("no contract");
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
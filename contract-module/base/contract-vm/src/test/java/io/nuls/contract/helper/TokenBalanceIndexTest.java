@@ -0,0 +1,282 @@
+package io.nuls.contract.helper;
+
+import io.nuls.contract.dto.ContractResult;
+import io.nuls.contract.ledger.manager.ContractBalanceManager;
+import io.nuls.contract.storage.po.ContractAddressInfoPo;
+import io.nuls.contract.storage.po.ContractTokenBalancePo;
+import io.nuls.contract.storage.service.ContractAddressStorageService;
+import io.nuls.contract.storage.service.ContractTokenBalanceStorageService;
+import io.nuls.contract.storage.service.ContractTokenTransferStorageService;
+import io.nuls.contract.vm.program.ProgramCall;
+import io.nuls.contract.vm.program.ProgramExecutor;
+import io.nuls.contract.vm.program.ProgramResult;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.Address;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.utils.AddressTool;
+import io.nuls.protocol.model.tx.TransferTransaction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * token余额索引：按TransferEvent增量更新、回滚，以及索引中没有账户时通过虚拟机balanceOf对账
+ */
+public class TokenBalanceIndexTest {
+
+    private static final short CHAIN_ID = 8964;
+    private static final byte[] STATE_ROOT = new byte[]{1, 1, 1};
+
+    private VMHelper vmHelper;
+    private ContractAddressInfoPo po;
+    private String contract;
+    private String accountA;
+    private String accountB;
+
+    /**
+     * token余额索引，key为账户地址+合约地址
+     */
+    private Map<String, ContractTokenBalancePo> index = new HashMap<>();
+
+    /**
+     * 虚拟机中balanceOf的返回值
+     */
+    private Map<String, String> vmBalances = new HashMap<>();
+    private List<ProgramCall> vmCalls = new ArrayList<>();
+    private List<byte[]> vmStateRoots = new ArrayList<>();
+    private byte[] vmStateRoot;
+    private int mainNetVersion;
+
+    @Before
+    public void init() throws Exception {
+        // 合约地址从主网版本2开始有效
+        mainNetVersion = NulsContext.MAIN_NET_VERSION;
+        NulsContext.MAIN_NET_VERSION = 2;
+        NulsContext.getInstance().setDefaultChainId(CHAIN_ID);
+        contract = createAddress(NulsContext.CONTRACT_ADDRESS_TYPE, 1);
+        accountA = createAddress(NulsContext.DEFAULT_ADDRESS_TYPE, 2);
+        accountB = createAddress(NulsContext.DEFAULT_ADDRESS_TYPE, 3);
+
+        po = new ContractAddressInfoPo();
+        po.setContractAddress(new Address(contract).getAddressBytes());
+        po.setNrc20(true);
+        po.setNrc20TokenName("test");
+        po.setNrc20TokenSymbol("TT");
+        po.setDecimals(2);
+
+        vmHelper = new VMHelper();
+        inject("contractTokenBalanceStorageService", new MemoryTokenBalanceStorage());
+        inject("contractAddressStorageService", proxy(ContractAddressStorageService.class, (name, args) ->
+                "getContractAddressInfo".equals(name) && Arrays.equals(po.getContractAddress(), (byte[]) args[0])
+                        ? new Result<>(true, null, po) : new Result<>(true, null, null)));
+        inject("contractTokenTransferStorageService", proxy(ContractTokenTransferStorageService.class, (name, args) -> Result.getSuccess()));
+        inject("contractBalanceManager", new ContractBalanceManager());
+        inject("contractViewExecutor", new ContractViewExecutor());
+        inject("programExecutor", createExecutor());
+    }
+
+    @After
+    public void restore() {
+        NulsContext.MAIN_NET_VERSION = mainNetVersion;
+    }
+
+    @Test
+    public void applyRollbackReconcile() {
+        // 区块11：A转给B 10，索引中没有A和B，在区块11的最终状态上对账，不再累加本区块的事件
+        vmBalances.put(accountA, "90");
+        vmBalances.put(accountB, "10");
+        vmHelper.dealEvents(STATE_ROOT, createTx(11), createResult(accountA, accountB, 10), po);
+        assertIndex(accountA, 90, 11);
+        assertIndex(accountB, 10, 11);
+        assertEquals(2, vmCalls.size());
+        assertArrayEquals(STATE_ROOT, vmStateRoots.get(0));
+        assertEquals(11, vmCalls.get(0).getNumber());
+
+        // 区块12：A转给B 5，按事件增量更新，不调用虚拟机
+        vmHelper.dealEvents(STATE_ROOT, createTx(12), createResult(accountA, accountB, 5), po);
+        assertIndex(accountA, 85, 11);
+        assertIndex(accountB, 15, 11);
+        assertEquals(2, vmCalls.size());
+
+        // 回滚区块12，还原增量
+        vmHelper.rollbackTokenBalanceIndex(12, createResult(accountA, accountB, 5));
+        assertIndex(accountA, 90, 11);
+        assertIndex(accountB, 10, 11);
+
+        // 回滚对账所在的区块11，余额无法还原，删除索引
+        vmHelper.rollbackTokenBalanceIndex(11, createResult(accountA, accountB, 10));
+        assertNull(getIndex(accountA));
+        assertNull(getIndex(accountB));
+
+        // 下次使用时在区块10的状态上重新对账
+        vmBalances.put(accountA, "100");
+        vmHelper.refreshTokenBalance(STATE_ROOT, 10, po, accountA, contract);
+        assertIndex(accountA, 100, 10);
+        assertEquals(3, vmCalls.size());
+        assertEquals(10, vmCalls.get(2).getNumber());
+
+        // 之后的事件继续增量更新
+        vmHelper.dealEvents(STATE_ROOT, createTx(11), createResult(accountA, accountB, 10), po);
+        assertIndex(accountA, 90, 10);
+    }
+
+    @Test
+    public void failedResultIgnored() {
+        index.put(key(accountA), new ContractTokenBalancePo(BigInteger.valueOf(50), 5));
+        ContractResult result = createResult(accountA, accountB, 10);
+        result.setError(true);
+        vmHelper.rollbackTokenBalanceIndex(6, result);
+        assertIndex(accountA, 50, 5);
+        vmHelper.dealEvents(STATE_ROOT, createTx(6), result, po);
+        assertIndex(accountA, 50, 5);
+        assertTrue(vmCalls.isEmpty());
+    }
+
+    @Test
+    public void missingIndexFallback() {
+        Block block = new Block();
+        BlockHeader header = new BlockHeader();
+        header.setHeight(30);
+        header.setHash(NulsDigestData.calcDigestData(new byte[]{3}));
+        block.setHeader(header);
+        NulsContext.getInstance().setBestBlock(block);
+
+        // 索引中没有A时通过虚拟机在最新区块上获取并写入索引，之后直接读索引
+        vmBalances.put(accountA, "50");
+        assertEquals(BigInteger.valueOf(50), vmHelper.getTokenBalance(po, accountA));
+        assertIndex(accountA, 50, 30);
+        assertEquals(1, vmCalls.size());
+        assertEquals(30, vmCalls.get(0).getNumber());
+        vmBalances.put(accountA, "1");
+        assertEquals(BigInteger.valueOf(50), vmHelper.getTokenBalance(po, accountA));
+        assertEquals(1, vmCalls.size());
+
+        // 虚拟机调用失败时返回null，不写入索引
+        assertNull(vmHelper.getTokenBalance(po, accountB));
+        assertNull(getIndex(accountB));
+        vmHelper.dealEvents(STATE_ROOT, createTx(31), createResult(accountA, accountB, 7), po);
+        assertIndex(accountA, 43, 30);
+        assertNull(getIndex(accountB));
+
+        // 虚拟机恢复后对账，对账高度及之前的事件不再累加
+        vmBalances.put(accountB, "7");
+        vmHelper.dealEvents(STATE_ROOT, createTx(31), createResult(accountA, accountB, 7), po);
+        assertIndex(accountB, 7, 31);
+        vmHelper.dealEvents(STATE_ROOT, createTx(31), createResult(accountA, accountB, 7), po);
+        assertIndex(accountB, 7, 31);
+    }
+
+    private void assertIndex(String address, long balance, long blockHeight) {
+        ContractTokenBalancePo balancePo = getIndex(address);
+        assertNotNull(balancePo);
+        assertEquals(BigInteger.valueOf(balance), balancePo.getBalance());
+        assertEquals(blockHeight, balancePo.getBlockHeight());
+    }
+
+    private ContractTokenBalancePo getIndex(String address) {
+        return index.get(key(address));
+    }
+
+    private String key(String address) {
+        return address + contract;
+    }
+
+    private TransferTransaction createTx(long blockHeight) {
+        TransferTransaction tx = new TransferTransaction();
+        tx.setTime(1540000000000L + blockHeight);
+        tx.setBlockHeight(blockHeight);
+        tx.setRemark(("tx-" + blockHeight).getBytes());
+        return tx;
+    }
+
+    private ContractResult createResult(String from, String to, long value) {
+        ContractResult result = new ContractResult();
+        List<String> events = new ArrayList<>();
+        events.add("{\"contractAddress\":\"" + contract + "\",\"event\":\"TransferEvent\",\"payload\":{\"from\":\"" + from
+                + "\",\"to\":\"" + to + "\",\"value\":\"" + value + "\"}}");
+        result.setEvents(events);
+        return result;
+    }
+
+    private String createAddress(byte type, int seed) {
+        byte[] hash160 = new byte[20];
+        Arrays.fill(hash160, (byte) seed);
+        return new Address(CHAIN_ID, type, hash160).getBase58();
+    }
+
+    private ProgramExecutor createExecutor() {
+        ProgramExecutor[] executor = new ProgramExecutor[1];
+        executor[0] = proxy(ProgramExecutor.class, (name, args) -> {
+            switch (name) {
+                case "begin":
+                    vmStateRoot = (byte[]) args[0];
+                    return executor[0];
+                case "call":
+                    ProgramCall programCall = (ProgramCall) args[0];
+                    vmCalls.add(programCall);
+                    vmStateRoots.add(vmStateRoot);
+                    String balance = vmBalances.get(programCall.getArgs()[0][0]);
+                    if (balance == null) {
+                        return new ProgramResult().revert("balanceOf failed");
+                    }
+                    ProgramResult result = new ProgramResult();
+                    result.setResult(balance);
+                    return result;
+                default:
+                    throw new UnsupportedOperationException(name);
+            }
+        });
+        return executor[0];
+    }
+
+    private void inject(String fieldName, Object value) throws Exception {
+        Field field = VMHelper.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(vmHelper, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{type},
+                (proxy, method, args) -> handler.invoke(method.getName(), args));
+    }
+
+    private interface Handler {
+        Object invoke(String name, Object[] args);
+    }
+
+    private class MemoryTokenBalanceStorage implements ContractTokenBalanceStorageService {
+
+        private String key(byte[] address, byte[] contractAddress) {
+            return AddressTool.getStringAddressByBytes(address) + AddressTool.getStringAddressByBytes(contractAddress);
+        }
+
+        @Override
+        public Result saveTokenBalance(byte[] address, byte[] contractAddress, ContractTokenBalancePo po) {
+            index.put(key(address, contractAddress), new ContractTokenBalancePo(po.getBalance(), po.getBlockHeight()));
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result deleteTokenBalance(byte[] address, byte[] contractAddress) {
+            index.remove(key(address, contractAddress));
+            return Result.getSuccess();
+        }
+
+        @Override
+        public ContractTokenBalancePo getTokenBalance(byte[] address, byte[] contractAddress) {
+            ContractTokenBalancePo po = index.get(key(address, contractAddress));
+            return po == null ? null : new ContractTokenBalancePo(po.getBalance(), po.getBlockHeight());
+        }
+    }
+}
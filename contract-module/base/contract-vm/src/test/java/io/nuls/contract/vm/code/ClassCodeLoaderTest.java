@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.contract.vm.code;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ClassCodeLoaderTest {
+
+    private static class MapClassCodeStore implements ClassCodeStore {
+        private final Map<String, byte[]> indexes = new HashMap<>();
+        private final Map<String, byte[]> classes = new HashMap<>();
+
+        @Override
+        public byte[] getIndex(String codeHash) {
+            return indexes.get(codeHash);
+        }
+
+        @Override
+        public void putIndex(String codeHash, byte[] index) {
+            indexes.put(codeHash, index);
+        }
+
+        @Override
+        public byte[] getClassBytes(String classHash) {
+            return classes.get(classHash);
+        }
+
+        @Override
+        public void putClassBytes(String classHash, byte[] classBytes) {
+            classes.put(classHash, classBytes);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        ClassCodeLoader.setStore(null);
+    }
+
+    @Test
+    public void testLoadFromStore() throws IOException {
+        byte[] contractCode;
+        try (InputStream in = new FileInputStream(ClassCodeLoaderTest.class.getResource("/token_contract").getFile())) {
+            contractCode = IOUtils.toByteArray(in);
+        }
+        MapClassCodeStore store = new MapClassCodeStore();
+        ClassCodeLoader.setStore(store);
+
+        Map<String, ClassCode> fromJar = ClassCodeLoader.loadJarCache(contractCode, true);
+        Assert.assertEquals(1, store.indexes.size());
+        Assert.assertEquals(fromJar.size(), store.classes.size());
+
+        // 修改一个字节之后哈希不同，不会命中内存缓存，但索引仍按原哈希读取
+        String codeHash = new ClassCodeCacheKey(contractCode).getKey();
+        byte[] other = contractCode.clone();
+        other[other.length - 1] ^= 1;
+        store.putIndex(new ClassCodeCacheKey(other).getKey(), store.getIndex(codeHash));
+
+        Map<String, ClassCode> fromStore = ClassCodeLoader.loadJarCache(other);
+        Assert.assertEquals(fromJar.keySet(), fromStore.keySet());
+        for (Map.Entry<String, ClassCode> entry : fromJar.entrySet()) {
+            Assert.assertSame(entry.getValue(), fromStore.get(entry.getKey()));
+        }
+    }
+
+}
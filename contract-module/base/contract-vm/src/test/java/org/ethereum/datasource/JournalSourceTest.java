@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.datasource;
+
+import org.ethereum.datasource.inmem.HashMapDB;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JournalSourceTest {
+
+    private static final byte[] KEY = new byte[]{1, 2, 3};
+
+    @Test
+    public void testPruneKeyWithoutTracking() {
+        HashMapDB<byte[]> db = new HashMapDB<>();
+        JournalSource<byte[]> journalSource = new JournalSource<>(db);
+        journalSource.put(KEY, new byte[]{1});
+        journalSource.commitUpdates(new byte[]{0});
+
+        Assert.assertTrue(journalSource.pruneKey(KEY));
+        Assert.assertNull(db.get(KEY));
+    }
+
+    @Test
+    public void testUnfedInsertIsProtected() {
+        HashMapDB<byte[]> db = new HashMapDB<>();
+        JournalSource<byte[]> journalSource = new JournalSource<>(db);
+        journalSource.trackInserts();
+
+        journalSource.put(KEY, new byte[]{1});
+        // not committed yet
+        Assert.assertFalse(journalSource.pruneKey(KEY));
+        JournalSource.Update update = journalSource.commitUpdates(new byte[]{0});
+        // committed but not fed to the pruner
+        Assert.assertFalse(journalSource.pruneKey(KEY));
+        Assert.assertNotNull(db.get(KEY));
+
+        journalSource.releaseInserts(update);
+        Assert.assertTrue(journalSource.pruneKey(KEY));
+        Assert.assertNull(db.get(KEY));
+    }
+}
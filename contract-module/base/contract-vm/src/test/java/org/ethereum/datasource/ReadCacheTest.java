@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.datasource;
+
+import org.ethereum.datasource.inmem.HashMapDB;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadCacheTest {
+
+    private static byte[] key(int i) {
+        return new byte[]{(byte) (i >> 8), (byte) i};
+    }
+
+    @Test
+    public void testMaxMemory() {
+        HashMapDB<byte[]> db = new HashMapDB<>();
+        for (int i = 0; i < 100; i++) {
+            db.put(key(i), new byte[100]);
+        }
+        // (2 + 16) + (100 + 16) bytes per entry, about 8 entries
+        ReadCache.BytesKey<byte[]> cache = new ReadCache.BytesKey<>(db).withMaxMemory(1000);
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertNotNull(cache.get(key(i)));
+            Assert.assertTrue(cache.estimateCacheSize() <= 1000);
+        }
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(100, cache.getMissCount());
+
+        // the most recently read entries are kept
+        cache.get(key(99));
+        cache.get(key(98));
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertNull(cache.getCached(key(0)));
+
+        // switching the map keeps the size estimate consistent
+        cache.withMaxMemory(1000);
+        Assert.assertEquals(0, cache.estimateCacheSize());
+    }
+
+    @Test
+    public void testNullValueAndDelete() {
+        HashMapDB<byte[]> db = new HashMapDB<>();
+        ReadCache.BytesKey<byte[]> cache = new ReadCache.BytesKey<>(db).withMaxMemory(1000);
+
+        Assert.assertNull(cache.get(key(1)));
+        Assert.assertNull(cache.get(key(1)));
+        Assert.assertEquals(1, cache.getHitCount());
+
+        cache.put(key(1), new byte[10]);
+        cache.put(key(1), new byte[20]);
+        Assert.assertEquals((2 + 16) + (20 + 16), cache.estimateCacheSize());
+
+        cache.delete(key(1));
+        cache.delete(key(2));
+        Assert.assertEquals(0, cache.estimateCacheSize());
+    }
+}
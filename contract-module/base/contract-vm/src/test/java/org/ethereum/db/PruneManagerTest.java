@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ethereum.db;
+
+import org.ethereum.core.Block;
+import org.ethereum.crypto.HashUtil;
+import org.ethereum.datasource.JournalSource;
+import org.ethereum.datasource.inmem.HashMapDB;
+import org.ethereum.util.ByteUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background pruning: the committing thread only commits journal updates, a single thread feeds and prunes them
+ */
+public class PruneManagerTest {
+
+    private static final int DEPTH = 8;
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private HashMapDB<byte[]> stateDb;
+    private JournalSource<byte[]> journalSource;
+    private PausableBlockStore blockStore;
+    private PruneManager pruneManager;
+
+    @Before
+    public void init() {
+        stateDb = new HashMapDB<>();
+        journalSource = new JournalSource<>(stateDb);
+        blockStore = new PausableBlockStore();
+        blockStore.init(new HashMapDB<>(), new HashMapDB<>());
+        pruneManager = new PruneManager(blockStore, journalSource, stateDb, DEPTH).startBackground();
+    }
+
+    @After
+    public void shutdown() {
+        blockStore.resume();
+        pruneManager.shutdown();
+    }
+
+    @Test
+    public void prunesInBackground() throws Exception {
+        for (int i = 0; i <= 100; i++) {
+            commitBlock(i);
+        }
+        waitPruned(101);
+
+        // the state of each block replaces the previous one, old nodes are deleted once out of the prune window
+        Assert.assertNull(stateDb.get(key(1)));
+        Assert.assertNull(stateDb.get(key(50)));
+        Assert.assertNotNull(stateDb.get(key(100)));
+        Assert.assertTrue(pruneManager.getNodesDeleted() > 0);
+        Assert.assertEquals(0, pruneManager.getQueueSize());
+    }
+
+    /**
+     * Inserts of updates still queued for the pruner are protected, they are released only after being fed
+     */
+    @Test
+    public void insertsReleasedAfterFeed() throws Exception {
+        long next = pausePruning();
+
+        // the paused block is fed and released, the next one waits in the queue
+        byte[] reinserted = key(next);
+        commitBlock(next);
+        Assert.assertEquals(1, pruneManager.getQueueSize());
+        Assert.assertFalse(journalSource.pruneKey(reinserted));
+        Assert.assertNotNull(stateDb.get(reinserted));
+
+        blockStore.resume();
+        waitPruned(next + 1);
+        Assert.assertTrue(journalSource.pruneKey(reinserted));
+        Assert.assertNull(stateDb.get(reinserted));
+    }
+
+    @Test
+    public void backPressure() throws Exception {
+        long next = pausePruning();
+
+        Thread committer = new Thread(() -> {
+            for (long i = next; i <= next + QUEUE_CAPACITY; i++) {
+                commitBlock(i);
+            }
+        });
+        committer.start();
+        waitFor(() -> committer.getState() == Thread.State.WAITING && pruneManager.getQueueSize() == QUEUE_CAPACITY);
+        Assert.assertTrue(committer.isAlive());
+
+        blockStore.resume();
+        committer.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(committer.isAlive());
+        Assert.assertTrue(pruneManager.getWaitMillis() >= 0);
+        waitPruned(next + QUEUE_CAPACITY + 1);
+        Assert.assertEquals(0, pruneManager.getQueueSize());
+    }
+
+    @Test
+    public void shutdownLeavesQueuedBlocks() throws Exception {
+        long next = pausePruning();
+        for (long i = next; i < next + 9; i++) {
+            commitBlock(i);
+        }
+        Assert.assertEquals(9, pruneManager.getQueueSize());
+
+        pruneManager.shutdown();
+        Assert.assertEquals(0, pruneManager.getQueueSize());
+        long pruned = pruneManager.getBlocksPruned();
+
+        // blocks committed after shutdown are not queued and never block the committing thread
+        for (long i = next + 9; i < next + QUEUE_CAPACITY + 20; i++) {
+            commitBlock(i);
+        }
+        Assert.assertEquals(0, pruneManager.getQueueSize());
+        Assert.assertEquals(pruned, pruneManager.getBlocksPruned());
+    }
+
+    /**
+     * Commits the blocks before the prune window, then holds the pruning thread on the first block which reads the
+     * block store, after that block was fed to the pruner
+     *
+     * @return number of the next block to commit
+     */
+    private long pausePruning() throws InterruptedException {
+        for (int i = 0; i < DEPTH; i++) {
+            commitBlock(i);
+        }
+        waitPruned(DEPTH);
+        blockStore.pause();
+        commitBlock(DEPTH);
+        blockStore.awaitPaused();
+        return DEPTH + 1;
+    }
+
+    private void commitBlock(long number) {
+        journalSource.put(key(number), ByteUtil.longToBytes(number));
+        if (number > 0) {
+            journalSource.delete(key(number - 1));
+        }
+        Block block = new Block(hash(number - 1), hash(number), number);
+        blockStore.saveBlock(block, BigInteger.ONE, true);
+        pruneManager.blockCommitted(block.getHeader());
+    }
+
+    private byte[] key(long number) {
+        return HashUtil.sha3(ByteUtil.longToBytes(number));
+    }
+
+    private byte[] hash(long number) {
+        return HashUtil.sha3(("block" + number).getBytes());
+    }
+
+    private void waitPruned(long blocks) throws InterruptedException {
+        waitFor(() -> pruneManager.getBlocksPruned() >= blocks);
+    }
+
+    private void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.check()) {
+            Assert.assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private interface Condition {
+        boolean check();
+    }
+
+    /**
+     * Block store which can hold the pruning thread right after it fed and released an update
+     */
+    private static class PausableBlockStore extends IndexedBlockStore {
+        private volatile CountDownLatch resumeLatch;
+        private volatile CountDownLatch pausedLatch;
+
+        void pause() {
+            pausedLatch = new CountDownLatch(1);
+            resumeLatch = new CountDownLatch(1);
+        }
+
+        void awaitPaused() throws InterruptedException {
+            Assert.assertTrue(pausedLatch.await(10, TimeUnit.SECONDS));
+        }
+
+        void resume() {
+            CountDownLatch latch = resumeLatch;
+            if (latch != null) {
+                latch.countDown();
+            }
+        }
+
+        @Override
+        public List<Block> getBlocksByNumber(long number) {
+            CountDownLatch latch = resumeLatch;
+            if (latch != null && latch.getCount() > 0 && Thread.currentThread().getName().startsWith("PruneManagerThread")) {
+                pausedLatch.countDown();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+            return super.getBlocksByNumber(number);
+        }
+    }
+}
@@ -106,4 +106,23 @@ public interface ContractConstant extends NulsConstant {
     String CFG_CONTRACT_SECTION = "contract";
     String CFG_CONTRACT_MAX_VIEW_GAS = "max.view.gas";
     int DEFAULT_MAX_VIEW_GAS = 100000000;
+    String CFG_CONTRACT_VIEW_THREADS = "view.threads";
+    int DEFAULT_VIEW_THREADS = 4;
+    String CFG_CONTRACT_VIEW_MAX_CONCURRENT = "view.max.concurrent";
+    int DEFAULT_VIEW_MAX_CONCURRENT = 256;
+    String CFG_CONTRACT_VIEW_CACHE_SIZE = "view.cache.size";
+    long DEFAULT_VIEW_CACHE_SIZE = 10000L;
+    String CFG_CONTRACT_VIEW_CACHE_EXPIRE = "view.cache.expire";
+    long DEFAULT_VIEW_CACHE_EXPIRE = 600L;
+    String CFG_CONTRACT_VIEW_TIMEOUT = "view.timeout";
+    long DEFAULT_VIEW_TIMEOUT = 5000L;
+    String CFG_CONTRACT_STATE_CACHE_SIZE = "state.cache.size";
+    int DEFAULT_STATE_CACHE_SIZE = 384;
+    String CFG_CONTRACT_STATE_FLUSH_BLOCKS = "state.flush.blocks";
+    int DEFAULT_STATE_FLUSH_BLOCKS = 1;
+    String CFG_CONTRACT_STATE_PRUNE_DEPTH = "state.prune.depth";
+    int DEFAULT_STATE_PRUNE_DEPTH = 192;
+    int MIN_STATE_PRUNE_DEPTH = 64;
+    String CFG_CONTRACT_STATE_ARCHIVE = "state.archive";
+    boolean DEFAULT_STATE_ARCHIVE = false;
 }
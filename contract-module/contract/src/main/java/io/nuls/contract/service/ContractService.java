@@ -113,6 +113,15 @@ public interface ContractService {
      */
     Result<ContractTokenInfo> getContractTokenViaVm(String address, String contractAddress);
 
+    /**
+     * 从token余额索引获取账户下指定合约的token余额，索引中没有时通过虚拟机获取
+     *
+     * @param address
+     * @param contractAddress
+     * @return
+     */
+    Result<ContractTokenInfo> getContractToken(String address, String contractAddress);
+
     /**
      * 初始化账户下所有合约token
      *
@@ -87,6 +87,7 @@ public class MicroKernelBootstrap extends BaseModuleBootstrap {
             I18nUtils.setLanguage(language);
             String chainId = NulsConfig.NULS_CONFIG.getCfgValue(NulsConstant.CFG_SYSTEM_SECTION, NulsConstant.CFG_SYSTEM_DEFAULT_CHAIN_ID, "8964");
             NulsContext.getInstance().setDefaultChainId(Short.parseShort(chainId));
+            ValidatorManager.setTimingEnabled(NulsConfig.NULS_CONFIG.getCfgValue(NulsConstant.CFG_SYSTEM_SECTION, NulsConstant.CFG_SYSTEM_VALIDATOR_TIMING, false));
         } catch (Exception e) {
             Log.error(e);
         }
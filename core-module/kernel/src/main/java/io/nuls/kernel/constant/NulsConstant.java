@@ -87,6 +87,12 @@ public interface NulsConstant {
      */
     String CFG_SYSTEM_DEFAULT_CHAIN_ID = "chain.id";
 
+    /**
+     * 是否统计每个验证器的耗时
+     * Whether the time spent in each validator is recorded
+     */
+    String CFG_SYSTEM_VALIDATOR_TIMING = "validator.timing";
+
     /**
      * 内核模块的模块id
      * The module id of micro kernel module
@@ -47,6 +47,10 @@ public abstract class BaseNulsData implements NulsData, Serializable, Cloneable
 
     @Override
     public final byte[] serialize() throws IOException {
+        byte[] encoded = getEncodedBytes();
+        if (encoded != null) {
+            return encoded;
+        }
         ByteArrayOutputStream bos = null;
         try {
             int size = size();
@@ -58,7 +62,7 @@ public abstract class BaseNulsData implements NulsData, Serializable, Cloneable
                 serializeToStream(buffer);
             }
             byte[] bytes = bos.toByteArray();
-            if (bytes.length != this.size()) {
+            if (bytes.length != size) {
                 throw new NulsRuntimeException(KernelErrorCode.SERIALIZE_ERROR);
             }
             return bytes;
@@ -75,6 +79,14 @@ public abstract class BaseNulsData implements NulsData, Serializable, Cloneable
 
     protected abstract void serializeToStream(NulsOutputStreamBuffer stream) throws IOException;
 
+    /**
+     * 已经保留的序列化结果(调用方可以修改的副本)，没有时返回null，按字段序列化
+     * A caller owned copy of already encoded bytes, or null to serialize the fields
+     */
+    protected byte[] getEncodedBytes() {
+        return null;
+    }
+
 
     @Override
     public final void parse(byte[] bytes, int cursor) throws NulsException {
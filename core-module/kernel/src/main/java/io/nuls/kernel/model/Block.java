@@ -56,7 +56,7 @@ public class Block extends BaseNulsData implements Cloneable {
     protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
         header.serializeToStream(stream);
         for (Transaction tx : txs) {
-            stream.write(tx.serialize());
+            tx.serializeToStream(stream);
         }
     }
 
@@ -132,6 +132,16 @@ public class NulsDigestData extends BaseNulsData {
         return calcDigestData(data, (byte) 0);
     }
 
+    /**
+     * 在data的一段上计算sha256双重hash，避免复制
+     */
+    public static NulsDigestData calcDigestData(byte[] data, int offset, int length) {
+        NulsDigestData digestData = new NulsDigestData();
+        digestData.setDigestAlgType((byte) 0);
+        digestData.digestBytes = Sha256Hash.hashTwice(data, offset, length);
+        return digestData;
+    }
+
     public static NulsDigestData calcDigestData(byte[] data, byte digestAlgType) {
         NulsDigestData digestData = new NulsDigestData();
         digestData.setDigestAlgType(digestAlgType);
@@ -39,6 +39,7 @@ import io.nuls.kernel.utils.SerializeUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 
 /**
@@ -66,8 +67,26 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
 
     protected transient int size;
 
+    /**
+     * 解析时读取的原始字节，只在其就是按字段序列化的结果(规范编码)时保留，之后不再修改；
+     * size()、serialize()直接使用它，hash在其中不含签名的部分上计算。只有setter会丢弃它，getter没有副作用，
+     * 直接修改coinData、txData内部对象的调用方需要调用 invalidateEncoded()
+     * The exact bytes consumed by parse, kept only when they are the canonical encoding of the fields and never
+     * modified afterwards; reused by size(), serialize() and the hash until a setter changes a field
+     */
+    private transient volatile byte[] encoded;
+
+    /**
+     * encoded中签名之前的长度，即参与hash计算的部分
+     */
+    private transient int encodedHashLength;
+
     @Override
     public int size() {
+        byte[] bytes = encoded;
+        if (bytes != null) {
+            return bytes.length;
+        }
         int size = 0;
         size += SerializeUtils.sizeOfUint16(); // type
         size += SerializeUtils.sizeOfUint48(); // time
@@ -80,6 +99,21 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
 
     @Override
     public void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
+        byte[] bytes = encoded;
+        if (bytes != null) {
+            stream.write(bytes);
+            return;
+        }
+        writeFields(stream);
+    }
+
+    @Override
+    protected byte[] getEncodedBytes() {
+        byte[] bytes = encoded;
+        return bytes == null ? null : bytes.clone();
+    }
+
+    private void writeFields(NulsOutputStreamBuffer stream) throws IOException {
         stream.writeUint16(type);
         stream.writeUint48(time);
         stream.writeBytesWithLength(remark);
@@ -89,6 +123,10 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
     }
 
     public byte[] serializeForHash() throws IOException {
+        byte[] bytes = encoded;
+        if (bytes != null && canHashEncoded()) {
+            return Arrays.copyOf(bytes, encodedHashLength);
+        }
         ByteArrayOutputStream bos = null;
         try {
             int size = size() - SerializeUtils.sizeOfBytes(transactionSignature);
@@ -135,8 +173,44 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
         }
     }
 
+    /**
+     * 与serializeForHash的分支保持一致：只有类型和时间按uint16/uint48序列化时，hash的输入才和传输的字节相同
+     */
+    private boolean canHashEncoded() {
+        if (NulsContext.MAIN_NET_VERSION < 2) {
+            return false;
+        }
+        return this.blockHeight == -1 || NulsContext.CHANGE_HASH_SERIALIZE_HEIGHT == null
+                || this.blockHeight >= NulsContext.CHANGE_HASH_SERIALIZE_HEIGHT;
+    }
+
+    /**
+     * 按字段序列化的结果是否和解析得到的字节完全相同，边写边比较，不生成新的数组。
+     * 非规范编码(如非最短的VarInt)不保留原始字节，按字段序列化和计算hash，结果和之前一致
+     * Whether writing the fields reproduces the parsed bytes exactly, compared while writing
+     */
+    private boolean isCanonical(byte[] bytes) {
+        MatchingOutputStream out = new MatchingOutputStream(bytes);
+        try {
+            writeFields(new NulsOutputStreamBuffer(out));
+        } catch (IOException e) {
+            return false;
+        }
+        return out.isMatched();
+    }
+
+    /**
+     * 丢弃解析时保留的原始字节，之后按字段重新序列化
+     * Drops the bytes kept from parsing, the fields are serialized again afterwards
+     */
+    public void invalidateEncoded() {
+        this.encoded = null;
+    }
+
     @Override
     public void parse(NulsByteBuffer byteBuffer) throws NulsException {
+        this.encoded = null;
+        int start = byteBuffer.getCursor();
         type = byteBuffer.readUint16();
         time = byteBuffer.readUint48();
         this.remark = byteBuffer.readByLengthByte();
@@ -147,7 +221,13 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
         } catch (IOException e) {
             Log.error(e);
         }*/
+        int hashEnd = byteBuffer.getCursor();
         transactionSignature = byteBuffer.readByLengthByte();
+        byte[] bytes = Arrays.copyOfRange(byteBuffer.getPayload(), start, byteBuffer.getCursor());
+        if (isCanonical(bytes)) {
+            this.encodedHashLength = hashEnd - start;
+            this.encoded = bytes;
+        }
     }
 
     //
@@ -192,10 +272,12 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
 
     public void setTime(long time) {
         this.time = time;
+        invalidateEncoded();
     }
 
     public void setType(int type) {
         this.type = type;
+        invalidateEncoded();
     }
 
     public int getType() {
@@ -208,10 +290,16 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
 
     public void setRemark(byte[] remark) {
         this.remark = remark;
+        invalidateEncoded();
     }
 
     public NulsDigestData getHash() {
         if (hash == null) {
+            byte[] bytes = encoded;
+            if (bytes != null && canHashEncoded()) {
+                hash = NulsDigestData.calcDigestData(bytes, 0, encodedHashLength);
+                return hash;
+            }
             try {
                 hash = NulsDigestData.calcDigestData(serializeForHash());
             } catch (IOException e) {
@@ -231,6 +319,7 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
 
     public void setTransactionSignature(byte[] transactionSignature) {
         this.transactionSignature = transactionSignature;
+        invalidateEncoded();
     }
 
     public T getTxData() {
@@ -239,6 +328,7 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
 
     public void setTxData(T txData) {
         this.txData = txData;
+        invalidateEncoded();
     }
 
     public long getBlockHeight() {
@@ -263,6 +353,7 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
 
     public void setCoinData(CoinData coinData) {
         this.coinData = coinData;
+        invalidateEncoded();
     }
 
     public int getSize() {
@@ -339,4 +430,46 @@ public abstract class Transaction<T extends TransactionLogicData> extends BaseNu
                 ", size=" + size +
                 '}';
     }
+
+    /**
+     * 把写入的字节和期望的字节逐个比较
+     */
+    private static class MatchingOutputStream extends OutputStream {
+        private final byte[] expected;
+        private int position;
+        private boolean matched = true;
+
+        MatchingOutputStream(byte[] expected) {
+            this.expected = expected;
+        }
+
+        @Override
+        public void write(int b) {
+            if (matched && (position >= expected.length || expected[position] != (byte) b)) {
+                matched = false;
+            }
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (matched) {
+                if (position + len > expected.length) {
+                    matched = false;
+                } else {
+                    for (int i = 0; i < len; i++) {
+                        if (expected[position + i] != b[off + i]) {
+                            matched = false;
+                            break;
+                        }
+                    }
+                }
+            }
+            position += len;
+        }
+
+        boolean isMatched() {
+            return matched && position == expected.length;
+        }
+    }
 }
@@ -31,25 +31,44 @@ import io.nuls.kernel.lite.core.SpringLiteContext;
 import io.nuls.kernel.model.Transaction;
 import io.nuls.kernel.processor.TransactionProcessor;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
+ * 交易类型注册表
+ * 交易类型到创建交易对象的工厂按类型下标存放在数组中，每个交易类的处理器列表在第一次使用时按 父类 -> 子类 的顺序生成并缓存，
+ * 注册新的交易类型或处理器时重新生成。
+ * <p>
+ * Registry of transaction types: factories are kept in an array indexed by type and the processor list of each
+ * transaction class is resolved once (superclass first) and cached until the next registration.
+ *
  * @author Niels
  */
 public class TransactionManager {
 
-    private static final Map<Class<? extends Transaction>, Class<? extends TransactionProcessor>> TX_SERVICE_MAP = new HashMap<>();
-    private static final Map<Integer, Class<? extends Transaction>> TYPE_TX_MAP = new HashMap<>();
+    private static final Map<Class<? extends Transaction>, Class<? extends TransactionProcessor>> TX_SERVICE_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 下标为交易类型，只在注册时整体替换
+     */
+    private static volatile TxType[] typeArray = new TxType[0];
+
+    private static final Map<Class, List<TransactionProcessor>> PROCESSOR_LIST_MAP = new ConcurrentHashMap<>();
+
+    private static volatile List<TransactionProcessor> allProcessorList;
 
     public static void init() throws Exception {
         List<TransactionProcessor> beanList = SpringLiteContext.getBeanList(TransactionProcessor.class);
         for (TransactionProcessor processor : beanList) {
             registerProcessor(processor);
         }
+        allProcessorList = Collections.unmodifiableList(new ArrayList<>(beanList));
     }
 
     private static void registerProcessor(TransactionProcessor processor) {
@@ -68,41 +87,102 @@ public class TransactionManager {
     }
 
     public static final void putTx(Class<? extends Transaction> txClass, Class<? extends TransactionProcessor> txProcessorClass) {
+        Supplier<Transaction> factory;
+        try {
+            factory = reflectFactory(txClass);
+        } catch (NoSuchMethodException e) {
+            Log.error(e);
+            if (null != txProcessorClass) {
+                TX_SERVICE_MAP.put(txClass, txProcessorClass);
+                PROCESSOR_LIST_MAP.clear();
+            }
+            return;
+        }
+        putTx(txClass, txProcessorClass, factory);
+    }
+
+    /**
+     * @param factory 创建该类型空交易对象的工厂，例如 TransferTransaction::new
+     */
+    public static final synchronized void putTx(Class<? extends Transaction> txClass, Class<? extends TransactionProcessor> txProcessorClass, Supplier<? extends Transaction> factory) {
         if (null != txProcessorClass) {
             TX_SERVICE_MAP.put(txClass, txProcessorClass);
+            PROCESSOR_LIST_MAP.clear();
         }
+        Transaction tx;
         try {
-            Transaction tx = txClass.newInstance();
-            TYPE_TX_MAP.put(tx.getType(), txClass);
-        } catch (InstantiationException e) {
-            Log.error(e);
-        } catch (IllegalAccessException e) {
+            tx = factory.get();
+        } catch (Exception e) {
             Log.error(e);
+            return;
         }
+        int type = tx.getType();
+        if (type < 0) {
+            Log.error("invalid transaction type " + type + " of " + txClass.getName());
+            return;
+        }
+        TxType[] array = typeArray;
+        if (type >= array.length) {
+            TxType[] newArray = new TxType[type + 1];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            array = newArray;
+        } else {
+            array = array.clone();
+        }
+        array[type] = new TxType(txClass, factory);
+        typeArray = array;
+        PROCESSOR_LIST_MAP.clear();
     }
 
-    private static TransactionProcessor getProcessor(Class<? extends Transaction> txClass) {
-        Class<? extends TransactionProcessor> txProcessorClass = TX_SERVICE_MAP.get(txClass);
-        if (null == txProcessorClass) {
-            return null;
-        }
-        return SpringLiteContext.getBean(txProcessorClass);
+    private static Supplier<Transaction> reflectFactory(Class<? extends Transaction> txClass) throws NoSuchMethodException {
+        Constructor<? extends Transaction> constructor = txClass.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return () -> {
+            try {
+                return constructor.newInstance();
+            } catch (Exception e) {
+                throw new NulsRuntimeException(e);
+            }
+        };
     }
 
+    /**
+     * 交易类及其父类的处理器，父类的在前，返回的列表不可修改
+     * Processors of the transaction class and its superclasses, superclass first; the returned list is unmodifiable
+     */
     public static List<TransactionProcessor> getProcessorList(Class<? extends Transaction> txClass) {
-        List<TransactionProcessor> list = new ArrayList<>();
+        List<TransactionProcessor> list = PROCESSOR_LIST_MAP.get(txClass);
+        if (null != list) {
+            return list;
+        }
+        List<TransactionProcessor> processorList = new ArrayList<>();
+        boolean complete = true;
         Class clazz = txClass;
         while (!clazz.equals(Transaction.class)) {
-            TransactionProcessor txService = TransactionManager.getProcessor(clazz);
-            if (null != txService) {
-                list.add(0, txService);
+            Class<? extends TransactionProcessor> txProcessorClass = TX_SERVICE_MAP.get(clazz);
+            if (null != txProcessorClass) {
+                TransactionProcessor txService = SpringLiteContext.getBean(txProcessorClass);
+                if (null != txService) {
+                    processorList.add(0, txService);
+                } else {
+                    complete = false;
+                }
             }
             clazz = clazz.getSuperclass();
         }
+        list = Collections.unmodifiableList(processorList);
+        // 处理器对象还没有创建完成时不缓存
+        if (complete) {
+            PROCESSOR_LIST_MAP.put(txClass, list);
+        }
         return list;
     }
 
     public static List<TransactionProcessor> getAllProcessorList() {
+        List<TransactionProcessor> list = allProcessorList;
+        if (null != list) {
+            return list;
+        }
         try {
             return SpringLiteContext.getBeanList(TransactionProcessor.class);
         } catch (Exception e) {
@@ -111,23 +191,52 @@ public class TransactionManager {
         }
     }
 
+    /**
+     * 创建指定类型的空交易对象，类型未注册时返回null
+     * Creates an empty transaction of the type, null when the type is not registered
+     */
+    public static Transaction newTx(int txType) {
+        TxType[] array = typeArray;
+        if (txType < 0 || txType >= array.length || null == array[txType]) {
+            return null;
+        }
+        return array[txType].factory.get();
+    }
+
+    public static Class<? extends Transaction> getTxClass(int txType) {
+        TxType[] array = typeArray;
+        if (txType < 0 || txType >= array.length || null == array[txType]) {
+            return null;
+        }
+        return array[txType].txClass;
+    }
+
     public static Transaction getInstance(NulsByteBuffer byteBuffer) throws Exception {
         int txType = byteBuffer.readUint16();
         byteBuffer.setCursor(byteBuffer.getCursor() - SerializeUtils.sizeOfUint16());
-        Class<? extends Transaction> txClass = TYPE_TX_MAP.get(txType);
-        if (null == txClass) {
+        Transaction tx = newTx(txType);
+        if (null == tx) {
             throw new NulsRuntimeException(KernelErrorCode.DATA_NOT_FOUND);
         }
-        Transaction tx = byteBuffer.readNulsData(txClass.newInstance());
-        return tx;
+        return byteBuffer.readNulsData(tx);
     }
 
 
     public static List<Transaction> getInstances(NulsByteBuffer byteBuffer, long txCount) throws Exception {
-        List<Transaction> list = new ArrayList<>();
+        List<Transaction> list = new ArrayList<>((int) Math.min(txCount, 10000));
         for (int i = 0; i < txCount; i++) {
             list.add(getInstance(byteBuffer));
         }
         return list;
     }
+
+    private static final class TxType {
+        private final Class<? extends Transaction> txClass;
+        private final Supplier<? extends Transaction> factory;
+
+        TxType(Class<? extends Transaction> txClass, Supplier<? extends Transaction> factory) {
+            this.txClass = txClass;
+            this.factory = factory;
+        }
+    }
 }
@@ -38,12 +38,21 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * 验证器按参数类型注册，执行时按数据的具体类型展开成 ValidatorPipeline 并缓存，之后同一类型的数据直接使用缓存的数组
+ * Validators are registered by parameter type and flattened per concrete data class into a cached ValidatorPipeline
+ *
  * @author Niels
  */
 public class ValidatorManager {
 
     private static Map<Class, DataValidatorChain> chainMap = new ConcurrentHashMap<>();
 
+    private static Map<Class, ValidatorPipeline> pipelineMap = new ConcurrentHashMap<>();
+
+    private static Map<Class, ValidatorStats> statsMap = new ConcurrentHashMap<>();
+
+    private static volatile boolean timingEnabled;
+
     private static boolean success;
 
     public static void init() {
@@ -66,6 +75,9 @@ public class ValidatorManager {
                 }
             }
         }
+        for (Class clazz : chainMap.keySet()) {
+            getPipeline(clazz);
+        }
         success = true;
     }
 
@@ -76,33 +88,79 @@ public class ValidatorManager {
     public static void addValidator(Class<? extends NulsData> clazz, NulsDataValidator<? extends NulsData> validator) {
         DataValidatorChain chain = chainMap.get(clazz);
         if (null == chain) {
-            chain = new DataValidatorChain();
-            chainMap.put(clazz, chain);
+            chain = chainMap.computeIfAbsent(clazz, c -> new DataValidatorChain());
         }
         chain.addValidator(validator);
+        // 已展开的子类型都需要重新展开
+        pipelineMap.clear();
     }
 
     public static ValidateResult startDoValidator(NulsData data) {
         if (data == null) {
             return ValidateResult.getFailedResult(ValidatorManager.class.getName(), KernelErrorCode.NULL_PARAMETER);
         }
-        List<DataValidatorChain> chainList = new ArrayList<>();
-        Class<NulsData> clazz = (Class<NulsData>) data.getClass();
-        while (!clazz.equals(BaseNulsData.class)) {
+        ValidateResult result = getPipeline(data.getClass()).validate(data);
+        if (null != result) {
+            return result;
+        }
+        return ValidateResult.getSuccessResult();
+    }
+
+    /**
+     * 执行该类型数据时依次调用的验证器个数
+     */
+    public static int getValidatorCount(Class<? extends NulsData> clazz) {
+        return getPipeline(clazz).size();
+    }
+
+    private static ValidatorPipeline getPipeline(Class clazz) {
+        ValidatorPipeline pipeline = pipelineMap.get(clazz);
+        if (null == pipeline) {
+            pipeline = pipelineMap.computeIfAbsent(clazz, ValidatorManager::buildPipeline);
+        }
+        return pipeline;
+    }
+
+    private static ValidatorPipeline buildPipeline(Class clazz) {
+        List<NulsDataValidator> list = new ArrayList<>();
+        while (null != clazz && !clazz.equals(BaseNulsData.class)) {
             DataValidatorChain chain = chainMap.get(clazz);
             if (null != chain) {
-                chainList.add(chain);
+                list.addAll(chain.getValidatorList());
             }
-            clazz = (Class<NulsData>) clazz.getSuperclass();
+            clazz = clazz.getSuperclass();
         }
-        for (DataValidatorChain chain : chainList) {
-            ValidateResult result = chain.startDoValidator(data);
-            if (result.isFailed()) {
-                return result;
-            }
+        if (list.isEmpty()) {
+            return ValidatorPipeline.EMPTY;
         }
-        return ValidateResult.getSuccessResult();
+        NulsDataValidator[] validators = list.toArray(new NulsDataValidator[list.size()]);
+        ValidatorStats[] stats = new ValidatorStats[validators.length];
+        for (int i = 0; i < validators.length; i++) {
+            Class validatorClass = validators[i].getClass();
+            stats[i] = statsMap.computeIfAbsent(validatorClass, c -> new ValidatorStats(c.getName()));
+        }
+        return new ValidatorPipeline(validators, stats);
     }
 
-}
+    /**
+     * 打开后统计每个验证器的执行次数和耗时，用于分析区块同步时的验证开销
+     * When enabled, invocation counts and time are recorded per validator
+     */
+    public static void setTimingEnabled(boolean enabled) {
+        timingEnabled = enabled;
+    }
 
+    public static boolean isTimingEnabled() {
+        return timingEnabled;
+    }
+
+    public static List<ValidatorStats> getValidatorStats() {
+        return new ArrayList<>(statsMap.values());
+    }
+
+    public static void resetValidatorStats() {
+        for (ValidatorStats stats : statsMap.values()) {
+            stats.reset();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.kernel.validate;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.NulsData;
+
+/**
+ * 某个具体数据类型的全部验证器，按 子类 -> 父类、同一类型内按注册顺序展开成数组，依次执行，遇到失败立即返回
+ * Flattened validators of one concrete data class: subclass first, then its superclasses, each in registration order.
+ * Validators run one after another and the first failure is returned.
+ * <p>
+ * 数组在创建后不再修改，执行时不分配对象，也不使用ThreadLocal
+ */
+final class ValidatorPipeline {
+
+    static final ValidatorPipeline EMPTY = new ValidatorPipeline(new NulsDataValidator[0], new ValidatorStats[0]);
+
+    private final NulsDataValidator[] validators;
+
+    private final ValidatorStats[] stats;
+
+    ValidatorPipeline(NulsDataValidator[] validators, ValidatorStats[] stats) {
+        this.validators = validators;
+        this.stats = stats;
+    }
+
+    int size() {
+        return validators.length;
+    }
+
+    /**
+     * @return 第一个失败的结果，全部通过时返回null
+     */
+    ValidateResult validate(NulsData data) {
+        boolean timing = ValidatorManager.isTimingEnabled();
+        for (int i = 0; i < validators.length; i++) {
+            NulsDataValidator validator = validators[i];
+            long start = timing ? System.nanoTime() : 0L;
+            ValidateResult result;
+            try {
+                result = validator.validate(data);
+            } catch (NulsException e) {
+                Log.error(e);
+                result = ValidateResult.getFailedResult(validator.getClass().getName(), e.getErrorCode());
+            } catch (Exception e) {
+                Log.error(e);
+                result = ValidateResult.getFailedResult(validator.getClass().getName(), KernelErrorCode.SYS_UNKOWN_EXCEPTION);
+            }
+            if (null == result) {
+                Log.error(validator.getClass() + " has null result!");
+                result = ValidateResult.getFailedResult(validator.getClass().getName(), KernelErrorCode.SYS_UNKOWN_EXCEPTION);
+            }
+            if (timing) {
+                stats[i].record(System.nanoTime() - start, result.isSuccess());
+            }
+            if (result.isFailed()) {
+                return result;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.kernel.validate;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个验证器的执行次数、失败次数和累计耗时，只在 ValidatorManager.setTimingEnabled(true) 后统计
+ * Invocation count, failure count and total time of one validator, recorded only while timing is enabled
+ */
+public final class ValidatorStats {
+
+    private final String validatorName;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder nanos = new LongAdder();
+
+    ValidatorStats(String validatorName) {
+        this.validatorName = validatorName;
+    }
+
+    void record(long costNanos, boolean success) {
+        count.increment();
+        nanos.add(costNanos);
+        if (!success) {
+            failedCount.increment();
+        }
+    }
+
+    void reset() {
+        count.reset();
+        failedCount.reset();
+        nanos.reset();
+    }
+
+    public String getValidatorName() {
+        return validatorName;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getTotalMicros() {
+        return nanos.sum() / 1000;
+    }
+
+    public long getAvgNanos() {
+        long c = count.sum();
+        return c == 0 ? 0 : nanos.sum() / c;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.kernel.utils;
+
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.lite.core.SpringLiteContext;
+import io.nuls.kernel.model.CoinData;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.model.TransactionLogicData;
+import io.nuls.kernel.processor.TransactionProcessor;
+import io.nuls.kernel.validate.ValidateResult;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TransactionManagerTest {
+
+    private static final int TX_TYPE = 60001;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        SpringLiteContext.putBean(BaseTxProcessor.class, false);
+        SpringLiteContext.putBean(TestTxProcessor.class, false);
+        TransactionManager.putTx(BaseTestTx.class, BaseTxProcessor.class);
+        TransactionManager.putTx(TestTx.class, TestTxProcessor.class, TestTx::new);
+    }
+
+    @Test
+    public void registry() throws Exception {
+        assertEquals(TestTx.class, TransactionManager.getTxClass(TX_TYPE));
+        assertNull(TransactionManager.newTx(TX_TYPE - 1));
+        assertNull(TransactionManager.newTx(70000));
+
+        TestTx tx = new TestTx();
+        tx.setTime(1000L);
+        tx.setCoinData(new CoinData());
+        Transaction parsed = TransactionManager.getInstance(new NulsByteBuffer(tx.serialize()));
+        assertTrue(parsed instanceof TestTx);
+        assertEquals(TX_TYPE, parsed.getType());
+        assertEquals(1000L, parsed.getTime());
+
+        List<TransactionProcessor> list = TransactionManager.getProcessorList(TestTx.class);
+        assertEquals(2, list.size());
+        assertTrue(list.get(0) instanceof BaseTxProcessor);
+        assertTrue(list.get(1) instanceof TestTxProcessor);
+        assertSame(list, TransactionManager.getProcessorList(TestTx.class));
+    }
+
+    /**
+     * 和原来的实现(HashMap查找类型、反射创建对象、每次沿父类查找处理器)比较，保存/回滚区块时每笔交易的额外开销
+     */
+    @Test
+    public void benchmark() throws Exception {
+        Map<Integer, Class<? extends Transaction>> typeMap = new HashMap<>();
+        typeMap.put(TX_TYPE, TestTx.class);
+        Map<Class, Class<? extends TransactionProcessor>> serviceMap = new HashMap<>();
+        serviceMap.put(BaseTestTx.class, BaseTxProcessor.class);
+        serviceMap.put(TestTx.class, TestTxProcessor.class);
+
+        int count = 1000000;
+        long sum = 0;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Transaction tx = typeMap.get(TX_TYPE).newInstance();
+                List<TransactionProcessor> list = new ArrayList<>();
+                Class clazz = tx.getClass();
+                while (!clazz.equals(Transaction.class)) {
+                    Class<? extends TransactionProcessor> processorClass = serviceMap.get(clazz);
+                    if (null != processorClass) {
+                        list.add(0, SpringLiteContext.getBean(processorClass));
+                    }
+                    clazz = clazz.getSuperclass();
+                }
+                sum += list.size();
+            }
+            long old = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Transaction tx = TransactionManager.newTx(TX_TYPE);
+                sum += TransactionManager.getProcessorList(tx.getClass()).size();
+            }
+            long now = System.nanoTime() - start;
+            if (round == 1) {
+                System.out.println("per tx lookup: old " + old / count + "ns, new " + now / count + "ns");
+            }
+        }
+        assertEquals(count * 2 * 2 * 2, sum);
+    }
+
+    public static class BaseTestTx extends Transaction {
+        public BaseTestTx(int type) {
+            super(type);
+        }
+
+        @Override
+        protected TransactionLogicData parseTxData(NulsByteBuffer byteBuffer) throws NulsException {
+            return null;
+        }
+
+        @Override
+        public String getInfo(byte[] address) {
+            return null;
+        }
+    }
+
+    public static class TestTx extends BaseTestTx {
+        public TestTx() {
+            super(TX_TYPE);
+        }
+    }
+
+    public static class BaseTxProcessor implements TransactionProcessor<BaseTestTx> {
+        @Override
+        public Result onRollback(BaseTestTx tx, Object secondaryData) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result onCommit(BaseTestTx tx, Object secondaryData) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public ValidateResult conflictDetect(List<Transaction> txList) {
+            return ValidateResult.getSuccessResult();
+        }
+    }
+
+    public static class TestTxProcessor implements TransactionProcessor<TestTx> {
+        @Override
+        public Result onRollback(TestTx tx, Object secondaryData) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public Result onCommit(TestTx tx, Object secondaryData) {
+            return Result.getSuccess();
+        }
+
+        @Override
+        public ValidateResult conflictDetect(List<Transaction> txList) {
+            return ValidateResult.getSuccessResult();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.kernel.validate;
+
+import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.BaseNulsData;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ValidatorManagerTest {
+
+    private static List<String> calls = new ArrayList<>();
+
+    @After
+    public void after() {
+        ValidatorManager.setTimingEnabled(false);
+    }
+
+    @Test
+    public void hierarchyOrder() {
+        ValidatorManager.addValidator(ParentData.class, new ParentValidator());
+        ValidatorManager.addValidator(ChildData.class, new ChildValidator());
+        // 同一个验证器类重复注册只执行一次
+        ValidatorManager.addValidator(ChildData.class, new ChildValidator());
+
+        calls.clear();
+        ChildData data = new ChildData();
+        assertTrue(data.verify().isSuccess());
+        assertEquals(2, ValidatorManager.getValidatorCount(ChildData.class));
+        assertEquals("child", calls.get(0));
+        assertEquals("parent", calls.get(1));
+
+        calls.clear();
+        data.failed = true;
+        ValidateResult result = data.verify();
+        assertTrue(result.isFailed());
+        assertEquals(KernelErrorCode.DATA_ERROR, result.getErrorCode());
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void timing() {
+        ValidatorManager.addValidator(ParentData.class, new ParentValidator());
+        ValidatorManager.setTimingEnabled(true);
+        ValidatorManager.resetValidatorStats();
+        ParentData data = new ParentData();
+        for (int i = 0; i < 10; i++) {
+            data.verify();
+        }
+        ValidatorStats stats = null;
+        for (ValidatorStats item : ValidatorManager.getValidatorStats()) {
+            if (item.getValidatorName().equals(ParentValidator.class.getName())) {
+                stats = item;
+            }
+        }
+        assertNotNull(stats);
+        assertEquals(10, stats.getCount());
+        assertEquals(0, stats.getFailedCount());
+    }
+
+    @Test
+    public void benchmark() {
+        ValidatorManager.addValidator(ParentData.class, new ParentValidator());
+        ValidatorManager.addValidator(ChildData.class, new ChildValidator());
+        ChildData data = new ChildData();
+        data.record = false;
+        int count = 2000000;
+        for (int i = 0; i < count; i++) {
+            data.verify();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            data.verify();
+        }
+        System.out.println("verify with 2 validators: " + (System.nanoTime() - start) / count + "ns/op");
+    }
+
+    static class ParentData extends BaseNulsData {
+        boolean failed;
+        boolean record = true;
+
+        @Override
+        protected void serializeToStream(NulsOutputStreamBuffer stream) {
+        }
+
+        @Override
+        public void parse(NulsByteBuffer byteBuffer) throws NulsException {
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+
+    static class ChildData extends ParentData {
+    }
+
+    static class ParentValidator implements NulsDataValidator<ParentData> {
+        @Override
+        public ValidateResult validate(ParentData data) {
+            if (data.record) {
+                calls.add("parent");
+            }
+            return ValidateResult.getSuccessResult();
+        }
+    }
+
+    static class ChildValidator implements NulsDataValidator<ChildData> {
+        @Override
+        public ValidateResult validate(ChildData data) {
+            if (data.record) {
+                calls.add("child");
+            }
+            if (data.failed) {
+                return ValidateResult.getFailedResult(getClass().getName(), KernelErrorCode.DATA_ERROR);
+            }
+            return ValidateResult.getSuccessResult();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service;
+
+import io.nuls.kernel.model.Result;
+
+/**
+ * 区块范围的提交上下文
+ * 由 DBService.beginCommitContext() 在当前线程上开启，开启期间该线程通过 DBService 的写操作(包括 createWriteBatch 得到的批量操作)
+ * 都按数据区域先放入上下文，commit 时每个区域只执行一次批量写入；同一线程上的读操作和遍历可以读到上下文中还未写入的数据。
+ * 交易处理器也可以直接通过 getBatch 向上下文追加写操作。
+ * <p>
+ * Block scoped commit context. While it is open, every write made through DBService on the owning thread is gathered
+ * per area and written with one batch per area on commit; reads and scans on the same thread see the pending writes.
+ */
+public interface CommitContext {
+
+    /**
+     * 追加到该上下文的批量操作，executeBatch 只是把操作合并进上下文
+     * A batch appending to this context, executeBatch merges the operations into the context
+     */
+    BatchOperation getBatch(String area);
+
+    /**
+     * 写入所有区域的待写数据并关闭上下文，嵌套开启时只有最外层的commit真正写入；
+     * 涉及多个区域时先写预写日志，中途崩溃的提交在下次启动时完成
+     * Writes the pending data of all areas and closes the context, only the outermost commit writes.
+     * A commit spanning several areas is journaled first and completed at the next startup if it was interrupted.
+     */
+    Result commit();
+
+    /**
+     * 丢弃所有待写数据并关闭上下文
+     * Drops the pending data and closes the context
+     */
+    void discard();
+
+    /**
+     * 设置提交后数据对应的区块高度，用于标记之后创建的快照
+     * Sets the block height the data corresponds to after commit, snapshots taken afterwards carry it
+     */
+    void setHeight(long height);
+
+    /**
+     * 待写入的键数
+     */
+    int getPendingCount();
+}
@@ -223,6 +223,20 @@ public interface DBService {
      */
     <T> List<T> values(String area, Class<T> clazz);
 
+    /**
+     * 按key的字节顺序获取以prefix开头的key-value，直接定位到起始位置，不遍历整个数据区域
+     * Gets the key-values starting with the prefix in byte order of the keys, seeking directly to the start position
+     * instead of iterating the whole data area.
+     *
+     * @param area
+     * @param prefix   key前缀/key prefix
+     * @param startKey 从该key之后开始(不含)，为null时从前缀的第一条开始/start after this key (exclusive), or from the first key of the prefix if null
+     * @param offset   跳过的条数/number of entries to skip
+     * @param limit    最多返回的条数/maximum number of entries returned
+     * @return
+     */
+    List<Entry<byte[], byte[]>> prefixEntryList(String area, byte[] prefix, byte[] startKey, int offset, int limit);
+
     /**
      * 指定数据区域的批量增删改操作
      * Specifies the batch add, delete, update operations in the data area.
@@ -232,6 +246,30 @@ public interface DBService {
      */
     BatchOperation createWriteBatch(String area);
 
+    /**
+     * 在当前线程上开启区块范围的提交上下文，已经开启时返回同一个上下文
+     * Opens a block scoped commit context on the current thread, returns the open one if there is any
+     *
+     * @return
+     */
+    CommitContext beginCommitContext();
+
+    /**
+     * 当前线程上开启的提交上下文，没有时返回null
+     * The commit context open on the current thread, or null
+     *
+     * @return
+     */
+    CommitContext getCommitContext();
+
+    /**
+     * 获取所有数据区域最近一次区块提交后的快照，用完后需要close
+     * Gets a snapshot of all areas as of the latest block commit, close it when done
+     *
+     * @return
+     */
+    DBSnapshot getSnapshot();
+
     /**
      * 清除Area
      *
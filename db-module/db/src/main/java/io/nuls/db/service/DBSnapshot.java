@@ -0,0 +1,68 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service;
+
+/**
+ * 所有数据区域在同一时刻的只读快照
+ * 快照总是在两次区块提交之间创建，同一高度上的请求共享同一个快照。
+ * 调用 bind 后当前线程通过 DBService 的读操作都读取该快照，直到调用 unbind；写操作不受影响。
+ * 快照可以在多个线程上同时 bind，用完后调用 close 释放，最后一个引用释放后底层快照才关闭。
+ * <p>
+ * Read-only view of all areas at one point in time, always taken between two block commits and shared by requests at
+ * the same height. After bind, every read made through DBService on the current thread uses the snapshot until unbind.
+ * <pre>
+ * DBSnapshot snapshot = dbService.getSnapshot();
+ * snapshot.bind();
+ * try {
+ *     ...
+ * } finally {
+ *     snapshot.unbind();
+ *     snapshot.close();
+ * }
+ * </pre>
+ */
+public interface DBSnapshot extends AutoCloseable {
+
+    /**
+     * 快照对应的区块高度，高度随每次区块提交持久化，启动后重新加载；数据库中从来没有记录过高度时返回-1
+     * The block height of the snapshot, persisted with every block commit and reloaded at startup; -1 if none was ever recorded
+     */
+    long getHeight();
+
+    /**
+     * 当前线程的读操作使用该快照
+     */
+    void bind();
+
+    /**
+     * 当前线程恢复读取最新数据
+     */
+    void unbind();
+
+    /**
+     * 释放对快照的引用
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,299 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2019 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine;
+
+import org.iq80.leveldb.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 基于跳表的内存数据区域，按无符号字节序(或区域的比较器)排序，和LevelDB的遍历顺序一致
+ * 批量写入在锁内整体生效，快照是创建时数据的副本
+ * <p>
+ * In-memory area on a skip list, ordered like LevelDB. Batches are applied under a lock, a snapshot is a copy of the
+ * data taken at creation time.
+ */
+public class MemoryDB implements DB {
+
+    private static final Comparator<byte[]> BYTEWISE = (a, b) -> {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int result = (a[i] & 0xff) - (b[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return a.length - b.length;
+    };
+
+    private final Comparator<byte[]> comparator;
+
+    private final ConcurrentSkipListMap<byte[], byte[]> data;
+
+    MemoryDB(Comparator<byte[]> comparator) {
+        this.comparator = comparator == null ? BYTEWISE : comparator;
+        this.data = new ConcurrentSkipListMap<>(this.comparator);
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        return get(key, null);
+    }
+
+    @Override
+    public byte[] get(byte[] key, ReadOptions options) {
+        MemorySnapshot snapshot = snapshotOf(options);
+        byte[] value = snapshot == null ? data.get(key) : snapshot.data.get(key);
+        return value == null ? null : value.clone();
+    }
+
+    @Override
+    public DBIterator iterator() {
+        return new MemoryIterator(data);
+    }
+
+    @Override
+    public DBIterator iterator(ReadOptions options) {
+        MemorySnapshot snapshot = snapshotOf(options);
+        return new MemoryIterator(snapshot == null ? data : snapshot.data);
+    }
+
+    @Override
+    public void put(byte[] key, byte[] value) {
+        synchronized (data) {
+            data.put(key.clone(), value.clone());
+        }
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        synchronized (data) {
+            data.remove(key);
+        }
+    }
+
+    @Override
+    public void write(WriteBatch updates) {
+        MemoryWriteBatch batch = (MemoryWriteBatch) updates;
+        synchronized (data) {
+            for (byte[][] operation : batch.operations) {
+                if (operation[1] == null) {
+                    data.remove(operation[0]);
+                } else {
+                    data.put(operation[0], operation[1]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public WriteBatch createWriteBatch() {
+        return new MemoryWriteBatch();
+    }
+
+    @Override
+    public Snapshot put(byte[] key, byte[] value, WriteOptions options) {
+        put(key, value);
+        return options.snapshot() ? getSnapshot() : null;
+    }
+
+    @Override
+    public Snapshot delete(byte[] key, WriteOptions options) {
+        delete(key);
+        return options.snapshot() ? getSnapshot() : null;
+    }
+
+    @Override
+    public Snapshot write(WriteBatch updates, WriteOptions options) {
+        write(updates);
+        return options.snapshot() ? getSnapshot() : null;
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        synchronized (data) {
+            TreeMap<byte[], byte[]> copy = new TreeMap<>(comparator);
+            copy.putAll(data);
+            return new MemorySnapshot(copy);
+        }
+    }
+
+    @Override
+    public long[] getApproximateSizes(Range... ranges) {
+        long[] sizes = new long[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            for (Map.Entry<byte[], byte[]> entry : data.subMap(ranges[i].start(), ranges[i].limit()).entrySet()) {
+                sizes[i] += entry.getKey().length + entry.getValue().length;
+            }
+        }
+        return sizes;
+    }
+
+    @Override
+    public String getProperty(String name) {
+        return null;
+    }
+
+    @Override
+    public void suspendCompactions() {
+    }
+
+    @Override
+    public void resumeCompactions() {
+    }
+
+    @Override
+    public void compactRange(byte[] begin, byte[] end) {
+    }
+
+    /**
+     * 数据由 MemoryEngine 持有，关闭后重新打开仍然可用
+     */
+    @Override
+    public void close() {
+    }
+
+    private MemorySnapshot snapshotOf(ReadOptions options) {
+        if (options == null || options.snapshot() == null) {
+            return null;
+        }
+        return (MemorySnapshot) options.snapshot();
+    }
+
+    private static class MemorySnapshot implements Snapshot {
+
+        private final NavigableMap<byte[], byte[]> data;
+
+        MemorySnapshot(NavigableMap<byte[], byte[]> data) {
+            this.data = data;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class MemoryWriteBatch implements WriteBatch {
+
+        private final List<byte[][]> operations = new ArrayList<>();
+
+        @Override
+        public WriteBatch put(byte[] key, byte[] value) {
+            operations.add(new byte[][]{key.clone(), value.clone()});
+            return this;
+        }
+
+        @Override
+        public WriteBatch delete(byte[] key) {
+            operations.add(new byte[][]{key.clone(), null});
+            return this;
+        }
+
+        @Override
+        public void close() {
+            operations.clear();
+        }
+    }
+
+    /**
+     * 和LevelDB一样，迭代器指向下一个要返回的元素
+     */
+    private static class MemoryIterator implements DBIterator {
+
+        private final NavigableMap<byte[], byte[]> data;
+
+        private Map.Entry<byte[], byte[]> nextEntry;
+
+        MemoryIterator(NavigableMap<byte[], byte[]> data) {
+            this.data = data;
+            this.nextEntry = data.firstEntry();
+        }
+
+        @Override
+        public void seek(byte[] key) {
+            nextEntry = data.ceilingEntry(key);
+        }
+
+        @Override
+        public void seekToFirst() {
+            nextEntry = data.firstEntry();
+        }
+
+        @Override
+        public void seekToLast() {
+            nextEntry = data.lastEntry();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextEntry != null;
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            Map.Entry<byte[], byte[]> entry = peekNext();
+            nextEntry = data.higherEntry(entry.getKey());
+            return entry;
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> peekNext() {
+            if (nextEntry == null) {
+                throw new NoSuchElementException();
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(nextEntry.getKey(), nextEntry.getValue());
+        }
+
+        @Override
+        public boolean hasPrev() {
+            return prevEntry() != null;
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> prev() {
+            Map.Entry<byte[], byte[]> entry = peekPrev();
+            nextEntry = data.floorEntry(entry.getKey());
+            return entry;
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> peekPrev() {
+            Map.Entry<byte[], byte[]> entry = prevEntry();
+            if (entry == null) {
+                throw new NoSuchElementException();
+            }
+            return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+        }
+
+        private Map.Entry<byte[], byte[]> prevEntry() {
+            return nextEntry == null ? data.lastEntry() : data.lowerEntry(nextEntry.getKey());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
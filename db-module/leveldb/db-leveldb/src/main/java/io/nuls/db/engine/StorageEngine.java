@@ -0,0 +1,59 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2019 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 存储引擎，负责打开和删除数据区域
+ * LevelDBManager 的所有读写都基于 org.iq80.leveldb.DB 接口，通过 db_config.properties 中的 leveldb.engine 选择引擎：
+ * leveldb(默认，纯java实现)、memory(纯内存，用于测试和性能测试)，或者实现了本接口的类名，例如包装其他嵌入式引擎的实现。
+ * <p>
+ * Storage engine opening and destroying areas. Everything in LevelDBManager works against org.iq80.leveldb.DB, the
+ * engine is selected with leveldb.engine in db_config.properties: leveldb (default), memory, or the name of a class
+ * implementing this interface.
+ */
+public interface StorageEngine {
+
+    String getName();
+
+    /**
+     * 数据是否保存在磁盘上，非持久化的引擎启动时不加载数据目录中已有的区域
+     * Whether data is kept on disk, existing area directories are not loaded for non persistent engines
+     */
+    boolean isPersistent();
+
+    /**
+     * 打开一个数据区域
+     *
+     * @param dir     区域的数据目录
+     * @param options 区域的参数
+     */
+    DB open(File dir, Options options) throws IOException;
+
+    /**
+     * 删除一个数据区域的所有数据，调用前区域已经关闭
+     */
+    void destroy(File dir, Options options) throws IOException;
+}
@@ -0,0 +1,51 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2019 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.core.tools.str.StringUtils;
+
+/**
+ * 按名称或类名加载存储引擎
+ * Loads a storage engine by name or class name
+ */
+public class StorageEngines {
+
+    private StorageEngines() {
+    }
+
+    /**
+     * @param name leveldb、memory 或者实现了 StorageEngine 的类名，为空或加载失败时使用 leveldb
+     */
+    public static StorageEngine load(String name) {
+        if (StringUtils.isBlank(name) || LevelDBEngine.NAME.equalsIgnoreCase(name.trim())) {
+            return new LevelDBEngine();
+        }
+        if (MemoryEngine.NAME.equalsIgnoreCase(name.trim())) {
+            return new MemoryEngine();
+        }
+        try {
+            return (StorageEngine) Class.forName(name.trim()).newInstance();
+        } catch (Exception e) {
+            Log.error("load storage engine failed: " + name + ", use leveldb instead", e);
+            return new LevelDBEngine();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2019 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.engine;
+
+import io.nuls.core.tools.log.Log;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteBatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 在两个存储引擎之间复制数据目录中的所有区域(包括保存区域参数的base区域)，迁移前需要停止节点
+ * Copies every area of a data directory, including the base area, from one engine to another; the node must be stopped
+ * <p>
+ * usage: StorageMigration &lt;fromEngine&gt; &lt;fromPath&gt; &lt;toEngine&gt; &lt;toPath&gt;
+ */
+public class StorageMigration {
+
+    private static final String BASE_DB_NAME = "leveldb";
+
+    private static final int BATCH_SIZE = 10000;
+
+    private StorageMigration() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.out.println("usage: StorageMigration <fromEngine> <fromPath> <toEngine> <toPath>");
+            return;
+        }
+        long count = migrate(StorageEngines.load(args[0]), new File(args[1]), StorageEngines.load(args[2]), new File(args[3]));
+        System.out.println("migrated " + count + " keys");
+    }
+
+    /**
+     * @param from     源引擎
+     * @param fromPath 源数据目录，每个子目录是一个区域
+     * @param to       目标引擎
+     * @param toPath   目标数据目录
+     * @return 复制的键数
+     */
+    public static long migrate(StorageEngine from, File fromPath, StorageEngine to, File toPath) throws IOException {
+        File[] areaFiles = fromPath.listFiles();
+        if (areaFiles == null) {
+            throw new IOException("data path not found: " + fromPath);
+        }
+        long count = 0;
+        for (File areaFile : areaFiles) {
+            File dbFile = new File(areaFile, BASE_DB_NAME);
+            if (!dbFile.isDirectory()) {
+                continue;
+            }
+            File target = new File(new File(toPath, areaFile.getName()), BASE_DB_NAME);
+            if (to.isPersistent() && !target.getParentFile().exists() && !target.getParentFile().mkdirs()) {
+                throw new IOException("create area path failed: " + target);
+            }
+            long areaCount = copy(from.open(dbFile, new Options().createIfMissing(false)),
+                    to.open(target, new Options().createIfMissing(true)));
+            Log.info("migrated area " + areaFile.getName() + ": " + areaCount + " keys");
+            count += areaCount;
+        }
+        return count;
+    }
+
+    static long copy(DB source, DB target) throws IOException {
+        long count = 0;
+        try (DBIterator iterator = source.iterator()) {
+            WriteBatch batch = target.createWriteBatch();
+            int size = 0;
+            for (iterator.seekToFirst(); iterator.hasNext(); ) {
+                Map.Entry<byte[], byte[]> entry = iterator.next();
+                batch.put(entry.getKey(), entry.getValue());
+                count++;
+                if (++size == BATCH_SIZE) {
+                    target.write(batch);
+                    batch.close();
+                    batch = target.createWriteBatch();
+                    size = 0;
+                }
+            }
+            if (size > 0) {
+                target.write(batch);
+            }
+            batch.close();
+        } finally {
+            source.close();
+            target.close();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2019 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.manager;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.core.tools.str.StringUtils;
+import org.iq80.leveldb.CompressionType;
+import org.iq80.leveldb.Options;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 数据区域的参数模板
+ * 在 db_config.properties 中按名称配置，例如：
+ * <pre>
+ * leveldb.profile.hot.areas=ledger_utxo,ledger_tx
+ * leveldb.profile.hot.cacheSize=67108864
+ * leveldb.profile.hot.writeBufferSize=16777216
+ * leveldb.profile.hot.blockSize=4096
+ * leveldb.profile.hot.compression=snappy
+ * leveldb.profile.hot.maxOpenFiles=500
+ * </pre>
+ * 名为 default 的模板用于没有指定模板的区域，没有配置的参数使用引擎的默认值。
+ * <p>
+ * Named option profiles for areas, the profile called default applies to areas without one.
+ */
+public class AreaProfile {
+
+    public static final String DEFAULT = "default";
+
+    private static final String PREFIX = "leveldb.profile.";
+
+    private final String name;
+    private long cacheSize;
+    private int writeBufferSize;
+    private int blockSize;
+    private int maxOpenFiles;
+    private CompressionType compression;
+
+    public AreaProfile(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 把模板中配置过的参数写入options
+     */
+    public Options apply(Options options) {
+        if (cacheSize > 0) {
+            options.cacheSize(cacheSize);
+        }
+        if (writeBufferSize > 0) {
+            options.writeBufferSize(writeBufferSize);
+        }
+        if (blockSize > 0) {
+            options.blockSize(blockSize);
+        }
+        if (maxOpenFiles > 0) {
+            options.maxOpenFiles(maxOpenFiles);
+        }
+        if (compression != null) {
+            options.compressionType(compression);
+        }
+        return options;
+    }
+
+    /**
+     * 读取所有模板，返回区域名到模板的映射，default模板以 DEFAULT 为key
+     */
+    public static Map<String, AreaProfile> load(Properties properties) {
+        Map<String, AreaProfile> profiles = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(PREFIX)) {
+                continue;
+            }
+            String[] array = key.substring(PREFIX.length()).split("\\.", 2);
+            if (array.length != 2) {
+                continue;
+            }
+            profiles.computeIfAbsent(array[0], AreaProfile::new).set(array[1], properties.getProperty(key).trim());
+        }
+        Map<String, AreaProfile> areaMap = new HashMap<>();
+        for (AreaProfile profile : profiles.values()) {
+            String areas = properties.getProperty(PREFIX + profile.name + ".areas");
+            if (DEFAULT.equals(profile.name)) {
+                areaMap.put(DEFAULT, profile);
+            } else if (StringUtils.isNotBlank(areas)) {
+                for (String area : areas.split(",")) {
+                    areaMap.put(area.trim(), profile);
+                }
+            }
+        }
+        return areaMap;
+    }
+
+    private void set(String option, String value) {
+        try {
+            switch (option) {
+                case "cacheSize":
+                    cacheSize = Long.parseLong(value);
+                    break;
+                case "writeBufferSize":
+                    writeBufferSize = Integer.parseInt(value);
+                    break;
+                case "blockSize":
+                    blockSize = Integer.parseInt(value);
+                    break;
+                case "maxOpenFiles":
+                    maxOpenFiles = Integer.parseInt(value);
+                    break;
+                case "compression":
+                    compression = CompressionType.valueOf(value.toUpperCase());
+                    break;
+                case "areas":
+                    break;
+                default:
+                    Log.warn("unknown leveldb profile option: " + name + "." + option);
+            }
+        } catch (IllegalArgumentException e) {
+            Log.warn("wrong leveldb profile option: " + name + "." + option + "=" + value);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getMaxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    public CompressionType getCompression() {
+        return compression;
+    }
+}
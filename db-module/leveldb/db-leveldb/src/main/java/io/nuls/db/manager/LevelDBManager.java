@@ -23,6 +23,9 @@ import io.nuls.core.tools.cfg.ConfigLoader;
 import io.nuls.core.tools.log.Log;
 import io.nuls.core.tools.str.StringUtils;
 import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.engine.LevelDBEngine;
+import io.nuls.db.engine.StorageEngine;
+import io.nuls.db.engine.StorageEngines;
 import io.nuls.db.model.Entry;
 import io.nuls.db.model.ModelWrapper;
 import io.nuls.kernel.args.NULSParams;
@@ -32,10 +35,10 @@ import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.runtime.RuntimeSchema;
 import org.iq80.leveldb.DB;
-import org.iq80.leveldb.DBFactory;
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
-import org.iq80.leveldb.impl.Iq80DBFactory;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
 
 import java.io.File;
 import java.io.IOException;
@@ -44,7 +47,10 @@ import java.net.URL;
 import java.net.URLDecoder;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static io.nuls.core.tools.str.StringUtils.bytes;
 import static io.nuls.db.constant.DBConstant.BASE_AREA_NAME;
@@ -53,6 +59,53 @@ public class LevelDBManager {
 
     private static int max;
 
+    /**
+     * 跨区域提交是否先写预写日志
+     */
+    private static volatile boolean commitJournal = true;
+
+    /**
+     * 跨区域提交保留的预写日志记录数，各区域不同步写入，断电后从这些记录恢复
+     */
+    private static volatile int commitJournalRetain = 64;
+
+    /**
+     * 预写日志在每个区域中记录已写入序号的key，遍历区域时跳过
+     */
+    public static final String JOURNAL_SEQUENCE_KEY = "__journal-seq";
+
+    private static final byte[] JOURNAL_SEQUENCE_BYTES = bytes(JOURNAL_SEQUENCE_KEY);
+
+    /**
+     * 打开数据区域使用的存储引擎
+     */
+    private static volatile StorageEngine engine = new LevelDBEngine();
+
+    /**
+     * 区域名到参数模板的映射，见 AreaProfile
+     */
+    private static volatile Map<String, AreaProfile> areaProfiles = new HashMap<>();
+
+    /**
+     * 遍历时读取的数据块不放入块缓存，避免全表遍历把点查询的热点数据挤出缓存
+     */
+    private static final ReadOptions SCAN_OPTIONS = new ReadOptions().fillCache(false);
+
+    /**
+     * 当前线程绑定的各区域快照，绑定后该线程的读操作都读取快照
+     */
+    private static final ThreadLocal<Map<String, SnapshotReadOptions>> READ_SNAPSHOT = new ThreadLocal<>();
+
+    /**
+     * 写操作计数，用于判断两个时刻之间是否有数据写入
+     */
+    private static final AtomicLong WRITE_SEQUENCE = new AtomicLong();
+
+    /**
+     * 直接写入持有读锁，相互之间不阻塞；创建快照持有写锁，保证各区域的快照之间没有正在进行的写入
+     */
+    private static final ReentrantReadWriteLock SNAPSHOT_LOCK = new ReentrantReadWriteLock();
+
     private static final ConcurrentHashMap<String, DB> AREAS = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, Comparator<byte[]>> AREAS_COMPARATOR = new ConcurrentHashMap<>();
 
@@ -70,6 +123,34 @@ public class LevelDBManager {
         return max;
     }
 
+    public static StorageEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * 区域使用的参数模板，没有时返回null
+     */
+    public static AreaProfile getAreaProfile(String areaName) {
+        AreaProfile profile = areaProfiles.get(areaName);
+        return profile != null ? profile : areaProfiles.get(AreaProfile.DEFAULT);
+    }
+
+    public static boolean isCommitJournal() {
+        return commitJournal;
+    }
+
+    public static void setCommitJournal(boolean commitJournal) {
+        LevelDBManager.commitJournal = commitJournal;
+    }
+
+    public static int getCommitJournalRetain() {
+        return commitJournalRetain;
+    }
+
+    public static void setCommitJournalRetain(int commitJournalRetain) {
+        LevelDBManager.commitJournalRetain = Math.max(1, commitJournalRetain);
+    }
+
     public static String getBaseAreaName() {
         return BASE_AREA_NAME;
     }
@@ -80,12 +161,12 @@ public class LevelDBManager {
                 isInit = true;
                 File dir = loadDataPath();
                 dataPath = dir.getPath();
-                Log.info("LevelDBManager dataPath is " + dataPath);
+                Log.info("LevelDBManager dataPath is " + dataPath + ", engine is " + engine.getName());
 
                 initSchema();
                 initBaseDB(dataPath);
 
-                File[] areaFiles = dir.listFiles();
+                File[] areaFiles = engine.isPersistent() ? dir.listFiles() : new File[0];
                 DB db = null;
                 String dbPath = null;
                 for (File areaFile : areaFiles) {
@@ -129,7 +210,7 @@ public class LevelDBManager {
         if (AREAS.get(BASE_AREA_NAME) == null) {
             String baseAreaPath = dataPath + File.separator + BASE_AREA_NAME;
             File dir = new File(baseAreaPath);
-            if (!dir.exists()) {
+            if (engine.isPersistent() && !dir.exists()) {
                 dir.mkdir();
             }
             String filePath = baseAreaPath + File.separator + BASE_DB_NAME;
@@ -155,6 +236,15 @@ public class LevelDBManager {
             //skip it
             max = 50;
         }
+        engine = StorageEngines.load(properties.getProperty("leveldb.engine"));
+        areaProfiles = AreaProfile.load(properties);
+        commitJournal = !"false".equalsIgnoreCase(properties.getProperty("leveldb.commit.journal", "true").trim());
+        try {
+            setCommitJournalRetain(Integer.parseInt(properties.getProperty("leveldb.commit.journal.retain", "64").trim()));
+        } catch (NumberFormatException e) {
+            //skip it
+            commitJournalRetain = 64;
+        }
         File dir = null;
         String pathSeparator = System.getProperty("path.separator");
         String unixPathSeparator = ":";
@@ -245,7 +335,7 @@ public class LevelDBManager {
             Result result;
             try {
                 File dir = new File(dataPath + File.separator + areaName);
-                if (!dir.exists()) {
+                if (engine.isPersistent() && !dir.exists()) {
                     dir.mkdir();
                 }
                 String filePath = dataPath + File.separator + areaName + File.separator + BASE_DB_NAME;
@@ -266,6 +356,13 @@ public class LevelDBManager {
         return AREAS.get(areaName);
     }
 
+    /**
+     * 区域的自定义比较器，没有时返回null
+     */
+    public static Comparator<byte[]> getAreaComparator(String areaName) {
+        return AREAS_COMPARATOR.get(areaName);
+    }
+
     public static Result destroyArea(String areaName) {
         if (!baseCheckArea(areaName)) {
             return Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
@@ -278,7 +375,7 @@ public class LevelDBManager {
             DB db = AREAS.remove(areaName);
             db.close();
             File dir = new File(dataPath + File.separator + areaName);
-            if (!dir.exists()) {
+            if (engine.isPersistent() && !dir.exists()) {
                 return Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
             }
             String filePath = dataPath + File.separator + areaName + File.separator + BASE_DB_NAME;
@@ -296,9 +393,7 @@ public class LevelDBManager {
 
     private static void destroyDB(String dbPath) throws IOException {
         File file = new File(dbPath);
-        Options options = new Options();
-        DBFactory factory = Iq80DBFactory.factory;
-        factory.destroy(file, options);
+        engine.destroy(file, new Options());
     }
 
     /**
@@ -344,6 +439,8 @@ public class LevelDBManager {
             return null;
         }
         Options options = new Options().createIfMissing(false);
+        String areaName = getAreaNameFromDbPath(dbPath);
+        applyProfile(areaName, options);
 
         /*
          * Area的自定义比较器，启动数据库时获取并装载它
@@ -351,7 +448,6 @@ public class LevelDBManager {
          * Area of custom comparator, you start the database access and loaded it
          * the custom cacheSize of the Area will be retrieved and loaded on the database is started, otherwise, the previous cacheSize setting will be lost when the existing Area is started.
          */
-        String areaName = getAreaNameFromDbPath(dbPath);
         Comparator comparator = getModel(BASE_AREA_NAME, bytes(areaName + "-comparator"), Comparator.class);
         if (comparator != null) {
             AREAS_COMPARATOR.put(areaName, comparator);
@@ -361,8 +457,7 @@ public class LevelDBManager {
             options.cacheSize(cacheSize);
         }
         File file = new File(dbPath);
-        DBFactory factory = Iq80DBFactory.factory;
-        return factory.open(file, options);
+        return engine.open(file, options);
     }
 
     /**
@@ -377,6 +472,7 @@ public class LevelDBManager {
         File file = new File(dbPath);
         String areaName = getAreaNameFromDbPath(dbPath);
         Options options = new Options().createIfMissing(createIfMissing);
+        applyProfile(areaName, options);
         if (cacheSize != null) {
             putModel(BASE_AREA_NAME, bytes(areaName + "-cacheSize"), cacheSize);
             options.cacheSize(cacheSize);
@@ -385,8 +481,14 @@ public class LevelDBManager {
             putModel(BASE_AREA_NAME, bytes(areaName + "-comparator"), comparator);
             AREAS_COMPARATOR.put(areaName, comparator);
         }
-        DBFactory factory = Iq80DBFactory.factory;
-        return factory.open(file, options);
+        return engine.open(file, options);
+    }
+
+    private static void applyProfile(String areaName, Options options) {
+        AreaProfile profile = getAreaProfile(areaName);
+        if (profile != null) {
+            profile.apply(options);
+        }
     }
 
     private static String getAreaNameFromDbPath(String dbPath) {
@@ -434,7 +536,12 @@ public class LevelDBManager {
         }
         try {
             DB db = AREAS.get(area);
-            db.put(key, value);
+            beginWrite();
+            try {
+                db.put(key, value);
+            } finally {
+                endWrite();
+            }
             return Result.getSuccess();
         } catch (Exception e) {
             Log.error(e);
@@ -455,7 +562,12 @@ public class LevelDBManager {
         }
         try {
             DB db = AREAS.get(area);
-            db.put(bytes(key), bytes(value));
+            beginWrite();
+            try {
+                db.put(bytes(key), bytes(value));
+            } finally {
+                endWrite();
+            }
             return Result.getSuccess();
         } catch (Exception e) {
             Log.error(e);
@@ -476,7 +588,12 @@ public class LevelDBManager {
         }
         try {
             DB db = AREAS.get(area);
-            db.put(key, bytes(value));
+            beginWrite();
+            try {
+                db.put(key, bytes(value));
+            } finally {
+                endWrite();
+            }
             return Result.getSuccess();
         } catch (Exception e) {
             Log.error(e);
@@ -532,7 +649,12 @@ public class LevelDBManager {
         }
         try {
             DB db = AREAS.get(area);
-            db.delete(bytes(key));
+            beginWrite();
+            try {
+                db.delete(bytes(key));
+            } finally {
+                endWrite();
+            }
             return Result.getSuccess();
         } catch (Exception e) {
             Log.error(e);
@@ -549,7 +671,12 @@ public class LevelDBManager {
         }
         try {
             DB db = AREAS.get(area);
-            db.delete(key);
+            beginWrite();
+            try {
+                db.delete(key);
+            } finally {
+                endWrite();
+            }
             return Result.getSuccess();
         } catch (Exception e) {
             Log.error(e);
@@ -570,7 +697,7 @@ public class LevelDBManager {
         }
         try {
             DB db = AREAS.get(area);
-            return db.get(bytes(key));
+            return get(db, area, bytes(key));
         } catch (Exception e) {
             return null;
         }
@@ -585,12 +712,17 @@ public class LevelDBManager {
         }
         try {
             DB db = AREAS.get(area);
-            return db.get(key);
+            return get(db, area, key);
         } catch (Exception e) {
             return null;
         }
     }
 
+    private static byte[] get(DB db, String area, byte[] key) {
+        ReadOptions options = readOptions(area);
+        return options == null ? db.get(key) : db.get(key, options);
+    }
+
     /**
      * 弃用的方法/Deprecated method
      */
@@ -620,7 +752,7 @@ public class LevelDBManager {
         }
         try {
             DB db = AREAS.get(area);
-            byte[] bytes = db.get(key);
+            byte[] bytes = get(db, area, key);
             if (bytes == null) {
                 return null;
             }
@@ -655,6 +787,123 @@ public class LevelDBManager {
         }
     }
 
+    public static long getWriteSequence() {
+        return WRITE_SEQUENCE.get();
+    }
+
+    /**
+     * 不经过本类的写操作(批量写入)完成后调用
+     */
+    public static void markWrite() {
+        WRITE_SEQUENCE.incrementAndGet();
+    }
+
+    /**
+     * 直接写入数据库之前调用，写入期间不会创建快照，必须和 endWrite 成对调用
+     * Called before writing to a DB directly, no snapshot is taken until endWrite
+     */
+    public static void beginWrite() {
+        SNAPSHOT_LOCK.readLock().lock();
+    }
+
+    public static void endWrite() {
+        WRITE_SEQUENCE.incrementAndGet();
+        SNAPSHOT_LOCK.readLock().unlock();
+    }
+
+    /**
+     * 创建快照时持有的锁，持有期间所有直接写入都已完成或还没有开始
+     */
+    public static Lock getSnapshotLock() {
+        return SNAPSHOT_LOCK.writeLock();
+    }
+
+    /**
+     * 在当前线程上绑定各区域快照的读参数，传入null解除绑定
+     * Binds the read options of per-area snapshots to the current thread, null unbinds
+     */
+    public static void setReadSnapshot(Map<String, SnapshotReadOptions> snapshots) {
+        if (snapshots == null) {
+            READ_SNAPSHOT.remove();
+        } else {
+            READ_SNAPSHOT.set(snapshots);
+        }
+    }
+
+    private static SnapshotReadOptions readSnapshot(String area) {
+        Map<String, SnapshotReadOptions> snapshots = READ_SNAPSHOT.get();
+        return snapshots == null ? null : snapshots.get(area);
+    }
+
+    /**
+     * 点查询的读参数，当前线程没有绑定快照时返回null
+     */
+    private static ReadOptions readOptions(String area) {
+        SnapshotReadOptions snapshot = readSnapshot(area);
+        return snapshot == null ? null : snapshot.read;
+    }
+
+    /**
+     * 遍历使用的读参数
+     */
+    private static ReadOptions scanOptions(String area) {
+        SnapshotReadOptions snapshot = readSnapshot(area);
+        return snapshot == null ? SCAN_OPTIONS : snapshot.scan;
+    }
+
+    /**
+     * 一个区域快照的点查询和遍历读参数，随快照创建一次，读取时复用
+     * Point read and scan options of one area snapshot, created once with the snapshot
+     */
+    public static final class SnapshotReadOptions {
+
+        private final ReadOptions read;
+
+        private final ReadOptions scan;
+
+        public SnapshotReadOptions(Snapshot snapshot) {
+            this.read = new ReadOptions().snapshot(snapshot);
+            this.scan = new ReadOptions().fillCache(false).snapshot(snapshot);
+        }
+    }
+
+    /**
+     * 区域的当前快照，调用方负责关闭
+     * Current snapshot of an area, the caller closes it
+     */
+    public static Snapshot getSnapshot(String area) {
+        if (!baseCheckArea(area)) {
+            return null;
+        }
+        return AREAS.get(area).getSnapshot();
+    }
+
+    /**
+     * 在指定快照上读取，snapshot为null时读取最新数据
+     */
+    public static byte[] get(String area, byte[] key, Snapshot snapshot) {
+        if (!baseCheckArea(area) || key == null) {
+            return null;
+        }
+        try {
+            return AREAS.get(area).get(key, new ReadOptions().snapshot(snapshot));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 遍历用的迭代器，读取的数据块不进入块缓存，snapshot不为null时在该快照上遍历，调用方负责关闭
+     * An iterator for scans which does not fill the block cache, optionally on a snapshot; the caller closes it
+     */
+    public static DBIterator iterator(String area, Snapshot snapshot) {
+        if (!baseCheckArea(area)) {
+            return null;
+        }
+        ReadOptions options = snapshot == null ? scanOptions(area) : new ReadOptions().fillCache(false).snapshot(snapshot);
+        return AREAS.get(area).iterator(options);
+    }
+
     public static Set<byte[]> keySet(String area) {
         if (!baseCheckArea(area)) {
             return null;
@@ -664,9 +913,13 @@ public class LevelDBManager {
         try {
             DB db = AREAS.get(area);
             keySet = new HashSet<>();
-            iterator = db.iterator();
+            iterator = db.iterator(scanOptions(area));
             for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
-                keySet.add(iterator.peekNext().getKey());
+                byte[] key = iterator.peekNext().getKey();
+                if (isJournalSequence(key)) {
+                    continue;
+                }
+                keySet.add(key);
             }
             return keySet;
         } catch (Exception e) {
@@ -693,9 +946,13 @@ public class LevelDBManager {
         try {
             DB db = AREAS.get(area);
             keyList = new ArrayList<>();
-            iterator = db.iterator();
+            iterator = db.iterator(scanOptions(area));
             for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
-                keyList.add(iterator.peekNext().getKey());
+                byte[] key = iterator.peekNext().getKey();
+                if (isJournalSequence(key)) {
+                    continue;
+                }
+                keyList.add(key);
             }
             Comparator<byte[]> comparator = AREAS_COMPARATOR.get(area);
             if (comparator != null) {
@@ -726,11 +983,14 @@ public class LevelDBManager {
         try {
             DB db = AREAS.get(area);
             entrySet = new HashSet<>();
-            iterator = db.iterator();
+            iterator = db.iterator(scanOptions(area));
             byte[] key, bytes;
             Map.Entry<byte[], byte[]> entry;
             for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
                 entry = iterator.peekNext();
+                if (isJournalSequence(entry.getKey())) {
+                    continue;
+                }
                 key = entry.getKey();
                 bytes = entry.getValue();
                 entrySet.add(new Entry<byte[], byte[]>(key, bytes));
@@ -760,12 +1020,15 @@ public class LevelDBManager {
         try {
             DB db = AREAS.get(area);
             entryList = new ArrayList<>();
-            iterator = db.iterator();
+            iterator = db.iterator(scanOptions(area));
             byte[] key, bytes;
             Map.Entry<byte[], byte[]> entry;
             Comparator<byte[]> comparator = AREAS_COMPARATOR.get(area);
             for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
                 entry = iterator.peekNext();
+                if (isJournalSequence(entry.getKey())) {
+                    continue;
+                }
                 key = entry.getKey();
                 bytes = entry.getValue();
                 entryList.add(new Entry<byte[], byte[]>(key, bytes, comparator));
@@ -804,13 +1067,16 @@ public class LevelDBManager {
         try {
             DB db = AREAS.get(area);
             entryList = new ArrayList<>();
-            iterator = db.iterator();
+            iterator = db.iterator(scanOptions(area));
             byte[] key;
             Map.Entry<byte[], byte[]> entry;
             Comparator<byte[]> comparator = AREAS_COMPARATOR.get(area);
             T t;
             for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
                 entry = iterator.peekNext();
+                if (isJournalSequence(entry.getKey())) {
+                    continue;
+                }
                 key = entry.getKey();
                 t = getModel(entry.getValue(), clazz);
                 entryList.add(new Entry<byte[], T>(key, t, comparator));
@@ -840,6 +1106,67 @@ public class LevelDBManager {
         return entryList;
     }
 
+    public static List<Entry<byte[], byte[]>> prefixEntryList(String area, byte[] prefix, byte[] startKey, int offset, int limit) {
+        if (!baseCheckArea(area) || prefix == null || limit <= 0) {
+            return null;
+        }
+        DBIterator iterator = null;
+        List<Entry<byte[], byte[]>> entryList = new ArrayList<>(Math.min(limit, 1024));
+        try {
+            DB db = AREAS.get(area);
+            iterator = db.iterator(scanOptions(area));
+            iterator.seek(startKey != null ? startKey : prefix);
+            if (startKey != null && iterator.hasNext() && Arrays.equals(iterator.peekNext().getKey(), startKey)) {
+                iterator.next();
+            }
+            int skipped = 0;
+            Map.Entry<byte[], byte[]> entry;
+            while (iterator.hasNext() && entryList.size() < limit) {
+                entry = iterator.next();
+                if (isJournalSequence(entry.getKey())) {
+                    continue;
+                }
+                if (!startsWith(entry.getKey(), prefix)) {
+                    break;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                    continue;
+                }
+                entryList.add(new Entry<byte[], byte[]>(entry.getKey(), entry.getValue()));
+            }
+            return entryList;
+        } catch (Exception e) {
+            Log.error(e);
+            return null;
+        } finally {
+            // Make sure you close the iterator to avoid resource leaks.
+            if (iterator != null) {
+                try {
+                    iterator.close();
+                } catch (Exception e) {
+                    //skip it
+                }
+            }
+        }
+    }
+
+    private static boolean isJournalSequence(byte[] key) {
+        return key.length == JOURNAL_SEQUENCE_BYTES.length && Arrays.equals(key, JOURNAL_SEQUENCE_BYTES);
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static <T> List<T> values(String area, Class<T> clazz) {
         if (!baseCheckArea(area)) {
             return null;
@@ -871,11 +1198,14 @@ public class LevelDBManager {
         try {
             DB db = AREAS.get(area);
             list = new ArrayList<>();
-            iterator = db.iterator();
+            iterator = db.iterator(scanOptions(area));
             Map.Entry<byte[], byte[]> entry;
             T t;
             for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
                 entry = iterator.peekNext();
+                if (isJournalSequence(entry.getKey())) {
+                    continue;
+                }
                 t = getModel(entry.getValue(), clazz);
                 list.add(t);
             }
@@ -904,9 +1234,13 @@ public class LevelDBManager {
         try {
             DB db = AREAS.get(area);
             list = new ArrayList<>();
-            iterator = db.iterator();
+            iterator = db.iterator(scanOptions(area));
             for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
-                list.add(iterator.peekNext().getValue());
+                Map.Entry<byte[], byte[]> entry = iterator.peekNext();
+                if (isJournalSequence(entry.getKey())) {
+                    continue;
+                }
+                list.add(entry.getValue());
             }
         } catch (Exception e) {
             Log.error(e);
@@ -960,7 +1294,7 @@ public class LevelDBManager {
         /*DBIterator iterator = null;
         try {
             DB db = AREAS.get(area);
-            iterator = db.iterator();
+            iterator = db.iterator(scanOptions(area));
             for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
                db.delete(iterator.peekNext().getKey());
             }
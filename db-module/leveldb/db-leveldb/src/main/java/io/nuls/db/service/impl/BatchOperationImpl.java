@@ -99,7 +99,12 @@ public class BatchOperationImpl implements BatchOperation {
             return FAILED_BATCH_CLOSE;
         }
         try {
-            db.write(batch);
+            LevelDBManager.beginWrite();
+            try {
+                db.write(batch);
+            } finally {
+                LevelDBManager.endWrite();
+            }
         } catch (Exception e) {
             Log.error(e);
             return Result.getFailed(DBErrorCode.DB_UNKOWN_EXCEPTION);
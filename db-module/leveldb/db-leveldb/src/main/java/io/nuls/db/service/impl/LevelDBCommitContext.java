@@ -0,0 +1,328 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2019 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service.impl;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.constant.DBErrorCode;
+import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.model.Entry;
+import io.nuls.db.service.BatchOperation;
+import io.nuls.db.service.CommitContext;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+
+import java.util.*;
+
+/**
+ * LevelDB的提交上下文，每个数据区域的待写数据按key合并，commit时每个区域写一个WriteBatch，
+ * 涉及多个区域时通过 LevelDBCommitJournal 保证崩溃后可以恢复；遍历时把待写数据合并到结果上，commit之前不写入任何数据
+ * 只能在开启它的线程上使用
+ */
+public class LevelDBCommitContext implements CommitContext {
+
+    private static final Result SUCCESS = Result.getSuccess();
+    private static final Result FAILED_NULL = Result.getFailed(DBErrorCode.NULL_PARAMETER);
+
+    /**
+     * LevelDB默认的无符号字节序
+     */
+    private static final Comparator<byte[]> BYTEWISE = (a, b) -> {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int result = (a[i] & 0xff) - (b[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return a.length - b.length;
+    };
+
+    private final ThreadLocal<LevelDBCommitContext> owner;
+
+    private final Map<String, Map<ByteArrayWrapper, byte[]>> areaMap = new LinkedHashMap<>();
+
+    private int depth = 1;
+
+    private int pendingCount;
+
+    private long height = -1;
+
+    LevelDBCommitContext(ThreadLocal<LevelDBCommitContext> owner) {
+        this.owner = owner;
+    }
+
+    void enter() {
+        depth++;
+    }
+
+    Result put(String area, byte[] key, byte[] value) {
+        if (key == null || value == null) {
+            return FAILED_NULL;
+        }
+        if (LevelDBManager.getArea(area) == null) {
+            return Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
+        }
+        if (areaMap.computeIfAbsent(area, a -> new HashMap<>()).put(new ByteArrayWrapper(key), value) == null) {
+            pendingCount++;
+        }
+        return SUCCESS;
+    }
+
+    Result delete(String area, byte[] key) {
+        if (key == null) {
+            return FAILED_NULL;
+        }
+        if (LevelDBManager.getArea(area) == null) {
+            return Result.getFailed(DBErrorCode.DB_AREA_NOT_EXIST);
+        }
+        if (areaMap.computeIfAbsent(area, a -> new HashMap<>()).put(new ByteArrayWrapper(key), LevelDBCommitJournal.DELETED) == null) {
+            pendingCount++;
+        }
+        return SUCCESS;
+    }
+
+    /**
+     * 该key是否有待写的数据(包括删除)
+     */
+    boolean contains(String area, byte[] key) {
+        Map<ByteArrayWrapper, byte[]> map = areaMap.get(area);
+        return map != null && key != null && map.containsKey(new ByteArrayWrapper(key));
+    }
+
+    /**
+     * 待写的值，待删除时返回null，调用前先用contains判断
+     */
+    byte[] get(String area, byte[] key) {
+        byte[] value = areaMap.get(area).get(new ByteArrayWrapper(key));
+        return value == LevelDBCommitJournal.DELETED ? null : value;
+    }
+
+    /**
+     * 该区域是否有待写的数据
+     */
+    boolean hasPending(String area) {
+        Map<ByteArrayWrapper, byte[]> map = areaMap.get(area);
+        return map != null && !map.isEmpty();
+    }
+
+    /**
+     * 把该区域的待写数据合并到遍历结果上，遍历不写入任何数据，待写数据只在commit时写入
+     * Merges the pending data of an area over the entries read from the DB, nothing is written before commit
+     *
+     * @param dbEntries 数据库中按区域顺序排列的数据
+     */
+    List<Entry<byte[], byte[]>> merge(String area, List<Entry<byte[], byte[]>> dbEntries) {
+        if (dbEntries == null) {
+            return null;
+        }
+        Comparator<byte[]> comparator = LevelDBManager.getAreaComparator(area);
+        TreeMap<byte[], byte[]> merged = new TreeMap<>(comparator != null ? comparator : BYTEWISE);
+        for (Entry<byte[], byte[]> entry : dbEntries) {
+            merged.put(entry.getKey(), entry.getValue());
+        }
+        overlay(merged, areaMap.get(area), null, null, null);
+        List<Entry<byte[], byte[]>> list = new ArrayList<>(merged.size());
+        for (Map.Entry<byte[], byte[]> entry : merged.entrySet()) {
+            list.add(new Entry<>(entry.getKey(), entry.getValue(), comparator));
+        }
+        return list;
+    }
+
+    /**
+     * 前缀遍历的合并结果，和 LevelDBManager.prefixEntryList 一样按字节序，从startKey之后开始，跳过offset条，最多limit条
+     */
+    List<Entry<byte[], byte[]>> mergePrefix(String area, byte[] prefix, byte[] startKey, int offset, int limit) {
+        if (prefix == null || limit <= 0) {
+            return null;
+        }
+        Map<ByteArrayWrapper, byte[]> map = areaMap.get(area);
+        // 每条待删除的数据最多让数据库的结果少一条，多读map.size()条保证窗口内的数据完整
+        int fetch = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit + map.size());
+        List<Entry<byte[], byte[]>> dbEntries = LevelDBManager.prefixEntryList(area, prefix, startKey, 0, fetch);
+        if (dbEntries == null) {
+            return null;
+        }
+        TreeMap<byte[], byte[]> merged = new TreeMap<>(BYTEWISE);
+        for (Entry<byte[], byte[]> entry : dbEntries) {
+            merged.put(entry.getKey(), entry.getValue());
+        }
+        // 数据库的结果被截断时，最后一条之后的数据不完整，忽略这部分待写数据
+        byte[] lastKey = dbEntries.size() < fetch ? null : dbEntries.get(dbEntries.size() - 1).getKey();
+        overlay(merged, map, prefix, startKey, lastKey);
+        List<Entry<byte[], byte[]>> list = new ArrayList<>(Math.min(limit, merged.size()));
+        int skipped = 0;
+        for (Map.Entry<byte[], byte[]> entry : merged.entrySet()) {
+            if (list.size() >= limit) {
+                break;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            list.add(new Entry<>(entry.getKey(), entry.getValue()));
+        }
+        return list;
+    }
+
+    private static void overlay(TreeMap<byte[], byte[]> merged, Map<ByteArrayWrapper, byte[]> map, byte[] prefix, byte[] startKey, byte[] lastKey) {
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : map.entrySet()) {
+            byte[] key = entry.getKey().getBytes();
+            if (prefix != null && !startsWith(key, prefix)) {
+                continue;
+            }
+            if (startKey != null && BYTEWISE.compare(key, startKey) <= 0) {
+                continue;
+            }
+            if (lastKey != null && BYTEWISE.compare(key, lastKey) > 0) {
+                continue;
+            }
+            if (entry.getValue() == LevelDBCommitJournal.DELETED) {
+                merged.remove(key);
+            } else {
+                merged.put(key, entry.getValue());
+            }
+        }
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 区域被清空或删除时丢弃该区域的待写数据
+     */
+    void drop(String area) {
+        Map<ByteArrayWrapper, byte[]> map = areaMap.remove(area);
+        if (map != null) {
+            pendingCount -= map.size();
+        }
+    }
+
+    @Override
+    public BatchOperation getBatch(String area) {
+        return new ContextBatch(area);
+    }
+
+    @Override
+    public Result commit() {
+        if (--depth > 0) {
+            return SUCCESS;
+        }
+        owner.remove();
+        try {
+            String failedArea = LevelDBCommitJournal.apply(areaMap, height);
+            if (failedArea != null) {
+                Log.error("DB commit context write failed, area: " + failedArea);
+                return Result.getFailed(DBErrorCode.DB_UNKOWN_EXCEPTION);
+            }
+            return SUCCESS;
+        } catch (Exception e) {
+            Log.error(e);
+            return Result.getFailed(DBErrorCode.DB_UNKOWN_EXCEPTION);
+        } finally {
+            areaMap.clear();
+            pendingCount = 0;
+        }
+    }
+
+    @Override
+    public void discard() {
+        if (--depth > 0) {
+            return;
+        }
+        owner.remove();
+        areaMap.clear();
+        pendingCount = 0;
+    }
+
+    @Override
+    public void setHeight(long height) {
+        this.height = height;
+    }
+
+    @Override
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * 追加到上下文的批量操作，先在本地记录，executeBatch 时按顺序合并进上下文
+     */
+    private class ContextBatch implements BatchOperation {
+
+        private final String area;
+        private final List<byte[][]> operations = new ArrayList<>();
+        private boolean closed;
+
+        ContextBatch(String area) {
+            this.area = area;
+        }
+
+        @Override
+        public Result put(byte[] key, byte[] value) {
+            if (key == null || value == null) {
+                return FAILED_NULL;
+            }
+            operations.add(new byte[][]{key, value});
+            return SUCCESS;
+        }
+
+        @Override
+        public <T> Result putModel(byte[] key, T value) {
+            if (key == null || value == null) {
+                return FAILED_NULL;
+            }
+            return put(key, LevelDBManager.getModelSerialize(value));
+        }
+
+        @Override
+        public Result delete(byte[] key) {
+            if (key == null) {
+                return FAILED_NULL;
+            }
+            operations.add(new byte[][]{key, null});
+            return SUCCESS;
+        }
+
+        @Override
+        public Result executeBatch() {
+            if (closed) {
+                return Result.getFailed(DBErrorCode.DB_BATCH_CLOSE);
+            }
+            closed = true;
+            for (byte[][] operation : operations) {
+                Result result = operation[1] == null ? LevelDBCommitContext.this.delete(area, operation[0])
+                        : LevelDBCommitContext.this.put(area, operation[0], operation[1]);
+                if (result.isFailed()) {
+                    return result;
+                }
+            }
+            return SUCCESS;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2019 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service.impl;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.manager.LevelDBManager;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static io.nuls.core.tools.str.StringUtils.bytes;
+import static io.nuls.db.constant.DBConstant.BASE_AREA_NAME;
+
+/**
+ * 跨数据区域提交的预写日志
+ * 每个数据区域是独立的LevelDB目录，一个区域一个WriteBatch只能保证单个区域的原子性。
+ * 涉及多个区域的提交分配一个递增序号，先把所有区域的待写数据作为一条记录同步写入base区域，这是提交唯一的一次同步落盘；
+ * 各区域不同步写入，同一个WriteBatch里带上该序号，记录该区域已经写到哪条记录。
+ * base区域保留最近的若干条记录，启动时逐条检查，区域记录的序号比记录旧就重新写入该区域，记录中是每个key的最终值。
+ * <p>
+ * Write-ahead journal for commits spanning several areas. Each commit gets a sequence number and its pending data is
+ * written as one synced record into the base area, which is the only fsync of the commit. The areas are written unsynced,
+ * each batch also storing the sequence number in that area. The base area keeps the latest records; at startup every area
+ * whose stored sequence is older than a record gets that record replayed.
+ */
+public class LevelDBCommitJournal {
+
+    /**
+     * 表示待删除的值
+     */
+    static final byte[] DELETED = new byte[0];
+
+    /**
+     * 预写日志记录的key前缀，后面跟8字节的序号
+     */
+    private static final byte[] JOURNAL_PREFIX = bytes("__commit-journal-");
+
+    /**
+     * 最近一次提交的区块高度，和区块数据一起写入base区域，启动时重新加载
+     */
+    private static final byte[] HEIGHT_KEY = bytes("__committed-height");
+
+    private static final ByteArrayWrapper SEQUENCE_KEY = new ByteArrayWrapper(bytes(LevelDBManager.JOURNAL_SEQUENCE_KEY));
+
+    private static final WriteOptions SYNC = new WriteOptions().sync(true);
+
+    /**
+     * 最近一次提交的区块高度，只在持有类锁时修改，快照也在类锁内创建，保证快照总是落在两次提交之间；
+     * 从来没有提交过高度时为-1
+     */
+    private static volatile long committedHeight = -1;
+
+    /**
+     * 最近一条预写日志记录的序号，只在持有类锁时修改
+     */
+    private static long sequence;
+
+    private LevelDBCommitJournal() {
+    }
+
+    /**
+     * 写入所有区域，多个区域时先写预写日志
+     *
+     * @param height 提交后数据对应的区块高度，未知时为-1
+     * @return 写入失败的区域，全部成功时返回null
+     */
+    static String apply(Map<String, Map<ByteArrayWrapper, byte[]>> areaMap, long height) throws IOException {
+        return apply(areaMap, height, LevelDBManager::getArea);
+    }
+
+    /**
+     * 各区域不同步写入，断电丢失的部分在启动时从保留的预写日志记录中恢复，
+     * 所以保留的记录数要覆盖操作系统把未同步写入刷到磁盘的时间
+     * <p>
+     * Areas are written unsynced; whatever a power loss drops is replayed from the retained records at startup.
+     */
+    static synchronized String apply(Map<String, Map<ByteArrayWrapper, byte[]>> areaMap, long height, Function<String, DB> areas) throws IOException {
+        LevelDBSnapshot.invalidate();
+        if (height >= 0) {
+            areaMap.computeIfAbsent(BASE_AREA_NAME, area -> new HashMap<>())
+                    .put(new ByteArrayWrapper(HEIGHT_KEY), ByteBuffer.allocate(Long.BYTES).putLong(height).array());
+        }
+        if (areaMap.size() > 1 && LevelDBManager.isCommitJournal()) {
+            long seq = sequence + 1;
+            byte[] seqBytes = ByteBuffer.allocate(Long.BYTES).putLong(seq).array();
+            for (Map<ByteArrayWrapper, byte[]> map : areaMap.values()) {
+                map.put(SEQUENCE_KEY, seqBytes);
+            }
+            DB base = areas.apply(BASE_AREA_NAME);
+            WriteBatch batch = base.createWriteBatch();
+            try {
+                batch.put(journalKey(seq), encode(areaMap));
+                batch.delete(journalKey(seq - LevelDBManager.getCommitJournalRetain()));
+                base.write(batch, SYNC);
+            } finally {
+                batch.close();
+            }
+            sequence = seq;
+        }
+        for (Map.Entry<String, Map<ByteArrayWrapper, byte[]>> entry : areaMap.entrySet()) {
+            if (!write(areas.apply(entry.getKey()), entry.getValue(), false)) {
+                // 区域的序号没有更新，下次启动时重新写入
+                return entry.getKey();
+            }
+        }
+        if (height >= 0) {
+            committedHeight = height;
+        }
+        return null;
+    }
+
+    /**
+     * 启动时重新写入各区域缺失的提交，并加载最近一次提交的区块高度
+     * Replays the commits missing from each area and loads the last committed height
+     */
+    public static void recover() {
+        recover(LevelDBManager::getArea);
+    }
+
+    static synchronized void recover(Function<String, DB> areas) {
+        DB base = areas.apply(BASE_AREA_NAME);
+        if (base == null) {
+            return;
+        }
+        TreeMap<Long, byte[]> records = records(base);
+        Map<String, Long> applied = new HashMap<>();
+        int replayed = 0;
+        for (Map.Entry<Long, byte[]> record : records.entrySet()) {
+            try {
+                for (Map.Entry<String, Map<ByteArrayWrapper, byte[]>> entry : decode(record.getValue()).entrySet()) {
+                    DB db = areas.apply(entry.getKey());
+                    if (db == null) {
+                        continue;
+                    }
+                    long areaSequence = applied.computeIfAbsent(entry.getKey(), area -> storedSequence(db));
+                    if (areaSequence >= record.getKey()) {
+                        continue;
+                    }
+                    if (!write(db, entry.getValue(), false)) {
+                        Log.error("recover commit journal failed, area: " + entry.getKey());
+                        return;
+                    }
+                    applied.put(entry.getKey(), record.getKey());
+                    replayed++;
+                }
+            } catch (Exception e) {
+                Log.error("recover commit journal error", e);
+                return;
+            }
+        }
+        if (!records.isEmpty()) {
+            sequence = records.lastKey();
+            long oldest = sequence - LevelDBManager.getCommitJournalRetain();
+            for (Long seq : records.headMap(oldest, true).keySet()) {
+                base.delete(journalKey(seq));
+            }
+        }
+        if (replayed > 0) {
+            Log.info("recovered " + replayed + " area writes from the commit journal");
+        }
+        byte[] height = base.get(HEIGHT_KEY);
+        if (height != null && height.length == Long.BYTES) {
+            committedHeight = ByteBuffer.wrap(height).getLong();
+        }
+    }
+
+    /**
+     * 区域被删除或清空后，从保留的记录中去掉该区域，避免启动时把旧数据写回新区域
+     * Removes a destroyed or cleared area from the retained records so its old data is not replayed into the new area
+     */
+    static synchronized void forget(String area) {
+        forget(area, LevelDBManager::getArea);
+    }
+
+    static synchronized void forget(String area, Function<String, DB> areas) {
+        DB base = areas.apply(BASE_AREA_NAME);
+        if (base == null) {
+            return;
+        }
+        WriteBatch batch = base.createWriteBatch();
+        try {
+            boolean changed = false;
+            for (Map.Entry<Long, byte[]> record : records(base).entrySet()) {
+                Map<String, Map<ByteArrayWrapper, byte[]>> areaMap = decode(record.getValue());
+                if (areaMap.remove(area) != null) {
+                    batch.put(journalKey(record.getKey()), encode(areaMap));
+                    changed = true;
+                }
+            }
+            if (changed) {
+                base.write(batch, SYNC);
+            }
+        } catch (Exception e) {
+            Log.error("forget area in commit journal error: " + area, e);
+        } finally {
+            try {
+                batch.close();
+            } catch (Exception e) {
+                // skip it
+            }
+        }
+    }
+
+    /**
+     * 按序号排列的保留记录
+     */
+    private static TreeMap<Long, byte[]> records(DB base) {
+        TreeMap<Long, byte[]> records = new TreeMap<>();
+        try (DBIterator iterator = base.iterator()) {
+            for (iterator.seek(JOURNAL_PREFIX); iterator.hasNext(); iterator.next()) {
+                Map.Entry<byte[], byte[]> entry = iterator.peekNext();
+                byte[] key = entry.getKey();
+                if (key.length != JOURNAL_PREFIX.length + Long.BYTES
+                        || !Arrays.equals(Arrays.copyOf(key, JOURNAL_PREFIX.length), JOURNAL_PREFIX)) {
+                    break;
+                }
+                records.put(ByteBuffer.wrap(key, JOURNAL_PREFIX.length, Long.BYTES).getLong(), entry.getValue());
+            }
+        } catch (IOException e) {
+            Log.error(e);
+        }
+        return records;
+    }
+
+    /**
+     * 区域已经写入的最后一条记录的序号，没有时为0
+     */
+    private static long storedSequence(DB db) {
+        byte[] value = db.get(SEQUENCE_KEY.getBytes());
+        return value != null && value.length == Long.BYTES ? ByteBuffer.wrap(value).getLong() : 0;
+    }
+
+    private static byte[] journalKey(long seq) {
+        return ByteBuffer.allocate(JOURNAL_PREFIX.length + Long.BYTES).put(JOURNAL_PREFIX).putLong(seq).array();
+    }
+
+    static long getCommittedHeight() {
+        return committedHeight;
+    }
+
+    /**
+     * 把一个区域的待写数据作为一个WriteBatch写入
+     *
+     * @param sync 是否同步落盘
+     */
+    static boolean write(DB db, Map<ByteArrayWrapper, byte[]> map, boolean sync) {
+        if (db == null) {
+            return false;
+        }
+        WriteBatch batch = db.createWriteBatch();
+        try {
+            for (Map.Entry<ByteArrayWrapper, byte[]> entry : map.entrySet()) {
+                if (entry.getValue() == DELETED) {
+                    batch.delete(entry.getKey().getBytes());
+                } else {
+                    batch.put(entry.getKey().getBytes(), entry.getValue());
+                }
+            }
+            if (sync) {
+                db.write(batch, SYNC);
+            } else {
+                db.write(batch);
+            }
+            LevelDBManager.markWrite();
+            return true;
+        } catch (Exception e) {
+            Log.error(e);
+            return false;
+        } finally {
+            try {
+                batch.close();
+            } catch (Exception e) {
+                // skip it
+            }
+        }
+    }
+
+    /**
+     * 区域数 + 多个[区域名 + 键数 + 多个[key长度 + key + value长度(删除为-1) + value]]
+     */
+    static byte[] encode(Map<String, Map<ByteArrayWrapper, byte[]>> areaMap) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(areaMap.size());
+        for (Map.Entry<String, Map<ByteArrayWrapper, byte[]>> area : areaMap.entrySet()) {
+            out.writeUTF(area.getKey());
+            out.writeInt(area.getValue().size());
+            for (Map.Entry<ByteArrayWrapper, byte[]> entry : area.getValue().entrySet()) {
+                byte[] key = entry.getKey().getBytes();
+                out.writeInt(key.length);
+                out.write(key);
+                byte[] value = entry.getValue();
+                if (value == DELETED) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(value.length);
+                    out.write(value);
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Map<String, Map<ByteArrayWrapper, byte[]>> decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        int areaCount = in.readInt();
+        Map<String, Map<ByteArrayWrapper, byte[]>> areaMap = new LinkedHashMap<>();
+        for (int i = 0; i < areaCount; i++) {
+            String area = in.readUTF();
+            int count = in.readInt();
+            Map<ByteArrayWrapper, byte[]> map = new LinkedHashMap<>();
+            for (int j = 0; j < count; j++) {
+                byte[] key = new byte[in.readInt()];
+                in.readFully(key);
+                int length = in.readInt();
+                byte[] value = DELETED;
+                if (length >= 0) {
+                    value = new byte[length];
+                    in.readFully(value);
+                }
+                map.put(new ByteArrayWrapper(key), value);
+            }
+            areaMap.put(area, map);
+        }
+        return areaMap;
+    }
+}
@@ -25,21 +25,31 @@ import io.nuls.db.constant.DBErrorCode;
 import io.nuls.db.manager.LevelDBManager;
 import io.nuls.db.model.Entry;
 import io.nuls.db.service.BatchOperation;
+import io.nuls.db.service.CommitContext;
 import io.nuls.db.service.DBService;
+import io.nuls.db.service.DBSnapshot;
 import io.nuls.kernel.exception.NulsRuntimeException;
 import io.nuls.kernel.lite.annotation.Service;
 import io.nuls.kernel.model.Result;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 @Service
 public class LevelDBServiceImpl implements DBService {
 
+    /**
+     * 当前线程上开启的提交上下文
+     */
+    private final ThreadLocal<LevelDBCommitContext> commitContext = new ThreadLocal<>();
+
     public LevelDBServiceImpl() {
         try {
             LevelDBManager.init();
+            LevelDBCommitJournal.recover();
         } catch (Exception e) {
             throw new NulsRuntimeException(DBErrorCode.DB_AREA_NOT_EXIST, e);
         }
@@ -72,67 +82,148 @@ public class LevelDBServiceImpl implements DBService {
 
     @Override
     public Result put(String area, byte[] key, byte[] value) {
+        LevelDBCommitContext context = commitContext.get();
+        if (context != null) {
+            return context.put(area, key, value);
+        }
         return LevelDBManager.put(area, key, value);
     }
 
     @Override
     public <T> Result putModel(String area, byte[] key, T value) {
+        LevelDBCommitContext context = commitContext.get();
+        if (context != null) {
+            if (key == null || value == null) {
+                return Result.getFailed(DBErrorCode.NULL_PARAMETER);
+            }
+            return context.put(area, key, LevelDBManager.getModelSerialize(value));
+        }
         return LevelDBManager.putModel(area, key, value);
     }
 
     @Override
     public Result delete(String area, byte[] key) {
+        LevelDBCommitContext context = commitContext.get();
+        if (context != null) {
+            return context.delete(area, key);
+        }
         return LevelDBManager.delete(area, key);
     }
 
     @Override
     public byte[] get(String area, byte[] key) {
+        LevelDBCommitContext context = commitContext.get();
+        if (context != null && context.contains(area, key)) {
+            return context.get(area, key);
+        }
         return LevelDBManager.get(area, key);
     }
 
     @Override
     public <T> T getModel(String area, byte[] key, Class<T> clazz) {
+        LevelDBCommitContext context = commitContext.get();
+        if (context != null && context.contains(area, key)) {
+            return LevelDBManager.getModel(context.get(area, key), clazz);
+        }
         return LevelDBManager.getModel(area, key, clazz);
     }
 
     @Override
     public Object getModel(String area, byte[] key) {
-        return LevelDBManager.getModel(area, key);
+        return getModel(area, key, null);
     }
 
     @Override
     public Set<byte[]> keySet(String area) {
-        return LevelDBManager.keySet(area);
+        List<Entry<byte[], byte[]>> merged = mergedEntryList(area);
+        if (merged == null) {
+            return LevelDBManager.keySet(area);
+        }
+        Set<byte[]> keySet = new HashSet<>();
+        for (Entry<byte[], byte[]> entry : merged) {
+            keySet.add(entry.getKey());
+        }
+        return keySet;
     }
 
     @Override
     public List<byte[]> keyList(String area) {
-        return LevelDBManager.keyList(area);
+        List<Entry<byte[], byte[]>> merged = mergedEntryList(area);
+        if (merged == null) {
+            return LevelDBManager.keyList(area);
+        }
+        List<byte[]> keyList = new ArrayList<>(merged.size());
+        for (Entry<byte[], byte[]> entry : merged) {
+            keyList.add(entry.getKey());
+        }
+        return keyList;
     }
 
     @Override
     public List<byte[]> valueList(String area) {
-        return LevelDBManager.valueList(area);
+        List<Entry<byte[], byte[]>> merged = mergedEntryList(area);
+        if (merged == null) {
+            return LevelDBManager.valueList(area);
+        }
+        List<byte[]> valueList = new ArrayList<>(merged.size());
+        for (Entry<byte[], byte[]> entry : merged) {
+            valueList.add(entry.getValue());
+        }
+        return valueList;
     }
 
     @Override
     public Set<Entry<byte[], byte[]>> entrySet(String area) {
-        return LevelDBManager.entrySet(area);
+        List<Entry<byte[], byte[]>> merged = mergedEntryList(area);
+        if (merged == null) {
+            return LevelDBManager.entrySet(area);
+        }
+        return new HashSet<>(merged);
     }
 
     @Override
     public List<Entry<byte[], byte[]>> entryList(String area) {
-        return LevelDBManager.entryList(area);
+        List<Entry<byte[], byte[]>> merged = mergedEntryList(area);
+        if (merged == null) {
+            return LevelDBManager.entryList(area);
+        }
+        return merged;
     }
 
     @Override
     public <T> List<Entry<byte[], T>> entryList(String area, Class<T> clazz) {
-        return LevelDBManager.entryList(area, clazz);
+        List<Entry<byte[], byte[]>> merged = mergedEntryList(area);
+        if (merged == null) {
+            return LevelDBManager.entryList(area, clazz);
+        }
+        Comparator<byte[]> comparator = LevelDBManager.getAreaComparator(area);
+        List<Entry<byte[], T>> entryList = new ArrayList<>(merged.size());
+        for (Entry<byte[], byte[]> entry : merged) {
+            entryList.add(new Entry<>(entry.getKey(), LevelDBManager.getModel(entry.getValue(), clazz), comparator));
+        }
+        return entryList;
     }
 
     @Override
     public <T> List<T> values(String area, Class<T> clazz) {
-        return LevelDBManager.values(area, clazz);
+        List<Entry<byte[], byte[]>> merged = mergedEntryList(area);
+        if (merged == null) {
+            return LevelDBManager.values(area, clazz);
+        }
+        List<T> values = new ArrayList<>(merged.size());
+        for (Entry<byte[], byte[]> entry : merged) {
+            values.add(LevelDBManager.getModel(entry.getValue(), clazz));
+        }
+        return values;
+    }
+
+    @Override
+    public List<Entry<byte[], byte[]>> prefixEntryList(String area, byte[] prefix, byte[] startKey, int offset, int limit) {
+        LevelDBCommitContext context = commitContext.get();
+        if (context != null && context.hasPending(area)) {
+            return context.mergePrefix(area, prefix, startKey, offset, limit);
+        }
+        return LevelDBManager.prefixEntryList(area, prefix, startKey, offset, limit);
     }
 
     @Override
@@ -140,6 +231,10 @@ public class LevelDBServiceImpl implements DBService {
         if (StringUtils.isBlank(area)) {
             return null;
         }
+        LevelDBCommitContext context = commitContext.get();
+        if (context != null) {
+            return context.getBatch(area);
+        }
         BatchOperationImpl batchOperation = new BatchOperationImpl(area);
         Result result = batchOperation.checkBatch();
         if (result.isFailed()) {
@@ -151,7 +246,15 @@ public class LevelDBServiceImpl implements DBService {
 
     @Override
     public Result destroyArea(String area) {
-        return LevelDBManager.destroyArea(area);
+        LevelDBCommitContext context = commitContext.get();
+        if (context != null) {
+            context.drop(area);
+        }
+        Result result = LevelDBManager.destroyArea(area);
+        if (result.isSuccess()) {
+            LevelDBCommitJournal.forget(area);
+        }
+        return result;
     }
 
     /**
@@ -159,6 +262,47 @@ public class LevelDBServiceImpl implements DBService {
      */
     @Override
     public Result clearArea(String area) {
-        return LevelDBManager.clearArea(area);
+        LevelDBCommitContext context = commitContext.get();
+        if (context != null) {
+            context.drop(area);
+        }
+        Result result = LevelDBManager.clearArea(area);
+        if (result.isSuccess()) {
+            LevelDBCommitJournal.forget(area);
+        }
+        return result;
+    }
+
+    @Override
+    public CommitContext beginCommitContext() {
+        LevelDBCommitContext context = commitContext.get();
+        if (context != null) {
+            context.enter();
+            return context;
+        }
+        context = new LevelDBCommitContext(commitContext);
+        commitContext.set(context);
+        return context;
+    }
+
+    @Override
+    public CommitContext getCommitContext() {
+        return commitContext.get();
+    }
+
+    @Override
+    public DBSnapshot getSnapshot() {
+        return LevelDBSnapshot.acquire();
+    }
+
+    /**
+     * 当前线程的提交上下文中有该区域的待写数据时，返回合并后的遍历结果，否则返回null直接遍历数据库
+     */
+    private List<Entry<byte[], byte[]>> mergedEntryList(String area) {
+        LevelDBCommitContext context = commitContext.get();
+        if (context == null || !context.hasPending(area)) {
+            return null;
+        }
+        return context.merge(area, LevelDBManager.entryList(area));
     }
 }
@@ -0,0 +1,160 @@
+/**
+ * MIT License
+ * Copyright (c) 2017-2019 nuls.io
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.nuls.db.service.impl;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.service.DBSnapshot;
+import org.iq80.leveldb.Snapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 所有区域的LevelDB快照
+ * 在 LevelDBCommitJournal 的类锁内创建，和区块提交互斥，所以各区域的快照总是落在同一个提交之后；
+ * 同时持有 LevelDBManager 的快照锁，提交上下文之外的直接写入也不会只出现在部分区域的快照中；
+ * 期间没有任何写入的请求共享同一个实例，按引用计数释放，下一次提交时释放缓存持有的引用。
+ * <p>
+ * LevelDB snapshots of all areas, taken under the commit journal lock so they always sit between two commits, and under
+ * the snapshot lock so no direct write is in progress while the areas are captured.
+ * Requests with no write in between share one instance, which is reference counted.
+ */
+public class LevelDBSnapshot implements DBSnapshot {
+
+    /**
+     * 最近一次提交后创建的快照，只在持有 LevelDBCommitJournal 类锁时访问
+     */
+    private static LevelDBSnapshot latest;
+
+    private final Map<String, Snapshot> snapshots;
+
+    /**
+     * 各区域快照的读参数，绑定后所有读操作复用
+     */
+    private final Map<String, LevelDBManager.SnapshotReadOptions> readOptions = new HashMap<>();
+
+    private final long height;
+
+    private final long writeSequence;
+
+    /**
+     * 缓存持有一个引用
+     */
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    private LevelDBSnapshot(Map<String, Snapshot> snapshots, long height, long writeSequence) {
+        this.snapshots = snapshots;
+        for (Map.Entry<String, Snapshot> entry : snapshots.entrySet()) {
+            readOptions.put(entry.getKey(), new LevelDBManager.SnapshotReadOptions(entry.getValue()));
+        }
+        this.height = height;
+        this.writeSequence = writeSequence;
+    }
+
+    /**
+     * 获取当前的快照，调用方持有一个引用
+     */
+    static LevelDBSnapshot acquire() {
+        synchronized (LevelDBCommitJournal.class) {
+            long writeSequence = LevelDBManager.getWriteSequence();
+            if (latest != null && latest.writeSequence == writeSequence && latest.retain()) {
+                return latest;
+            }
+            invalidate();
+            Map<String, Snapshot> snapshots = new HashMap<>();
+            Lock lock = LevelDBManager.getSnapshotLock();
+            lock.lock();
+            try {
+                writeSequence = LevelDBManager.getWriteSequence();
+                for (String area : LevelDBManager.listArea()) {
+                    Snapshot snapshot = LevelDBManager.getSnapshot(area);
+                    if (snapshot != null) {
+                        snapshots.put(area, snapshot);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            latest = new LevelDBSnapshot(snapshots, LevelDBCommitJournal.getCommittedHeight(), writeSequence);
+            latest.retain();
+            return latest;
+        }
+    }
+
+    /**
+     * 数据发生提交时调用，之后的请求创建新的快照
+     */
+    static void invalidate() {
+        synchronized (LevelDBCommitJournal.class) {
+            if (latest != null) {
+                latest.close();
+                latest = null;
+            }
+        }
+    }
+
+    private boolean retain() {
+        while (true) {
+            int count = refCount.get();
+            if (count <= 0) {
+                return false;
+            }
+            if (refCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public long getHeight() {
+        return height;
+    }
+
+    @Override
+    public void bind() {
+        LevelDBManager.setReadSnapshot(readOptions);
+    }
+
+    @Override
+    public void unbind() {
+        LevelDBManager.setReadSnapshot(null);
+    }
+
+    @Override
+    public void close() {
+        if (refCount.decrementAndGet() != 0) {
+            return;
+        }
+        for (Snapshot snapshot : snapshots.values()) {
+            try {
+                snapshot.close();
+            } catch (Exception e) {
+                Log.warn("close leveldb snapshot error", e);
+            }
+        }
+    }
+
+    int getRefCount() {
+        return refCount.get();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2019 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.db.engine;
+
+import org.iq80.leveldb.*;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StorageEngineTest {
+
+    @Test
+    public void memoryOrder() throws Exception {
+        DB db = new MemoryEngine().open(new File("order"), new Options());
+        db.put(new byte[]{(byte) 0x80}, new byte[]{3});
+        db.put(new byte[]{1, 2}, new byte[]{2});
+        db.put(new byte[]{1}, new byte[]{1});
+        try (DBIterator iterator = db.iterator()) {
+            iterator.seekToFirst();
+            assertArrayEquals(new byte[]{1}, iterator.next().getKey());
+            assertArrayEquals(new byte[]{1, 2}, iterator.next().getKey());
+            assertArrayEquals(new byte[]{(byte) 0x80}, iterator.next().getKey());
+            assertFalse(iterator.hasNext());
+            assertArrayEquals(new byte[]{(byte) 0x80}, iterator.prev().getKey());
+
+            iterator.seek(new byte[]{1, 1});
+            assertArrayEquals(new byte[]{1, 2}, iterator.peekNext().getKey());
+            assertArrayEquals(new byte[]{1}, iterator.peekPrev().getKey());
+        }
+    }
+
+    @Test
+    public void memorySnapshot() throws Exception {
+        MemoryEngine engine = new MemoryEngine();
+        DB db = engine.open(new File("snapshot"), new Options());
+        db.put(new byte[]{1}, new byte[]{1});
+        Snapshot snapshot = db.getSnapshot();
+        WriteBatch batch = db.createWriteBatch();
+        batch.put(new byte[]{2}, new byte[]{2});
+        batch.delete(new byte[]{1});
+        db.write(batch);
+
+        assertNull(db.get(new byte[]{1}));
+        assertArrayEquals(new byte[]{1}, db.get(new byte[]{1}, new ReadOptions().snapshot(snapshot)));
+        assertNull(db.get(new byte[]{2}, new ReadOptions().snapshot(snapshot)));
+
+        // 同一个目录重新打开得到同一份数据，destroy后清空
+        assertArrayEquals(new byte[]{2}, engine.open(new File("snapshot"), new Options()).get(new byte[]{2}));
+        engine.destroy(new File("snapshot"), new Options());
+        assertNull(engine.open(new File("snapshot"), new Options()).get(new byte[]{2}));
+    }
+
+    @Test
+    public void migrate() throws Exception {
+        File fromPath = Files.createTempDirectory("nuls-migrate").toFile();
+        LevelDBEngine leveldb = new LevelDBEngine();
+        File dbFile = new File(new File(fromPath, "area"), "leveldb");
+        dbFile.getParentFile().mkdirs();
+        DB source = leveldb.open(dbFile, new Options().createIfMissing(true));
+        for (int i = 0; i < 25000; i++) {
+            source.put(new byte[]{(byte) (i >> 8), (byte) i}, new byte[]{(byte) i});
+        }
+        source.close();
+
+        MemoryEngine memory = new MemoryEngine();
+        File toPath = new File("migrated");
+        assertEquals(25000, StorageMigration.migrate(leveldb, fromPath, memory, toPath));
+        DB target = memory.open(new File(new File(toPath, "area"), "leveldb"), new Options());
+        int count = 0;
+        try (DBIterator iterator = target.iterator()) {
+            for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
+                count++;
+            }
+        }
+        assertEquals(25000, count);
+        assertArrayEquals(new byte[]{(byte) 300}, target.get(new byte[]{1, (byte) 300}));
+        leveldb.destroy(dbFile, new Options());
+        dbFile.getParentFile().delete();
+        fromPath.delete();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2019 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.db.manager;
+
+import org.iq80.leveldb.CompressionType;
+import org.iq80.leveldb.Options;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class AreaProfileTest {
+
+    @Test
+    public void load() {
+        Properties properties = new Properties();
+        properties.setProperty("leveldb.profile.hot.areas", "ledger_utxo, ledger_tx");
+        properties.setProperty("leveldb.profile.hot.cacheSize", "67108864");
+        properties.setProperty("leveldb.profile.hot.writeBufferSize", "16777216");
+        properties.setProperty("leveldb.profile.hot.compression", "none");
+        properties.setProperty("leveldb.profile.default.blockSize", "8192");
+        properties.setProperty("leveldb.profile.default.maxOpenFiles", "wrong");
+        properties.setProperty("leveldb.area.max", "20");
+
+        Map<String, AreaProfile> profiles = AreaProfile.load(properties);
+        assertEquals(3, profiles.size());
+        AreaProfile hot = profiles.get("ledger_tx");
+        assertSame(hot, profiles.get("ledger_utxo"));
+
+        Options options = hot.apply(new Options());
+        assertEquals(67108864, options.cacheSize());
+        assertEquals(16777216, options.writeBufferSize());
+        assertEquals(CompressionType.NONE, options.compressionType());
+        assertEquals(new Options().blockSize(), options.blockSize());
+
+        options = profiles.get(AreaProfile.DEFAULT).apply(new Options());
+        assertEquals(8192, options.blockSize());
+        assertEquals(new Options().maxOpenFiles(), options.maxOpenFiles());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2019 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.db.service;
+
+import io.nuls.db.model.Entry;
+import io.nuls.db.service.impl.LevelDBServiceImpl;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CommitContextTest {
+
+    private static DBService dbService;
+
+    private static String areaA = "commit-context-a";
+    private static String areaB = "commit-context-b";
+
+    @BeforeClass
+    public static void init() {
+        dbService = new LevelDBServiceImpl();
+        dbService.destroyArea(areaA);
+        dbService.destroyArea(areaB);
+        dbService.createArea(areaA);
+        dbService.createArea(areaB);
+    }
+
+    @AfterClass
+    public static void destroy() {
+        dbService.destroyArea(areaA);
+        dbService.destroyArea(areaB);
+    }
+
+    @Test
+    public void commit() throws Exception {
+        byte[] key = new byte[]{1};
+        dbService.put(areaA, new byte[]{2}, new byte[]{2});
+
+        CommitContext context = dbService.beginCommitContext();
+        assertSame(context, dbService.getCommitContext());
+        dbService.put(areaA, key, new byte[]{1});
+        dbService.delete(areaA, new byte[]{2});
+        BatchOperation batch = dbService.createWriteBatch(areaB);
+        batch.put(key, new byte[]{3});
+        assertTrue(batch.executeBatch().isSuccess());
+        assertEquals(3, context.getPendingCount());
+
+        // 当前线程读到待写数据，其他线程仍然读到原来的数据
+        assertArrayEquals(new byte[]{1}, dbService.get(areaA, key));
+        assertNull(dbService.get(areaA, new byte[]{2}));
+        assertArrayEquals(new byte[]{3}, dbService.get(areaB, key));
+        byte[][] other = new byte[2][];
+        Thread thread = new Thread(() -> {
+            other[0] = dbService.get(areaA, key);
+            other[1] = dbService.get(areaA, new byte[]{2});
+        });
+        thread.start();
+        thread.join();
+        assertNull(other[0]);
+        assertArrayEquals(new byte[]{2}, other[1]);
+
+        // 嵌套开启时只有最外层commit写入
+        CommitContext inner = dbService.beginCommitContext();
+        assertSame(context, inner);
+        assertTrue(inner.commit().isSuccess());
+        assertEquals(3, context.getPendingCount());
+
+        assertTrue(context.commit().isSuccess());
+        assertNull(dbService.getCommitContext());
+        assertArrayEquals(new byte[]{1}, dbService.get(areaA, key));
+        assertNull(dbService.get(areaA, new byte[]{2}));
+        assertArrayEquals(new byte[]{3}, dbService.get(areaB, key));
+    }
+
+    @Test
+    public void discard() {
+        byte[] key = new byte[]{9};
+        CommitContext context = dbService.beginCommitContext();
+        dbService.put(areaB, key, new byte[]{9});
+        assertArrayEquals(new byte[]{9}, dbService.get(areaB, key));
+        context.discard();
+        assertNull(dbService.getCommitContext());
+        assertNull(dbService.get(areaB, key));
+    }
+
+    /**
+     * 遍历时合并待写数据，commit之前不写入数据库
+     */
+    @Test
+    public void scanMergesPending() throws Exception {
+        dbService.put(areaA, new byte[]{5, 1}, new byte[]{1});
+        dbService.put(areaA, new byte[]{5, 3}, new byte[]{3});
+        CommitContext context = dbService.beginCommitContext();
+        dbService.put(areaA, new byte[]{5, 2}, new byte[]{2});
+        dbService.put(areaA, new byte[]{5, 4}, new byte[]{4});
+        dbService.delete(areaA, new byte[]{5, 3});
+
+        List<Entry<byte[], byte[]>> list = dbService.prefixEntryList(areaA, new byte[]{5}, null, 0, 10);
+        assertEquals(3, list.size());
+        assertArrayEquals(new byte[]{5, 1}, list.get(0).getKey());
+        assertArrayEquals(new byte[]{5, 2}, list.get(1).getKey());
+        assertArrayEquals(new byte[]{5, 4}, list.get(2).getKey());
+        list = dbService.prefixEntryList(areaA, new byte[]{5}, new byte[]{5, 1}, 1, 1);
+        assertEquals(1, list.size());
+        assertArrayEquals(new byte[]{4}, list.get(0).getValue());
+        assertEquals(3, dbService.keyList(areaA).stream().filter(key -> key[0] == 5).count());
+        assertEquals(3, context.getPendingCount());
+
+        // 其他线程遍历不到待写数据
+        int[] count = new int[1];
+        Thread thread = new Thread(() -> count[0] = dbService.prefixEntryList(areaA, new byte[]{5}, null, 0, 10).size());
+        thread.start();
+        thread.join();
+        assertEquals(2, count[0]);
+
+        assertTrue(context.commit().isSuccess());
+        assertEquals(3, dbService.prefixEntryList(areaA, new byte[]{5}, null, 0, 10).size());
+    }
+}
@@ -26,9 +26,84 @@
 
 package io.nuls.db.service;
 
+import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.model.Entry;
+import io.nuls.db.service.impl.LevelDBServiceImpl;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Snapshot;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 /**
  * Created by ln on 2018/5/6.
  */
 public class LevelDBServiceTest {
- 
-}
\ No newline at end of file
+
+    private static DBService dbService;
+
+    private static String areaName = "prefix-test";
+
+    @BeforeClass
+    public static void init() {
+        dbService = new LevelDBServiceImpl();
+        dbService.destroyArea(areaName);
+        dbService.createArea(areaName);
+        for (int prefix = 1; prefix <= 3; prefix++) {
+            for (int i = 0; i < 10; i++) {
+                dbService.put(areaName, new byte[]{(byte) prefix, (byte) i}, new byte[]{(byte) i});
+            }
+        }
+        dbService.put(areaName, new byte[]{(byte) 0xff, 0}, new byte[]{0});
+    }
+
+    @AfterClass
+    public static void destroy() {
+        dbService.destroyArea(areaName);
+    }
+
+    @Test
+    public void testPrefixEntryList() {
+        List<Entry<byte[], byte[]>> list = dbService.prefixEntryList(areaName, new byte[]{2}, null, 0, 100);
+        assertEquals(10, list.size());
+        assertArrayEquals(new byte[]{2, 0}, list.get(0).getKey());
+        assertArrayEquals(new byte[]{2, 9}, list.get(9).getKey());
+
+        list = dbService.prefixEntryList(areaName, new byte[]{2}, null, 3, 4);
+        assertEquals(4, list.size());
+        assertArrayEquals(new byte[]{2, 3}, list.get(0).getKey());
+
+        list = dbService.prefixEntryList(areaName, new byte[]{2}, new byte[]{2, 7}, 0, 100);
+        assertEquals(2, list.size());
+        assertArrayEquals(new byte[]{2, 8}, list.get(0).getKey());
+
+        list = dbService.prefixEntryList(areaName, new byte[]{(byte) 0xff}, null, 0, 100);
+        assertEquals(1, list.size());
+
+        assertEquals(0, dbService.prefixEntryList(areaName, new byte[]{4}, null, 0, 100).size());
+    }
+
+    @Test
+    public void testSnapshotIterator() throws Exception {
+        Snapshot snapshot = LevelDBManager.getSnapshot(areaName);
+        dbService.put(areaName, new byte[]{3, 10}, new byte[]{10});
+        try (DBIterator iterator = LevelDBManager.iterator(areaName, snapshot)) {
+            iterator.seek(new byte[]{3});
+            int count = 0;
+            while (iterator.hasNext() && iterator.next().getKey()[0] == 3) {
+                count++;
+            }
+            assertEquals(10, count);
+        } finally {
+            snapshot.close();
+            dbService.delete(areaName, new byte[]{3, 10});
+        }
+        assertNull(LevelDBManager.get(areaName, new byte[]{3, 10}, null));
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2019 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.db.service.impl;
+
+import io.nuls.db.engine.MemoryEngine;
+import io.nuls.db.manager.LevelDBManager;
+import io.nuls.db.service.DBService;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteOptions;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static io.nuls.core.tools.str.StringUtils.bytes;
+import static io.nuls.db.constant.DBConstant.BASE_AREA_NAME;
+import static org.junit.Assert.*;
+
+public class LevelDBCommitJournalTest {
+
+    private static DBService dbService;
+
+    private static String areaA = "journal-a";
+    private static String areaB = "journal-b";
+
+    @BeforeClass
+    public static void init() {
+        dbService = new LevelDBServiceImpl();
+        dbService.destroyArea(areaA);
+        dbService.destroyArea(areaB);
+        dbService.createArea(areaA);
+        dbService.createArea(areaB);
+    }
+
+    @AfterClass
+    public static void destroy() {
+        dbService.destroyArea(areaA);
+        dbService.destroyArea(areaB);
+    }
+
+    @Test
+    public void encode() throws Exception {
+        Map<String, Map<ByteArrayWrapper, byte[]>> areaMap = createAreaMap();
+        Map<String, Map<ByteArrayWrapper, byte[]>> decoded = LevelDBCommitJournal.decode(LevelDBCommitJournal.encode(areaMap));
+        assertEquals(2, decoded.size());
+        assertArrayEquals(new byte[]{1}, decoded.get(areaA).get(new ByteArrayWrapper(new byte[]{1})));
+        assertSame(LevelDBCommitJournal.DELETED, decoded.get(areaB).get(new ByteArrayWrapper(new byte[]{2})));
+        assertArrayEquals(new byte[0], decoded.get(areaB).get(new ByteArrayWrapper(new byte[]{3})));
+    }
+
+    @Test
+    public void apply() throws Exception {
+        dbService.put(areaB, new byte[]{2}, new byte[]{2});
+        assertNull(LevelDBCommitJournal.apply(createAreaMap(), -1));
+        assertArrayEquals(new byte[]{1}, dbService.get(areaA, new byte[]{1}));
+        assertNull(dbService.get(areaB, new byte[]{2}));
+        // 区域中记录的序号不出现在遍历结果中
+        assertNotNull(LevelDBManager.get(areaA, bytes(LevelDBManager.JOURNAL_SEQUENCE_KEY)));
+        assertEquals(1, dbService.keyList(areaA).size());
+        assertEquals(1, dbService.entryList(areaA).size());
+    }
+
+    /**
+     * 模拟断电：只有预写日志同步落盘，各区域未同步的写入全部丢失，启动时从预写日志重新写入
+     */
+    @Test
+    public void powerLoss() throws Exception {
+        Map<String, CrashableDB> areas = crashableAreas();
+        areas.get(areaB).db.put(new byte[]{2}, new byte[]{2}, new WriteOptions().sync(true));
+
+        assertNull(LevelDBCommitJournal.apply(createAreaMap(), -1, area -> areas.get(area).db));
+        assertNull(areas.get(areaA).durable.get(new byte[]{1}));
+        for (CrashableDB db : areas.values()) {
+            db.crash(false);
+        }
+
+        LevelDBCommitJournal.recover(area -> areas.get(area).db);
+        assertArrayEquals(new byte[]{1}, areas.get(areaA).db.get(new byte[]{1}));
+        assertNull(areas.get(areaB).db.get(new byte[]{2}));
+        assertArrayEquals(new byte[0], areas.get(areaB).db.get(new byte[]{3}));
+    }
+
+    /**
+     * 已经写到记录序号的区域不重新写入，之后直接写入的数据不会被旧记录覆盖
+     */
+    @Test
+    public void replayOnlyBehindAreas() throws Exception {
+        Map<String, CrashableDB> areas = crashableAreas();
+        assertNull(LevelDBCommitJournal.apply(createAreaMap(), -1, area -> areas.get(area).db));
+        areas.get(areaA).db.put(new byte[]{1}, new byte[]{9});
+        areas.get(BASE_AREA_NAME).crash(true);
+        areas.get(areaA).crash(true);
+        areas.get(areaB).crash(false);
+
+        LevelDBCommitJournal.recover(area -> areas.get(area).db);
+        assertArrayEquals(new byte[]{9}, areas.get(areaA).db.get(new byte[]{1}));
+        assertArrayEquals(new byte[0], areas.get(areaB).db.get(new byte[]{3}));
+    }
+
+    /**
+     * 中断在写各区域的中间：前面的区域已写入，后面的区域从预写日志补上
+     */
+    @Test
+    public void crashBetweenAreas() throws Exception {
+        Map<String, CrashableDB> areas = crashableAreas();
+        Map<String, DB> failing = new HashMap<>();
+        failing.put(BASE_AREA_NAME, areas.get(BASE_AREA_NAME).db);
+        failing.put(areaA, areas.get(areaA).db);
+        assertEquals(areaB, LevelDBCommitJournal.apply(createAreaMap(), 5, failing::get));
+        assertNull(areas.get(areaB).db.get(new byte[]{3}));
+
+        LevelDBCommitJournal.recover(area -> areas.get(area).db);
+        assertArrayEquals(new byte[]{1}, areas.get(areaA).db.get(new byte[]{1}));
+        assertArrayEquals(new byte[0], areas.get(areaB).db.get(new byte[]{3}));
+    }
+
+    /**
+     * base区域只保留最近的若干条记录
+     */
+    @Test
+    public void retainLatestRecords() throws Exception {
+        int retain = LevelDBManager.getCommitJournalRetain();
+        LevelDBManager.setCommitJournalRetain(2);
+        try {
+            Map<String, CrashableDB> areas = crashableAreas();
+            for (int i = 0; i < 5; i++) {
+                assertNull(LevelDBCommitJournal.apply(createAreaMap(), i, area -> areas.get(area).db));
+            }
+            assertEquals(2, countRecords(areas.get(BASE_AREA_NAME).db));
+        } finally {
+            LevelDBManager.setCommitJournalRetain(retain);
+        }
+    }
+
+    /**
+     * 删除区域后保留的记录中不再有该区域，重建的区域不会写回旧数据
+     */
+    @Test
+    public void forgetDestroyedArea() throws Exception {
+        Map<String, CrashableDB> areas = crashableAreas();
+        assertNull(LevelDBCommitJournal.apply(createAreaMap(), -1, area -> areas.get(area).db));
+        LevelDBCommitJournal.forget(areaB, area -> areas.get(area).db);
+        areas.put(areaB, new CrashableDB(new MemoryEngine(), areaB));
+
+        LevelDBCommitJournal.recover(area -> areas.get(area).db);
+        assertNull(areas.get(areaB).db.get(new byte[]{3}));
+    }
+
+    /**
+     * 区块高度和区块数据一起落盘，重启后重新加载
+     */
+    @Test
+    public void committedHeight() throws Exception {
+        Map<String, CrashableDB> areas = crashableAreas();
+        Map<String, CrashableDB> other = crashableAreas();
+        assertNull(LevelDBCommitJournal.apply(createAreaMap(), 7, area -> areas.get(area).db));
+        assertNull(LevelDBCommitJournal.apply(createAreaMap(), 9, area -> other.get(area).db));
+        assertEquals(9, LevelDBCommitJournal.getCommittedHeight());
+
+        for (CrashableDB db : areas.values()) {
+            db.crash(false);
+        }
+        LevelDBCommitJournal.recover(area -> areas.get(area).db);
+        assertEquals(7, LevelDBCommitJournal.getCommittedHeight());
+    }
+
+    private int countRecords(DB base) throws IOException {
+        int count = 0;
+        byte[] prefix = bytes("__commit-journal-");
+        try (DBIterator iterator = base.iterator()) {
+            for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
+                byte[] key = iterator.peekNext().getKey();
+                if (key.length > prefix.length && Arrays.equals(Arrays.copyOf(key, prefix.length), prefix)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private Map<String, CrashableDB> crashableAreas() {
+        MemoryEngine engine = new MemoryEngine();
+        Map<String, CrashableDB> areas = new HashMap<>();
+        for (String area : new String[]{BASE_AREA_NAME, areaA, areaB}) {
+            areas.put(area, new CrashableDB(engine, area));
+        }
+        return areas;
+    }
+
+    private Map<String, Map<ByteArrayWrapper, byte[]>> createAreaMap() {
+        Map<ByteArrayWrapper, byte[]> mapA = new HashMap<>();
+        mapA.put(new ByteArrayWrapper(new byte[]{1}), new byte[]{1});
+        Map<ByteArrayWrapper, byte[]> mapB = new HashMap<>();
+        mapB.put(new ByteArrayWrapper(new byte[]{2}), LevelDBCommitJournal.DELETED);
+        mapB.put(new ByteArrayWrapper(new byte[]{3}), new byte[0]);
+        Map<String, Map<ByteArrayWrapper, byte[]>> areaMap = new LinkedHashMap<>();
+        areaMap.put(areaA, mapA);
+        areaMap.put(areaB, mapB);
+        return areaMap;
+    }
+
+    /**
+     * 区分已同步和未同步写入的内存数据区域，同步写入时把当前数据全部视为已落盘
+     */
+    private static class CrashableDB implements InvocationHandler {
+
+        private final DB live;
+        private final DB durable;
+        private final DB db;
+
+        CrashableDB(MemoryEngine engine, String area) {
+            live = engine.open(new File(area), new Options());
+            durable = engine.open(new File(area + "-durable"), new Options());
+            db = (DB) Proxy.newProxyInstance(DB.class.getClassLoader(), new Class[]{DB.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = method.invoke(live, args);
+            if (args != null && args[args.length - 1] instanceof WriteOptions && ((WriteOptions) args[args.length - 1]).sync()) {
+                copy(live, durable);
+            }
+            return result;
+        }
+
+        /**
+         * @param keepUnsynced 未同步的写入是否已经被操作系统写到磁盘
+         */
+        void crash(boolean keepUnsynced) throws IOException {
+            if (keepUnsynced) {
+                copy(live, durable);
+            } else {
+                copy(durable, live);
+            }
+        }
+
+        private static void copy(DB from, DB to) throws IOException {
+            List<byte[]> keys = new ArrayList<>();
+            try (DBIterator iterator = to.iterator()) {
+                for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
+                    keys.add(iterator.peekNext().getKey());
+                }
+            }
+            for (byte[] key : keys) {
+                to.delete(key);
+            }
+            try (DBIterator iterator = from.iterator()) {
+                for (iterator.seekToFirst(); iterator.hasNext(); iterator.next()) {
+                    to.put(iterator.peekNext().getKey(), iterator.peekNext().getValue());
+                }
+            }
+        }
+    }
+}
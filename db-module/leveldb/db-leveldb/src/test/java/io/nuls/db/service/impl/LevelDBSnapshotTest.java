@@ -0,0 +1,113 @@
+/*
+ * *
+ *  * MIT License
+ *  *
+ *  * Copyright (c) 2017-2019 nuls.io
+ *  *
+ *  * Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  * of this software and associated documentation files (the "Software"), to deal
+ *  * in the Software without restriction, including without limitation the rights
+ *  * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  * copies of the Software, and to permit persons to whom the Software is
+ *  * furnished to do so, subject to the following conditions:
+ *  *
+ *  * The above copyright notice and this permission notice shall be included in all
+ *  * copies or substantial portions of the Software.
+ *  *
+ *  * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  * SOFTWARE.
+ *
+ */
+
+package io.nuls.db.service.impl;
+
+import io.nuls.db.service.CommitContext;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.DBSnapshot;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LevelDBSnapshotTest {
+
+    private static DBService dbService;
+
+    private static String areaA = "snapshot-a";
+    private static String areaB = "snapshot-b";
+
+    @BeforeClass
+    public static void init() {
+        dbService = new LevelDBServiceImpl();
+        dbService.destroyArea(areaA);
+        dbService.destroyArea(areaB);
+        dbService.createArea(areaA);
+        dbService.createArea(areaB);
+    }
+
+    @AfterClass
+    public static void destroy() {
+        dbService.destroyArea(areaA);
+        dbService.destroyArea(areaB);
+    }
+
+    @Test
+    public void consistentView() {
+        CommitContext context = dbService.beginCommitContext();
+        dbService.put(areaA, new byte[]{1}, new byte[]{1});
+        dbService.put(areaB, new byte[]{1}, new byte[]{1});
+        context.setHeight(100);
+        assertTrue(context.commit().isSuccess());
+
+        DBSnapshot snapshot = dbService.getSnapshot();
+        assertEquals(100, snapshot.getHeight());
+
+        context = dbService.beginCommitContext();
+        dbService.put(areaA, new byte[]{1}, new byte[]{2});
+        dbService.put(areaB, new byte[]{2}, new byte[]{2});
+        context.setHeight(101);
+        assertTrue(context.commit().isSuccess());
+
+        snapshot.bind();
+        try {
+            assertArrayEquals(new byte[]{1}, dbService.get(areaA, new byte[]{1}));
+            assertNull(dbService.get(areaB, new byte[]{2}));
+            assertEquals(1, dbService.entryList(areaB).size());
+        } finally {
+            snapshot.unbind();
+            snapshot.close();
+        }
+        assertArrayEquals(new byte[]{2}, dbService.get(areaA, new byte[]{1}));
+        assertEquals(2, dbService.entryList(areaB).size());
+
+        DBSnapshot latest = dbService.getSnapshot();
+        assertEquals(101, latest.getHeight());
+        latest.close();
+    }
+
+    @Test
+    public void shared() {
+        LevelDBSnapshot first = (LevelDBSnapshot) dbService.getSnapshot();
+        LevelDBSnapshot second = (LevelDBSnapshot) dbService.getSnapshot();
+        assertSame(first, second);
+        assertEquals(3, first.getRefCount());
+        first.close();
+        second.close();
+
+        // 有写入之后创建新的快照，旧快照只剩调用方的引用
+        LevelDBSnapshot held = (LevelDBSnapshot) dbService.getSnapshot();
+        dbService.put(areaA, new byte[]{9}, new byte[]{9});
+        LevelDBSnapshot third = (LevelDBSnapshot) dbService.getSnapshot();
+        assertNotSame(held, third);
+        assertEquals(1, held.getRefCount());
+        held.close();
+        assertEquals(0, held.getRefCount());
+        third.close();
+    }
+}
@@ -3,6 +3,8 @@ package io.nuls.ledger.task;
 import io.nuls.core.tools.calc.DoubleUtils;
 import io.nuls.core.tools.log.Log;
 import io.nuls.db.model.Entry;
+import io.nuls.db.service.DBService;
+import io.nuls.db.service.DBSnapshot;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.lite.annotation.Autowired;
@@ -16,6 +18,8 @@ public class TotalCoinTask implements Runnable {
     @Autowired
     private UtxoLedgerUtxoStorageService utxoLedgerUtxoStorageService;
 
+    private DBService dbService;
+
     @Override
     public void run() {
         try {
@@ -26,8 +30,17 @@ public class TotalCoinTask implements Runnable {
     }
 
     private void doStatistics() throws NulsException {
-        long height = NulsContext.getInstance().getBestHeight();
-        List<Entry<byte[], byte[]>> coinBytesList = getUtxoLedgerUtxoStorageService().getAllUtxoEntryBytes();
+        // 在快照上统计，锁定判断使用快照对应的高度，统计期间提交的区块不影响结果
+        DBSnapshot snapshot = getDbService().getSnapshot();
+        long height = snapshot.getHeight() >= 0 ? snapshot.getHeight() : NulsContext.getInstance().getBestHeight();
+        List<Entry<byte[], byte[]>> coinBytesList;
+        snapshot.bind();
+        try {
+            coinBytesList = getUtxoLedgerUtxoStorageService().getAllUtxoEntryBytes();
+        } finally {
+            snapshot.unbind();
+            snapshot.close();
+        }
         long totalNuls = 0;
         long lockedNuls = 0;
         Coin coin = new Coin();
@@ -49,4 +62,11 @@ public class TotalCoinTask implements Runnable {
         }
         return utxoLedgerUtxoStorageService;
     }
+
+    private DBService getDbService() {
+        if (dbService == null) {
+            dbService = NulsContext.getServiceBean(DBService.class);
+        }
+        return dbService;
+    }
 }
@@ -25,18 +25,20 @@
 
 package io.nuls.network.netty.broadcast;
 
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.constant.KernelErrorCode;
-import io.nuls.kernel.model.BaseNulsData;
+import io.nuls.network.constant.NetworkConstant;
 import io.nuls.network.constant.NetworkErrorCode;
 import io.nuls.network.constant.NetworkParam;
 import io.nuls.network.model.BroadcastResult;
 import io.nuls.network.model.Node;
 import io.nuls.network.model.NodeGroup;
 import io.nuls.network.netty.manager.NodeManager;
+import io.nuls.network.netty.message.MessageCompressor;
 import io.nuls.protocol.message.base.BaseMessage;
 import io.nuls.protocol.message.base.MessageHeader;
 
@@ -59,30 +61,36 @@ public class BroadcastHandler {
 
     private NodeManager nodeManager = NodeManager.getInstance();
 
+    private MessageCompressor messageCompressor = MessageCompressor.getInstance();
+
     public BroadcastResult broadcastToAllNode(BaseMessage msg, Node excludeNode, boolean asyn, int percent) {
-        Collection<Node> nodeList = NodeManager.getInstance().getAvailableNodes();
-        if (nodeList == null || nodeList.isEmpty()) {
+        int size = nodeManager.getHandshakeNodesCount();
+        if (size == 0) {
             Log.error("node list is null");
             return new BroadcastResult(false, NetworkErrorCode.NET_BROADCAST_NODE_EMPTY);
         }
-        return broadcastToList(nodeList, msg, excludeNode, asyn, percent);
+        return broadcastToList(nodeManager.sampleHandshakeNodes(getBroadcastCount(size, percent), excludeNode), msg, excludeNode, asyn);
     }
 
     public BroadcastResult broadcastToHalfNode(BaseMessage msg, Node excludeNode, boolean asyn) {
-        Collection<Node> nodes = nodeManager.getAvailableNodes();
-        if (nodes.isEmpty()) {
+        int size = nodeManager.getHandshakeNodesCount();
+        if (size == 0) {
             return new BroadcastResult(false, NetworkErrorCode.NET_BROADCAST_NODE_EMPTY);
         }
-        List<Node> nodeList = new ArrayList<>();
-        int i = 0;
-        for (Node node : nodes) {
-            i++;
-            if (i % 2 == 1) {
-                nodeList.add(node);
-            }
-        }
+        // 先取一半节点，再按50%广播，和原来先取奇数位节点再按百分比抽样的数量一致
+        int count = getBroadcastCount((size + 1) / 2, 50);
+        return broadcastToList(nodeManager.sampleHandshakeNodes(count, excludeNode), msg, excludeNode, asyn);
+    }
 
-        return broadcastToList(nodeList, msg, excludeNode, asyn, 50);
+    /**
+     * 根据百分比决定直接广播给多少个节点，节点数较少时全部广播，最少广播5个
+     */
+    private int getBroadcastCount(int size, int percent) {
+        int minCount = 5;
+        if (size <= minCount || percent >= 100) {
+            return size;
+        }
+        return Math.max(size * percent / 100, minCount);
     }
 
     public BroadcastResult broadcastToNode(BaseMessage msg, Node sendNode, boolean asyn) {
@@ -97,7 +105,7 @@ public class BroadcastHandler {
         if (group == null || group.size() == 0) {
             return new BroadcastResult(false, NetworkErrorCode.NET_BROADCAST_NODE_EMPTY);
         }
-        return broadcastToList(group.getNodes().values(), msg, null, asyn, 100);
+        return broadcastToList(group.getNodes().values(), msg, null, asyn);
     }
 
     public BroadcastResult broadcastToNodeGroup(BaseMessage msg, String groupName, Node excludeNode, boolean asyn) {
@@ -105,58 +113,30 @@ public class BroadcastHandler {
         if (group == null || group.size() == 0) {
             return new BroadcastResult(false, NetworkErrorCode.NET_BROADCAST_NODE_EMPTY);
         }
-        return broadcastToList(group.getNodes().values(), msg, excludeNode, asyn, 100);
+        return broadcastToList(group.getNodes().values(), msg, excludeNode, asyn);
     }
 
-    private BroadcastResult broadcastToList(Collection<Node> nodeList, BaseMessage message, Node excludeNode, boolean asyn, int percent) {
+    private BroadcastResult broadcastToList(Collection<Node> nodeList, BaseMessage message, Node excludeNode, boolean asyn) {
         BroadcastResult result = new BroadcastResult();
         try {
             int successCount = 0;
-            int minCount = 5;
-            //根据百分比决定直接广播给多少个节点
-            if (nodeList.size() > minCount && percent < 100) {
-                int needCount = nodeList.size() * percent / 100;
-                if (needCount < minCount) {
-                    needCount = minCount;
-                }
-                Set<Integer> set = new HashSet<>();
-                while (true) {
-                    Random rand = new Random();
-                    int ran = rand.nextInt(nodeList.size());
-                    set.add(ran);
-                    if (set.size() == needCount + 1) {
-                        break;
-                    }
-                }
-
-                int nodeListIndex = 0;
-                Collection<Node> nodeBroadcastList = new ArrayList<>();
+            // 消息只序列化一次，每个节点发送同一块池化缓冲区的duplicate
+            OutboundFrame frame = encode(message);
+            try {
                 for (Node node : nodeList) {
-                    if (set.contains(nodeListIndex)) {
-                        if (excludeNode != null && node.getId().equals(excludeNode.getId())) {
-                            nodeListIndex++;
-                            continue;
-                        }
-                        nodeBroadcastList.add(node);
-                        if (nodeBroadcastList.size() == needCount) {
-                            break;
-                        }
+                    if (excludeNode != null && node.getId().equals(excludeNode.getId())) {
+                        continue;
+                    }
+                    BroadcastResult br = send(frame, node, asyn, true);
+                    if (br.isSuccess()) {
+                        successCount++;
+                        result.getBroadcastNodes().add(node);
+                    } else if (br.getErrorCode().equals(NetworkErrorCode.NET_MESSAGE_ERROR)) {
+                        return br;
                     }
-                    nodeListIndex++;
-                }
-                nodeList = nodeBroadcastList;
-            }
-            for (Node node : nodeList) {
-                if (excludeNode != null && node.getId().equals(excludeNode.getId())) {
-                    continue;
-                }
-                BroadcastResult br = broadcastToNode(message, node, asyn);
-                if (br.isSuccess()) {
-                    successCount++;
-                    result.getBroadcastNodes().add(node);
-                } else if (br.getErrorCode().equals(NetworkErrorCode.NET_MESSAGE_ERROR)) {
-                    return br;
                 }
+            } finally {
+                frame.release();
             }
 
             if (successCount == 0) {
@@ -171,32 +151,56 @@ public class BroadcastHandler {
     }
 
     public BroadcastResult broadcastToANode(BaseMessage message, Node node, boolean asyn) {
+        OutboundFrame frame;
+        try {
+            frame = encode(message);
+        } catch (Exception e) {
+            Log.error(e);
+            return new BroadcastResult(false, NetworkErrorCode.NET_MESSAGE_ERROR);
+        }
+        try {
+            return send(frame, node, asyn, false);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * 把消息序列化到池化的直接内存中，调用方负责release
+     */
+    private OutboundFrame encode(BaseMessage message) throws IOException {
+        MessageHeader header = message.getHeader();
+        header.setMagicNumber(networkParam.getPacketMagic());
+
+        header.setLength(message.getMsgBodySize());
+
+        byte[] bytes = message.serialize();
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(bytes.length);
+        buf.writeBytes(bytes);
+        return new OutboundFrame(buf, messageCompressor.isCompressible(header));
+    }
+
+    /**
+     * @param skipCongested 为true时，写缓冲区超过高水位的节点直接跳过，用于广播；
+     *                      为false时交给netty排队发送，用于发给指定节点的请求和应答
+     */
+    private BroadcastResult send(OutboundFrame frame, Node node, boolean asyn, boolean skipCongested) {
         if (!node.isAlive()) {
             return new BroadcastResult(false, NetworkErrorCode.NET_NODE_DEAD);
         }
-        if (node.getChannel() == null || !node.getChannel().isActive()) {
+        Channel channel = node.getChannel();
+        if (channel == null || !channel.isActive()) {
             return new BroadcastResult(false, NetworkErrorCode.NET_NODE_MISS_CHANNEL);
         }
+        if (skipCongested && !channel.isWritable()) {
+            return new BroadcastResult(false, NetworkErrorCode.NET_NODE_CONGESTED);
+        }
         try {
-            MessageHeader header = message.getHeader();
-            header.setMagicNumber(networkParam.getPacketMagic());
-
-            BaseNulsData body = message.getMsgBody();
-            header.setLength(body.size());
-
-            if(asyn) {
-                node.getChannel().eventLoop().execute(() -> {
-                    try {
-                        Channel channel = node.getChannel();
-                        if (channel != null) {
-                            channel.writeAndFlush(Unpooled.wrappedBuffer(message.serialize()));
-                        }
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                });
+            ByteBuf buf = frame.forNode(node);
+            if (asyn) {
+                channel.writeAndFlush(buf.retainedDuplicate());
             } else {
-                ChannelFuture future = node.getChannel().writeAndFlush(Unpooled.wrappedBuffer(message.serialize()));
+                ChannelFuture future = channel.writeAndFlush(buf.retainedDuplicate());
                 future.await();
                 boolean success = future.isSuccess();
                 if (!success) {
@@ -209,4 +213,37 @@ public class BroadcastHandler {
         }
         return new BroadcastResult(true, KernelErrorCode.SUCCESS);
     }
+
+    /**
+     * 序列化后的消息，对支持压缩的节点发送压缩后的版本，压缩结果在多个节点间共用
+     */
+    class OutboundFrame {
+        private final ByteBuf raw;
+        private final boolean compressible;
+        private ByteBuf compressed;
+        private boolean compressTried;
+
+        OutboundFrame(ByteBuf raw, boolean compressible) {
+            this.raw = raw;
+            this.compressible = compressible;
+        }
+
+        ByteBuf forNode(Node node) {
+            if (!compressible || !node.hasService(NetworkConstant.NODE_SERVICE_COMPRESSION)) {
+                return raw;
+            }
+            if (!compressTried) {
+                compressTried = true;
+                compressed = messageCompressor.compress(raw);
+            }
+            return compressed == null ? raw : compressed;
+        }
+
+        void release() {
+            raw.release();
+            if (compressed != null) {
+                compressed.release();
+            }
+        }
+    }
 }
@@ -26,11 +26,11 @@
 package io.nuls.network.netty.conn;
 
 import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.PooledByteBufAllocator;
-import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
 import io.nuls.core.tools.log.Log;
+import io.nuls.network.constant.NetworkParam;
 import io.nuls.network.model.Node;
 import io.nuls.network.netty.conn.handler.ClientChannelHandler;
 import io.nuls.network.netty.conn.initializer.NulsChannelInitializer;
@@ -40,7 +40,7 @@ import static io.nuls.network.constant.NetworkConstant.CONNETCI_TIME_OUT;
 
 public class NettyClient {
 
-    public static EventLoopGroup worker = new NioEventLoopGroup();
+    public static EventLoopGroup worker = NettyTransport.newEventLoopGroup(NetworkParam.getInstance().getClientThreads(), "netty-client-worker");
 
     private Bootstrap boot;
 
@@ -52,16 +52,10 @@ public class NettyClient {
 
         boot.attr(NodeAttributeKey.NODE_KEY, node);
         boot.group(worker)
-                .channel(NioSocketChannel.class)
-//                .option(ChannelOption.SO_BACKLOG, 1024)
-                .option(ChannelOption.TCP_NODELAY, true)            //Send messages immediately
-                .option(ChannelOption.SO_KEEPALIVE, true)
-                .option(ChannelOption.SO_SNDBUF, 128 * 1024)
-                .option(ChannelOption.SO_RCVBUF, 128 * 1024)
-                .option(ChannelOption.RCVBUF_ALLOCATOR, AdaptiveRecvByteBufAllocator.DEFAULT)
-                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .channel(NettyTransport.socketChannelClass())
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNETCI_TIME_OUT)
                 .handler(new NulsChannelInitializer<>(new ClientChannelHandler()));
+        NettyTransport.clientOptions(boot);
     }
 
     public boolean start() {
@@ -26,15 +26,12 @@
 package io.nuls.network.netty.conn;
 
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.buffer.PooledByteBufAllocator;
-import io.netty.channel.AdaptiveRecvByteBufAllocator;
 import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.thread.manager.TaskManager;
 import io.nuls.network.constant.NetworkConstant;
+import io.nuls.network.constant.NetworkParam;
 import io.nuls.network.netty.conn.handler.ServerChannelHandler;
 import io.nuls.network.netty.conn.initializer.NulsChannelInitializer;
 
@@ -65,19 +62,16 @@ public class NettyServer implements Runnable {
     }
 
     public void init() {
-        boss = new NioEventLoopGroup();
-        worker = new NioEventLoopGroup();
+        NetworkParam networkParam = NetworkParam.getInstance();
+        boss = NettyTransport.newEventLoopGroup(networkParam.getBossThreads(), "netty-server-boss");
+        worker = NettyTransport.newEventLoopGroup(networkParam.getWorkerThreads(), "netty-server-worker");
         serverBootstrap = new ServerBootstrap();
         serverBootstrap.group(boss, worker)
-                .channel(NioServerSocketChannel.class)
-//                .childOption(ChannelOption.SO_BACKLOG, 2048)
-                .childOption(ChannelOption.TCP_NODELAY, true)            //Send messages immediately
-                .childOption(ChannelOption.SO_KEEPALIVE, true)
-                .childOption(ChannelOption.SO_SNDBUF, 128 * 1024)
-                .childOption(ChannelOption.SO_RCVBUF, 128 * 1024)
-                .option(ChannelOption.RCVBUF_ALLOCATOR, AdaptiveRecvByteBufAllocator.DEFAULT)
-                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .channel(NettyTransport.serverChannelClass())
                 .childHandler(new NulsChannelInitializer<>(new ServerChannelHandler()));
+        NettyTransport.serverOptions(serverBootstrap);
+        NettyTransport.childOptions(serverBootstrap);
+        Log.info("netty server transport: " + (NettyTransport.isEpoll() ? "epoll" : "nio"));
     }
 
     public void start() throws InterruptedException {
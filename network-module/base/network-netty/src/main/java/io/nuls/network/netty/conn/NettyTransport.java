@@ -0,0 +1,132 @@
+package io.nuls.network.netty.conn;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.network.constant.NetworkConstant;
+import io.nuls.network.constant.NetworkParam;
+
+/**
+ * 传输层的选择和通用的连接参数
+ * 配置为auto时，在linux上如果能加载netty的native epoll就使用epoll，否则使用nio；
+ * 服务端和客户端统一使用池化的ByteBuf分配器和相同的写缓冲区高低水位。
+ * <p>
+ * Transport selection and the socket options shared by the server and the client.
+ * With "auto" the native epoll transport is used when it can be loaded, otherwise nio.
+ */
+public final class NettyTransport {
+
+    private static final String TRANSPORT_EPOLL = "epoll";
+    private static final String TRANSPORT_NIO = "nio";
+
+    private static volatile Boolean epoll;
+
+    private NettyTransport() {
+    }
+
+    public static boolean isEpoll() {
+        if (epoll == null) {
+            synchronized (NettyTransport.class) {
+                if (epoll == null) {
+                    epoll = selectEpoll();
+                }
+            }
+        }
+        return epoll;
+    }
+
+    private static boolean selectEpoll() {
+        String transport = NetworkParam.getInstance().getTransport();
+        if (TRANSPORT_NIO.equalsIgnoreCase(transport)) {
+            return false;
+        }
+        boolean available = Epoll.isAvailable();
+        if (!available && TRANSPORT_EPOLL.equalsIgnoreCase(transport)) {
+            Log.warn("netty native epoll is unavailable, use nio instead", Epoll.unavailabilityCause());
+        }
+        return available;
+    }
+
+    public static EventLoopGroup newEventLoopGroup(int threads, String poolName) {
+        NulsThreadFactory threadFactory = new NulsThreadFactory(NetworkConstant.NETWORK_MODULE_ID, poolName);
+        if (isEpoll()) {
+            return new EpollEventLoopGroup(Math.max(threads, 0), threadFactory);
+        }
+        return new NioEventLoopGroup(Math.max(threads, 0), threadFactory);
+    }
+
+    public static Class<? extends ServerSocketChannel> serverChannelClass() {
+        return isEpoll() ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static Class<? extends SocketChannel> socketChannelClass() {
+        return isEpoll() ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    /**
+     * 服务端监听socket的参数，epoll下打开SO_REUSEPORT
+     */
+    public static void serverOptions(ServerBootstrap bootstrap) {
+        bootstrap.option(ChannelOption.SO_BACKLOG, 1024)
+                .option(ChannelOption.SO_REUSEADDR, true)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        if (isEpoll()) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+    }
+
+    /**
+     * 客户端连接的参数，和服务端的childOptions保持一致
+     */
+    public static void clientOptions(Bootstrap bootstrap) {
+        bootstrap.option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.SO_SNDBUF, 128 * 1024)
+                .option(ChannelOption.SO_RCVBUF, 128 * 1024)
+                .option(ChannelOption.RCVBUF_ALLOCATOR, AdaptiveRecvByteBufAllocator.DEFAULT)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark());
+    }
+
+    /**
+     * 服务端接受的每个连接的参数
+     */
+    public static void childOptions(ServerBootstrap bootstrap) {
+        bootstrap.childOption(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.SO_SNDBUF, 128 * 1024)
+                .childOption(ChannelOption.SO_RCVBUF, 128 * 1024)
+                .childOption(ChannelOption.RCVBUF_ALLOCATOR, AdaptiveRecvByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark());
+    }
+
+    private static WriteBufferWaterMark writeBufferWaterMark() {
+        NetworkParam param = NetworkParam.getInstance();
+        int high = param.getWriteBufferHighWaterMark();
+        int low = param.getWriteBufferLowWaterMark();
+        if (high <= 0) {
+            return WriteBufferWaterMark.DEFAULT;
+        }
+        if (low <= 0 || low > high) {
+            low = high / 2;
+        }
+        return new WriteBufferWaterMark(low, high);
+    }
+}
@@ -33,13 +33,13 @@ import io.netty.util.Attribute;
 import io.nuls.core.tools.log.Log;
 import io.nuls.network.model.Node;
 import io.nuls.network.netty.conn.NodeAttributeKey;
-import io.nuls.network.netty.message.MessageProcessor;
+import io.nuls.network.netty.message.InboundMessageDispatcher;
 
 import java.io.IOException;
 
 public class ClientChannelHandler extends SimpleChannelInboundHandler {
 
-    private MessageProcessor messageProcessor = MessageProcessor.getInstance();
+    private InboundMessageDispatcher inboundDispatcher = InboundMessageDispatcher.getInstance();
 
     public ClientChannelHandler() {
     }
@@ -59,6 +59,7 @@ public class ClientChannelHandler extends SimpleChannelInboundHandler {
     @Override
     public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
         super.channelUnregistered(ctx);
+        inboundDispatcher.remove(ctx.channel());
         Attribute<Node> nodeAttribute = ctx.channel().attr(NodeAttributeKey.NODE_KEY);
 
         Node node = nodeAttribute.get();
@@ -95,7 +96,7 @@ public class ClientChannelHandler extends SimpleChannelInboundHandler {
             Node node = nodeAttribute.get();
             ByteBuf buf = (ByteBuf) msg;
 
-            messageProcessor.processor(buf, node);
+            inboundDispatcher.receive(ctx.channel(), node, buf);
         } catch (Exception e) {
             Log.error("----------------exceptionCaught   111 ---------");
             throw e;
@@ -38,7 +38,7 @@ import io.nuls.core.tools.log.Log;
 import io.nuls.core.tools.network.IpUtil;
 import io.nuls.network.model.Node;
 import io.nuls.network.netty.manager.ConnectionManager;
-import io.nuls.network.netty.message.MessageProcessor;
+import io.nuls.network.netty.message.InboundMessageDispatcher;
 
 import java.io.IOException;
 
@@ -49,7 +49,7 @@ import java.io.IOException;
 @ChannelHandler.Sharable
 public class ServerChannelHandler extends SimpleChannelInboundHandler {
 
-    private MessageProcessor messageProcessor = MessageProcessor.getInstance();
+    private InboundMessageDispatcher inboundDispatcher = InboundMessageDispatcher.getInstance();
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
@@ -64,6 +64,7 @@ public class ServerChannelHandler extends SimpleChannelInboundHandler {
 
     /**
      * 继承SimpleChannelInboundHandler后，只需要重新channelRead0方法，msg会自动释放
+     * 这里只把帧数据交给入站分发器，解析和处理在工作线程上进行
      * @param ctx
      * @param msg
      * @throws Exception
@@ -77,13 +78,14 @@ public class ServerChannelHandler extends SimpleChannelInboundHandler {
         Node node = nodeAttribute.get();
         ByteBuf buf = (ByteBuf) msg;
 
-        messageProcessor.processor(buf, node);
+        inboundDispatcher.receive(channel, node, buf);
     }
 
     @Override
     public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
         super.channelUnregistered(ctx);
         SocketChannel channel = (SocketChannel) ctx.channel();
+        inboundDispatcher.remove(channel);
         String nodeId = IpUtil.getNodeId(channel.remoteAddress());
         Attribute<Node> nodeAttribute = channel.attr(AttributeKey.valueOf("node-" + nodeId));
 
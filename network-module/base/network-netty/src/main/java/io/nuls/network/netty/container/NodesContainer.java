@@ -32,10 +32,21 @@ import io.nuls.network.storage.po.NodeContainerPo;
 import io.nuls.network.storage.po.NodePo;
 
 import java.io.Serializable;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 节点容器，除了按状态分组的节点表，还维护几个索引，读取方不需要加锁：
+ * 可连接节点(status为CONNECTABLE)、已握手节点、按最新高度排序的已握手节点，已连接节点的数组快照，以及已握手节点的数组快照用于随机抽样广播目标。
+ * 已连接节点的增删需要通过addConnectedNode/removeConnectedNode，可连接节点的增删需要通过addCanConnectNode/removeCanConnectNode，
+ * 这样索引才能保持一致。
+ * <p>
+ * Node container. Besides the per-status maps it maintains indexes that readers use without locking:
+ * connectable nodes, handshaken nodes, handshaken nodes ordered by best height, an array snapshot of the connected
+ * nodes, and an array snapshot of the handshaken nodes for random sampling of broadcast targets.
+ */
 public class NodesContainer implements Serializable {
 
     private Map<String, Node> canConnectNodes = new ConcurrentHashMap<>();
@@ -44,6 +55,21 @@ public class NodesContainer implements Serializable {
     private Map<String, Node> failNodes = new ConcurrentHashMap<>();
     private Map<String, Node> uncheckNodes = new ConcurrentHashMap<>();
 
+    private final Map<String, Node> connectableNodes = new ConcurrentHashMap<>();
+    private final Map<String, Node> handshakeNodes = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<HeightKey, Node> heightIndex = new ConcurrentSkipListMap<>();
+    private final Map<String, HeightKey> heightKeys = new ConcurrentHashMap<>();
+
+    /**
+     * 已连接节点的快照，只在连接建立和断开时重建，广播时直接按下标抽样
+     */
+    private volatile ConnectedSnapshot connectedSnapshot = new ConnectedSnapshot(new Node[0]);
+
+    /**
+     * 已握手节点的快照，只在握手成功和断开时重建，广播时直接按下标抽样
+     */
+    private volatile Node[] handshakeSnapshot = new Node[0];
+
     public NodesContainer() {
 
     }
@@ -71,7 +97,7 @@ public class NodesContainer implements Serializable {
         if (containerPo.getCanConnectNodes() != null) {
             for (NodePo nodePo : containerPo.getCanConnectNodes()) {
                 node = NetworkTransferTool.toNode(nodePo);
-                canConnectNodes.put(node.getId(), node);
+                addCanConnectNode(node);
             }
         }
     }
@@ -85,12 +111,160 @@ public class NodesContainer implements Serializable {
             Node node = it.next();
             if (ip.equals(node.getIp())) {
                 node.setStatus(type);
+                indexConnectable(node);
                 return true;
             }
         }
         return false;
     }
 
+    public void addCanConnectNode(Node node) {
+        canConnectNodes.put(node.getId(), node);
+        indexConnectable(node);
+    }
+
+    public Node removeCanConnectNode(String nodeId) {
+        connectableNodes.remove(nodeId);
+        return canConnectNodes.remove(nodeId);
+    }
+
+    private void indexConnectable(Node node) {
+        if (node.getStatus() == NodeStatusEnum.CONNECTABLE && canConnectNodes.containsKey(node.getId())) {
+            connectableNodes.put(node.getId(), node);
+        } else {
+            connectableNodes.remove(node.getId());
+        }
+    }
+
+    /**
+     * 可连接节点中状态为CONNECTABLE的节点
+     */
+    public Collection<Node> getConnectableNodes() {
+        return connectableNodes.values();
+    }
+
+    public synchronized void addConnectedNode(Node node) {
+        connectedNodes.put(node.getId(), node);
+        rebuildConnectedSnapshot();
+    }
+
+    public synchronized Node removeConnectedNode(String nodeId) {
+        Node node = connectedNodes.remove(nodeId);
+        handshakeNodes.remove(nodeId);
+        HeightKey key = heightKeys.remove(nodeId);
+        if (key != null) {
+            heightIndex.remove(key);
+        }
+        rebuildConnectedSnapshot();
+        rebuildHandshakeSnapshot();
+        return node;
+    }
+
+    private void rebuildConnectedSnapshot() {
+        connectedSnapshot = new ConnectedSnapshot(connectedNodes.values().toArray(new Node[0]));
+    }
+
+    private void rebuildHandshakeSnapshot() {
+        handshakeSnapshot = handshakeNodes.values().toArray(new Node[0]);
+    }
+
+    /**
+     * 节点握手成功，加入握手索引和高度索引
+     * 和removeConnectedNode互斥，避免已断开的节点被加回索引
+     */
+    public synchronized void markHandshake(Node node) {
+        if (!connectedNodes.containsKey(node.getId())) {
+            return;
+        }
+        handshakeNodes.put(node.getId(), node);
+        rebuildHandshakeSnapshot();
+        updateBestHeight(node);
+    }
+
+    /**
+     * 节点的最新高度变化后重新放入高度索引
+     */
+    public void updateBestHeight(Node node) {
+        String nodeId = node.getId();
+        heightKeys.compute(nodeId, (id, oldKey) -> {
+            if (oldKey != null) {
+                heightIndex.remove(oldKey);
+            }
+            if (!handshakeNodes.containsKey(id)) {
+                return null;
+            }
+            HeightKey newKey = new HeightKey(node.getBestBlockHeight(), id);
+            heightIndex.put(newKey, node);
+            return newKey;
+        });
+    }
+
+    public Collection<Node> getHandshakeNodes() {
+        return handshakeNodes.values();
+    }
+
+    public int getHandshakeCount() {
+        return handshakeSnapshot.length;
+    }
+
+    /**
+     * 按最新高度从高到低返回已握手的节点
+     *
+     * @param count 最多返回的数量
+     */
+    public List<Node> getNodesByBestHeight(int count) {
+        List<Node> list = new ArrayList<>(Math.min(count, handshakeNodes.size()));
+        for (Node node : heightIndex.values()) {
+            if (list.size() >= count) {
+                break;
+            }
+            list.add(node);
+        }
+        return list;
+    }
+
+    /**
+     * 从已握手节点中随机抽取count个不重复的节点，时间复杂度O(count)
+     *
+     * @param excludeNode 不参与抽样的节点，可以为null
+     */
+    public List<Node> sampleHandshakeNodes(int count, Node excludeNode) {
+        Node[] nodes = handshakeSnapshot;
+        int size = nodes.length;
+        int excludeIndex = -1;
+        if (excludeNode != null) {
+            for (int i = 0; i < size; i++) {
+                if (nodes[i].getId().equals(excludeNode.getId())) {
+                    excludeIndex = i;
+                    break;
+                }
+            }
+        }
+        int available = excludeIndex < 0 ? size : size - 1;
+        if (count >= available) {
+            List<Node> list = new ArrayList<>(available);
+            for (int i = 0; i < size; i++) {
+                if (i != excludeIndex) {
+                    list.add(nodes[i]);
+                }
+            }
+            return list;
+        }
+        // Floyd抽样：在[0, available)中取count个不重复的下标，跳过被排除的下标
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Integer> selected = new HashSet<>(count * 2);
+        List<Node> list = new ArrayList<>(count);
+        for (int j = available - count; j < available; j++) {
+            int index = random.nextInt(j + 1);
+            if (!selected.add(index)) {
+                index = j;
+                selected.add(index);
+            }
+            list.add(nodes[excludeIndex >= 0 && index >= excludeIndex ? index + 1 : index]);
+        }
+        return list;
+    }
+
     public boolean addNeedCheckNode(Node newNode) {
 
         String nodeId = newNode.getId();
@@ -129,22 +303,12 @@ public class NodesContainer implements Serializable {
         }
 
         newNode.setLastProbeTime(0L);
-        uncheckNodes.put(nodeId, newNode);
         newNode.setStatus(NodeStatusEnum.UNCHECK);
-
-        return true;
+        return uncheckNodes.putIfAbsent(nodeId, newNode) == null;
     }
 
     public int getConnectedCount(int type) {
-        int size = 0;
-
-        for (Node node : connectedNodes.values()) {
-            if (node.getType() == type) {
-                size++;
-            }
-        }
-
-        return size;
+        return type == Node.IN ? connectedSnapshot.inCount : connectedSnapshot.nodes.length - connectedSnapshot.inCount;
     }
 
     public Node getNode(String nodeId) {
@@ -155,18 +319,10 @@ public class NodesContainer implements Serializable {
         return canConnectNodes;
     }
 
-    public void setCanConnectNodes(Map<String, Node> canConnectNodes) {
-        this.canConnectNodes = canConnectNodes;
-    }
-
     public Map<String, Node> getConnectedNodes() {
         return connectedNodes;
     }
 
-    public void setConnectedNodes(Map<String, Node> connectedNodes) {
-        this.connectedNodes = connectedNodes;
-    }
-
     public Map<String, Node> getDisconnectNodes() {
         return disconnectNodes;
     }
@@ -191,4 +347,55 @@ public class NodesContainer implements Serializable {
         this.uncheckNodes = uncheckNodes;
     }
 
+    private static class ConnectedSnapshot {
+        private final Node[] nodes;
+        private final int inCount;
+
+        ConnectedSnapshot(Node[] nodes) {
+            this.nodes = nodes;
+            int count = 0;
+            for (Node node : nodes) {
+                if (node.getType() == Node.IN) {
+                    count++;
+                }
+            }
+            this.inCount = count;
+        }
+    }
+
+    /**
+     * 高度索引的键，高度从高到低，相同高度按节点id排序
+     */
+    private static class HeightKey implements Comparable<HeightKey> {
+        private final long height;
+        private final String nodeId;
+
+        HeightKey(long height, String nodeId) {
+            this.height = height;
+            this.nodeId = nodeId;
+        }
+
+        @Override
+        public int compareTo(HeightKey o) {
+            int result = Long.compare(o.height, this.height);
+            return result != 0 ? result : this.nodeId.compareTo(o.nodeId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof HeightKey)) {
+                return false;
+            }
+            HeightKey key = (HeightKey) o;
+            return height == key.height && nodeId.equals(key.nodeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(height) + nodeId.hashCode();
+        }
+    }
 }
@@ -46,8 +46,6 @@ import io.nuls.network.storage.po.NodeContainerPo;
 import io.nuls.network.storage.service.NetworkStorageService;
 
 import java.util.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class NodeManager {
 
@@ -55,8 +53,6 @@ public class NodeManager {
 
     private static NodeManager instance = new NodeManager();
 
-    private Lock locker = new ReentrantLock();
-
     private NetworkParam networkParam;
 
     private NodesContainer nodesContainer;
@@ -85,7 +81,7 @@ public class NodeManager {
         List<Node> seedList = getSeedNodes();
         for (Node node : seedList) {
             node.setConnectStatus(NodeConnectStatusEnum.UNCONNECT);
-            nodesContainer.getCanConnectNodes().put(node.getId(), node);
+            nodesContainer.addCanConnectNode(node);
             nodesContainer.getUncheckNodes().remove(node.getId());
             nodesContainer.getDisconnectNodes().remove(node.getId());
             nodesContainer.getFailNodes().remove(node.getId());
@@ -114,15 +110,7 @@ public class NodeManager {
     }
 
     public Collection<Node> getCanConnectNodes() {
-        List<Node> nodeList = new ArrayList<>();
-
-        Collection<Node> allNodes = nodesContainer.getCanConnectNodes().values();
-        for (Node node : allNodes) {
-            if (node.getStatus() == NodeStatusEnum.CONNECTABLE) {
-                nodeList.add(node);
-            }
-        }
-        return nodeList;
+        return new ArrayList<>(nodesContainer.getConnectableNodes());
     }
 
     public Collection<Node> getAvailableNodes() {
@@ -133,6 +121,38 @@ public class NodeManager {
         return nodesContainer.getConnectedNodes().size();
     }
 
+    public int getHandshakeNodesCount() {
+        return nodesContainer.getHandshakeCount();
+    }
+
+    /**
+     * 随机抽取已握手的节点作为广播目标
+     */
+    public List<Node> sampleHandshakeNodes(int count, Node excludeNode) {
+        return nodesContainer.sampleHandshakeNodes(count, excludeNode);
+    }
+
+    /**
+     * 按最新高度从高到低返回已握手的节点
+     */
+    public List<Node> getNodesByBestHeight(int count) {
+        return nodesContainer.getNodesByBestHeight(count);
+    }
+
+    /**
+     * 节点握手成功
+     */
+    public void nodeHandshakeSuccess(Node node) {
+        nodesContainer.markHandshake(node);
+    }
+
+    /**
+     * 节点的最新高度更新
+     */
+    public void nodeBestHeightChanged(Node node) {
+        nodesContainer.updateBestHeight(node);
+    }
+
     public NodeGroup getNodeGroup(String groupName) {
         return groupContainer.getNodeGroup(groupName);
     }
@@ -151,7 +171,7 @@ public class NodeManager {
         if (node.getChannel() != null) {
             node.getChannel().close();
         } else {
-            nodesContainer.getConnectedNodes().remove(nodeId);
+            nodesContainer.removeConnectedNode(nodeId);
         }
     }
 
@@ -167,10 +187,9 @@ public class NodeManager {
     }
 
     public void nodeConnectSuccess(Node node) {
-        nodesContainer.getConnectedNodes().put(node.getId(), node);
-        nodesContainer.getCanConnectNodes().remove(node.getId());
-
         node.setConnectStatus(NodeConnectStatusEnum.CONNECTED);
+        nodesContainer.addConnectedNode(node);
+        nodesContainer.removeCanConnectNode(node.getId());
 
 //        Log.info("node {} connect success !", node.getId());
 
@@ -204,14 +223,14 @@ public class NodeManager {
             node.setConnectStatus(NodeConnectStatusEnum.DISCONNECT);
 
             nodesContainer.getDisconnectNodes().put(node.getId(), node);
-            nodesContainer.getConnectedNodes().remove(node.getId());
+            nodesContainer.removeConnectedNode(node.getId());
 
 //            Log.info("node {} disconnect !", node.getId());
         } else {
             // 如果是未连接成功，标记为连接失败，失败次数+1，记录当前失败时间，供下次尝试连接使用
             nodeConnectFail(node);
 
-            nodesContainer.getCanConnectNodes().remove(node.getId());
+            nodesContainer.removeCanConnectNode(node.getId());
             nodesContainer.getFailNodes().put(node.getId(), node);
         }
     }
@@ -226,13 +245,13 @@ public class NodeManager {
         node.setChannel(channel);
         cacheNode(node, channel);
 
-        nodesContainer.getConnectedNodes().put(node.getId(), node);
+        nodesContainer.addConnectedNode(node);
         nodesContainer.markCanuseNodeByIp(ip, NodeStatusEnum.AVAILABLE);
 
         //监听被动连接的断开
         node.setDisconnectListener(() -> {
 //            Log.info("------------in node disconnect:" + node.getId());
-            nodesContainer.getConnectedNodes().remove(node.getId());
+            nodesContainer.removeConnectedNode(node.getId());
             nodesContainer.markCanuseNodeByIp(ip, NodeStatusEnum.CONNECTABLE);
         });
 
@@ -241,12 +260,7 @@ public class NodeManager {
     }
 
     public boolean addNeedCheckNode(Node newNode) {
-        locker.lock();
-        try {
-            return nodesContainer.addNeedCheckNode(newNode);
-        } finally {
-            locker.unlock();
-        }
+        return nodesContainer.addNeedCheckNode(newNode);
     }
 
     public NodesContainer getNodesContainer() {
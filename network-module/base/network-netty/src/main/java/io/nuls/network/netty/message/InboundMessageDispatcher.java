@@ -0,0 +1,320 @@
+package io.nuls.network.netty.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.thread.manager.NulsThreadFactory;
+import io.nuls.kernel.thread.manager.TaskManager;
+import io.nuls.network.constant.NetworkConstant;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.message.base.BaseMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 入站消息的解码和分发
+ * IO线程上只把完整的帧复制出来放入该节点的入站队列，消息解析、过滤和分发由工作线程池完成，
+ * 同一个节点的队列同一时刻只有一个工作线程处理，保证消息顺序。
+ * 队列长度达到高水位时关闭该连接的autoRead，处理到低水位以下再打开，让处理慢的节点在TCP层面背压。
+ * <p>
+ * Decoding and dispatching of inbound messages.
+ * The IO thread only copies complete frames into the per-peer inbound queue; parsing, filtering and dispatching run on a
+ * worker pool, one worker per peer queue at a time so the message order is kept.
+ * When a queue reaches the high water mark autoRead is turned off for that connection and turned on again below the
+ * low water mark, so slow consumers apply back-pressure at the TCP level.
+ */
+public class InboundMessageDispatcher {
+
+    private static final InboundMessageDispatcher INSTANCE = new InboundMessageDispatcher();
+
+    /**
+     * 一次最多连续处理的帧数，处理完重新排队，避免一个节点长时间占用工作线程
+     */
+    private static final int DRAIN_BATCH = 32;
+
+    private final MessageProcessor messageProcessor = MessageProcessor.getInstance();
+
+    private final Map<Channel, PeerInbound> inboundMap = new ConcurrentHashMap<>();
+
+    private volatile ThreadPoolExecutor workerPool;
+
+    private int highWaterMark;
+
+    private int lowWaterMark;
+
+    private InboundMessageDispatcher() {
+    }
+
+    public static InboundMessageDispatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param threadCount   工作线程数
+     * @param highWaterMark 暂停读取的队列长度
+     * @param lowWaterMark  恢复读取的队列长度
+     */
+    public synchronized void start(int threadCount, int highWaterMark, int lowWaterMark) {
+        if (workerPool != null) {
+            return;
+        }
+        this.highWaterMark = Math.max(highWaterMark, 1);
+        this.lowWaterMark = Math.min(Math.max(lowWaterMark, 0), this.highWaterMark - 1);
+        this.workerPool = TaskManager.createThreadPool(threadCount, 0,
+                new NulsThreadFactory(NetworkConstant.NETWORK_MODULE_ID, "network-inbound"));
+    }
+
+    public synchronized void shutdown() {
+        if (workerPool == null) {
+            return;
+        }
+        workerPool.shutdown();
+        workerPool = null;
+        inboundMap.clear();
+    }
+
+    /**
+     * 在IO线程上调用，只复制帧数据并放入队列
+     * Called on the IO thread, only copies the frame and queues it
+     */
+    public void receive(Channel channel, Node node, ByteBuf buf) throws NulsException {
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        ThreadPoolExecutor pool = workerPool;
+        if (pool == null || node == null) {
+            messageProcessor.handlerMessage(messageProcessor.analysisMessage(bytes), node);
+            return;
+        }
+        PeerInbound inbound = inboundMap.get(channel);
+        if (inbound == null) {
+            inbound = inboundMap.computeIfAbsent(channel, c -> new PeerInbound(c, node));
+        }
+        int depth = inbound.offer(bytes);
+        if (depth >= highWaterMark && channel.config().isAutoRead()) {
+            channel.config().setAutoRead(false);
+            inbound.pausedCount.incrementAndGet();
+        }
+        inbound.schedule(pool);
+    }
+
+    /**
+     * 连接断开后丢弃未处理的帧
+     */
+    public void remove(Channel channel) {
+        PeerInbound inbound = inboundMap.remove(channel);
+        if (inbound != null) {
+            inbound.clear();
+        }
+    }
+
+    public List<InboundStats> getStats() {
+        List<InboundStats> list = new ArrayList<>(inboundMap.size());
+        for (PeerInbound inbound : inboundMap.values()) {
+            list.add(inbound.getStats());
+        }
+        return list;
+    }
+
+    private class PeerInbound implements Runnable {
+
+        private final Channel channel;
+        private final Node node;
+        private final Queue<byte[]> frames = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final AtomicLong pausedCount = new AtomicLong();
+        private volatile int maxDepth;
+        private volatile long decodedCount;
+        private volatile long decodeNanos;
+        private volatile long maxDecodeNanos;
+
+        PeerInbound(Channel channel, Node node) {
+            this.channel = channel;
+            this.node = node;
+        }
+
+        int offer(byte[] frame) {
+            frames.offer(frame);
+            int current = depth.incrementAndGet();
+            if (current > maxDepth) {
+                maxDepth = current;
+            }
+            return current;
+        }
+
+        void schedule(ThreadPoolExecutor pool) {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                pool.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+            }
+        }
+
+        void clear() {
+            frames.clear();
+            depth.set(0);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < DRAIN_BATCH; i++) {
+                    byte[] frame = frames.poll();
+                    if (frame == null) {
+                        break;
+                    }
+                    depth.decrementAndGet();
+                    if (!channel.isActive()) {
+                        clear();
+                        break;
+                    }
+                    if (!process(frame)) {
+                        clear();
+                        channel.close();
+                        break;
+                    }
+                }
+                if (depth.get() <= lowWaterMark && !channel.config().isAutoRead() && channel.isActive()) {
+                    channel.config().setAutoRead(true);
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            ThreadPoolExecutor pool = workerPool;
+            if (!frames.isEmpty() && pool != null) {
+                schedule(pool);
+            }
+        }
+
+        private boolean process(byte[] frame) {
+            List<BaseMessage> messageList;
+            long start = System.nanoTime();
+            try {
+                messageList = messageProcessor.analysisMessage(frame);
+            } catch (NulsException e) {
+                Log.error("----------------nodeId:" + node.getId());
+                Log.error(e);
+                return false;
+            }
+            long cost = System.nanoTime() - start;
+            decodedCount++;
+            decodeNanos += cost;
+            if (cost > maxDecodeNanos) {
+                maxDecodeNanos = cost;
+            }
+            try {
+                messageProcessor.handlerMessage(messageList, node);
+            } catch (Exception e) {
+                Log.error(e);
+            }
+            return true;
+        }
+
+        InboundStats getStats() {
+            InboundStats stats = new InboundStats();
+            stats.setNodeId(node.getId());
+            stats.setQueueDepth(depth.get());
+            stats.setMaxQueueDepth(maxDepth);
+            stats.setDecodedCount(decodedCount);
+            stats.setAvgDecodeMicros(decodedCount == 0 ? 0 : decodeNanos / decodedCount / 1000);
+            stats.setMaxDecodeMicros(maxDecodeNanos / 1000);
+            stats.setPausedCount(pausedCount.get());
+            stats.setAutoRead(channel.config().isAutoRead());
+            return stats;
+        }
+    }
+
+    /**
+     * 单个节点的入站队列统计
+     * Inbound queue statistics of one peer
+     */
+    public static class InboundStats {
+        private String nodeId;
+        private int queueDepth;
+        private int maxQueueDepth;
+        private long decodedCount;
+        private long avgDecodeMicros;
+        private long maxDecodeMicros;
+        private long pausedCount;
+        private boolean autoRead;
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public void setQueueDepth(int queueDepth) {
+            this.queueDepth = queueDepth;
+        }
+
+        public int getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+
+        public void setMaxQueueDepth(int maxQueueDepth) {
+            this.maxQueueDepth = maxQueueDepth;
+        }
+
+        public long getDecodedCount() {
+            return decodedCount;
+        }
+
+        public void setDecodedCount(long decodedCount) {
+            this.decodedCount = decodedCount;
+        }
+
+        public long getAvgDecodeMicros() {
+            return avgDecodeMicros;
+        }
+
+        public void setAvgDecodeMicros(long avgDecodeMicros) {
+            this.avgDecodeMicros = avgDecodeMicros;
+        }
+
+        public long getMaxDecodeMicros() {
+            return maxDecodeMicros;
+        }
+
+        public void setMaxDecodeMicros(long maxDecodeMicros) {
+            this.maxDecodeMicros = maxDecodeMicros;
+        }
+
+        public long getPausedCount() {
+            return pausedCount;
+        }
+
+        public void setPausedCount(long pausedCount) {
+            this.pausedCount = pausedCount;
+        }
+
+        public boolean isAutoRead() {
+            return autoRead;
+        }
+
+        public void setAutoRead(boolean autoRead) {
+            this.autoRead = autoRead;
+        }
+    }
+}
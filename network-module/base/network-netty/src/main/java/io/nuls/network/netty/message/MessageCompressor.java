@@ -0,0 +1,299 @@
+package io.nuls.network.netty.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.Snappy;
+import io.nuls.kernel.constant.KernelErrorCode;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.protocol.message.base.MessageHeader;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.nuls.network.constant.NetworkConstant.MAX_FRAME_LENGTH;
+
+/**
+ * 按消息类型压缩消息体
+ * 区块、交易组等消息在同步时占了绝大部分流量，序列化后的交易重复内容很多，
+ * 对配置的消息类型在消息体超过阈值时使用snappy压缩，消息头的长度改为压缩后的长度并在加密算法标识字节上打标记。
+ * 校验位仍然是原始消息体的校验位，接收方解压后还原消息头再按原来的流程解析。
+ * <p>
+ * Compresses message bodies of the configured types with snappy once they exceed the threshold.
+ * The header length becomes the compressed length and the arithmetic byte carries the flag; the xor still covers the
+ * raw body, so the receiver restores the original header after decompression and parses as before.
+ */
+public class MessageCompressor {
+
+    private static final MessageCompressor INSTANCE = new MessageCompressor();
+
+    /**
+     * magicNumber(4) + length(4) + xor(1) + arithmetic(1) + moduleId(2) + msgType(2)
+     */
+    static final int HEADER_SIZE = 14;
+    private static final int LENGTH_OFFSET = 4;
+    private static final int ARITHMETIC_OFFSET = 9;
+
+    /**
+     * netty的snappy实现用short记录哈希表中的位置，单次压缩的输入不能超过32K，所以消息体按块压缩：
+     * 原始长度(4) + 多个[块压缩后长度(4) + snappy块]
+     */
+    private static final int CHUNK_SIZE = 32 * 1024 - 1;
+
+    private volatile boolean enabled;
+    private volatile int threshold;
+    private volatile Set<Integer> types = new HashSet<>();
+
+    private final AtomicLong compressedCount = new AtomicLong();
+    private final AtomicLong compressRawBytes = new AtomicLong();
+    private final AtomicLong compressWireBytes = new AtomicLong();
+    private final AtomicLong compressNanos = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong decompressedCount = new AtomicLong();
+    private final AtomicLong decompressRawBytes = new AtomicLong();
+    private final AtomicLong decompressWireBytes = new AtomicLong();
+    private final AtomicLong decompressNanos = new AtomicLong();
+
+    private MessageCompressor() {
+    }
+
+    public static MessageCompressor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param enabled   是否压缩发出的消息，接收方向总是支持解压
+     * @param threshold 消息体达到该长度才压缩
+     * @param typeList  需要压缩的消息类型，格式为 moduleId:msgType
+     */
+    public void init(boolean enabled, int threshold, Collection<String> typeList) {
+        Set<Integer> set = new HashSet<>();
+        for (String type : typeList) {
+            String[] array = type.trim().split(":");
+            if (array.length != 2) {
+                continue;
+            }
+            set.add(typeKey(Short.parseShort(array[0].trim()), Short.parseShort(array[1].trim())));
+        }
+        this.types = set;
+        this.threshold = threshold;
+        this.enabled = enabled && !set.isEmpty();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isCompressible(MessageHeader header) {
+        return enabled && header.getLength() >= threshold && types.contains(typeKey(header.getModuleId(), header.getMsgType()));
+    }
+
+    /**
+     * 压缩一个完整的消息帧，压缩后没有明显变小时返回null，调用方继续发送原始帧
+     * Compresses a complete frame, returns null when the result is not clearly smaller
+     *
+     * @param frame 消息头 + 原始消息体，读指针不变
+     * @return 池化的新缓冲区，调用方负责release
+     */
+    public ByteBuf compress(ByteBuf frame) {
+        long start = System.nanoTime();
+        int index = frame.readerIndex();
+        int bodyLength = frame.readableBytes() - HEADER_SIZE;
+        ByteBuf out = PooledByteBufAllocator.DEFAULT.directBuffer(HEADER_SIZE + bodyLength);
+        boolean success = false;
+        try {
+            out.writeBytes(frame, index, HEADER_SIZE);
+            out.writeIntLE(bodyLength);
+            Snappy snappy = new Snappy();
+            for (int offset = 0; offset < bodyLength; offset += CHUNK_SIZE) {
+                int chunkLength = Math.min(CHUNK_SIZE, bodyLength - offset);
+                int lengthIndex = out.writerIndex();
+                out.writeIntLE(0);
+                snappy.encode(frame.slice(index + HEADER_SIZE + offset, chunkLength), out, chunkLength);
+                out.setIntLE(lengthIndex, out.writerIndex() - lengthIndex - 4);
+                snappy.reset();
+            }
+            int compressedLength = out.writerIndex() - HEADER_SIZE;
+            if (compressedLength >= bodyLength - (bodyLength >> 3)) {
+                skippedCount.incrementAndGet();
+                return null;
+            }
+            out.setIntLE(LENGTH_OFFSET, compressedLength);
+            out.setByte(ARITHMETIC_OFFSET, out.getByte(ARITHMETIC_OFFSET) | MessageHeader.ARITHMETIC_SNAPPY);
+            compressedCount.incrementAndGet();
+            compressRawBytes.addAndGet(bodyLength);
+            compressWireBytes.addAndGet(compressedLength);
+            success = true;
+            return out;
+        } finally {
+            if (!success) {
+                out.release();
+            }
+            compressNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 解压bytes中从offset开始的一条压缩消息，返回还原后的消息头和消息体
+     * Decompresses one compressed message starting at offset, returns the restored header and raw body
+     */
+    public byte[] decompress(byte[] bytes, int offset, int compressedLength) throws NulsException {
+        long start = System.nanoTime();
+        int bodyOffset = offset + HEADER_SIZE;
+        if (compressedLength < 4 || bodyOffset + compressedLength > bytes.length) {
+            throw new NulsException(KernelErrorCode.DATA_ERROR);
+        }
+        ByteBuf in = Unpooled.wrappedBuffer(bytes, bodyOffset, compressedLength);
+        int rawLength = in.readIntLE();
+        if (rawLength < 0 || rawLength > MAX_FRAME_LENGTH) {
+            throw new NulsException(KernelErrorCode.DATA_ERROR);
+        }
+        byte[] result = new byte[HEADER_SIZE + rawLength];
+        System.arraycopy(bytes, offset, result, 0, HEADER_SIZE);
+        // 目标是定长数组，声明的长度和实际解压结果不一致时直接失败
+        ByteBuf out = Unpooled.wrappedBuffer(result).writerIndex(HEADER_SIZE);
+        try {
+            Snappy snappy = new Snappy();
+            while (in.isReadable()) {
+                int chunkLength = in.readIntLE();
+                if (chunkLength <= 0 || chunkLength > in.readableBytes()) {
+                    throw new NulsException(KernelErrorCode.DATA_ERROR);
+                }
+                snappy.decode(in.readSlice(chunkLength), out);
+                snappy.reset();
+            }
+        } catch (NulsException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new NulsException(KernelErrorCode.DATA_ERROR, e);
+        }
+        if (out.writerIndex() != result.length) {
+            throw new NulsException(KernelErrorCode.DATA_ERROR);
+        }
+        out.setIntLE(LENGTH_OFFSET, rawLength);
+        out.setByte(ARITHMETIC_OFFSET, result[ARITHMETIC_OFFSET] & ~MessageHeader.ARITHMETIC_SNAPPY);
+        decompressedCount.incrementAndGet();
+        decompressRawBytes.addAndGet(rawLength);
+        decompressWireBytes.addAndGet(compressedLength);
+        decompressNanos.addAndGet(System.nanoTime() - start);
+        return result;
+    }
+
+    private static int typeKey(short moduleId, short msgType) {
+        return (moduleId << 16) | (msgType & 0xffff);
+    }
+
+    public CompressStats getStats() {
+        CompressStats stats = new CompressStats();
+        stats.setEnabled(enabled);
+        stats.setCompressedCount(compressedCount.get());
+        stats.setCompressRawBytes(compressRawBytes.get());
+        stats.setCompressWireBytes(compressWireBytes.get());
+        stats.setCompressMicros(compressNanos.get() / 1000);
+        stats.setSkippedCount(skippedCount.get());
+        stats.setDecompressedCount(decompressedCount.get());
+        stats.setDecompressRawBytes(decompressRawBytes.get());
+        stats.setDecompressWireBytes(decompressWireBytes.get());
+        stats.setDecompressMicros(decompressNanos.get() / 1000);
+        return stats;
+    }
+
+    /**
+     * 压缩的累计统计，字节数都只计算消息体
+     * Cumulative compression statistics, byte counts cover message bodies only
+     */
+    public static class CompressStats {
+        private boolean enabled;
+        private long compressedCount;
+        private long compressRawBytes;
+        private long compressWireBytes;
+        private long compressMicros;
+        private long skippedCount;
+        private long decompressedCount;
+        private long decompressRawBytes;
+        private long decompressWireBytes;
+        private long decompressMicros;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getCompressedCount() {
+            return compressedCount;
+        }
+
+        public void setCompressedCount(long compressedCount) {
+            this.compressedCount = compressedCount;
+        }
+
+        public long getCompressRawBytes() {
+            return compressRawBytes;
+        }
+
+        public void setCompressRawBytes(long compressRawBytes) {
+            this.compressRawBytes = compressRawBytes;
+        }
+
+        public long getCompressWireBytes() {
+            return compressWireBytes;
+        }
+
+        public void setCompressWireBytes(long compressWireBytes) {
+            this.compressWireBytes = compressWireBytes;
+        }
+
+        public long getCompressMicros() {
+            return compressMicros;
+        }
+
+        public void setCompressMicros(long compressMicros) {
+            this.compressMicros = compressMicros;
+        }
+
+        public long getSkippedCount() {
+            return skippedCount;
+        }
+
+        public void setSkippedCount(long skippedCount) {
+            this.skippedCount = skippedCount;
+        }
+
+        public long getDecompressedCount() {
+            return decompressedCount;
+        }
+
+        public void setDecompressedCount(long decompressedCount) {
+            this.decompressedCount = decompressedCount;
+        }
+
+        public long getDecompressRawBytes() {
+            return decompressRawBytes;
+        }
+
+        public void setDecompressRawBytes(long decompressRawBytes) {
+            this.decompressRawBytes = decompressRawBytes;
+        }
+
+        public long getDecompressWireBytes() {
+            return decompressWireBytes;
+        }
+
+        public void setDecompressWireBytes(long decompressWireBytes) {
+            this.decompressWireBytes = decompressWireBytes;
+        }
+
+        public long getDecompressMicros() {
+            return decompressMicros;
+        }
+
+        public void setDecompressMicros(long decompressMicros) {
+            this.decompressMicros = decompressMicros;
+        }
+    }
+}
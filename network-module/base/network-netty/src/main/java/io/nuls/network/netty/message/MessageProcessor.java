@@ -21,6 +21,7 @@ public class MessageProcessor {
 
     private MessageBusService messageBusService;
     private NetworkMessageHandlerPool networkMessageHandlerPool = new NetworkMessageHandlerPool();
+    private MessageCompressor messageCompressor = MessageCompressor.getInstance();
 
     private MessageProcessor() {
     }
@@ -35,29 +36,42 @@ public class MessageProcessor {
     }
 
     private List<BaseMessage> analysisMessage(ByteBuf buffer) throws NulsException {
-        List<BaseMessage> messageList;
         try {
-            messageList = new ArrayList<>();
             byte[] bytes = new byte[buffer.readableBytes()];
             buffer.readBytes(bytes);
+            return analysisMessage(bytes);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    List<BaseMessage> analysisMessage(byte[] bytes) throws NulsException {
+        List<BaseMessage> messageList;
+        try {
+            messageList = new ArrayList<>();
             NulsByteBuffer byteBuffer = new NulsByteBuffer(bytes);
             while (!byteBuffer.isFinished()) {
                 MessageHeader header = byteBuffer.readNulsData(new MessageHeader());
-                byteBuffer.setCursor(byteBuffer.getCursor() - header.size());
                 BaseMessage message = getMessageBusService().getMessageInstance(header.getModuleId(), header.getMsgType()).getData();
-                message = byteBuffer.readNulsData(message);
+                if (header.isCompressed()) {
+                    int offset = byteBuffer.getCursor() - header.size();
+                    byte[] raw = messageCompressor.decompress(bytes, offset, header.getLength());
+                    byteBuffer.setCursor(byteBuffer.getCursor() + header.getLength());
+                    message = new NulsByteBuffer(raw).readNulsData(message);
+                } else {
+                    byteBuffer.setCursor(byteBuffer.getCursor() - header.size());
+                    message = byteBuffer.readNulsData(message);
+                }
                 messageList.add(message);
             }
 
         } catch (Exception e) {
             throw new NulsException(KernelErrorCode.DATA_ERROR, e);
-        } finally {
-            buffer.clear();
         }
         return messageList;
     }
 
-    private void handlerMessage(List<BaseMessage> messageList, Node node) {
+    void handlerMessage(List<BaseMessage> messageList, Node node) {
         for (BaseMessage message : messageList) {
             if (MessageFilterChain.getInstance().doFilter(message)) {
                 MessageHeader header = message.getHeader();
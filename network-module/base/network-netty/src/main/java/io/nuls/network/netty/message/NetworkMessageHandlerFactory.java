@@ -52,6 +52,7 @@ public class NetworkMessageHandlerFactory {
         handlerMap.put(GetNodesIpMessage.class.getName(), GetNodesIpMessageHandler.getInstance());
         handlerMap.put(NodesIpMessage.class.getName(), NodesIpMessageHandler.getInstance());
         handlerMap.put(P2PNodeMessage.class.getName(), P2pNodeMessageHandler.getInstance());
+        handlerMap.put(ServicesMessage.class.getName(), ServicesMessageHandler.getInstance());
     }
 
     public BaseNetworkMeesageHandler getHandler(BaseMessage message) {
@@ -65,10 +65,12 @@ public class GetVersionMessageHandler implements BaseNetworkMeesageHandler {
         }
         node.setBestBlockHeight(body.getBestBlockHeight());
         node.setBestBlockHash(body.getBestBlockHash());
+        nodeManager.nodeBestHeightChanged(node);
+        ServicesMessageHandler.getInstance().versionReceived(message, node);
 
         NetworkMessageBody myVersionBody = new NetworkMessageBody(NetworkConstant.HANDSHAKE_CLIENT_TYPE, networkParam.getPort(),
                 NulsContext.getInstance().getBestHeight(), NulsContext.getInstance().getBestBlock().getHeader().getHash());
-        return new NetworkEventResult(true, new VersionMessage(myVersionBody));
+        return new NetworkEventResult(true, ServicesMessageHandler.advertise(new VersionMessage(myVersionBody)));
     }
 
 }
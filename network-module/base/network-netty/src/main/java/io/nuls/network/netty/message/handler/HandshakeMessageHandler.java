@@ -29,6 +29,7 @@ import io.nuls.core.tools.log.Log;
 import io.nuls.network.model.NetworkEventResult;
 import io.nuls.network.model.Node;
 import io.nuls.network.model.NodeConnectStatusEnum;
+import io.nuls.network.netty.manager.NodeManager;
 import io.nuls.network.protocol.handler.BaseNetworkMeesageHandler;
 import io.nuls.network.protocol.message.HandshakeMessage;
 import io.nuls.network.protocol.message.NetworkMessageBody;
@@ -59,6 +60,7 @@ public class HandshakeMessageHandler implements BaseNetworkMeesageHandler {
         node.setExternalIp(body.getNodeIp());
         node.setRemoteVersion(body.getVersion());
         node.setConnectStatus(NodeConnectStatusEnum.AVAILABLE);
+        NodeManager.getInstance().nodeHandshakeSuccess(node);
 
         return null;
     }
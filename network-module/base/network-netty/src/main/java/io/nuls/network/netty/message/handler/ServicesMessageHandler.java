@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.network.netty.message.handler;
+
+import io.nuls.network.constant.NetworkParam;
+import io.nuls.network.model.NetworkEventResult;
+import io.nuls.network.model.Node;
+import io.nuls.network.netty.broadcast.BroadcastHandler;
+import io.nuls.network.protocol.handler.BaseNetworkMeesageHandler;
+import io.nuls.network.protocol.message.ServicesBody;
+import io.nuls.network.protocol.message.ServicesMessage;
+import io.nuls.protocol.message.base.BaseMessage;
+import io.nuls.protocol.message.base.MessageHeader;
+
+/**
+ * 服务协商：本节点发出的版本消息在消息头中声明支持服务消息，收到带该声明的版本消息后向对方发送一次本节点的服务。
+ * 旧版本节点不读取该声明，也就不会收到它无法识别的服务消息。
+ * Services negotiation: outgoing version messages flag support for the services message in their header, and the local
+ * services are sent once to every peer whose version message carries the flag. Older nodes never read the flag, so they
+ * never receive a message type they cannot parse.
+ */
+public class ServicesMessageHandler implements BaseNetworkMeesageHandler {
+
+    private static ServicesMessageHandler instance = new ServicesMessageHandler();
+
+    private ServicesMessageHandler() {
+
+    }
+
+    public static ServicesMessageHandler getInstance() {
+        return instance;
+    }
+
+    private BroadcastHandler broadcastHandler = BroadcastHandler.getInstance();
+
+    /**
+     * 在版本消息头中声明本节点支持服务消息
+     */
+    public static <T extends BaseMessage> T advertise(T message) {
+        MessageHeader header = message.getHeader();
+        header.setArithmetic((byte) (header.getArithmetic() | MessageHeader.ARITHMETIC_SERVICES));
+        return message;
+    }
+
+    /**
+     * 对方的版本消息声明了支持服务消息时，向对方发送本节点的服务
+     */
+    public void versionReceived(BaseMessage message, Node node) {
+        if (!message.getHeader().isServicesSupported() || node.isServicesSent()) {
+            return;
+        }
+        node.setServicesSent(true);
+        broadcastHandler.broadcastToNode(createMessage(), node, true);
+    }
+
+    public ServicesMessage createMessage() {
+        return new ServicesMessage(new ServicesBody(NetworkParam.getInstance().getLocalServices()));
+    }
+
+    @Override
+    public NetworkEventResult process(BaseMessage message, Node node) {
+        ServicesMessage servicesMessage = (ServicesMessage) message;
+        node.setServices(servicesMessage.getMsgBody().getServices());
+        return null;
+    }
+}
@@ -62,6 +62,8 @@ public class VersionMessageHandler implements BaseNetworkMeesageHandler {
         node.setBestBlockHeight(body.getBestBlockHeight());
         node.setBestBlockHash(body.getBestBlockHash());
         node.setTimeOffset((TimeService.currentTimeMillis() - node.getLastTime()) / 2);
+        nodeManager.nodeBestHeightChanged(node);
+        ServicesMessageHandler.getInstance().versionReceived(message, node);
         return null;
     }
 }
@@ -36,6 +36,8 @@ import io.nuls.network.constant.NetworkParam;
 import io.nuls.network.module.AbstractNetworkModule;
 import io.nuls.network.netty.conn.NettyServer;
 import io.nuls.network.netty.manager.NodeManager;
+import io.nuls.network.netty.message.InboundMessageDispatcher;
+import io.nuls.network.netty.message.MessageCompressor;
 import io.nuls.network.netty.message.NetworkMessageHandlerPool;
 import io.nuls.network.netty.message.filter.MessageFilterChain;
 import io.nuls.network.netty.message.filter.impl.MagicNumberFilter;
@@ -45,6 +47,7 @@ import io.nuls.network.protocol.message.*;
 import io.nuls.protocol.constant.ProtocolConstant;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -73,6 +76,12 @@ public class NettyNetworkModuleBootstrap extends AbstractNetworkModule {
 
         nodeManager.loadDatas();
 
+        // 入站消息的解析和处理放到独立的线程池，不占用netty的IO线程
+        int inboundThreads = NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_INBOUND_THREADS, Runtime.getRuntime().availableProcessors());
+        int inboundHigh = NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_INBOUND_QUEUE_HIGH, 256);
+        int inboundLow = NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_INBOUND_QUEUE_LOW, 64);
+        InboundMessageDispatcher.getInstance().start(inboundThreads, inboundHigh, inboundLow);
+
         nettyServer = new NettyServer(networkParam.getPort());
         nettyServer.startAsSync();
 
@@ -98,6 +107,7 @@ public class NettyNetworkModuleBootstrap extends AbstractNetworkModule {
 
         executorService.shutdown();
         nettyServer.shutdown();
+        InboundMessageDispatcher.getInstance().shutdown();
     }
 
     @Override
@@ -117,6 +127,25 @@ public class NettyNetworkModuleBootstrap extends AbstractNetworkModule {
         networkParam.setMaxInCount(NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_NODE_MAX_IN, 100));
         networkParam.setMaxOutCount(NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_NODE_MAX_OUT, 20));
         networkParam.setLocalIps(IpUtil.getIps());
+        boolean compactBlock = NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_COMPACT_BLOCK, true);
+        boolean compress = NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_COMPRESS, true);
+        long services = compactBlock ? NetworkConstant.NODE_SERVICE_COMPACT_BLOCK : 0L;
+        // 接收方向总是可以解压，所以总是声明压缩服务，配置只决定本节点是否压缩发出的消息
+        services |= NetworkConstant.NODE_SERVICE_COMPRESSION;
+        networkParam.setLocalServices(services);
+        int compressThreshold = NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_COMPRESS_THRESHOLD, 1024);
+        String compressTypes = NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_COMPRESS_TYPES,
+                ProtocolConstant.MODULE_ID_PROTOCOL + ":" + ProtocolConstant.PROTOCOL_BLOCK + ","
+                        + ProtocolConstant.MODULE_ID_PROTOCOL + ":" + ProtocolConstant.PROTOCOL_TX_GROUP + ","
+                        + ProtocolConstant.MODULE_ID_PROTOCOL + ":" + ProtocolConstant.PROTOCOL_BLOCKS_HASH + ","
+                        + ProtocolConstant.MODULE_ID_PROTOCOL + ":" + ProtocolConstant.PROTOCOL_BLOCK_TXN);
+        MessageCompressor.getInstance().init(compress, compressThreshold, Arrays.asList(compressTypes.split(",")));
+        networkParam.setTransport(NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_TRANSPORT, "auto"));
+        networkParam.setBossThreads(NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_BOSS_THREADS, 1));
+        networkParam.setWorkerThreads(NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_WORKER_THREADS, 0));
+        networkParam.setClientThreads(NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_CLIENT_THREADS, 0));
+        networkParam.setWriteBufferHighWaterMark(NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_WRITE_BUFFER_HIGH, 1024 * 1024));
+        networkParam.setWriteBufferLowWaterMark(NulsConfig.MODULES_CONFIG.getCfgValue(NETWORK_SECTION, NETWORK_WRITE_BUFFER_LOW, 256 * 1024));
         String seedIp = NulsConfig.MODULES_CONFIG.getCfgValue(NetworkConstant.NETWORK_SECTION, NetworkConstant.NETWORK_SEED_IP, "47.254.71.213:8016,47.90.204.15:8016,47.254.152.83:8016,149.129.130.203:8016,211.149.191.152:8016,122.114.0.96:8016");
         List<String> ipList = new ArrayList<>();
         for (String ip : seedIp.split(",")) {
@@ -136,6 +165,7 @@ public class NettyNetworkModuleBootstrap extends AbstractNetworkModule {
         MessageManager.putMessage(GetNodesIpMessage.class);
         MessageManager.putMessage(NodesIpMessage.class);
         MessageManager.putMessage(P2PNodeMessage.class);
+        MessageManager.putMessage(ServicesMessage.class);
     }
 
     private void initNodes() {
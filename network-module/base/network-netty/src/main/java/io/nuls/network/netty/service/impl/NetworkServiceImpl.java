@@ -75,6 +75,11 @@ public class NetworkServiceImpl implements NetworkService {
         return new ArrayList<>(nodeManager.getCanConnectNodes());
     }
 
+    @Override
+    public List<Node> getNodesByBestHeight(int count) {
+        return nodeManager.getNodesByBestHeight(count);
+    }
+
     @Override
     public NodeGroup getNodeGroup(String groupName) {
         return nodeManager.getNodeGroup(groupName);
@@ -34,6 +34,7 @@ import io.nuls.network.model.NodeConnectStatusEnum;
 import io.nuls.network.model.NodeStatusEnum;
 import io.nuls.network.netty.broadcast.BroadcastHandler;
 import io.nuls.network.netty.manager.NodeManager;
+import io.nuls.network.netty.message.handler.ServicesMessageHandler;
 import io.nuls.network.protocol.message.GetVersionMessage;
 import io.nuls.network.protocol.message.NetworkMessageBody;
 
@@ -73,7 +74,7 @@ public class GetNodeVersionTask implements Runnable {
 
         NetworkMessageBody body = new NetworkMessageBody(NetworkConstant.HANDSHAKE_CLIENT_TYPE, networkParam.getPort(),
                 NulsContext.getInstance().getBestHeight(), NulsContext.getInstance().getBestBlock().getHeader().getHash());
-        GetVersionMessage getVersionMessage = new GetVersionMessage(body);
+        GetVersionMessage getVersionMessage = ServicesMessageHandler.advertise(new GetVersionMessage(body));
 
         Iterator<Node> it = connectedNodes.iterator();
         while (it.hasNext()) {
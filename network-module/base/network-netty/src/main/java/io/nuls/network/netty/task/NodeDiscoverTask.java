@@ -73,31 +73,28 @@ public class NodeDiscoverTask implements Runnable {
     private void processNodes() {
         NodesContainer nodesContainer = nodeManager.getNodesContainer();
 
-        Map<String, Node> canConnectNodes = nodesContainer.getCanConnectNodes();
-
         Map<String, Node> uncheckNodes = nodesContainer.getUncheckNodes();
         Map<String, Node> disconnectNodes = nodesContainer.getDisconnectNodes();
 
         if (uncheckNodes.size() > 0) {
-            probeNodes(uncheckNodes, canConnectNodes);
+            probeNodes(uncheckNodes);
         }
 
         if (disconnectNodes.size() > 0) {
-            probeNodes(disconnectNodes, canConnectNodes);
+            probeNodes(disconnectNodes);
         }
     }
 
     private void processFailNodes() {
         try {
             NodesContainer nodesContainer = nodeManager.getNodesContainer();
-            Map<String, Node> canConnectNodes = nodesContainer.getCanConnectNodes();
             while (true) {
                 Map<String, Node> failNodes = nodesContainer.getFailNodes();
 
 //                Log.info("the fail nodes count is {}", failNodes.size());
 
                 if (failNodes.size() > 0) {
-                    probeNodes(failNodes, canConnectNodes);
+                    probeNodes(failNodes);
                 }
                 Thread.sleep(3000L);
             }
@@ -111,7 +108,7 @@ public class NodeDiscoverTask implements Runnable {
         }
     }
 
-    private void probeNodes(Map<String, Node> verifyNodes, Map<String, Node> canConnectNodes) {
+    private void probeNodes(Map<String, Node> verifyNodes) {
 
         for (Map.Entry<String, Node> nodeEntry : verifyNodes.entrySet()) {
             Node node = nodeEntry.getValue();
@@ -130,7 +127,7 @@ public class NodeDiscoverTask implements Runnable {
                 node.setConnectStatus(NodeConnectStatusEnum.UNCONNECT);
                 node.setStatus(NodeStatusEnum.CONNECTABLE);
                 node.setFailCount(0);
-                canConnectNodes.put(node.getId(), node);
+                nodeManager.getNodesContainer().addCanConnectNode(node);
 
                 if (node.getLastProbeTime() == 0L) {
                     // 当lastProbeTime为0时，代表第一次探测且成功，只有在第一次探测成功时情况，才转发节点信息
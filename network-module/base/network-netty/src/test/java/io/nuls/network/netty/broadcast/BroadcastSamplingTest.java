@@ -0,0 +1,117 @@
+package io.nuls.network.netty.broadcast;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.network.model.BroadcastResult;
+import io.nuls.network.model.Node;
+import io.nuls.network.model.NodeConnectStatusEnum;
+import io.nuls.network.netty.container.NodesContainer;
+import io.nuls.network.netty.manager.NodeManager;
+import io.nuls.protocol.message.GetTxMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 按百分比广播时只发给抽样出的不重复的已握手节点，未握手的节点不会被选中
+ */
+public class BroadcastSamplingTest {
+
+    private BroadcastHandler handler = BroadcastHandler.getInstance();
+
+    private NodeManager nodeManager = NodeManager.getInstance();
+
+    private NodesContainer originalContainer;
+
+    private List<Node> handshakeList = new ArrayList<>();
+
+    private List<Node> connectedList = new ArrayList<>();
+
+    @Before
+    public void init() {
+        originalContainer = nodeManager.getNodesContainer();
+        NodesContainer container = new NodesContainer();
+        for (int i = 1; i <= 30; i++) {
+            Node node = new Node("192.168.1." + i, 8016, Node.OUT);
+            node.setChannel(new EmbeddedChannel());
+            node.setConnectStatus(NodeConnectStatusEnum.CONNECTED);
+            container.addConnectedNode(node);
+            if (i <= 20) {
+                node.setConnectStatus(NodeConnectStatusEnum.AVAILABLE);
+                container.markHandshake(node);
+                handshakeList.add(node);
+            } else {
+                connectedList.add(node);
+            }
+        }
+        nodeManager.setNodesContainer(container);
+    }
+
+    @After
+    public void clear() {
+        nodeManager.setNodesContainer(originalContainer);
+        for (Node node : handshakeList) {
+            ((EmbeddedChannel) node.getChannel()).finishAndReleaseAll();
+        }
+        for (Node node : connectedList) {
+            ((EmbeddedChannel) node.getChannel()).finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void broadcastToSampledHandshakeNodes() throws Exception {
+        Node excludeNode = handshakeList.get(0);
+        BroadcastResult result = handler.broadcastToAllNode(createMessage(), excludeNode, true, 50);
+        assertTrue(result.isSuccess());
+        assertSentTo(result, 10, excludeNode);
+    }
+
+    @Test
+    public void broadcastToHalfHandshakeNodes() throws Exception {
+        BroadcastResult result = handler.broadcastToHalfNode(createMessage(), null, true);
+        assertTrue(result.isSuccess());
+        assertSentTo(result, 5, null);
+    }
+
+    @Test
+    public void broadcastToAllHandshakeNodes() throws Exception {
+        BroadcastResult result = handler.broadcastToAllNode(createMessage(), null, true, 100);
+        assertTrue(result.isSuccess());
+        assertSentTo(result, 20, null);
+    }
+
+    private void assertSentTo(BroadcastResult result, int count, Node excludeNode) {
+        Set<String> ids = new HashSet<>();
+        for (Node node : result.getBroadcastNodes()) {
+            ids.add(node.getId());
+        }
+        assertEquals(count, result.getBroadcastNodes().size());
+        assertEquals(count, ids.size());
+
+        int sentCount = 0;
+        for (Node node : handshakeList) {
+            boolean sent = !((EmbeddedChannel) node.getChannel()).outboundMessages().isEmpty();
+            assertEquals(ids.contains(node.getId()), sent);
+            if (sent) {
+                sentCount++;
+            }
+        }
+        assertEquals(count, sentCount);
+        for (Node node : connectedList) {
+            assertTrue(((EmbeddedChannel) node.getChannel()).outboundMessages().isEmpty());
+        }
+        if (excludeNode != null) {
+            assertFalse(ids.contains(excludeNode.getId()));
+        }
+    }
+
+    private GetTxMessage createMessage() {
+        GetTxMessage message = new GetTxMessage();
+        message.setMsgBody(new NulsDigestData(NulsDigestData.DIGEST_ALG_SHA256, new byte[32]));
+        return message;
+    }
+}
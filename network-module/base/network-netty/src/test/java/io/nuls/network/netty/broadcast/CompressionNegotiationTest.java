@@ -0,0 +1,112 @@
+package io.nuls.network.netty.broadcast;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.nuls.kernel.cfg.NulsConfig;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.module.version.KernelMavenInfo;
+import io.nuls.network.constant.NetworkConstant;
+import io.nuls.network.constant.NetworkParam;
+import io.nuls.network.model.Node;
+import io.nuls.network.netty.message.MessageCompressor;
+import io.nuls.network.netty.message.handler.ServicesMessageHandler;
+import io.nuls.network.protocol.message.ServicesMessage;
+import io.nuls.protocol.message.base.MessageHeader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 压缩只对通过服务消息声明了压缩服务的节点生效：交换服务之后发给该节点的消息是压缩的，
+ * 旧版本节点和未声明压缩服务的节点收到的仍是原始消息
+ */
+public class CompressionNegotiationTest {
+
+    private BroadcastHandler handler = BroadcastHandler.getInstance();
+
+    @Before
+    public void init() {
+        NulsConfig.VERSION = KernelMavenInfo.VERSION;
+        NetworkParam.getInstance().setLocalServices(NetworkConstant.NODE_SERVICE_COMPACT_BLOCK | NetworkConstant.NODE_SERVICE_COMPRESSION);
+        MessageCompressor.getInstance().init(true, 1024, Arrays.asList("3:4"));
+    }
+
+    @Test
+    public void compressAfterServicesExchange() throws Exception {
+        Node peer = exchangeServices(true);
+        assertTrue(peer.hasService(NetworkConstant.NODE_SERVICE_COMPRESSION));
+        Node otherPeer = exchangeServices(true);
+
+        BroadcastHandler.OutboundFrame frame = createFrame(true);
+        try {
+            ByteBuf buf = frame.forNode(peer);
+            assertTrue(isCompressed(buf));
+            // 压缩结果在节点之间共用
+            assertSame(buf, frame.forNode(otherPeer));
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Test
+    public void rawForPeersWithoutCompression() throws Exception {
+        Node oldPeer = exchangeServices(false);
+        assertFalse(oldPeer.hasService(NetworkConstant.NODE_SERVICE_COMPRESSION));
+        Node newPeer = exchangeServices(true);
+
+        BroadcastHandler.OutboundFrame frame = createFrame(true);
+        try {
+            assertFalse(isCompressed(frame.forNode(oldPeer)));
+            assertTrue(isCompressed(frame.forNode(newPeer)));
+            assertFalse(isCompressed(frame.forNode(new Node("192.168.1.11", 8016, Node.OUT))));
+        } finally {
+            frame.release();
+        }
+
+        frame = createFrame(false);
+        try {
+            assertFalse(isCompressed(frame.forNode(newPeer)));
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * 模拟服务协商：声明了服务消息的对端会发来服务消息，旧版本节点不会
+     */
+    private Node exchangeServices(boolean servicesSupported) throws Exception {
+        Node peer = new Node("192.168.1.10", 8016, Node.OUT);
+        if (servicesSupported) {
+            ServicesMessage message = ServicesMessageHandler.getInstance().createMessage();
+            message.getHeader().setLength(message.getMsgBodySize());
+            ServicesMessage received = new ServicesMessage();
+            received.parse(new NulsByteBuffer(message.serialize()));
+            ServicesMessageHandler.getInstance().process(received, peer);
+        }
+        return peer;
+    }
+
+    private BroadcastHandler.OutboundFrame createFrame(boolean compressible) throws Exception {
+        byte[] body = new byte[8192];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) (i % 64);
+        }
+        MessageHeader header = new MessageHeader((short) 3, (short) 4);
+        header.setMagicNumber(20180712);
+        header.setLength(body.length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(header.serialize());
+        out.write(body);
+        return handler.new OutboundFrame(Unpooled.copiedBuffer(out.toByteArray()), compressible);
+    }
+
+    private boolean isCompressed(ByteBuf buf) throws Exception {
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.getBytes(buf.readerIndex(), bytes);
+        return new NulsByteBuffer(bytes).readNulsData(new MessageHeader()).isCompressed();
+    }
+}
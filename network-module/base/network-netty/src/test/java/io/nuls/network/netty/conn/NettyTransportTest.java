@@ -0,0 +1,177 @@
+package io.nuls.network.netty.conn;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.nuls.network.constant.NetworkParam;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 传输层按配置选择epoll或nio，写缓冲区水位按配置生效，选出的传输层可以正常收发数据
+ */
+public class NettyTransportTest {
+
+    private NetworkParam param = NetworkParam.getInstance();
+
+    private String transport;
+    private int highWaterMark;
+    private int lowWaterMark;
+
+    @Before
+    public void init() {
+        transport = param.getTransport();
+        highWaterMark = param.getWriteBufferHighWaterMark();
+        lowWaterMark = param.getWriteBufferLowWaterMark();
+    }
+
+    @After
+    public void clear() throws Exception {
+        param.setTransport(transport);
+        param.setWriteBufferHighWaterMark(highWaterMark);
+        param.setWriteBufferLowWaterMark(lowWaterMark);
+        resetTransport();
+    }
+
+    @Test
+    public void nioWhenConfigured() throws Exception {
+        param.setTransport("nio");
+        resetTransport();
+        assertFalse(NettyTransport.isEpoll());
+        assertEquals(NioServerSocketChannel.class, NettyTransport.serverChannelClass());
+        assertEquals(NioSocketChannel.class, NettyTransport.socketChannelClass());
+    }
+
+    @Test
+    public void epollWhenAvailable() throws Exception {
+        for (String value : new String[]{"auto", "epoll"}) {
+            param.setTransport(value);
+            resetTransport();
+            assertEquals(Epoll.isAvailable(), NettyTransport.isEpoll());
+            assertEquals(Epoll.isAvailable() ? EpollServerSocketChannel.class : NioServerSocketChannel.class,
+                    NettyTransport.serverChannelClass());
+        }
+    }
+
+    @Test
+    public void writeBufferWaterMark() {
+        param.setWriteBufferHighWaterMark(64 * 1024);
+        param.setWriteBufferLowWaterMark(16 * 1024);
+        assertWaterMark(16 * 1024, 64 * 1024);
+
+        // 低水位未配置或高于高水位时取高水位的一半
+        param.setWriteBufferLowWaterMark(0);
+        assertWaterMark(32 * 1024, 64 * 1024);
+        param.setWriteBufferLowWaterMark(128 * 1024);
+        assertWaterMark(32 * 1024, 64 * 1024);
+
+        param.setWriteBufferHighWaterMark(0);
+        assertWaterMark(WriteBufferWaterMark.DEFAULT.low(), WriteBufferWaterMark.DEFAULT.high());
+    }
+
+    @Test
+    public void loopback() throws Exception {
+        param.setTransport("auto");
+        param.setWriteBufferHighWaterMark(64 * 1024);
+        param.setWriteBufferLowWaterMark(16 * 1024);
+        resetTransport();
+
+        EventLoopGroup group = NettyTransport.newEventLoopGroup(1, "netty-transport-test");
+        BlockingQueue<Channel> accepted = new ArrayBlockingQueue<>(1);
+        BlockingQueue<Byte> received = new ArrayBlockingQueue<>(16);
+        try {
+            ServerBootstrap serverBootstrap = new ServerBootstrap();
+            serverBootstrap.group(group, group)
+                    .channel(NettyTransport.serverChannelClass())
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel channel) {
+                            accepted.add(channel);
+                            channel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                    // 原样返回
+                                    ctx.writeAndFlush(msg);
+                                }
+                            });
+                        }
+                    });
+            NettyTransport.serverOptions(serverBootstrap);
+            NettyTransport.childOptions(serverBootstrap);
+            Channel server = serverBootstrap.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+            Bootstrap bootstrap = new Bootstrap();
+            bootstrap.group(group)
+                    .channel(NettyTransport.socketChannelClass())
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel channel) {
+                            channel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                    ByteBuf buf = (ByteBuf) msg;
+                                    while (buf.isReadable()) {
+                                        received.add(buf.readByte());
+                                    }
+                                    buf.release();
+                                }
+                            });
+                        }
+                    });
+            NettyTransport.clientOptions(bootstrap);
+            Channel client = bootstrap.connect(server.localAddress()).sync().channel();
+            assertEquals(16 * 1024, client.config().getWriteBufferLowWaterMark());
+            assertEquals(64 * 1024, client.config().getWriteBufferHighWaterMark());
+
+            client.writeAndFlush(Unpooled.wrappedBuffer(new byte[]{1, 2, 3})).sync();
+            for (int i = 1; i <= 3; i++) {
+                Byte b = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(b);
+                assertEquals(i, (int) b);
+            }
+
+            Channel child = accepted.poll(5, TimeUnit.SECONDS);
+            assertNotNull(child);
+            assertEquals(16 * 1024, child.config().getWriteBufferLowWaterMark());
+            assertEquals(64 * 1024, child.config().getWriteBufferHighWaterMark());
+
+            client.close().sync();
+            server.close().sync();
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private void assertWaterMark(int low, int high) {
+        Bootstrap bootstrap = new Bootstrap();
+        NettyTransport.clientOptions(bootstrap);
+        WriteBufferWaterMark waterMark = (WriteBufferWaterMark) bootstrap.config().options().get(ChannelOption.WRITE_BUFFER_WATER_MARK);
+        assertEquals(low, waterMark.low());
+        assertEquals(high, waterMark.high());
+    }
+
+    /**
+     * 清除已选择的传输层，下次按当前配置重新选择
+     */
+    private void resetTransport() throws Exception {
+        Field field = NettyTransport.class.getDeclaredField("epoll");
+        field.setAccessible(true);
+        field.set(null, null);
+    }
+}
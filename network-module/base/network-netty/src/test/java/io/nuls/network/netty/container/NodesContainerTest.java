@@ -0,0 +1,168 @@
+package io.nuls.network.netty.container;
+
+import io.nuls.network.model.Node;
+import io.nuls.network.model.NodeStatusEnum;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 连接、握手、断开之后各个索引保持一致，抽样只返回不重复的已握手节点
+ */
+public class NodesContainerTest {
+
+    private NodesContainer container;
+
+    @Before
+    public void init() {
+        container = new NodesContainer();
+    }
+
+    @Test
+    public void indexesFollowConnectHandshakeDisconnect() {
+        Node node1 = createNode(1, Node.OUT);
+        Node node2 = createNode(2, Node.OUT);
+        Node node3 = createNode(3, Node.IN);
+        for (Node node : Arrays.asList(node1, node2, node3)) {
+            node.setStatus(NodeStatusEnum.CONNECTABLE);
+            container.addCanConnectNode(node);
+        }
+        assertEquals(3, container.getConnectableNodes().size());
+
+        connect(node1);
+        connect(node2);
+        container.addConnectedNode(node3);
+        assertEquals(ids(node3), ids(container.getConnectableNodes()));
+        assertEquals(2, container.getConnectedCount(Node.OUT));
+        assertEquals(1, container.getConnectedCount(Node.IN));
+        assertEquals(0, container.getHandshakeCount());
+        assertTrue(container.sampleHandshakeNodes(3, null).isEmpty());
+
+        node1.setBestBlockHeight(10L);
+        node2.setBestBlockHeight(20L);
+        container.markHandshake(node1);
+        container.markHandshake(node2);
+        assertEquals(ids(node1, node2), ids(container.getHandshakeNodes()));
+        assertEquals(2, container.getHandshakeCount());
+        assertEquals(Arrays.asList(node2, node1), container.getNodesByBestHeight(10));
+
+        node1.setBestBlockHeight(30L);
+        container.updateBestHeight(node1);
+        assertEquals(Arrays.asList(node1, node2), container.getNodesByBestHeight(10));
+        assertEquals(Collections.singletonList(node1), container.getNodesByBestHeight(1));
+
+        container.removeConnectedNode(node1.getId());
+        assertEquals(ids(node2), ids(container.getHandshakeNodes()));
+        assertEquals(1, container.getHandshakeCount());
+        assertEquals(Collections.singletonList(node2), container.getNodesByBestHeight(10));
+        assertEquals(Collections.singletonList(node2), container.sampleHandshakeNodes(3, null));
+        assertEquals(1, container.getConnectedCount(Node.OUT));
+
+        // 已断开的节点不会被加回索引
+        container.markHandshake(node1);
+        container.updateBestHeight(node1);
+        assertEquals(1, container.getHandshakeCount());
+        assertEquals(Collections.singletonList(node2), container.getNodesByBestHeight(10));
+
+        container.removeConnectedNode(node3.getId());
+        container.removeConnectedNode(node2.getId());
+        assertEquals(0, container.getConnectedCount(Node.IN));
+        assertEquals(0, container.getConnectedCount(Node.OUT));
+        assertEquals(0, container.getHandshakeCount());
+        assertTrue(container.getNodesByBestHeight(10).isEmpty());
+        assertTrue(container.sampleHandshakeNodes(3, null).isEmpty());
+    }
+
+    @Test
+    public void connectableFollowsStatus() {
+        Node node = createNode(1, Node.OUT);
+        node.setStatus(NodeStatusEnum.CONNECTABLE);
+        container.addCanConnectNode(node);
+        assertEquals(1, container.getConnectableNodes().size());
+
+        container.markCanuseNodeByIp(node.getIp(), NodeStatusEnum.AVAILABLE);
+        assertTrue(container.getConnectableNodes().isEmpty());
+        container.markCanuseNodeByIp(node.getIp(), NodeStatusEnum.CONNECTABLE);
+        assertEquals(1, container.getConnectableNodes().size());
+
+        container.removeCanConnectNode(node.getId());
+        assertTrue(container.getConnectableNodes().isEmpty());
+        container.markCanuseNodeByIp(node.getIp(), NodeStatusEnum.CONNECTABLE);
+        assertTrue(container.getConnectableNodes().isEmpty());
+    }
+
+    @Test
+    public void sampleDistinctHandshakeNodes() {
+        Set<String> handshakeIds = new HashSet<>();
+        List<Node> handshakeList = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            Node node = createNode(i, i % 2 == 0 ? Node.IN : Node.OUT);
+            container.addConnectedNode(node);
+            if (i <= 12) {
+                container.markHandshake(node);
+                handshakeIds.add(node.getId());
+                handshakeList.add(node);
+            }
+        }
+        Node excludeNode = handshakeList.get(3);
+        Node notHandshakeNode = createNode(15, Node.OUT);
+        for (int count = 1; count <= 14; count++) {
+            for (int round = 0; round < 200; round++) {
+                List<Node> sample = container.sampleHandshakeNodes(count, excludeNode);
+                assertEquals(Math.min(count, 11), sample.size());
+                Set<String> sampleIds = ids(sample);
+                assertEquals(sample.size(), sampleIds.size());
+                assertTrue(handshakeIds.containsAll(sampleIds));
+                assertFalse(sampleIds.contains(excludeNode.getId()));
+
+                sample = container.sampleHandshakeNodes(count, notHandshakeNode);
+                assertEquals(Math.min(count, 12), sample.size());
+                sampleIds = ids(sample);
+                assertEquals(sample.size(), sampleIds.size());
+                assertTrue(handshakeIds.containsAll(sampleIds));
+            }
+        }
+    }
+
+    @Test
+    public void sampleCoversAllHandshakeNodes() {
+        for (int i = 1; i <= 10; i++) {
+            Node node = createNode(i, Node.OUT);
+            container.addConnectedNode(node);
+            container.markHandshake(node);
+        }
+        Node excludeNode = container.getNode(createNode(1, Node.OUT).getId());
+        Map<String, Integer> hits = new HashMap<>();
+        for (int round = 0; round < 2000; round++) {
+            for (Node node : container.sampleHandshakeNodes(3, excludeNode)) {
+                hits.merge(node.getId(), 1, Integer::sum);
+            }
+        }
+        assertEquals(9, hits.size());
+        assertFalse(hits.containsKey(excludeNode.getId()));
+    }
+
+    private void connect(Node node) {
+        container.addConnectedNode(node);
+        container.removeCanConnectNode(node.getId());
+    }
+
+    private Node createNode(int index, int type) {
+        return new Node("192.168.1." + index, 8016, type);
+    }
+
+    private Set<String> ids(Node... nodes) {
+        return ids(Arrays.asList(nodes));
+    }
+
+    private Set<String> ids(Collection<Node> nodes) {
+        Set<String> set = new HashSet<>();
+        for (Node node : nodes) {
+            set.add(node.getId());
+        }
+        return set;
+    }
+}
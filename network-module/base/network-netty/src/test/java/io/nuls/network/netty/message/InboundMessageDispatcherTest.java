@@ -0,0 +1,163 @@
+package io.nuls.network.netty.message;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Result;
+import io.nuls.message.bus.service.MessageBusService;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.message.GetTxMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * 入站分发：同一节点的消息按到达顺序处理，队列到高水位暂停读取、低水位恢复，连接关闭后丢弃排队的帧
+ */
+public class InboundMessageDispatcherTest {
+
+    private InboundMessageDispatcher dispatcher = InboundMessageDispatcher.getInstance();
+
+    private Map<Node, List<Integer>> received = new ConcurrentHashMap<>();
+
+    /**
+     * 不为null时处理第一条消息前等待，模拟处理慢的节点
+     */
+    private volatile CountDownLatch blocker;
+    private CountDownLatch blocked = new CountDownLatch(1);
+
+    private MessageBusService messageBusService;
+
+    @Before
+    public void init() throws Exception {
+        Field field = MessageProcessor.class.getDeclaredField("messageBusService");
+        field.setAccessible(true);
+        messageBusService = (MessageBusService) field.get(MessageProcessor.getInstance());
+        field.set(MessageProcessor.getInstance(), Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{MessageBusService.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMessageInstance":
+                            return Result.getSuccess().setData(new GetTxMessage());
+                        case "receiveMessage":
+                            CountDownLatch latch = blocker;
+                            if (latch != null) {
+                                blocked.countDown();
+                                latch.await();
+                            }
+                            GetTxMessage message = (GetTxMessage) args[0];
+                            received.computeIfAbsent((Node) args[1], n -> new ArrayList<>())
+                                    .add((int) message.getMsgBody().getDigestBytes()[0] & 0xff);
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                }));
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        dispatcher.shutdown();
+        Field field = MessageProcessor.class.getDeclaredField("messageBusService");
+        field.setAccessible(true);
+        field.set(MessageProcessor.getInstance(), messageBusService);
+    }
+
+    @Test
+    public void keepOrderPerPeer() throws Exception {
+        dispatcher.start(4, 1000, 10);
+        EmbeddedChannel channel1 = new EmbeddedChannel();
+        EmbeddedChannel channel2 = new EmbeddedChannel();
+        Node node1 = new Node("192.168.1.10", 8016, Node.OUT);
+        Node node2 = new Node("192.168.1.11", 8016, Node.OUT);
+        for (int i = 0; i < 200; i++) {
+            dispatcher.receive(channel1, node1, Unpooled.wrappedBuffer(frame(i)));
+            dispatcher.receive(channel2, node2, Unpooled.wrappedBuffer(frame(i)));
+        }
+        waitFor(() -> count(node1) == 200 && count(node2) == 200);
+        for (Node node : new Node[]{node1, node2}) {
+            List<Integer> list = received.get(node);
+            for (int i = 0; i < list.size(); i++) {
+                assertEquals(i, (int) list.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void autoReadFollowsWaterMarks() throws Exception {
+        dispatcher.start(1, 4, 1);
+        blocker = new CountDownLatch(1);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        Node node = new Node("192.168.1.10", 8016, Node.OUT);
+        dispatcher.receive(channel, node, Unpooled.wrappedBuffer(frame(0)));
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+
+        for (int i = 1; i <= 3; i++) {
+            dispatcher.receive(channel, node, Unpooled.wrappedBuffer(frame(i)));
+            assertTrue(channel.config().isAutoRead());
+        }
+        dispatcher.receive(channel, node, Unpooled.wrappedBuffer(frame(4)));
+        assertFalse(channel.config().isAutoRead());
+        assertEquals(1, dispatcher.getStats().get(0).getPausedCount());
+
+        blocker.countDown();
+        blocker = null;
+        waitFor(() -> count(node) == 5);
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(4, dispatcher.getStats().get(0).getMaxQueueDepth());
+    }
+
+    @Test
+    public void dropQueuedFramesOnClose() throws Exception {
+        dispatcher.start(1, 100, 10);
+        blocker = new CountDownLatch(1);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        Node node = new Node("192.168.1.10", 8016, Node.OUT);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.receive(channel, node, Unpooled.wrappedBuffer(frame(i)));
+        }
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+        channel.close();
+
+        blocker.countDown();
+        waitFor(() -> dispatcher.getStats().get(0).getQueueDepth() == 0);
+        Thread.sleep(50L);
+        assertEquals(1, count(node));
+
+        dispatcher.remove(channel);
+        assertTrue(dispatcher.getStats().isEmpty());
+    }
+
+    private int count(Node node) {
+        List<Integer> list = received.get(node);
+        return list == null ? 0 : list.size();
+    }
+
+    private byte[] frame(int index) throws Exception {
+        byte[] hash = new byte[32];
+        hash[0] = (byte) index;
+        GetTxMessage message = new GetTxMessage();
+        message.setMsgBody(new NulsDigestData(NulsDigestData.DIGEST_ALG_SHA256, hash));
+        message.getHeader().setLength(message.getMsgBodySize());
+        return message.serialize();
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5L);
+        }
+    }
+}
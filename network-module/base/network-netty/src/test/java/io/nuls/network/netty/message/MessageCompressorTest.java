@@ -0,0 +1,155 @@
+package io.nuls.network.netty.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.CoinData;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.protocol.message.base.MessageHeader;
+import io.nuls.protocol.model.tx.TransferTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 压缩的正确性，同时输出一个区块大小的交易组压缩前后的字节数和耗时，作为同步时带宽和CPU开销的参考
+ */
+public class MessageCompressorTest {
+
+    private MessageCompressor compressor = MessageCompressor.getInstance();
+
+    @Before
+    public void init() {
+        compressor.init(true, 1024, Arrays.asList("3:4", "3:10"));
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        byte[] frame = createFrame((short) 3, (short) 10, createTxBytes(500));
+        ByteBuf compressed = compressor.compress(Unpooled.wrappedBuffer(frame));
+        assertNotNull(compressed);
+        try {
+            byte[] wire = new byte[compressed.readableBytes()];
+            compressed.readBytes(wire);
+            assertTrue(wire.length < frame.length);
+
+            MessageHeader header = new NulsByteBuffer(wire).readNulsData(new MessageHeader());
+            assertTrue(header.isCompressed());
+            assertEquals(wire.length - MessageCompressor.HEADER_SIZE, header.getLength());
+
+            byte[] raw = compressor.decompress(wire, 0, header.getLength());
+            assertArrayEquals(frame, raw);
+            assertFalse(new NulsByteBuffer(raw).readNulsData(new MessageHeader()).isCompressed());
+        } finally {
+            compressed.release();
+        }
+    }
+
+    @Test
+    public void compressible() {
+        MessageHeader header = new MessageHeader((short) 3, (short) 10);
+        header.setLength(2048);
+        assertTrue(compressor.isCompressible(header));
+        header.setLength(100);
+        assertFalse(compressor.isCompressible(header));
+        header = new MessageHeader((short) 3, (short) 2);
+        header.setLength(2048);
+        assertFalse(compressor.isCompressible(header));
+    }
+
+    @Test
+    public void randomBodyNotCompressed() throws Exception {
+        byte[] body = new byte[4096];
+        new Random(1).nextBytes(body);
+        assertNull(compressor.compress(Unpooled.wrappedBuffer(createFrame((short) 3, (short) 4, body))));
+    }
+
+    @Test(expected = NulsException.class)
+    public void corruptLength() throws Exception {
+        byte[] frame = createFrame((short) 3, (short) 10, createTxBytes(50));
+        ByteBuf compressed = compressor.compress(Unpooled.wrappedBuffer(frame));
+        byte[] wire = new byte[compressed.readableBytes()];
+        compressed.readBytes(wire);
+        compressed.release();
+        // 篡改压缩数据开头记录的原始长度
+        wire[MessageCompressor.HEADER_SIZE] = (byte) (wire[MessageCompressor.HEADER_SIZE] + 1);
+        compressor.decompress(wire, 0, wire.length - MessageCompressor.HEADER_SIZE);
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        byte[] frame = createFrame((short) 3, (short) 4, createTxBytes(2000));
+        int rounds = 50;
+        long wireBytes = 0;
+        long compressNanos = 0;
+        long decompressNanos = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            ByteBuf compressed = compressor.compress(Unpooled.wrappedBuffer(frame));
+            compressNanos += System.nanoTime() - start;
+            byte[] wire = new byte[compressed.readableBytes()];
+            compressed.readBytes(wire);
+            compressed.release();
+            wireBytes = wire.length;
+            start = System.nanoTime();
+            compressor.decompress(wire, 0, wire.length - MessageCompressor.HEADER_SIZE);
+            decompressNanos += System.nanoTime() - start;
+        }
+        System.out.println("block of 2000 transfers: raw " + frame.length + " bytes, wire " + wireBytes + " bytes ("
+                + (wireBytes * 100 / frame.length) + "%), compress " + compressNanos / rounds / 1000
+                + "us, decompress " + decompressNanos / rounds / 1000 + "us");
+    }
+
+    private byte[] createFrame(short moduleId, short msgType, byte[] body) throws IOException {
+        MessageHeader header = new MessageHeader(moduleId, msgType);
+        header.setMagicNumber(20180712);
+        header.setLength(body.length);
+        header.setXor((byte) 7);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(header.serialize());
+        out.write(body);
+        return out.toByteArray();
+    }
+
+    /**
+     * 模拟同步时的转账交易：输入引用随机的交易hash，输出地址集中在少量账户上，签名随机
+     */
+    private byte[] createTxBytes(int count) throws IOException {
+        Random random = new Random(count);
+        byte[][] addresses = new byte[20][23];
+        for (byte[] address : addresses) {
+            random.nextBytes(address);
+            address[0] = 4;
+            address[1] = 1;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            TransferTransaction tx = new TransferTransaction();
+            tx.setTime(1540000000000L + i * 100);
+            CoinData coinData = new CoinData();
+            byte[] owner = new byte[35];
+            byte[] hashBytes = new byte[32];
+            random.nextBytes(hashBytes);
+            System.arraycopy(new NulsDigestData(NulsDigestData.DIGEST_ALG_SHA256, hashBytes).serialize(), 0, owner, 0, 34);
+            owner[34] = (byte) random.nextInt(3);
+            coinData.addFrom(new Coin(owner, Na.valueOf(100000000L + random.nextInt(1000)), 0));
+            coinData.addTo(new Coin(addresses[random.nextInt(addresses.length)], Na.valueOf(random.nextInt(100000000)), 0));
+            coinData.addTo(new Coin(addresses[random.nextInt(addresses.length)], Na.valueOf(random.nextInt(1000)), 0));
+            tx.setCoinData(coinData);
+            byte[] sign = new byte[105];
+            random.nextBytes(sign);
+            tx.setTransactionSignature(sign);
+            out.write(tx.serialize());
+        }
+        return out.toByteArray();
+    }
+}
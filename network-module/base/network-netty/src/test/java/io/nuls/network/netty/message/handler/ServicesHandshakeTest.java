@@ -0,0 +1,113 @@
+package io.nuls.network.netty.message.handler;
+
+import io.nuls.kernel.cfg.NulsConfig;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.func.TimeService;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.module.version.KernelMavenInfo;
+import io.nuls.network.constant.NetworkConstant;
+import io.nuls.network.constant.NetworkParam;
+import io.nuls.network.model.NetworkEventResult;
+import io.nuls.network.model.Node;
+import io.nuls.network.protocol.message.GetVersionMessage;
+import io.nuls.network.protocol.message.NetworkMessageBody;
+import io.nuls.network.protocol.message.ServicesMessage;
+import io.nuls.network.protocol.message.VersionMessage;
+import io.nuls.protocol.message.base.BaseMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 服务协商：版本消息头声明支持服务消息，双方经过一次 GetVersion/Version 交换后互相发送服务消息；
+ * 旧版本节点发来的版本消息没有该声明，不会收到服务消息，版本消息的消息体和之前完全一致
+ */
+public class ServicesHandshakeTest {
+
+    private static final long LOCAL_SERVICES = NetworkConstant.NODE_SERVICE_COMPACT_BLOCK | NetworkConstant.NODE_SERVICE_COMPRESSION;
+
+    @Before
+    public void init() {
+        NulsConfig.VERSION = KernelMavenInfo.VERSION;
+        NetworkParam.getInstance().setLocalServices(LOCAL_SERVICES);
+        Block block = new Block();
+        BlockHeader header = new BlockHeader();
+        header.setHeight(100);
+        header.setHash(NulsDigestData.calcDigestData(new byte[]{1, 2, 3}));
+        block.setHeader(header);
+        NulsContext.getInstance().setBestBlock(block);
+    }
+
+    @Test
+    public void advertiseKeepsBody() throws Exception {
+        NetworkMessageBody body = createBody();
+        GetVersionMessage advertised = roundTrip(ServicesMessageHandler.advertise(new GetVersionMessage(body)), new GetVersionMessage());
+        GetVersionMessage plain = roundTrip(new GetVersionMessage(body), new GetVersionMessage());
+        assertTrue(advertised.getHeader().isServicesSupported());
+        assertFalse(plain.getHeader().isServicesSupported());
+        assertArrayEquals(plain.getMsgBody().serialize(), advertised.getMsgBody().serialize());
+    }
+
+    @Test
+    public void handshakeRoundTrip() throws Exception {
+        // 本节点向对端发送 GetVersion，对端看到声明后向本节点发送服务，并回复带声明的 Version
+        Node peer = createNode();
+        peer.setLastTime(TimeService.currentTimeMillis());
+        GetVersionMessage request = roundTrip(ServicesMessageHandler.advertise(new GetVersionMessage(createBody())), new GetVersionMessage());
+
+        Node self = createNode();
+        NetworkEventResult result = GetVersionMessageHandler.getInstance().process(request, self);
+        assertTrue(self.isServicesSent());
+
+        VersionMessage reply = roundTrip((VersionMessage) result.getReplyMessage(), new VersionMessage());
+        assertTrue(reply.getHeader().isServicesSupported());
+        assertEquals(100, reply.getMsgBody().getBestBlockHeight());
+        VersionMessageHandler.getInstance().process(reply, peer);
+        assertTrue(peer.isServicesSent());
+
+        // 双方互相发送的服务消息
+        ServicesMessage services = roundTrip(ServicesMessageHandler.getInstance().createMessage(), new ServicesMessage());
+        ServicesMessageHandler.getInstance().process(services, peer);
+        ServicesMessageHandler.getInstance().process(services, self);
+        assertEquals(LOCAL_SERVICES, peer.getServices());
+        assertTrue(peer.hasService(NetworkConstant.NODE_SERVICE_COMPRESSION));
+        assertTrue(self.hasService(NetworkConstant.NODE_SERVICE_COMPACT_BLOCK));
+    }
+
+    @Test
+    public void oldPeerNotSentServices() throws Exception {
+        // 旧版本节点的版本消息没有声明，不向其发送服务消息，也不认为其支持任何服务
+        GetVersionMessage request = roundTrip(new GetVersionMessage(createBody()), new GetVersionMessage());
+        Node oldPeer = createNode();
+        NetworkEventResult result = GetVersionMessageHandler.getInstance().process(request, oldPeer);
+        assertFalse(oldPeer.isServicesSent());
+        assertEquals(0, oldPeer.getServices());
+        assertFalse(oldPeer.hasService(NetworkConstant.NODE_SERVICE_COMPRESSION));
+
+        // 回复的 Version 只在旧节点不读取的消息头字节中带声明，消息体不变
+        VersionMessage reply = (VersionMessage) result.getReplyMessage();
+        NetworkMessageBody legacy = createBody();
+        legacy.setSeverPort(NetworkParam.getInstance().getPort());
+        legacy.setNetworkTime(reply.getMsgBody().getNetworkTime());
+        assertArrayEquals(legacy.serialize(), reply.getMsgBody().serialize());
+    }
+
+    private NetworkMessageBody createBody() {
+        return new NetworkMessageBody(NetworkConstant.HANDSHAKE_CLIENT_TYPE, 8016, 100,
+                NulsContext.getInstance().getBestBlock().getHeader().getHash());
+    }
+
+    private Node createNode() {
+        return new Node("192.168.1.10", 8016, Node.OUT);
+    }
+
+    private <T extends BaseMessage> T roundTrip(T message, T target) throws Exception {
+        message.getHeader().setLength(message.getMsgBodySize());
+        target.parse(new NulsByteBuffer(message.serialize()));
+        return target;
+    }
+}
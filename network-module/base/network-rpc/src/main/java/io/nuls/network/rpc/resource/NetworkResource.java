@@ -36,6 +36,8 @@ import io.nuls.network.model.Node;
 import io.nuls.network.model.NodeConnectStatusEnum;
 import io.nuls.network.model.NodeGroup;
 import io.nuls.network.model.NodeStatusEnum;
+import io.nuls.network.netty.message.InboundMessageDispatcher;
+import io.nuls.network.netty.message.MessageCompressor;
 import io.nuls.network.rpc.model.NetworkInfoDto;
 import io.nuls.network.rpc.model.NodeDto;
 import io.nuls.network.service.NetworkService;
@@ -133,4 +135,32 @@ public class NetworkResource {
         result.setData(map);
         return result.toRpcClientResult();
     }
+
+    @GET
+    @Path("/inbound")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("查询各节点入站消息队列的长度和解析耗时")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "success", response = InboundMessageDispatcher.InboundStats.class)
+    })
+    public RpcClientResult getInboundStats() {
+        Result result = Result.getSuccess();
+        Map<String, List<InboundMessageDispatcher.InboundStats>> map = new HashMap<>();
+        map.put("list", InboundMessageDispatcher.getInstance().getStats());
+        result.setData(map);
+        return result.toRpcClientResult();
+    }
+
+    @GET
+    @Path("/compression")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("查询消息压缩的累计统计")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "success", response = MessageCompressor.CompressStats.class)
+    })
+    public RpcClientResult getCompressionStats() {
+        Result result = Result.getSuccess();
+        result.setData(MessageCompressor.getInstance().getStats());
+        return result.toRpcClientResult();
+    }
 }
@@ -55,10 +55,30 @@ public interface NetworkConstant {
     String CACHE_P2P_NODE = "cacheNode";
     String CACHE_P2P_IP = "cacheIP";
     String NODE_FILE_NAME = ".nodes";
+    String NETWORK_COMPACT_BLOCK = "network.compact.block";
+    String NETWORK_INBOUND_THREADS = "network.inbound.threads";
+    String NETWORK_INBOUND_QUEUE_HIGH = "network.inbound.queue.high";
+    String NETWORK_INBOUND_QUEUE_LOW = "network.inbound.queue.low";
+    String NETWORK_TRANSPORT = "network.transport";
+    String NETWORK_BOSS_THREADS = "network.boss.threads";
+    String NETWORK_WORKER_THREADS = "network.worker.threads";
+    String NETWORK_CLIENT_THREADS = "network.client.threads";
+    String NETWORK_WRITE_BUFFER_HIGH = "network.write.buffer.high";
+    String NETWORK_WRITE_BUFFER_LOW = "network.write.buffer.low";
+    String NETWORK_COMPRESS = "network.compress";
+    String NETWORK_COMPRESS_THRESHOLD = "network.compress.threshold";
+    String NETWORK_COMPRESS_TYPES = "network.compress.types";
 
     int HANDSHAKE_SEVER_TYPE = 2;
     int HANDSHAKE_CLIENT_TYPE = 1;
 
+    /**
+     * 节点支持的服务，通过服务消息协商，只有在版本消息头中声明了支持服务消息的节点才会收到
+     * Node services negotiated through the services message, only sent to peers which flagged support in their version message header
+     */
+    long NODE_SERVICE_COMPACT_BLOCK = 1L;
+    long NODE_SERVICE_COMPRESSION = 2L;
+
     //network message type
     short NETWORK_GET_VERSION = 1;
     short NETWORK_VERSION = 2;
@@ -68,5 +88,6 @@ public interface NetworkConstant {
     short NETWORK_NODEIP = 6;
     short NETWORK_HANDSHAKE = 7;
     short NETWORK_P2P_NODE = 8;
+    short NETWORK_SERVICES = 9;
 
 }
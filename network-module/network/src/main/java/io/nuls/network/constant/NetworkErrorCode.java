@@ -47,4 +47,5 @@ public interface NetworkErrorCode extends KernelErrorCode {
     ErrorCode NET_BROADCAST_NODE_EMPTY = ErrorCode.init("40012");
     ErrorCode NET_NODE_DEAD = ErrorCode.init("40013");
     ErrorCode NET_NODE_MISS_CHANNEL = ErrorCode.init("40014");
+    ErrorCode NET_NODE_CONGESTED = ErrorCode.init("40015");
 }
\ No newline at end of file
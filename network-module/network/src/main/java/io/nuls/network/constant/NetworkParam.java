@@ -53,6 +53,29 @@ public class NetworkParam {
 
     private List<String> seedIpList;
 
+    private long localServices;
+
+    /**
+     * 传输层实现：auto/epoll/nio，auto在支持的平台上使用epoll
+     */
+    private String transport;
+
+    /**
+     * 0表示使用netty默认的线程数
+     */
+    private int bossThreads;
+
+    private int workerThreads;
+
+    private int clientThreads;
+
+    /**
+     * 连接写缓冲区的高低水位，超过高水位的连接在广播时会被跳过
+     */
+    private int writeBufferHighWaterMark;
+
+    private int writeBufferLowWaterMark;
+
     public int getPort() {
         return port;
     }
@@ -101,4 +124,60 @@ public class NetworkParam {
         this.seedIpList = seedIpList;
     }
 
+    public long getLocalServices() {
+        return localServices;
+    }
+
+    public void setLocalServices(long localServices) {
+        this.localServices = localServices;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+
+    public int getBossThreads() {
+        return bossThreads;
+    }
+
+    public void setBossThreads(int bossThreads) {
+        this.bossThreads = bossThreads;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getClientThreads() {
+        return clientThreads;
+    }
+
+    public void setClientThreads(int clientThreads) {
+        this.clientThreads = clientThreads;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public void setWriteBufferHighWaterMark(int writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public void setWriteBufferLowWaterMark(int writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+    }
+
 }
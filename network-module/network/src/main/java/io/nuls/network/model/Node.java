@@ -97,6 +97,16 @@ public class Node extends BaseNulsData {
 
     private String remoteVersion;
 
+    /**
+     * 对方节点通过服务消息声明的服务
+     */
+    private volatile long services;
+
+    /**
+     * 是否已向对方节点发送本节点的服务
+     */
+    private volatile boolean servicesSent;
+
     @Override
     public int size() {
         int s = 0;
@@ -341,4 +351,24 @@ public class Node extends BaseNulsData {
     public void setRemoteVersion(String remoteVersion) {
         this.remoteVersion = remoteVersion;
     }
+
+    public long getServices() {
+        return services;
+    }
+
+    public void setServices(long services) {
+        this.services = services;
+    }
+
+    public boolean isServicesSent() {
+        return servicesSent;
+    }
+
+    public void setServicesSent(boolean servicesSent) {
+        this.servicesSent = servicesSent;
+    }
+
+    public boolean hasService(long service) {
+        return (services & service) == service;
+    }
 }
@@ -83,6 +83,15 @@ public interface NetworkService {
      */
     List<Node> getCanConnectNodes();
 
+    /**
+     * 按最新高度从高到低获取已握手的节点
+     * get handshaken nodes ordered by best block height, highest first
+     *
+     * @param count max count of nodes
+     * @return List
+     */
+    List<Node> getNodesByBestHeight(int count);
+
     /**
      * 根据名字获取节点组
      * get NodeGroup by name
@@ -30,11 +30,11 @@ import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.model.Result;
 import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.model.Node;
+import io.nuls.network.service.NetworkService;
 import io.nuls.protocol.base.download.utils.NodeComparator;
 import io.nuls.protocol.message.GetBlocksByHeightMessage;
 
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author Niels
@@ -59,11 +59,46 @@ public class RequestThread implements Runnable {
         if (nodeList.size() <= nodeCount) {
             this.nodeList = nodeList;
         } else {
-            Collections.sort(nodeList, new NodeComparator());
-            this.nodeList = nodeList.subList(0, nodeCount);
+            this.nodeList = selectNodes(nodeList, nodeCount);
         }
     }
 
+    /**
+     * 按高度索引从高到低遍历已握手节点，只在高度不低于目标高度的候选节点里按延迟排序，
+     * 候选不足时再从原列表中按延迟补足
+     */
+    private List<Node> selectNodes(List<Node> nodeList, int nodeCount) {
+        Set<String> idSet = new HashSet<>();
+        for (Node node : nodeList) {
+            idSet.add(node.getId());
+        }
+        List<Node> candidates = new ArrayList<>();
+        List<Node> indexedNodes = NulsContext.getServiceBean(NetworkService.class).getNodesByBestHeight(Integer.MAX_VALUE);
+        if (indexedNodes != null) {
+            for (Node node : indexedNodes) {
+                if (node.getBestBlockHeight() < endHeight) {
+                    break;
+                }
+                if (idSet.contains(node.getId())) {
+                    candidates.add(node);
+                }
+            }
+        }
+        NodeComparator comparator = new NodeComparator();
+        Collections.sort(candidates, comparator);
+        if (candidates.size() >= nodeCount) {
+            return new ArrayList<>(candidates.subList(0, nodeCount));
+        }
+        List<Node> result = new ArrayList<>(candidates);
+        List<Node> others = new ArrayList<>(nodeList);
+        others.removeAll(candidates);
+        Collections.sort(others, comparator);
+        for (int i = 0; i < others.size() && result.size() < nodeCount; i++) {
+            result.add(others.get(i));
+        }
+        return result;
+    }
+
     @Override
     public void run() {
         this.running = true;
@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.base.handler;
+
+import io.nuls.consensus.service.ConsensusService;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.message.bus.handler.AbstractMessageHandler;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.base.utils.CompactBlockUtil;
+import io.nuls.protocol.cache.TemporaryCacheManager;
+import io.nuls.protocol.message.BlockTxnMessage;
+import io.nuls.protocol.message.GetBlockTxnRequest;
+import io.nuls.protocol.model.BlockTxn;
+import io.nuls.protocol.model.CompactBlock;
+import io.nuls.protocol.model.GetBlockTxnParam;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 收到压缩区块缺失的交易后，补全并组装区块
+ * Fills in the missing transactions of a compact block and assembles the block.
+ *
+ * @author facjas
+ */
+public class BlockTxnHandler extends AbstractMessageHandler<BlockTxnMessage> {
+
+    private TemporaryCacheManager temporaryCacheManager = TemporaryCacheManager.getInstance();
+
+    private ConsensusService consensusService = NulsContext.getServiceBean(ConsensusService.class);
+
+    @Override
+    public void onMessage(BlockTxnMessage message, Node fromNode) {
+        BlockTxn blockTxn = message.getMsgBody();
+        if (null == blockTxn || null == blockTxn.getBlockHash()) {
+            Log.warn("recieved a null blockTxn form " + fromNode.getId());
+            return;
+        }
+        CompactBlock compactBlock = temporaryCacheManager.getCompactBlock(blockTxn.getBlockHash());
+        if (null == compactBlock) {
+            return;
+        }
+        Transaction[] txs = compactBlock.getTxs();
+        List<Integer> missingList = new ArrayList<>();
+        for (int i = 0; i < txs.length; i++) {
+            if (txs[i] == null) {
+                missingList.add(i);
+            }
+        }
+        List<Transaction> txList = blockTxn.getTxList();
+        if (txList.size() != missingList.size()) {
+            return;
+        }
+        for (int i = 0; i < txList.size(); i++) {
+            txs[missingList.get(i)] = txList.get(i);
+        }
+
+        Block block = CompactBlockUtil.assemblyBlock(compactBlock);
+        if (block != null) {
+            temporaryCacheManager.removeCompactBlock(blockTxn.getBlockHash());
+            consensusService.newBlock(block, fromNode);
+            return;
+        }
+        if (missingList.size() == txs.length) {
+            temporaryCacheManager.removeCompactBlock(blockTxn.getBlockHash());
+            Log.warn("compact block rebuild failed, height:" + compactBlock.getHeader().getHeight() + ", from:" + fromNode.getId());
+            return;
+        }
+
+        // 本地交易池中的交易和短ID冲突，重新请求全部交易
+        // a pool transaction collided with a short id, request every transaction
+        List<Integer> indexList = new ArrayList<>(txs.length);
+        for (int i = 0; i < txs.length; i++) {
+            txs[i] = null;
+            indexList.add(i);
+        }
+        GetBlockTxnParam param = new GetBlockTxnParam();
+        param.setBlockHash(blockTxn.getBlockHash());
+        param.setIndexList(indexList);
+        GetBlockTxnRequest request = new GetBlockTxnRequest();
+        request.setMsgBody(param);
+        Result sendResult = this.messageBusService.sendToNode(request, fromNode, true);
+        if (sendResult.isFailed()) {
+            temporaryCacheManager.removeCompactBlock(blockTxn.getBlockHash());
+        }
+    }
+}
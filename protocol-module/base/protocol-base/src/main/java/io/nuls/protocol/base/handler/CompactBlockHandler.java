@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.base.handler;
+
+import io.nuls.consensus.service.ConsensusService;
+import io.nuls.core.tools.log.BlockLog;
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.constant.TransactionErrorCode;
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.func.TimeService;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.validate.ValidateResult;
+import io.nuls.message.bus.handler.AbstractMessageHandler;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.base.utils.CompactBlockUtil;
+import io.nuls.protocol.cache.TemporaryCacheManager;
+import io.nuls.protocol.constant.ProtocolConstant;
+import io.nuls.protocol.message.CompactBlockMessage;
+import io.nuls.protocol.message.GetBlockTxnRequest;
+import io.nuls.protocol.model.CompactBlock;
+import io.nuls.protocol.model.GetBlockTxnParam;
+import io.nuls.protocol.service.BlockService;
+import io.nuls.protocol.utils.SmallBlockDuplicateRemoval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 接收压缩区块，用共识交易和本地交易池按短ID重建区块，只向发送方请求缺失的交易
+ * Receives a compact block, rebuilds it by short id from the consensus transactions and the local transaction pools,
+ * and only requests the missing transactions from the sender.
+ *
+ * @author facjas
+ */
+public class CompactBlockHandler extends AbstractMessageHandler<CompactBlockMessage> {
+
+    private ConsensusService consensusService = NulsContext.getServiceBean(ConsensusService.class);
+
+    private BlockService blockService = NulsContext.getServiceBean(BlockService.class);
+    private TemporaryCacheManager temporaryCacheManager = TemporaryCacheManager.getInstance();
+
+    @Override
+    public void onMessage(CompactBlockMessage event, Node fromNode) {
+        CompactBlock compactBlock = event.getMsgBody();
+        if (null == compactBlock) {
+            Log.warn("recieved a null compactBlock!");
+            return;
+        }
+
+        BlockHeader header = compactBlock.getHeader();
+        //阻止恶意节点提前出块
+        if (header.getTime() > (TimeService.currentTimeMillis() + ProtocolConstant.BLOCK_TIME_INTERVAL_SECOND * 1000)) {
+            return;
+        }
+        int txCount = compactBlock.getShortIdList().size();
+        if (txCount != header.getTxCount()) {
+            return;
+        }
+        if (!SmallBlockDuplicateRemoval.needProcess(header.getHash())) {
+            return;
+        }
+        if (null != blockService.getBlockHeader(header.getHash()).getData()) {
+            return;
+        }
+
+        ValidateResult result = header.verify();
+        boolean isOrphan = result.getErrorCode() == TransactionErrorCode.ORPHAN_TX || result.getErrorCode() == TransactionErrorCode.ORPHAN_BLOCK;
+        if (result.isFailed() && !isOrphan) {
+            BlockLog.debug("discard a CompactBlock:" + header.getHash() + ", from:" + fromNode.getId() + " ,reason:" + result.getMsg());
+            return;
+        }
+
+        List<Collection<Transaction>> pools = Arrays.asList(temporaryCacheManager.getTxList(), consensusService.getMemoryTxs());
+        List<Integer> missingList = CompactBlockUtil.rebuild(compactBlock, pools);
+        if (missingList != null && missingList.isEmpty()) {
+            Block block = CompactBlockUtil.assemblyBlock(compactBlock);
+            if (block != null) {
+                consensusService.newBlock(block, fromNode);
+                return;
+            }
+            missingList = null;
+        }
+        if (missingList == null) {
+            // 短ID冲突，请求全部交易
+            // short id collision, request every transaction
+            missingList = new ArrayList<>(txCount);
+            for (int i = 0; i < txCount; i++) {
+                missingList.add(i);
+            }
+            compactBlock.setTxs(new Transaction[txCount]);
+        }
+        BlockLog.debug("compact block height:" + header.getHeight() + ", tx count:" + header.getTxCount() + ", missing:" + missingList.size());
+
+        GetBlockTxnParam param = new GetBlockTxnParam();
+        param.setBlockHash(header.getHash());
+        param.setIndexList(missingList);
+        GetBlockTxnRequest request = new GetBlockTxnRequest();
+        request.setMsgBody(param);
+        temporaryCacheManager.cacheCompactBlock(compactBlock);
+        Result sendResult = this.messageBusService.sendToNode(request, fromNode, true);
+        if (sendResult.isFailed()) {
+            temporaryCacheManager.removeCompactBlock(header.getHash());
+            Log.warn("get block txn failed,height:" + header.getHeight());
+        }
+    }
+}
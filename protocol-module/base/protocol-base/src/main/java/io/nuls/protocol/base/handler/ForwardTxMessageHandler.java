@@ -24,6 +24,8 @@
  */
 package io.nuls.protocol.base.handler;
 
+import io.nuls.consensus.service.ConsensusService;
+import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.message.bus.handler.AbstractMessageHandler;
@@ -41,6 +43,8 @@ import java.util.Set;
  */
 public class ForwardTxMessageHandler extends AbstractMessageHandler<ForwardTxMessage> {
 
+    private ConsensusService consensusService;
+
     @Override
     public void onMessage(ForwardTxMessage message, Node fromNode) {
         if (message == null || fromNode == null || !fromNode.isHandShake() || null == message.getMsgBody()) {
@@ -51,6 +55,10 @@ public class ForwardTxMessageHandler extends AbstractMessageHandler<ForwardTxMes
         if (consains) {
             return;
         }
+        // 交易处理不过来时不请求，也不记录该hash，之后其它节点再转发时还可以请求
+        if (getConsensusService().isTxQueueBusy()) {
+            return;
+        }
         TransactionDuplicateRemoval.insert(hash);
         GetTxMessage getTxMessage = new GetTxMessage();
         getTxMessage.setMsgBody(hash);
@@ -60,4 +68,10 @@ public class ForwardTxMessageHandler extends AbstractMessageHandler<ForwardTxMes
         }
     }
 
+    private ConsensusService getConsensusService() {
+        if (consensusService == null) {
+            consensusService = NulsContext.getServiceBean(ConsensusService.class);
+        }
+        return consensusService;
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.base.handler;
+
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.message.bus.handler.AbstractMessageHandler;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.cache.TemporaryCacheManager;
+import io.nuls.protocol.message.BlockTxnMessage;
+import io.nuls.protocol.message.GetBlockTxnRequest;
+import io.nuls.protocol.model.BlockTxn;
+import io.nuls.protocol.model.GetBlockTxnParam;
+import io.nuls.protocol.model.SmallBlock;
+import io.nuls.protocol.service.BlockService;
+import io.nuls.protocol.service.TransactionService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按下标应答压缩区块中缺失的交易
+ * Answers the missing transactions of a compact block by index.
+ *
+ * @author facjas
+ */
+public class GetBlockTxnHandler extends AbstractMessageHandler<GetBlockTxnRequest> {
+
+    private TemporaryCacheManager temporaryCacheManager = TemporaryCacheManager.getInstance();
+    private TransactionService transactionService = NulsContext.getServiceBean(TransactionService.class);
+    private BlockService blockService = NulsContext.getServiceBean(BlockService.class);
+
+    @Override
+    public void onMessage(GetBlockTxnRequest message, Node fromNode) {
+        if (message == null || fromNode == null) {
+            return;
+        }
+        GetBlockTxnParam param = message.getMsgBody();
+        if (param == null || param.getBlockHash() == null || param.getIndexList().isEmpty()) {
+            return;
+        }
+
+        List<Transaction> txList = new ArrayList<>(param.getIndexList().size());
+        SmallBlock smallBlock = temporaryCacheManager.getSmallBlockByHash(param.getBlockHash());
+        if (smallBlock != null) {
+            List<NulsDigestData> hashList = smallBlock.getTxHashList();
+            Map<NulsDigestData, Transaction> subTxMap = new HashMap<>();
+            for (Transaction tx : smallBlock.getSubTxList()) {
+                subTxMap.put(tx.getHash(), tx);
+            }
+            for (Integer index : param.getIndexList()) {
+                if (index >= hashList.size()) {
+                    return;
+                }
+                NulsDigestData hash = hashList.get(index);
+                Transaction tx = subTxMap.get(hash);
+                if (tx == null) {
+                    tx = transactionService.getTx(hash);
+                }
+                if (tx == null) {
+                    return;
+                }
+                txList.add(tx);
+            }
+        } else {
+            Block block = blockService.getBlock(param.getBlockHash()).getData();
+            if (block == null) {
+                return;
+            }
+            for (Integer index : param.getIndexList()) {
+                if (index >= block.getTxs().size()) {
+                    return;
+                }
+                txList.add(block.getTxs().get(index));
+            }
+        }
+
+        BlockTxn blockTxn = new BlockTxn();
+        blockTxn.setBlockHash(param.getBlockHash());
+        blockTxn.setTxList(txList);
+        BlockTxnMessage blockTxnMessage = new BlockTxnMessage();
+        blockTxnMessage.setMsgBody(blockTxn);
+        messageBusService.sendToNode(blockTxnMessage, fromNode, true);
+    }
+}
@@ -32,8 +32,10 @@ import io.nuls.kernel.model.Result;
 import io.nuls.message.bus.handler.AbstractMessageHandler;
 import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.model.Node;
+import io.nuls.protocol.base.utils.CompactBlockUtil;
 import io.nuls.protocol.cache.TemporaryCacheManager;
 import io.nuls.protocol.message.*;
+import io.nuls.protocol.message.base.BaseMessage;
 import io.nuls.protocol.model.SmallBlock;
 
 /**
@@ -54,8 +56,14 @@ public class GetSmallBlockHandler extends AbstractMessageHandler<GetSmallBlockMe
         if (null == smallBlock) {
             return;
         }
-        SmallBlockMessage smallBlockMessage = new SmallBlockMessage();
-        smallBlockMessage.setMsgBody(smallBlock);
+        BaseMessage smallBlockMessage;
+        if (CompactBlockUtil.isCompactBlockPeer(fromNode)) {
+            smallBlockMessage = new CompactBlockMessage();
+            ((CompactBlockMessage) smallBlockMessage).setMsgBody(CompactBlockUtil.toCompactBlock(smallBlock));
+        } else {
+            smallBlockMessage = new SmallBlockMessage();
+            ((SmallBlockMessage) smallBlockMessage).setMsgBody(smallBlock);
+        }
         Result result = messageBusService.sendToNode(smallBlockMessage, fromNode, true);
         if (!result.isSuccess()) {
             Log.error("---send smallBlockMessage fail, height:" + smallBlock.getHeader().getHeight() + "hash: " + smallBlock.getHeader().getHash().getDigestHex());
@@ -29,17 +29,19 @@ import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.VarInt;
 import io.nuls.message.bus.handler.AbstractMessageHandler;
 import io.nuls.network.model.Node;
+import io.nuls.protocol.cache.TemporaryCacheManager;
 import io.nuls.protocol.constant.MessageDataType;
 import io.nuls.protocol.message.GetTxGroupRequest;
 import io.nuls.protocol.message.NotFoundMessage;
 import io.nuls.protocol.message.TxGroupMessage;
 import io.nuls.protocol.model.GetTxGroupParam;
 import io.nuls.protocol.model.NotFound;
-import io.nuls.protocol.model.TxGroup;
 import io.nuls.protocol.service.TransactionService;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -50,6 +52,7 @@ import java.util.List;
 public class GetTxGroupHandler extends AbstractMessageHandler<GetTxGroupRequest> {
 
     private TransactionService transactionService = NulsContext.getServiceBean(TransactionService.class);
+    private TemporaryCacheManager temporaryCacheManager = TemporaryCacheManager.getInstance();
 
     @Override
     public void onMessage(GetTxGroupRequest message, Node fromNode) {
@@ -70,29 +73,62 @@ public class GetTxGroupHandler extends AbstractMessageHandler<GetTxGroupRequest>
             return;
         }
 
-        TxGroupMessage txGroupMessage = new TxGroupMessage();
-        TxGroup txGroup = new TxGroup();
-        List<Transaction> txList = new ArrayList<>();
-
+        // 应答的消息体直接由序列化后的交易拼接：requestHash + 交易数 + 交易，和TxGroup的序列化格式一致
+        List<byte[]> txBytesList = new ArrayList<>();
+        int txBytesLength = 0;
         for (NulsDigestData hash : getTxGroupParam.getTxHashList()) {
-            Transaction tx = transactionService.getTx(hash);
-            if (tx != null) {
-                txList.add(tx);
+            byte[] txBytes = getTxBytes(hash);
+            if (txBytes != null) {
+                txBytesList.add(txBytes);
+                txBytesLength += txBytes.length;
             } else {
                 Log.error("GetTxGroupHandler NULL TX=========================================hash: " + hash.getDigestHex());
                 return;
             }
         }
-        if (txList.isEmpty()) {
+        if (txBytesList.isEmpty()) {
             Log.error("ASK:{}, {}", fromNode, getTxGroupParam.getTxHashList().get(0));
             return;
         }
 
-        txGroup.setTxList(txList);
-        txGroup.setRequestHash(requestHash);
-
-        txGroupMessage.setMsgBody(txGroup);
+        TxGroupMessage txGroupMessage = new TxGroupMessage();
+        try {
+            byte[] hashBytes = requestHash.serialize();
+            byte[] countBytes = new VarInt(txBytesList.size()).encode();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(hashBytes.length + countBytes.length + txBytesLength);
+            out.write(hashBytes);
+            out.write(countBytes);
+            for (byte[] txBytes : txBytesList) {
+                out.write(txBytes);
+            }
+            txGroupMessage.setMsgBodyBytes(out.toByteArray());
+        } catch (IOException e) {
+            Log.error(e);
+            return;
+        }
         messageBusService.sendToNode(txGroupMessage, fromNode, true);
     }
 
+    /**
+     * 缓存的序列化交易，没有时加载交易并缓存序列化结果
+     */
+    private byte[] getTxBytes(NulsDigestData hash) {
+        byte[] txBytes = temporaryCacheManager.getTxBytes(hash);
+        if (txBytes != null) {
+            return txBytes;
+        }
+        Transaction tx = transactionService.getTx(hash);
+        if (tx == null) {
+            return null;
+        }
+        try {
+            txBytes = tx.serialize();
+        } catch (IOException e) {
+            Log.error(e);
+            return null;
+        }
+        temporaryCacheManager.cacheTxBytes(hash, txBytes);
+        return txBytes;
+    }
+
 }
@@ -26,15 +26,19 @@ package io.nuls.protocol.base.handler;
 
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
 import io.nuls.message.bus.handler.AbstractMessageHandler;
 import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.model.Node;
+import io.nuls.protocol.cache.TemporaryCacheManager;
 import io.nuls.protocol.message.GetTxMessage;
 import io.nuls.protocol.message.TransactionMessage;
 import io.nuls.protocol.service.TransactionService;
 
+import java.io.IOException;
+
 /**
  * @author facjas
  */
@@ -42,19 +46,32 @@ public class GetTxMessageHandler extends AbstractMessageHandler<GetTxMessage> {
 
     private MessageBusService messageBusService = NulsContext.getServiceBean(MessageBusService.class);
     private TransactionService transactionService = NulsContext.getServiceBean(TransactionService.class);
+    private TemporaryCacheManager temporaryCacheManager = TemporaryCacheManager.getInstance();
 
     @Override
     public void onMessage(GetTxMessage message, Node fromNode) {
         if (message == null || fromNode == null || null == message.getMsgBody()) {
             return;
         }
-        Transaction tx = transactionService.getTx(message.getMsgBody());
-        if (null == tx) {
-            return;
+        NulsDigestData hash = message.getMsgBody();
+        // 优先使用缓存的序列化交易直接应答，没有时加载交易并缓存序列化结果
+        byte[] txBytes = temporaryCacheManager.getTxBytes(hash);
+        if (null == txBytes) {
+            Transaction tx = transactionService.getTx(hash);
+            if (null == tx) {
+                return;
+            }
+            try {
+                txBytes = tx.serialize();
+            } catch (IOException e) {
+                Log.error(e);
+                return;
+            }
+            temporaryCacheManager.cacheTxBytes(hash, txBytes);
         }
 
         TransactionMessage txMessage = new TransactionMessage();
-        txMessage.setMsgBody(tx);
+        txMessage.setMsgBodyBytes(txBytes);
         Result result = messageBusService.sendToNode(txMessage, fromNode, true);
         if (!result.isSuccess()) {
             Log.error("send error to node : " + fromNode.getId());
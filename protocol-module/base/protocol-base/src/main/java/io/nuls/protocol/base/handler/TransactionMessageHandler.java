@@ -55,7 +55,7 @@ public class TransactionMessageHandler extends AbstractMessageHandler<Transactio
         }
         NulsDigestData hash = tx.getHash();
         TransactionDuplicateRemoval.insert(hash);
-        transactionService.newTx(tx);
+        transactionService.newTx(tx, fromNode);
     }
 
 }
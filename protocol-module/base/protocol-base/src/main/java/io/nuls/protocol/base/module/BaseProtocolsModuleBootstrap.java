@@ -27,6 +27,7 @@ package io.nuls.protocol.base.module;
 
 import io.nuls.consensus.constant.ConsensusConstant;
 import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.cfg.NulsConfig;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.exception.NulsRuntimeException;
@@ -38,6 +39,8 @@ import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.constant.NetworkConstant;
 import io.nuls.protocol.base.handler.*;
 import io.nuls.protocol.base.service.DownloadServiceImpl;
+import io.nuls.protocol.cache.TemporaryCacheManager;
+import io.nuls.protocol.constant.ProtocolConstant;
 import io.nuls.protocol.message.*;
 import io.nuls.protocol.model.tx.CoinBaseTransaction;
 import io.nuls.protocol.model.tx.DataTransaction;
@@ -54,9 +57,10 @@ public class BaseProtocolsModuleBootstrap extends AbstractProtocolModule {
 
     @Override
     public void init() {
-        TransactionManager.putTx(CoinBaseTransaction.class, null);
-        TransactionManager.putTx(TransferTransaction.class, null);
-        TransactionManager.putTx(DataTransaction.class, null);
+        TransactionManager.putTx(CoinBaseTransaction.class, null, CoinBaseTransaction::new);
+        TransactionManager.putTx(TransferTransaction.class, null, TransferTransaction::new);
+        TransactionManager.putTx(DataTransaction.class, null, DataTransaction::new);
+        initTxCache();
     }
 
     @Override
@@ -94,6 +98,15 @@ public class BaseProtocolsModuleBootstrap extends AbstractProtocolModule {
 
     }
 
+    /**
+     * 临时交易缓存的大小(MB)
+     */
+    private void initTxCache() {
+        int cacheSize = NulsConfig.MODULES_CONFIG.getCfgValue(ProtocolConstant.CFG_PROTOCOL_SECTION, ProtocolConstant.CFG_TX_CACHE_SIZE, ProtocolConstant.DEFAULT_TX_CACHE_SIZE);
+        int offHeapSize = NulsConfig.MODULES_CONFIG.getCfgValue(ProtocolConstant.CFG_PROTOCOL_SECTION, ProtocolConstant.CFG_TX_CACHE_OFFHEAP_SIZE, ProtocolConstant.DEFAULT_TX_CACHE_OFFHEAP_SIZE);
+        TemporaryCacheManager.getInstance().initTxCache(Math.max(1, cacheSize) * 1024L * 1024L, Math.max(0, offHeapSize) * 1024L * 1024L);
+    }
+
     private void initHandlers() {
         MessageBusService messageBusService = NulsContext.getServiceBean(MessageBusService.class);
         messageBusService.subscribeMessage(BlockMessage.class, new BlockMessageHandler());
@@ -107,6 +120,9 @@ public class BaseProtocolsModuleBootstrap extends AbstractProtocolModule {
         messageBusService.subscribeMessage(TxGroupMessage.class, new TxGroupHandler());
         messageBusService.subscribeMessage(TransactionMessage.class, new TransactionMessageHandler());
         messageBusService.subscribeMessage(SmallBlockMessage.class, new SmallBlockHandler());
+        messageBusService.subscribeMessage(CompactBlockMessage.class, new CompactBlockHandler());
+        messageBusService.subscribeMessage(GetBlockTxnRequest.class, new GetBlockTxnHandler());
+        messageBusService.subscribeMessage(BlockTxnMessage.class, new BlockTxnHandler());
         messageBusService.subscribeMessage(CompleteMessage.class, new CompleteHandler());
         messageBusService.subscribeMessage(ReactMessage.class, new ReactMessageHandler());
 
@@ -32,6 +32,8 @@ import io.nuls.contract.entity.tx.CallContractTransaction;
 import io.nuls.contract.entity.tx.ContractTransferTransaction;
 import io.nuls.contract.service.ContractService;
 import io.nuls.core.tools.log.Log;
+import io.nuls.db.service.CommitContext;
+import io.nuls.db.service.DBService;
 import io.nuls.kernel.constant.KernelErrorCode;
 import io.nuls.kernel.exception.NulsException;
 import io.nuls.kernel.lite.annotation.Autowired;
@@ -40,8 +42,11 @@ import io.nuls.kernel.model.*;
 import io.nuls.ledger.service.LedgerService;
 import io.nuls.message.bus.service.MessageBusService;
 import io.nuls.network.model.Node;
+import io.nuls.network.service.NetworkService;
+import io.nuls.protocol.base.utils.CompactBlockUtil;
 import io.nuls.protocol.base.utils.PoConvertUtil;
 import io.nuls.protocol.constant.ProtocolErroeCode;
+import io.nuls.protocol.message.CompactBlockMessage;
 import io.nuls.protocol.message.ForwardSmallBlockMessage;
 import io.nuls.protocol.message.SmallBlockMessage;
 import io.nuls.protocol.model.SmallBlock;
@@ -51,6 +56,7 @@ import io.nuls.protocol.storage.po.BlockHeaderPo;
 import io.nuls.protocol.storage.service.BlockHeaderStorageService;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -78,11 +84,16 @@ public class BlockServiceImpl implements BlockService {
     @Autowired
     private MessageBusService messageBusService;
     @Autowired
+    private NetworkService networkService;
+    @Autowired
     private AccountLedgerService accountLedgerService;
 
     @Autowired
     private ContractService contractService;
 
+    @Autowired
+    private DBService dbService;
+
     /**
      * 获取创世块（从存储中）
      * Get the creation block (from storage)
@@ -301,30 +312,46 @@ public class BlockServiceImpl implements BlockService {
         if (null == block || block.getHeader() == null || block.getTxs() == null) {
             return Result.getFailed(ProtocolErroeCode.BLOCK_IS_NULL);
         }
+        CommitContext context = dbService.beginCommitContext();
+        Result result;
+        try {
+            result = this.doSaveBlock(block);
+        } catch (NulsException | RuntimeException e) {
+            context.discard();
+            throw e;
+        }
+        if (result.isFailed()) {
+            context.discard();
+            return result;
+        }
+        context.setHeight(block.getHeader().getHeight());
+        Result commitResult = context.commit();
+        if (commitResult.isFailed()) {
+            Log.error("commit block data failed, height: " + block.getHeader().getHeight());
+            return commitResult;
+        }
+        return result;
+    }
+
+    /**
+     * 保存区块的所有交易和区块头，写操作都先进入提交上下文，由 saveBlock 统一写入；
+     * 失败时 saveBlock 丢弃上下文，已经执行的写操作不会落盘，不需要逐笔回滚
+     * 交易处理器也可以通过 dbService.getCommitContext().getBatch(area) 直接追加写操作
+     */
+    private Result doSaveBlock(Block block) throws NulsException {
         long height = block.getHeader().getHeight();
-        List<Transaction> savedList = new ArrayList<>();
         for (Transaction transaction : block.getTxs()) {
             transaction.setBlockHeight(height);
-            boolean needRollback = false;
             Result result = transactionService.commitTx(transaction, block.getHeader());
             if (result.isSuccess()) {
                 result = ledgerService.saveTx(transaction);
-            } else {
-                needRollback = true;
             }
-            if (result.isSuccess()) {
-                savedList.add(transaction);
-            } else {
-                if (needRollback) {
-                    this.transactionService.rollbackCommit(transaction, block.getHeader());
-                }
-                this.rollbackTxList(savedList, block.getHeader(), false);
+            if (result.isFailed()) {
                 return result;
             }
         }
         Result result = this.blockHeaderStorageService.saveBlockHeader(PoConvertUtil.toBlockHeaderPo(block));
         if (result.isFailed()) {
-            this.rollbackTxList(savedList, block.getHeader(), false);
             return result;
         }
         try {
@@ -338,28 +365,15 @@ public class BlockServiceImpl implements BlockService {
     }
 
     /**
-     * 保存区块失败时，需要将已经存储的交易回滚
-     * When you fail to save the block, you need to roll back the already stored transaction.
+     * 倒序回滚区块中的交易，遇到失败立即返回，由 rollbackBlock 丢弃上下文
+     * Rolls back the transactions in reverse order and stops at the first failure, rollbackBlock discards the context.
      */
-    private boolean rollbackTxList(List<Transaction> savedList, BlockHeader blockHeader, boolean atomicity) throws NulsException {
-        List<Transaction> rollbackedList = new ArrayList<>();
-        for (int i = savedList.size() - 1; i >= 0; i--) {
-            Transaction tx = savedList.get(i);
-            Result result = transactionService.rollbackTx(tx, blockHeader);
-            if (atomicity) {
-                if (result.isFailed()) {
-                    break;
-                } else {
-                    rollbackedList.add(tx);
-                }
-            }
-        }
-        if (atomicity && savedList.size() != rollbackedList.size()) {
-            for (int i = rollbackedList.size() - 1; i >= 0; i--) {
-                Transaction tx = rollbackedList.get(i);
-                transactionService.commitTx(tx, blockHeader);
+    private boolean rollbackTxList(List<Transaction> txList, BlockHeader blockHeader) throws NulsException {
+        for (int i = txList.size() - 1; i >= 0; i--) {
+            Result result = transactionService.rollbackTx(txList.get(i), blockHeader);
+            if (result.isFailed()) {
+                return false;
             }
-            return false;
         }
         return true;
     }
@@ -377,7 +391,32 @@ public class BlockServiceImpl implements BlockService {
         if (null == block) {
             return Result.getFailed(ProtocolErroeCode.BLOCK_IS_NULL);
         }
-        boolean txsResult = this.rollbackTxList(block.getTxs(), block.getHeader(), true);
+        CommitContext context = dbService.beginCommitContext();
+        Result result;
+        try {
+            result = this.doRollbackBlock(block);
+        } catch (NulsException | RuntimeException e) {
+            context.discard();
+            throw e;
+        }
+        if (result.isFailed()) {
+            context.discard();
+            return result;
+        }
+        context.setHeight(block.getHeader().getHeight() - 1);
+        Result commitResult = context.commit();
+        if (commitResult.isFailed()) {
+            Log.error("commit block rollback data failed, height: " + block.getHeader().getHeight());
+            return commitResult;
+        }
+        return result;
+    }
+
+    /**
+     * 回滚区块的所有交易并删除区块头，和保存一样使用提交上下文
+     */
+    private Result doRollbackBlock(Block block) throws NulsException {
+        boolean txsResult = this.rollbackTxList(block.getTxs(), block.getHeader());
         if (!txsResult) {
             return Result.getFailed();
         }
@@ -424,8 +463,34 @@ public class BlockServiceImpl implements BlockService {
     @Override
     public Result broadcastBlock(SmallBlock smallBlock) {
         SmallBlockMessage message = fillSmallBlockMessage(smallBlock);
-        Result<List<String>> result = messageBusService.broadcast(message, null, true, 100);
-        return result;
+        Collection<Node> nodes = networkService.getAvailableNodes();
+        boolean hasCompactPeer = false;
+        for (Node node : nodes) {
+            if (CompactBlockUtil.isCompactBlockPeer(node)) {
+                hasCompactPeer = true;
+                break;
+            }
+        }
+        if (!hasCompactPeer) {
+            return messageBusService.broadcast(message, null, true, 100);
+        }
+        // 支持压缩区块的节点只发送短ID，其余节点仍发送小区块
+        // peers supporting compact blocks only get the short ids, the others still get the small block
+        CompactBlockMessage compactMessage = new CompactBlockMessage();
+        compactMessage.setMsgBody(CompactBlockUtil.toCompactBlock(smallBlock));
+        List<String> sentList = new ArrayList<>();
+        for (Node node : nodes) {
+            Result result;
+            if (CompactBlockUtil.isCompactBlockPeer(node)) {
+                result = messageBusService.sendToNode(compactMessage, node, true);
+            } else {
+                result = messageBusService.sendToNode(message, node, true);
+            }
+            if (result.isSuccess()) {
+                sentList.add(node.getId());
+            }
+        }
+        return Result.getSuccess().setData(sentList);
     }
 
     /**
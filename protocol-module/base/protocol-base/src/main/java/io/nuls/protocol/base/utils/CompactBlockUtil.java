@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.utils;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.nuls.core.tools.crypto.Sha256Hash;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.SerializeUtils;
+import io.nuls.network.constant.NetworkConstant;
+import io.nuls.network.constant.NetworkParam;
+import io.nuls.network.model.Node;
+import io.nuls.protocol.model.CompactBlock;
+import io.nuls.protocol.model.SmallBlock;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 压缩区块的短ID计算和区块重建
+ * 短ID = SipHash-2-4(交易摘要) 的低48位，SipHash的key取自 SHA256(区块摘要 + nonce) 的前16字节，
+ * 每个区块的盐不同，无法针对性地构造短ID冲突
+ * Short id calculation and block reconstruction of compact blocks.
+ * The short id is the low 48 bits of SipHash-2-4 over the tx hash, keyed with the first 16 bytes of SHA256(block hash + nonce),
+ * so the salt differs for every block.
+ *
+ * @author: Niels Wang
+ */
+public class CompactBlockUtil {
+
+    private static final long SHORT_ID_MASK = 0xffffffffffffL;
+
+    /**
+     * 本节点和对方节点都支持压缩区块时才发送压缩区块
+     * Compact blocks are only sent when both this node and the peer support them
+     */
+    public static boolean isCompactBlockPeer(Node node) {
+        long service = NetworkConstant.NODE_SERVICE_COMPACT_BLOCK;
+        return (NetworkParam.getInstance().getLocalServices() & service) == service && node.hasService(service);
+    }
+
+    public static CompactBlock toCompactBlock(SmallBlock smallBlock) {
+        CompactBlock compactBlock = new CompactBlock();
+        compactBlock.setHeader(smallBlock.getHeader());
+        compactBlock.setNonce(ThreadLocalRandom.current().nextLong());
+        HashFunction hasher = getShortIdHasher(smallBlock.getHeader().getHash(), compactBlock.getNonce());
+        List<Long> shortIdList = new ArrayList<>(smallBlock.getTxHashList().size());
+        for (NulsDigestData hash : smallBlock.getTxHashList()) {
+            shortIdList.add(getShortId(hasher, hash));
+        }
+        compactBlock.setShortIdList(shortIdList);
+        compactBlock.setSubTxList(smallBlock.getSubTxList());
+        return compactBlock;
+    }
+
+    public static HashFunction getShortIdHasher(NulsDigestData blockHash, long nonce) {
+        byte[] hashBytes = blockHash.getDigestBytes();
+        byte[] seed = new byte[hashBytes.length + 8];
+        System.arraycopy(hashBytes, 0, seed, 0, hashBytes.length);
+        SerializeUtils.uint64ToByteArrayLE(nonce, seed, hashBytes.length);
+        byte[] key = Sha256Hash.hash(seed);
+        return Hashing.sipHash24(SerializeUtils.readInt64LE(key, 0), SerializeUtils.readInt64LE(key, 8));
+    }
+
+    public static long getShortId(HashFunction hasher, NulsDigestData txHash) {
+        return hasher.hashBytes(txHash.getDigestBytes()).asLong() & SHORT_ID_MASK;
+    }
+
+    /**
+     * 用共识交易和本地交易池重建压缩区块中的交易，结果存入 compactBlock.getTxs()
+     * Rebuilds the transactions of the compact block from its consensus transactions and the local transaction pools,
+     * the result is kept in compactBlock.getTxs().
+     *
+     * @return 缺失交易的下标，区块内短ID重复时返回null，此时需要请求全部交易
+     * indexes of the missing transactions, or null if the short ids collide inside the block and every transaction must be requested
+     */
+    public static List<Integer> rebuild(CompactBlock compactBlock, List<Collection<Transaction>> pools) {
+        List<Long> shortIdList = compactBlock.getShortIdList();
+        Transaction[] txs = new Transaction[shortIdList.size()];
+        compactBlock.setTxs(txs);
+
+        Map<Long, Integer> indexMap = new HashMap<>(shortIdList.size() * 2);
+        for (int i = 0; i < shortIdList.size(); i++) {
+            if (indexMap.put(shortIdList.get(i), i) != null) {
+                return null;
+            }
+        }
+
+        HashFunction hasher = getShortIdHasher(compactBlock.getHeader().getHash(), compactBlock.getNonce());
+        int remaining = txs.length;
+        for (Transaction tx : compactBlock.getSubTxList()) {
+            Integer index = indexMap.get(getShortId(hasher, tx.getHash()));
+            if (index != null && txs[index] == null) {
+                txs[index] = tx;
+                remaining--;
+            }
+        }
+        Set<Integer> prefilled = new HashSet<>();
+        for (int i = 0; i < txs.length; i++) {
+            if (txs[i] != null) {
+                prefilled.add(i);
+            }
+        }
+
+        // 交易池中两笔不同的交易对应同一个短ID时，该位置按缺失处理
+        boolean[] ambiguous = new boolean[txs.length];
+        for (Collection<Transaction> pool : pools) {
+            for (Transaction tx : pool) {
+                if (remaining == 0) {
+                    break;
+                }
+                Integer index = indexMap.get(getShortId(hasher, tx.getHash()));
+                if (index == null || ambiguous[index] || prefilled.contains(index)) {
+                    continue;
+                }
+                if (txs[index] == null) {
+                    txs[index] = tx;
+                    remaining--;
+                } else if (!txs[index].getHash().equals(tx.getHash())) {
+                    txs[index] = null;
+                    ambiguous[index] = true;
+                    remaining++;
+                }
+            }
+        }
+
+        List<Integer> missingList = new ArrayList<>();
+        for (int i = 0; i < txs.length; i++) {
+            if (txs[i] == null) {
+                missingList.add(i);
+            }
+        }
+        return missingList;
+    }
+
+    /**
+     * 用重建好的交易组装区块，默克尔根不一致（短ID冲突导致匹配到错误的交易）时返回null
+     * Assembles the block from the rebuilt transactions, returns null if the merkle root does not match
+     * (a short id collision matched a wrong transaction).
+     */
+    public static Block assemblyBlock(CompactBlock compactBlock) {
+        BlockHeader header = compactBlock.getHeader();
+        Transaction[] txs = compactBlock.getTxs();
+        List<NulsDigestData> hashList = new ArrayList<>(txs.length);
+        List<Transaction> txList = new ArrayList<>(txs.length);
+        for (Transaction tx : txs) {
+            if (tx == null) {
+                return null;
+            }
+            tx.setBlockHeight(header.getHeight());
+            hashList.add(tx.getHash());
+            txList.add(tx);
+        }
+        if (!header.getMerkleHash().equals(NulsDigestData.calcMerkleDigestData(hashList))) {
+            return null;
+        }
+        Block block = new Block();
+        block.setHeader(header);
+        block.setTxs(txList);
+        return block;
+    }
+}
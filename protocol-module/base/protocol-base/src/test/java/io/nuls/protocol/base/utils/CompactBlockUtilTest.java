@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.protocol.base.utils;
+
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.model.TransactionLogicData;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.protocol.model.CompactBlock;
+import io.nuls.protocol.model.GetBlockTxnParam;
+import io.nuls.protocol.model.SmallBlock;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author: Niels Wang
+ */
+public class CompactBlockUtilTest {
+
+    @Test
+    public void rebuild() {
+        List<Transaction> txList = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            txList.add(new TestTx(i));
+        }
+        SmallBlock smallBlock = createSmallBlock(txList);
+        CompactBlock compactBlock = CompactBlockUtil.toCompactBlock(smallBlock);
+        assertEquals(20, compactBlock.getShortIdList().size());
+
+        List<Transaction> pool = new ArrayList<>(txList.subList(1, 15));
+        for (int i = 100; i < 200; i++) {
+            pool.add(new TestTx(i));
+        }
+        List<Integer> missingList = CompactBlockUtil.rebuild(compactBlock, Collections.singletonList(pool));
+        assertEquals(Arrays.asList(15, 16, 17, 18, 19), missingList);
+        assertNull(CompactBlockUtil.assemblyBlock(compactBlock));
+
+        for (Integer index : missingList) {
+            compactBlock.getTxs()[index] = txList.get(index);
+        }
+        Block block = CompactBlockUtil.assemblyBlock(compactBlock);
+        assertNotNull(block);
+        assertEquals(txList, block.getTxs());
+    }
+
+    @Test
+    public void shortIdSalt() {
+        NulsDigestData txHash = NulsDigestData.calcDigestData("tx".getBytes());
+        NulsDigestData blockHash = NulsDigestData.calcDigestData("block".getBytes());
+        long shortId = CompactBlockUtil.getShortId(CompactBlockUtil.getShortIdHasher(blockHash, 1L), txHash);
+        assertEquals(shortId, CompactBlockUtil.getShortId(CompactBlockUtil.getShortIdHasher(blockHash, 1L), txHash));
+        assertNotEquals(shortId, CompactBlockUtil.getShortId(CompactBlockUtil.getShortIdHasher(blockHash, 2L), txHash));
+        assertTrue(shortId >= 0 && shortId < (1L << 48));
+    }
+
+    @Test
+    public void differentialIndexes() throws IOException, NulsException {
+        GetBlockTxnParam param = new GetBlockTxnParam();
+        param.setBlockHash(NulsDigestData.calcDigestData("block".getBytes()));
+        param.setIndexList(Arrays.asList(0, 1, 5, 300, 70000));
+        byte[] bytes = param.serialize();
+        assertEquals(param.size(), bytes.length);
+
+        GetBlockTxnParam parsed = new GetBlockTxnParam();
+        parsed.parse(bytes, 0);
+        assertEquals(param.getBlockHash(), parsed.getBlockHash());
+        assertEquals(param.getIndexList(), parsed.getIndexList());
+    }
+
+    private SmallBlock createSmallBlock(List<Transaction> txList) {
+        List<NulsDigestData> hashList = new ArrayList<>();
+        for (Transaction tx : txList) {
+            hashList.add(tx.getHash());
+        }
+        BlockHeader header = new BlockHeader();
+        header.setHash(NulsDigestData.calcDigestData("block".getBytes()));
+        header.setHeight(10);
+        header.setTxCount(txList.size());
+        header.setMerkleHash(NulsDigestData.calcMerkleDigestData(new ArrayList<>(hashList)));
+        SmallBlock smallBlock = new SmallBlock();
+        smallBlock.setHeader(header);
+        smallBlock.setTxHashList(hashList);
+        smallBlock.addBaseTx(txList.get(0));
+        return smallBlock;
+    }
+
+    private static class TestTx extends Transaction {
+        TestTx(long time) {
+            super(1234);
+            this.setTime(time);
+        }
+
+        @Override
+        protected TransactionLogicData parseTxData(NulsByteBuffer byteBuffer) {
+            return null;
+        }
+
+        @Override
+        public String getInfo(byte[] address) {
+            return null;
+        }
+    }
+}
@@ -36,6 +36,8 @@ import io.nuls.kernel.lite.annotation.Component;
 import io.nuls.kernel.model.*;
 import io.nuls.kernel.utils.AddressTool;
 import io.nuls.ledger.service.LedgerService;
+import io.nuls.protocol.cache.TemporaryCacheManager;
+import io.nuls.protocol.cache.TxCache;
 import io.nuls.protocol.constant.ProtocolErroeCode;
 import io.nuls.protocol.rpc.model.*;
 import io.nuls.protocol.service.BlockService;
@@ -60,6 +62,17 @@ public class BlockResource {
     @Autowired
     private LedgerService ledgerService;
 
+    @GET
+    @Path("/cache/tx")
+    @Produces(MediaType.APPLICATION_JSON)
+    @ApiOperation("查询临时交易缓存的大小和命中率")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "success", response = TxCache.TxCacheStats.class)
+    })
+    public RpcClientResult getTxCacheStats() {
+        return Result.getSuccess().setData(TemporaryCacheManager.getInstance().getTxCacheStats()).toRpcClientResult();
+    }
+
     @GET
     @Path("/header/height/{height}")
     @Produces(MediaType.APPLICATION_JSON)
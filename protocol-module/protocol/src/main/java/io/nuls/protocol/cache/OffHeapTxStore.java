@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.cache;
+
+import io.nuls.kernel.model.NulsDigestData;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 堆外的序列化交易存储
+ * 预先申请一整块直接内存并切分为定长的块，每笔交易占用若干个块，块之间用数组链起来；
+ * 空间不足时按最近最少使用淘汰，不依赖GC回收直接内存。
+ * <p>
+ * Off-heap store of serialized transactions.
+ * One direct buffer is allocated up front and split into fixed-size blocks chained through an int array,
+ * entries are evicted in LRU order when space runs out, so no direct memory is left to the GC.
+ */
+class OffHeapTxStore {
+
+    private static final int BLOCK_SIZE = 256;
+    private static final int END = -1;
+
+    private final ByteBuffer buffer;
+    private final int[] nextBlock;
+    private int freeHead;
+    private int freeCount;
+    private long usedBytes;
+
+    private final LinkedHashMap<NulsDigestData, Slot> index = new LinkedHashMap<>(1024, 0.75f, true);
+
+    OffHeapTxStore(long capacity) {
+        int blockCount = (int) Math.min(capacity / BLOCK_SIZE, Integer.MAX_VALUE / BLOCK_SIZE);
+        this.buffer = ByteBuffer.allocateDirect(blockCount * BLOCK_SIZE);
+        this.nextBlock = new int[blockCount];
+        resetFreeList();
+    }
+
+    private void resetFreeList() {
+        for (int i = 0; i < nextBlock.length - 1; i++) {
+            nextBlock[i] = i + 1;
+        }
+        if (nextBlock.length > 0) {
+            nextBlock[nextBlock.length - 1] = END;
+        }
+        freeHead = nextBlock.length > 0 ? 0 : END;
+        freeCount = nextBlock.length;
+        usedBytes = 0;
+    }
+
+    /**
+     * @return 放入的数据超过总容量时返回false
+     */
+    synchronized boolean put(NulsDigestData hash, byte[] bytes) {
+        if (index.containsKey(hash)) {
+            return true;
+        }
+        int needBlocks = (bytes.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (needBlocks == 0 || needBlocks > nextBlock.length) {
+            return false;
+        }
+        Iterator<Map.Entry<NulsDigestData, Slot>> iterator = index.entrySet().iterator();
+        while (freeCount < needBlocks && iterator.hasNext()) {
+            Slot eldest = iterator.next().getValue();
+            iterator.remove();
+            release(eldest);
+        }
+        int first = freeHead;
+        int block = first;
+        int offset = 0;
+        for (int i = 0; i < needBlocks; i++) {
+            int length = Math.min(BLOCK_SIZE, bytes.length - offset);
+            buffer.position(block * BLOCK_SIZE);
+            buffer.put(bytes, offset, length);
+            offset += length;
+            if (i < needBlocks - 1) {
+                block = nextBlock[block];
+            }
+        }
+        freeHead = nextBlock[block];
+        nextBlock[block] = END;
+        freeCount -= needBlocks;
+        usedBytes += bytes.length;
+        index.put(hash, new Slot(first, bytes.length));
+        return true;
+    }
+
+    synchronized byte[] get(NulsDigestData hash) {
+        Slot slot = index.get(hash);
+        if (slot == null) {
+            return null;
+        }
+        byte[] bytes = new byte[slot.length];
+        int block = slot.firstBlock;
+        int offset = 0;
+        while (offset < bytes.length) {
+            int length = Math.min(BLOCK_SIZE, bytes.length - offset);
+            buffer.position(block * BLOCK_SIZE);
+            buffer.get(bytes, offset, length);
+            offset += length;
+            block = nextBlock[block];
+        }
+        return bytes;
+    }
+
+    synchronized boolean contains(NulsDigestData hash) {
+        return index.containsKey(hash);
+    }
+
+    synchronized void remove(NulsDigestData hash) {
+        Slot slot = index.remove(hash);
+        if (slot != null) {
+            release(slot);
+        }
+    }
+
+    /**
+     * 把一条记录占用的块放回空闲链表
+     */
+    private void release(Slot slot) {
+        int block = slot.firstBlock;
+        int count = 1;
+        while (nextBlock[block] != END) {
+            block = nextBlock[block];
+            count++;
+        }
+        nextBlock[block] = freeHead;
+        freeHead = slot.firstBlock;
+        freeCount += count;
+        usedBytes -= slot.length;
+    }
+
+    synchronized void clear() {
+        index.clear();
+        Arrays.fill(nextBlock, END);
+        resetFreeList();
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    long getCapacity() {
+        return (long) nextBlock.length * BLOCK_SIZE;
+    }
+
+    private static class Slot {
+        private final int firstBlock;
+        private final int length;
+
+        Slot(int firstBlock, int length) {
+            this.firstBlock = firstBlock;
+            this.length = length;
+        }
+    }
+}
@@ -24,11 +24,15 @@
  */
 package io.nuls.protocol.cache;
 
-import io.nuls.cache.LimitHashMap;
+import io.nuls.cache.BoundedCache;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.protocol.constant.ProtocolConstant;
+import io.nuls.protocol.model.CompactBlock;
 import io.nuls.protocol.model.SmallBlock;
 
+import java.util.Collection;
+
 /**
  * Used for sharing temporary data between multiple hander.
  * 用于不同的handler之间共享交易数据，交易缓存池中的数据已经放入，直到自动销毁前，不做清理
@@ -38,11 +42,12 @@ import io.nuls.protocol.model.SmallBlock;
 public class TemporaryCacheManager {
     private static final TemporaryCacheManager INSTANCE = new TemporaryCacheManager();
 
-    private LimitHashMap<NulsDigestData, SmallBlock> smallBlockCacheMap = new LimitHashMap<>(100);
-    private LimitHashMap<NulsDigestData, NulsDigestData> smallBlockHashCacheMap = new LimitHashMap<>(100);
+    private BoundedCache<NulsDigestData, SmallBlock> smallBlockCacheMap = BoundedCache.ofSize(100);
+    private BoundedCache<NulsDigestData, NulsDigestData> smallBlockHashCacheMap = BoundedCache.ofSize(100);
+    private BoundedCache<NulsDigestData, CompactBlock> compactBlockCacheMap = BoundedCache.ofSize(100);
 //    private CacheMap<NulsDigestData, Transaction> txCacheMap = new CacheMap<>("temp-tx-cache", 128, NulsDigestData.class, Transaction.class, 0, 3600);
 
-    private LimitHashMap<NulsDigestData, Transaction> txCacheMap = new LimitHashMap<>(100000);
+    private TxCache txCacheMap = new TxCache(ProtocolConstant.DEFAULT_TX_CACHE_SIZE * 1024L * 1024L, 0);
 
     private TemporaryCacheManager() {
 
@@ -52,6 +57,17 @@ public class TemporaryCacheManager {
         return INSTANCE;
     }
 
+    /**
+     * 按配置重建交易缓存，启动时调用
+     * Rebuild the transaction cache with the configured sizes, called on startup
+     *
+     * @param maxBytes        堆内缓存的字节数
+     * @param offHeapMaxBytes 堆外序列化缓存的字节数，0表示不使用
+     */
+    public void initTxCache(long maxBytes, long offHeapMaxBytes) {
+        this.txCacheMap = new TxCache(maxBytes, offHeapMaxBytes);
+    }
+
     /**
      * 将一个SmallBlock放入内存中，若不主动删除，则在缓存存满或者存在时间超过1000秒时，自动清理
      * Store a SmallBlock in memory, cache it full or exist for over 1000 seconds, and clean it automatically.
@@ -91,8 +107,44 @@ public class TemporaryCacheManager {
      *
      * @param tx transaction
      */
+    /**
+     * 缓存等待缺失交易的压缩区块
+     * Caches a compact block that is waiting for its missing transactions
+     */
+    public void cacheCompactBlock(CompactBlock compactBlock) {
+        compactBlockCacheMap.put(compactBlock.getHeader().getHash(), compactBlock);
+    }
+
+    public CompactBlock getCompactBlock(NulsDigestData blockHash) {
+        return compactBlockCacheMap.get(blockHash);
+    }
+
+    public void removeCompactBlock(NulsDigestData blockHash) {
+        compactBlockCacheMap.remove(blockHash);
+    }
+
     public boolean cacheTx(Transaction tx) {
-        return txCacheMap.put(tx.getHash(), tx);
+        return txCacheMap.put(tx);
+    }
+
+    /**
+     * 缓存已经序列化的交易，用于应答其他节点的交易请求
+     * Cache a serialized transaction for answering the transaction requests of other nodes
+     */
+    public void cacheTxBytes(NulsDigestData hash, byte[] txBytes) {
+        txCacheMap.putBytes(hash, txBytes);
+    }
+
+    /**
+     * 获取序列化后的交易，未缓存时返回null
+     * get the serialized transaction, null if not cached
+     */
+    public byte[] getTxBytes(NulsDigestData hash) {
+        return txCacheMap.getBytes(hash);
+    }
+
+    public TxCache.TxCacheStats getTxCacheStats() {
+        return txCacheMap.getStats();
     }
 
     /**
@@ -103,9 +155,6 @@ public class TemporaryCacheManager {
      * @return 完整交易、whole transaction
      */
     public Transaction getTx(NulsDigestData hash) {
-        if (null == txCacheMap) {
-            return null;
-        }
         return txCacheMap.get(hash);
     }
 
@@ -115,6 +164,10 @@ public class TemporaryCacheManager {
      *
      * @param hash transaction digest data
      */
+    public Collection<Transaction> getTxList() {
+        return txCacheMap.values();
+    }
+
     public void removeSmallBlock(NulsDigestData hash) {
         if (null == smallBlockCacheMap) {
             return;
@@ -129,6 +182,7 @@ public class TemporaryCacheManager {
      */
     public void clear() {
         this.smallBlockCacheMap.clear();
+        this.compactBlockCacheMap.clear();
         this.txCacheMap.clear();
     }
 
@@ -138,6 +192,7 @@ public class TemporaryCacheManager {
      */
     public void destroy() {
         this.smallBlockCacheMap.clear();
+        this.compactBlockCacheMap.clear();
         this.txCacheMap.clear();
     }
 
@@ -0,0 +1,443 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.cache;
+
+import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.TransactionManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按字节数限制大小的两级交易缓存
+ * 第一级在堆内保存交易对象，使用分段LRU：新放入的交易进入试用段，再次被访问时晋升到保护段，
+ * 保护段超过总大小的80%时把最久未访问的降回试用段，淘汰总是从试用段开始，所以偶尔出现一次的交易不会挤掉被反复请求的交易。
+ * 第二级可选，在堆外保存序列化后的交易，第一级淘汰的交易和应答给其他节点的交易都放在这里，应答时直接发送这些字节。
+ * 大小按交易序列化后的字节数计算。
+ * <p>
+ * Two-level transaction cache bounded by bytes.
+ * Level one keeps transaction objects on heap in a segmented LRU: new entries go to the probation segment and move
+ * to the protected segment on their next hit; the protected segment is capped at 80% of the budget and eviction
+ * always starts from probation, so one-off transactions cannot push out the ones peers keep asking for.
+ * The optional level two keeps serialized transactions off heap, it receives level-one victims and the
+ * transactions sent to peers, and answers later requests with the stored bytes.
+ * Sizes are counted in serialized bytes.
+ */
+public class TxCache {
+
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final long maxBytes;
+    private final long protectedMaxBytes;
+
+    private final LinkedHashMap<NulsDigestData, Entry> probationMap = new LinkedHashMap<>(1024, 0.75f, true);
+    private final LinkedHashMap<NulsDigestData, Entry> protectedMap = new LinkedHashMap<>(1024, 0.75f, true);
+    private long probationBytes;
+    private long protectedBytes;
+
+    private final OffHeapTxStore offHeapStore;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong offHeapHitCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maxBytes        堆内缓存的字节数
+     * @param offHeapMaxBytes 堆外缓存的字节数，0表示不使用
+     */
+    public TxCache(long maxBytes, long offHeapMaxBytes) {
+        this.maxBytes = maxBytes;
+        this.protectedMaxBytes = maxBytes * PROTECTED_PERCENT / 100;
+        this.offHeapStore = offHeapMaxBytes > 0 ? new OffHeapTxStore(offHeapMaxBytes) : null;
+    }
+
+    /**
+     * @return 交易已经在缓存中时返回false
+     */
+    public boolean put(Transaction tx) {
+        NulsDigestData hash = tx.getHash();
+        int weight = tx.size();
+        List<Entry> victims;
+        synchronized (this) {
+            if (probationMap.containsKey(hash) || protectedMap.containsKey(hash)) {
+                return false;
+            }
+            probationMap.put(hash, new Entry(tx, weight));
+            probationBytes += weight;
+            victims = evict();
+        }
+        spill(victims);
+        return true;
+    }
+
+    /**
+     * 先查堆内，再查堆外，堆外命中时反序列化后放回堆内
+     */
+    public Transaction get(NulsDigestData hash) {
+        if (hash == null) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = protectedMap.get(hash);
+            if (entry == null) {
+                entry = probationMap.remove(hash);
+                if (entry != null) {
+                    probationBytes -= entry.weight;
+                    promote(hash, entry);
+                }
+            }
+            if (entry != null) {
+                hitCount.incrementAndGet();
+                return entry.tx;
+            }
+        }
+        byte[] bytes = offHeapStore == null ? null : offHeapStore.get(hash);
+        if (bytes == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        Transaction tx;
+        try {
+            tx = TransactionManager.getInstance(new NulsByteBuffer(bytes));
+        } catch (Exception e) {
+            Log.error(e);
+            offHeapStore.remove(hash);
+            missCount.incrementAndGet();
+            return null;
+        }
+        offHeapHitCount.incrementAndGet();
+        put(tx);
+        return tx;
+    }
+
+    /**
+     * 获取序列化后的交易，用于直接应答其他节点
+     * 堆外未命中而堆内命中时，序列化一次并放入堆外
+     */
+    public byte[] getBytes(NulsDigestData hash) {
+        if (hash == null) {
+            return null;
+        }
+        if (offHeapStore != null) {
+            byte[] bytes = offHeapStore.get(hash);
+            if (bytes != null) {
+                offHeapHitCount.incrementAndGet();
+                return bytes;
+            }
+        }
+        Transaction tx;
+        synchronized (this) {
+            Entry entry = protectedMap.get(hash);
+            if (entry == null) {
+                entry = probationMap.get(hash);
+            }
+            tx = entry == null ? null : entry.tx;
+        }
+        if (tx == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        try {
+            byte[] bytes = tx.serialize();
+            putBytes(hash, bytes);
+            return bytes;
+        } catch (IOException e) {
+            Log.error(e);
+            return null;
+        }
+    }
+
+    /**
+     * 保存已经序列化的交易，只放入堆外，没有堆外缓存时忽略
+     */
+    public void putBytes(NulsDigestData hash, byte[] bytes) {
+        if (offHeapStore != null) {
+            offHeapStore.put(hash, bytes);
+        }
+    }
+
+    public boolean containsKey(NulsDigestData hash) {
+        synchronized (this) {
+            if (protectedMap.containsKey(hash) || probationMap.containsKey(hash)) {
+                return true;
+            }
+        }
+        return offHeapStore != null && offHeapStore.contains(hash);
+    }
+
+    public void remove(NulsDigestData hash) {
+        synchronized (this) {
+            Entry entry = probationMap.remove(hash);
+            if (entry != null) {
+                probationBytes -= entry.weight;
+            }
+            entry = protectedMap.remove(hash);
+            if (entry != null) {
+                protectedBytes -= entry.weight;
+            }
+        }
+        if (offHeapStore != null) {
+            offHeapStore.remove(hash);
+        }
+    }
+
+    /**
+     * 堆内缓存的交易快照
+     */
+    public synchronized List<Transaction> values() {
+        List<Transaction> list = new ArrayList<>(probationMap.size() + protectedMap.size());
+        for (Entry entry : protectedMap.values()) {
+            list.add(entry.tx);
+        }
+        for (Entry entry : probationMap.values()) {
+            list.add(entry.tx);
+        }
+        return list;
+    }
+
+    public synchronized int size() {
+        return probationMap.size() + protectedMap.size();
+    }
+
+    public void clear() {
+        synchronized (this) {
+            probationMap.clear();
+            protectedMap.clear();
+            probationBytes = 0;
+            protectedBytes = 0;
+        }
+        if (offHeapStore != null) {
+            offHeapStore.clear();
+        }
+    }
+
+    /**
+     * 晋升到保护段，保护段超出上限时把最久未访问的降回试用段
+     */
+    private void promote(NulsDigestData hash, Entry entry) {
+        protectedMap.put(hash, entry);
+        protectedBytes += entry.weight;
+        Iterator<Map.Entry<NulsDigestData, Entry>> iterator = protectedMap.entrySet().iterator();
+        while (protectedBytes > protectedMaxBytes && iterator.hasNext()) {
+            Map.Entry<NulsDigestData, Entry> eldest = iterator.next();
+            if (eldest.getKey().equals(hash)) {
+                break;
+            }
+            iterator.remove();
+            protectedBytes -= eldest.getValue().weight;
+            probationMap.put(eldest.getKey(), eldest.getValue());
+            probationBytes += eldest.getValue().weight;
+        }
+    }
+
+    private List<Entry> evict() {
+        List<Entry> victims = null;
+        while (probationBytes + protectedBytes > maxBytes) {
+            LinkedHashMap<NulsDigestData, Entry> map = probationMap.isEmpty() ? protectedMap : probationMap;
+            Iterator<Map.Entry<NulsDigestData, Entry>> iterator = map.entrySet().iterator();
+            if (!iterator.hasNext()) {
+                break;
+            }
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            if (map == probationMap) {
+                probationBytes -= eldest.weight;
+            } else {
+                protectedBytes -= eldest.weight;
+            }
+            evictionCount.incrementAndGet();
+            if (offHeapStore != null) {
+                if (victims == null) {
+                    victims = new ArrayList<>();
+                }
+                victims.add(eldest);
+            }
+        }
+        return victims;
+    }
+
+    /**
+     * 在锁外把淘汰的交易序列化后放入堆外
+     */
+    private void spill(List<Entry> victims) {
+        if (victims == null) {
+            return;
+        }
+        for (Entry victim : victims) {
+            try {
+                offHeapStore.put(victim.tx.getHash(), victim.tx.serialize());
+            } catch (IOException e) {
+                Log.error(e);
+            }
+        }
+    }
+
+    public TxCacheStats getStats() {
+        TxCacheStats stats = new TxCacheStats();
+        synchronized (this) {
+            stats.setCount(probationMap.size() + protectedMap.size());
+            stats.setBytes(probationBytes + protectedBytes);
+        }
+        stats.setMaxBytes(maxBytes);
+        stats.setHitCount(hitCount.get());
+        stats.setMissCount(missCount.get());
+        stats.setEvictionCount(evictionCount.get());
+        stats.setOffHeapHitCount(offHeapHitCount.get());
+        if (offHeapStore != null) {
+            stats.setOffHeapCount(offHeapStore.size());
+            stats.setOffHeapBytes(offHeapStore.getUsedBytes());
+            stats.setOffHeapMaxBytes(offHeapStore.getCapacity());
+        }
+        long total = stats.getHitCount() + stats.getOffHeapHitCount() + stats.getMissCount();
+        stats.setHitRate(total == 0 ? 0 : (double) (stats.getHitCount() + stats.getOffHeapHitCount()) / total);
+        return stats;
+    }
+
+    private static class Entry {
+        private final Transaction tx;
+        private final int weight;
+
+        Entry(Transaction tx, int weight) {
+            this.tx = tx;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 交易缓存的统计，字节数按序列化后的大小计算
+     * Transaction cache statistics, bytes are serialized sizes
+     */
+    public static class TxCacheStats {
+        private int count;
+        private long bytes;
+        private long maxBytes;
+        private long hitCount;
+        private long missCount;
+        private long evictionCount;
+        private int offHeapCount;
+        private long offHeapBytes;
+        private long offHeapMaxBytes;
+        private long offHeapHitCount;
+        private double hitRate;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public void setBytes(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public void setHitCount(long hitCount) {
+            this.hitCount = hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public void setMissCount(long missCount) {
+            this.missCount = missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public void setEvictionCount(long evictionCount) {
+            this.evictionCount = evictionCount;
+        }
+
+        public int getOffHeapCount() {
+            return offHeapCount;
+        }
+
+        public void setOffHeapCount(int offHeapCount) {
+            this.offHeapCount = offHeapCount;
+        }
+
+        public long getOffHeapBytes() {
+            return offHeapBytes;
+        }
+
+        public void setOffHeapBytes(long offHeapBytes) {
+            this.offHeapBytes = offHeapBytes;
+        }
+
+        public long getOffHeapMaxBytes() {
+            return offHeapMaxBytes;
+        }
+
+        public void setOffHeapMaxBytes(long offHeapMaxBytes) {
+            this.offHeapMaxBytes = offHeapMaxBytes;
+        }
+
+        public long getOffHeapHitCount() {
+            return offHeapHitCount;
+        }
+
+        public void setOffHeapHitCount(long offHeapHitCount) {
+            this.offHeapHitCount = offHeapHitCount;
+        }
+
+        public double getHitRate() {
+            return hitRate;
+        }
+
+        public void setHitRate(double hitRate) {
+            this.hitRate = hitRate;
+        }
+    }
+}
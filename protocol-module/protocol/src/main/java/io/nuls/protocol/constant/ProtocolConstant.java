@@ -158,6 +158,13 @@ public interface ProtocolConstant extends NulsConstant {
     short PROTOCOL_FORWARD_NEW_BLOCK = 18;
     short PROTOCOL_GET_SMALL_BLOCK = 19;
     short PROTOCOL_GET_TRANSACTION = 20;
+    /**
+     * 压缩区块，交易以短ID表示，以及按差分索引请求/应答缺失交易
+     * Compact block with short transaction ids, and the request/response for missing transactions by differential indexes
+     */
+    short PROTOCOL_COMPACT_BLOCK = 21;
+    short PROTOCOL_GET_BLOCK_TXN = 22;
+    short PROTOCOL_BLOCK_TXN = 23;
     //协议升级要求最低覆盖率
     int MIN_PROTOCOL_UPGRADE_RATE = 70; 
 
@@ -170,4 +177,14 @@ public interface ProtocolConstant extends NulsConstant {
      */
     Na MININUM_TRANSFER_AMOUNT = Na.parseNuls(0.01);
 
+    /**
+     * 配置项：临时交易缓存堆内和堆外的大小(MB)，堆外为0时不使用
+     * Config: heap and off-heap size (MB) of the temporary transaction cache, 0 disables the off-heap level
+     */
+    String CFG_PROTOCOL_SECTION = "protocol";
+    String CFG_TX_CACHE_SIZE = "tx.cache.size";
+    int DEFAULT_TX_CACHE_SIZE = 64;
+    String CFG_TX_CACHE_OFFHEAP_SIZE = "tx.cache.offheap.size";
+    int DEFAULT_TX_CACHE_OFFHEAP_SIZE = 32;
+
 }
@@ -46,6 +46,12 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
 
     private T msgBody;
 
+    /**
+     * 已经序列化好的消息体，设置后发送时直接写出这些字节，不再序列化msgBody，只用于发送
+     * Pre-serialized message body, written as is when set instead of serializing msgBody, send side only
+     */
+    private transient byte[] msgBodyBytes;
+
     public BaseMessage() {
 
     }
@@ -64,7 +70,7 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
     @Override
     protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
         stream.write(header.serialize());
-        stream.write(msgBody.serialize());
+        stream.write(msgBodyBytes != null ? msgBodyBytes : msgBody.serialize());
     }
 
     @Override
@@ -81,10 +87,14 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
     public int size() {
         int s = 0;
         s += header.size();
-        s += msgBody.size();
+        s += getMsgBodySize();
         return s;
     }
 
+    public int getMsgBodySize() {
+        return msgBodyBytes != null ? msgBodyBytes.length : msgBody.size();
+    }
+
     /**
      * 计算msgBody的验证值，通过简单的异或得出结果，将结果放入消息头中
      * The verification value of msgBody is calculated,
@@ -93,13 +103,13 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
      * @return 验证值（计算结果）,Verification value (calculation result)
      */
     public byte caculateXor() {
-        if (header == null || msgBody == null) {
+        if (header == null || (msgBody == null && msgBodyBytes == null)) {
             return 0x00;
         }
         byte xor = 0x00;
         byte[] data = new byte[0];
         try {
-            data = msgBody.serialize();
+            data = msgBodyBytes != null ? msgBodyBytes : msgBody.serialize();
         } catch (IOException e) {
             Log.error(e);
         }
@@ -118,6 +128,14 @@ public abstract class BaseMessage<T extends BaseNulsData> extends BaseNulsData {
         this.msgBody = msgBody;
     }
 
+    public byte[] getMsgBodyBytes() {
+        return msgBodyBytes;
+    }
+
+    public void setMsgBodyBytes(byte[] msgBodyBytes) {
+        this.msgBodyBytes = msgBodyBytes;
+    }
+
     public MessageHeader getHeader() {
         return header;
     }
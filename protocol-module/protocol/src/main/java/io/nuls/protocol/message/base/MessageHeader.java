@@ -42,6 +42,19 @@ import java.io.IOException;
  * @author Niels
  */
 public class MessageHeader extends BaseNulsData {
+
+    /**
+     * 消息体使用snappy压缩，复用加密算法标识字节，只发给协商了压缩服务的节点
+     * The body is snappy compressed, flagged in the arithmetic byte and only sent to peers that negotiated compression.
+     */
+    public static final byte ARITHMETIC_SNAPPY = 0x01;
+
+    /**
+     * 发送方能处理服务协商消息，旧版本节点不读取该字节，收到后直接忽略
+     * The sender handles the services negotiation message; older nodes never read the arithmetic byte and ignore the flag.
+     */
+    public static final byte ARITHMETIC_SERVICES = 0x02;
+
     /**
      * 魔法参数，用于隔离网段
      * Magic parameters used in the isolation section.
@@ -168,4 +181,12 @@ public class MessageHeader extends BaseNulsData {
         this.arithmetic = arithmetic;
     }
 
+    public boolean isCompressed() {
+        return (arithmetic & ARITHMETIC_SNAPPY) != 0;
+    }
+
+    public boolean isServicesSupported() {
+        return (arithmetic & ARITHMETIC_SERVICES) != 0;
+    }
+
 }
@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.model;
+
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.BaseNulsData;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import io.nuls.kernel.utils.SerializeUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 压缩区块，和小区块一样用于广播新区块，但交易摘要用6字节的短ID代替
+ * 短ID由区块头hash和nonce加盐计算，接收方用本地内存池中的交易重建区块，只请求缺失的交易
+ * Compact block, used like the small block to broadcast a new block, but every transaction hash is replaced by a 6-byte short id.
+ * The short ids are salted with the block hash and the nonce; the receiver rebuilds the block from its memory pool
+ * and only requests the missing transactions.
+ *
+ * @author Niels
+ */
+public class CompactBlock extends BaseNulsData {
+
+    /**
+     * 区块头
+     * block header
+     */
+    private BlockHeader header;
+
+    /**
+     * 计算短ID的随机数
+     * nonce used for the short ids
+     */
+    private long nonce;
+
+    /**
+     * 区块中全部交易的短ID，按交易在区块中的顺序排列
+     * short ids of all transactions in the block order
+     */
+    private List<Long> shortIdList;
+
+    /**
+     * 共识交易列表（其他节点一定没有的交易）
+     * Consensus trading list (transactions that no other node must have)
+     */
+    private List<Transaction> subTxList = new ArrayList<>();
+
+    /**
+     * 重建过程中已找到的交易，下标和短ID列表一致
+     * transactions found while rebuilding, indexed like the short id list
+     */
+    private transient Transaction[] txs;
+
+    public CompactBlock() {
+    }
+
+    @Override
+    public int size() {
+        int size = header.size();
+        size += SerializeUtils.sizeOfInt64();
+        size += SerializeUtils.sizeOfVarInt(shortIdList.size());
+        size += shortIdList.size() * SerializeUtils.sizeOfUint48();
+        size += SerializeUtils.sizeOfVarInt(subTxList.size());
+        for (Transaction tx : subTxList) {
+            size += SerializeUtils.sizeOfNulsData(tx);
+        }
+        return size;
+    }
+
+    @Override
+    protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
+        stream.writeNulsData(header);
+        stream.writeInt64(nonce);
+        stream.writeVarInt(shortIdList.size());
+        for (Long shortId : shortIdList) {
+            stream.writeUint48(shortId);
+        }
+        stream.writeVarInt(subTxList.size());
+        for (Transaction tx : subTxList) {
+            stream.writeNulsData(tx);
+        }
+    }
+
+    @Override
+    public void parse(NulsByteBuffer byteBuffer) throws NulsException {
+        this.header = byteBuffer.readNulsData(new BlockHeader());
+        this.nonce = byteBuffer.readInt64();
+
+        long shortIdCount = byteBuffer.readVarInt();
+        this.shortIdList = new ArrayList<>();
+        for (int i = 0; i < shortIdCount; i++) {
+            this.shortIdList.add(byteBuffer.readUint48());
+        }
+
+        this.subTxList = new ArrayList<>();
+        long subTxListSize = byteBuffer.readVarInt();
+        for (int i = 0; i < subTxListSize; i++) {
+            Transaction tx = byteBuffer.readTransaction();
+            tx.setBlockHeight(header.getHeight());
+            this.subTxList.add(tx);
+        }
+    }
+
+    public BlockHeader getHeader() {
+        return header;
+    }
+
+    public void setHeader(BlockHeader header) {
+        this.header = header;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    public void setNonce(long nonce) {
+        this.nonce = nonce;
+    }
+
+    public List<Long> getShortIdList() {
+        return shortIdList;
+    }
+
+    public void setShortIdList(List<Long> shortIdList) {
+        this.shortIdList = shortIdList;
+    }
+
+    public List<Transaction> getSubTxList() {
+        return subTxList;
+    }
+
+    public void setSubTxList(List<Transaction> subTxList) {
+        this.subTxList = subTxList;
+    }
+
+    public Transaction[] getTxs() {
+        return txs;
+    }
+
+    public void setTxs(Transaction[] txs) {
+        this.txs = txs;
+    }
+}
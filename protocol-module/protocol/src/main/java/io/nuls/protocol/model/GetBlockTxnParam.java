@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.model;
+
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.BaseNulsData;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import io.nuls.kernel.utils.SerializeUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按下标请求压缩区块中缺失的交易，下标按差分编码：每个值为与前一个下标的差再减一
+ * Requests the missing transactions of a compact block by index, the indexes are differentially encoded:
+ * each value is the distance to the previous index minus one.
+ *
+ * @author Niels
+ */
+public class GetBlockTxnParam extends BaseNulsData {
+
+    /**
+     * 区块摘要
+     * block hash
+     */
+    private NulsDigestData blockHash;
+
+    /**
+     * 缺失交易在区块中的下标，升序
+     * indexes of the missing transactions in the block, ascending
+     */
+    private List<Integer> indexList = new ArrayList<>();
+
+    public GetBlockTxnParam() {
+    }
+
+    @Override
+    public int size() {
+        int size = SerializeUtils.sizeOfNulsData(blockHash);
+        size += SerializeUtils.sizeOfVarInt(indexList.size());
+        int last = -1;
+        for (Integer index : indexList) {
+            size += SerializeUtils.sizeOfVarInt(index - last - 1);
+            last = index;
+        }
+        return size;
+    }
+
+    @Override
+    protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
+        stream.writeNulsData(blockHash);
+        stream.writeVarInt(indexList.size());
+        int last = -1;
+        for (Integer index : indexList) {
+            stream.writeVarInt(index - last - 1);
+            last = index;
+        }
+    }
+
+    @Override
+    public void parse(NulsByteBuffer byteBuffer) throws NulsException {
+        this.blockHash = byteBuffer.readHash();
+        long count = byteBuffer.readVarInt();
+        this.indexList = new ArrayList<>();
+        long index = -1;
+        for (int i = 0; i < count; i++) {
+            index += byteBuffer.readVarInt() + 1;
+            if (index > Integer.MAX_VALUE) {
+                throw new NulsException(new IllegalArgumentException("tx index overflow"));
+            }
+            this.indexList.add((int) index);
+        }
+    }
+
+    public NulsDigestData getBlockHash() {
+        return blockHash;
+    }
+
+    public void setBlockHash(NulsDigestData blockHash) {
+        this.blockHash = blockHash;
+    }
+
+    public List<Integer> getIndexList() {
+        return indexList;
+    }
+
+    public void setIndexList(List<Integer> indexList) {
+        this.indexList = indexList;
+    }
+}
@@ -92,6 +92,16 @@ public interface TransactionService {
      */
     Result newTx(Transaction tx);
 
+    /**
+     * 将从其他节点收到的交易缓存到共识交易池，来源节点用于限制每个节点的孤儿交易数量
+     * cache the transaction received from a peer for consensus
+     *
+     * @param tx       transaction
+     * @param fromNode 发送该交易的节点/the peer sending this transaction
+     * @return Result
+     */
+    Result newTx(Transaction tx, Node fromNode);
+
     /**
      * 冲突检测，检测如果传入的交易列表中有相冲突的交易，则返回失败，写明失败原因及所有的应该舍弃的交易列表
      * <p>
@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.protocol.cache;
+
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.TransactionManager;
+import io.nuls.protocol.model.tx.TransferTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 交易缓存的字节数限制、分段淘汰和堆外二级缓存测试
+ * <p>
+ * Tests of the byte budget, segmented eviction and the off-heap level of the transaction cache.
+ */
+public class TxCacheTest {
+
+    @Before
+    public void init() {
+        TransactionManager.putTx(TransferTransaction.class, null);
+    }
+
+    /**
+     * 总字节数不超过限制，超出时先淘汰最早放入的交易
+     */
+    @Test
+    public void byteBudget() throws IOException {
+        Transaction tx = createTx(0, 1000);
+        int weight = tx.size();
+        TxCache cache = new TxCache(weight * 10, 0);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(cache.put(createTx(i, 1000)));
+        }
+        assertFalse(cache.put(createTx(19, 1000)));
+        assertEquals(10, cache.size());
+        assertTrue(cache.getStats().getBytes() <= weight * 10);
+        assertNull(cache.get(createTx(0, 1000).getHash()));
+        assertNotNull(cache.get(createTx(19, 1000).getHash()));
+    }
+
+    /**
+     * 被再次访问过的交易晋升到保护段，大量只出现一次的交易不会把它挤出去
+     */
+    @Test
+    public void hotEntrySurvivesScan() throws IOException {
+        Transaction hot = createTx(-1, 1000);
+        TxCache cache = new TxCache(hot.size() * 10, 0);
+        cache.put(hot);
+        assertNotNull(cache.get(hot.getHash()));
+        for (int i = 0; i < 100; i++) {
+            cache.put(createTx(i, 1000));
+        }
+        assertNotNull(cache.get(hot.getHash()));
+        assertEquals(100 + 1 - 10, cache.getStats().getEvictionCount());
+    }
+
+    /**
+     * 淘汰的交易进入堆外，可以取回序列化字节，也可以反序列化为交易
+     */
+    @Test
+    public void offHeapLevel() throws IOException {
+        Transaction first = createTx(0, 3000);
+        byte[] bytes = first.serialize();
+        TxCache cache = new TxCache(first.size() * 2, 1024 * 1024);
+        cache.put(first);
+        cache.put(createTx(1, 3000));
+        cache.put(createTx(2, 3000));
+        assertEquals(2, cache.size());
+        assertTrue(cache.containsKey(first.getHash()));
+
+        assertArrayEquals(bytes, cache.getBytes(first.getHash()));
+        Transaction tx = cache.get(first.getHash());
+        assertNotNull(tx);
+        assertEquals(first.getHash(), tx.getHash());
+        assertEquals(first.getTime(), tx.getTime());
+        TxCache.TxCacheStats stats = cache.getStats();
+        assertEquals(2, stats.getOffHeapHitCount());
+        assertTrue(stats.getOffHeapBytes() > 0);
+    }
+
+    /**
+     * 堆外空间不足时按最近最少使用淘汰，释放的块可以重复使用
+     */
+    @Test
+    public void offHeapEviction() throws IOException {
+        OffHeapTxStore store = new OffHeapTxStore(16 * 1024);
+        NulsDigestData firstHash = null;
+        for (int i = 0; i < 50; i++) {
+            Transaction tx = createTx(i, 1000);
+            if (firstHash == null) {
+                firstHash = tx.getHash();
+            }
+            assertTrue(store.put(tx.getHash(), tx.serialize()));
+        }
+        assertTrue(store.getUsedBytes() <= store.getCapacity());
+        assertFalse(store.contains(firstHash));
+        Transaction last = createTx(49, 1000);
+        assertArrayEquals(last.serialize(), store.get(last.getHash()));
+        assertFalse(store.put(createTx(50, 1000).getHash(), new byte[32 * 1024]));
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, store.getUsedBytes());
+    }
+
+    private Transaction createTx(int index, int remarkSize) throws IOException {
+        Transaction tx = new TransferTransaction();
+        tx.setTime(1540000000000L + index);
+        tx.setRemark(new byte[remarkSize]);
+        tx.setHash(NulsDigestData.calcDigestData(tx.serializeForHash()));
+        return tx;
+    }
+}
@@ -0,0 +1,225 @@
+package io.nuls.protocol.model.tx;
+
+import io.nuls.kernel.context.NulsContext;
+import io.nuls.kernel.model.*;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.TransactionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 解析时保留规范编码的原始字节、在原始字节上计算hash和序列化的正确性，并输出一万笔交易的区块 解析→hash→序列化 的耗时
+ */
+public class TransactionEncodingTest {
+
+    private Integer mainNetVersion;
+
+    @Before
+    public void init() {
+        TransactionManager.putTx(TransferTransaction.class, null);
+        mainNetVersion = NulsContext.MAIN_NET_VERSION;
+        NulsContext.MAIN_NET_VERSION = 2;
+    }
+
+    @After
+    public void restore() {
+        NulsContext.MAIN_NET_VERSION = mainNetVersion;
+    }
+
+    @Test
+    public void hashAndSerializeFromWire() throws Exception {
+        TransferTransaction tx = createTx(new Random(1), 0);
+        byte[] bytes = tx.serialize();
+        NulsDigestData expected = NulsDigestData.calcDigestData(tx.serializeForHash());
+
+        Transaction parsed = TransactionManager.getInstance(new NulsByteBuffer(bytes));
+        assertEquals(expected, parsed.getHash());
+        assertArrayEquals(tx.serializeForHash(), parsed.serializeForHash());
+        assertArrayEquals(bytes, parsed.serialize());
+        assertEquals(bytes.length, parsed.size());
+
+        // getter没有副作用，serialize()返回的是副本
+        parsed.getCoinData();
+        parsed.getTxData();
+        parsed.getRemark();
+        byte[] serialized = parsed.serialize();
+        serialized[0] ^= 1;
+        assertArrayEquals(bytes, parsed.serialize());
+    }
+
+    /**
+     * setter修改字段之后按字段重新序列化；直接修改内部对象的调用方需要调用invalidateEncoded()
+     */
+    @Test
+    public void mutationInvalidates() throws Exception {
+        byte[] bytes = createTx(new Random(2), 0).serialize();
+        Transaction parsed = TransactionManager.getInstance(new NulsByteBuffer(bytes));
+        parsed.setRemark("changed".getBytes());
+        assertFalse(Arrays.equals(bytes, parsed.serialize()));
+        Transaction reparsed = TransactionManager.getInstance(new NulsByteBuffer(parsed.serialize()));
+        assertArrayEquals("changed".getBytes(), reparsed.getRemark());
+
+        parsed = TransactionManager.getInstance(new NulsByteBuffer(bytes));
+        parsed.getCoinData().getTo().get(0).setLockTime(100L);
+        assertArrayEquals(bytes, parsed.serialize());
+        parsed.invalidateEncoded();
+        reparsed = TransactionManager.getInstance(new NulsByteBuffer(parsed.serialize()));
+        assertEquals(100L, reparsed.getCoinData().getTo().get(0).getLockTime());
+    }
+
+    /**
+     * 非规范编码不保留原始字节，hash和序列化按字段计算，和之前的结果一致，不会被拒绝
+     */
+    @Test
+    public void nonCanonicalNormalized() throws Exception {
+        TransferTransaction tx = createTx(new Random(3), 0);
+        tx.setRemark(new byte[]{1, 2, 3});
+        byte[] bytes = nonCanonicalRemark(tx.serialize());
+        Transaction parsed = TransactionManager.getInstance(new NulsByteBuffer(bytes));
+        assertEquals(tx.getHash(), parsed.getHash());
+        assertArrayEquals(tx.serialize(), parsed.serialize());
+        assertEquals(bytes.length - 2, parsed.size());
+        assertArrayEquals(new byte[]{1, 2, 3}, parsed.getRemark());
+    }
+
+    /**
+     * 类型和时间按VarInt计算hash的历史区块中的交易，仍然按字段计算hash
+     */
+    @Test
+    public void oldBlockTxHashedOnFields() throws Exception {
+        Long changeHeight = NulsContext.CHANGE_HASH_SERIALIZE_HEIGHT;
+        NulsContext.CHANGE_HASH_SERIALIZE_HEIGHT = 1000L;
+        try {
+            TransferTransaction tx = createTx(new Random(4), 0);
+            tx.setBlockHeight(100);
+            Transaction parsed = TransactionManager.getInstance(new NulsByteBuffer(tx.serialize()));
+            parsed.setBlockHeight(100);
+            assertEquals(tx.getHash(), parsed.getHash());
+            assertNotEquals(NulsDigestData.calcDigestData(Arrays.copyOf(tx.serialize(), tx.serializeForHash().length)), parsed.getHash());
+
+            parsed = TransactionManager.getInstance(new NulsByteBuffer(tx.serialize()));
+            parsed.setBlockHeight(1000);
+            tx = createTx(new Random(4), 0);
+            tx.setBlockHeight(1000);
+            assertEquals(tx.getHash(), parsed.getHash());
+        } finally {
+            NulsContext.CHANGE_HASH_SERIALIZE_HEIGHT = changeHeight;
+        }
+    }
+
+    @Test
+    public void blockRoundTrip() throws Exception {
+        Block block = createBlock(100);
+        byte[] bytes = block.serialize();
+        Block parsed = new NulsByteBuffer(bytes).readNulsData(new Block());
+        assertArrayEquals(bytes, parsed.serialize());
+        for (int i = 0; i < block.getTxs().size(); i++) {
+            assertEquals(block.getTxs().get(i).getHash(), parsed.getTxs().get(i).getHash());
+        }
+    }
+
+    /**
+     * 接收10000笔未确认交易时解析和计算hash的耗时，对比按字段重新序列化计算hash
+     */
+    @Test
+    public void benchmark() throws Exception {
+        Random random = new Random(10000);
+        List<byte[]> txBytes = new ArrayList<>(10000);
+        for (int i = 0; i < 10000; i++) {
+            txBytes.add(createTx(random, i).serialize());
+        }
+        int rounds = 10;
+        for (int r = 0; r < 2; r++) {
+            long parseNanos = 0, hashNanos = 0, oldHashNanos = 0;
+            for (int i = 0; i < rounds; i++) {
+                List<Transaction> txs = new ArrayList<>(txBytes.size());
+                long start = System.nanoTime();
+                for (byte[] bytes : txBytes) {
+                    txs.add(TransactionManager.getInstance(new NulsByteBuffer(bytes)));
+                }
+                parseNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                for (Transaction tx : txs) {
+                    tx.getHash();
+                }
+                hashNanos += System.nanoTime() - start;
+
+                // 旧的方式：丢弃原始字节，按字段重新序列化后计算hash
+                txs.clear();
+                for (byte[] bytes : txBytes) {
+                    Transaction tx = TransactionManager.getInstance(new NulsByteBuffer(bytes));
+                    tx.invalidateEncoded();
+                    txs.add(tx);
+                }
+                start = System.nanoTime();
+                for (Transaction tx : txs) {
+                    tx.getHash();
+                }
+                oldHashNanos += System.nanoTime() - start;
+            }
+            System.out.println("10000 received transfers: parse " + parseNanos / rounds / 1000000 + "ms, hash "
+                    + hashNanos / rounds / 1000000 + "ms (re-serialize " + oldHashNanos / rounds / 1000000 + "ms)");
+        }
+    }
+
+    /**
+     * 备注长度3改用非最短的VarInt编码(0xfd + uint16)
+     */
+    private byte[] nonCanonicalRemark(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(bytes, 0, 8);
+        out.write(new byte[]{(byte) 0xfd, 3, 0}, 0, 3);
+        out.write(bytes, 9, bytes.length - 9);
+        return out.toByteArray();
+    }
+
+    private Block createBlock(int txCount) throws IOException {
+        Random random = new Random(txCount);
+        List<Transaction> txs = new ArrayList<>(txCount);
+        for (int i = 0; i < txCount; i++) {
+            txs.add(createTx(random, i));
+        }
+        BlockHeader header = new BlockHeader();
+        header.setPreHash(NulsDigestData.calcDigestData(new byte[]{1}));
+        header.setMerkleHash(NulsDigestData.calcDigestData(new byte[]{2}));
+        header.setTime(1540000000000L);
+        header.setHeight(100);
+        header.setTxCount(txCount);
+        Block block = new Block();
+        block.setHeader(header);
+        block.setTxs(txs);
+        return block;
+    }
+
+    private TransferTransaction createTx(Random random, int index) throws IOException {
+        TransferTransaction tx = new TransferTransaction();
+        tx.setTime(1540000000000L + index);
+        CoinData coinData = new CoinData();
+        byte[] hashBytes = new byte[32];
+        random.nextBytes(hashBytes);
+        byte[] owner = new byte[35];
+        System.arraycopy(new NulsDigestData(NulsDigestData.DIGEST_ALG_SHA256, hashBytes).serialize(), 0, owner, 0, 34);
+        coinData.addFrom(new Coin(owner, Na.valueOf(100000000L + random.nextInt(1000)), 0));
+        byte[] address = new byte[23];
+        random.nextBytes(address);
+        address[0] = 4;
+        address[1] = 1;
+        address[2] = 1;
+        coinData.addTo(new Coin(address, Na.valueOf(random.nextInt(100000000)), 0));
+        tx.setCoinData(coinData);
+        byte[] sign = new byte[105];
+        random.nextBytes(sign);
+        tx.setTransactionSignature(sign);
+        return tx;
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package io.nuls.cache;
+
+import io.nuls.cache.model.BoundedCacheStats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * 有界的并发缓存，按条数或权重限制容量，超出后淘汰最近最少使用的条目
+ * 读操作不加锁，只把访问记录写入一个有损的环形缓冲区，由后续的写操作或缓冲区写满时批量回放到LRU链表；
+ * 写操作在锁内以O(1)的代价更新哈希表和链表，每次只淘汰到容量以内，不会出现一次性清掉一半数据的抖动。
+ * 可选：写入后过期、按值计算权重、TinyLFU准入(新条目的访问频率低于待淘汰条目时不放入缓存)。
+ * <p>
+ * Bounded concurrent cache limited by entry count or weight, evicting the least recently used entries.
+ * Reads are lock free and only record the access in a lossy ring buffer that is replayed onto the LRU list in batches;
+ * writes update the map and the list in O(1) under a lock and evict just enough to get back within bounds.
+ * Optional expire-after-write, weigher and TinyLFU admission.
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class BoundedCache<K, V> {
+
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int READ_DRAIN_THRESHOLD = 32;
+    /**
+     * 每次写操作最多检查的过期条目数
+     */
+    private static final int EXPIRE_SCAN_LIMIT = 16;
+
+    private final long maximumSize;
+    private final long maximumWeight;
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final FrequencySketch sketch;
+
+    /**
+     * 所有修改都在lock内进行，get/containsKey直接读
+     */
+    private final ConcurrentHashMap<K, Node<K, V>> map;
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * LRU链表，head是最久未访问的条目，受lock保护
+     */
+    private Node<K, V> head;
+    private Node<K, V> tail;
+    private long weightedSize;
+
+    private final AtomicReferenceArray<Node<K, V>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong readCounter = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private BoundedCache(Builder<K, V> builder) {
+        this.maximumSize = builder.maximumSize > 0 ? builder.maximumSize : Long.MAX_VALUE;
+        this.maximumWeight = builder.maximumWeight > 0 ? builder.maximumWeight : Long.MAX_VALUE;
+        this.weigher = builder.weigher;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.sketch = builder.admission ? new FrequencySketch(maximumSize == Long.MAX_VALUE ? 4096 : maximumSize) : null;
+        this.map = new ConcurrentHashMap<>((int) Math.min(maximumSize == Long.MAX_VALUE ? 16 : maximumSize, 1 << 16));
+    }
+
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 按条数限制的LRU缓存，替代原来的LimitHashMap
+     */
+    public static <K, V> BoundedCache<K, V> ofSize(long maximumSize) {
+        return BoundedCache.<K, V>builder().maximumSize(maximumSize).build();
+    }
+
+    public V get(K key) {
+        Node<K, V> node = map.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        if (isExpired(node, now())) {
+            removeExpired(node);
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        afterRead(node);
+        return node.value;
+    }
+
+    /**
+     * 放入缓存，返回被替换的旧值
+     * Puts the value and returns the replaced one
+     */
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        long weight = weigher == null ? 1 : weigher.applyAsLong(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight: " + weight);
+        }
+        long now = now();
+        lock.lock();
+        try {
+            drainReadBuffer();
+            Node<K, V> node = map.get(key);
+            V old = null;
+            Node<K, V> candidate = null;
+            if (node != null) {
+                old = isExpired(node, now) ? null : node.value;
+                node.value = value;
+                weightedSize += weight - node.weight;
+                node.weight = weight;
+                node.writeTime = now;
+                moveToTail(node);
+            } else {
+                node = new Node<>(key, value, weight, now);
+                map.put(key, node);
+                linkLast(node);
+                weightedSize += weight;
+                candidate = node;
+            }
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+            evict(candidate);
+            expireHead(now);
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        lock.lock();
+        try {
+            Node<K, V> node = map.get(key);
+            if (node == null) {
+                return null;
+            }
+            removeNode(node);
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean containsKey(K key) {
+        Node<K, V> node = map.get(key);
+        return node != null && !isExpired(node, now());
+    }
+
+    /**
+     * 当前未过期的值的快照
+     */
+    public Collection<V> values() {
+        long now = now();
+        List<V> list = new ArrayList<>(map.size());
+        for (Node<K, V> node : map.values()) {
+            if (!isExpired(node, now)) {
+                list.add(node.value);
+            }
+        }
+        return list;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long weightedSize() {
+        lock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                readBuffer.lazySet(i, null);
+            }
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                node.linked = false;
+            }
+            head = null;
+            tail = null;
+            weightedSize = 0;
+            map.clear();
+            if (sketch != null) {
+                sketch.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 回放访问记录并清理所有过期条目，没有写操作的缓存可以定时调用
+     * Replays pending reads and removes every expired entry
+     */
+    public void cleanUp() {
+        lock.lock();
+        try {
+            drainReadBuffer();
+            if (expireAfterWriteNanos <= 0) {
+                return;
+            }
+            long now = now();
+            Node<K, V> node = head;
+            while (node != null) {
+                Node<K, V> next = node.next;
+                if (isExpired(node, now)) {
+                    removeNode(node);
+                    expiredCount.increment();
+                }
+                node = next;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public BoundedCacheStats getStats() {
+        BoundedCacheStats stats = new BoundedCacheStats();
+        stats.setSize(map.size());
+        stats.setWeightedSize(weightedSize());
+        stats.setHitCount(hitCount.sum());
+        stats.setMissCount(missCount.sum());
+        stats.setEvictionCount(evictionCount.sum());
+        stats.setExpiredCount(expiredCount.sum());
+        stats.setRejectedCount(rejectedCount.sum());
+        return stats;
+    }
+
+    private void afterRead(Node<K, V> node) {
+        long index = readCounter.getAndIncrement();
+        readBuffer.lazySet((int) (index & READ_BUFFER_MASK), node);
+        if ((index & (READ_DRAIN_THRESHOLD - 1)) == READ_DRAIN_THRESHOLD - 1 && lock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            Node<K, V> node = readBuffer.get(i);
+            if (node == null) {
+                continue;
+            }
+            readBuffer.compareAndSet(i, node, null);
+            if (node.linked) {
+                moveToTail(node);
+                if (sketch != null) {
+                    sketch.increment(node.key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 淘汰到容量以内；开启准入时，新条目比待淘汰条目访问频率低则淘汰新条目
+     */
+    private void evict(Node<K, V> candidate) {
+        while (head != null && (map.size() > maximumSize || weightedSize > maximumWeight)) {
+            Node<K, V> victim = head;
+            if (sketch != null && candidate != null && candidate.linked && victim != candidate
+                    && sketch.frequency(candidate.key) < sketch.frequency(victim.key)) {
+                removeNode(candidate);
+                rejectedCount.increment();
+                candidate = null;
+                continue;
+            }
+            removeNode(victim);
+            evictionCount.increment();
+        }
+    }
+
+    private void expireHead(long now) {
+        if (expireAfterWriteNanos <= 0) {
+            return;
+        }
+        Node<K, V> node = head;
+        for (int i = 0; i < EXPIRE_SCAN_LIMIT && node != null; i++) {
+            Node<K, V> next = node.next;
+            if (isExpired(node, now)) {
+                removeNode(node);
+                expiredCount.increment();
+            }
+            node = next;
+        }
+    }
+
+    private void removeExpired(Node<K, V> node) {
+        lock.lock();
+        try {
+            if (node.linked) {
+                removeNode(node);
+                expiredCount.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos;
+    }
+
+    private long now() {
+        return expireAfterWriteNanos > 0 ? System.nanoTime() : 0L;
+    }
+
+    private void removeNode(Node<K, V> node) {
+        map.remove(node.key, node);
+        unlink(node);
+        weightedSize -= node.weight;
+    }
+
+    private void linkLast(Node<K, V> node) {
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        node.linked = true;
+    }
+
+    private void unlink(Node<K, V> node) {
+        Node<K, V> prev = node.prev;
+        Node<K, V> next = node.next;
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.prev = prev;
+        }
+        node.prev = null;
+        node.next = null;
+        node.linked = false;
+    }
+
+    private void moveToTail(Node<K, V> node) {
+        if (node == tail) {
+            return;
+        }
+        unlink(node);
+        linkLast(node);
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private volatile V value;
+        private volatile long writeTime;
+        private long weight;
+        private volatile boolean linked;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        Node(K key, V value, long weight, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+    }
+
+    public static final class Builder<K, V> {
+        private long maximumSize;
+        private long maximumWeight;
+        private ToLongBiFunction<? super K, ? super V> weigher;
+        private long expireAfterWriteNanos;
+        private boolean admission;
+
+        private Builder() {
+        }
+
+        /**
+         * 最大条数
+         */
+        public Builder<K, V> maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * 最大总权重，需要同时设置weigher
+         */
+        public Builder<K, V> maximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        public Builder<K, V> weigher(ToLongBiFunction<? super K, ? super V> weigher) {
+            this.weigher = weigher;
+            return this;
+        }
+
+        public Builder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * 开启TinyLFU准入，适合热点集中、偶发扫描会冲掉热点的场景
+         */
+        public Builder<K, V> tinyLfu() {
+            this.admission = true;
+            return this;
+        }
+
+        public BoundedCache<K, V> build() {
+            if (maximumSize <= 0 && maximumWeight <= 0) {
+                throw new IllegalStateException("maximumSize or maximumWeight is required");
+            }
+            if ((maximumWeight > 0) != (weigher != null)) {
+                throw new IllegalStateException("maximumWeight and weigher must be set together");
+            }
+            return new BoundedCache<>(this);
+        }
+    }
+}
@@ -35,7 +35,9 @@ import java.util.concurrent.LinkedBlockingDeque;
 /**
  * @author: Niels Wang
  * @date: 2018/7/5
+ * @deprecated remove是O(n)的，超出容量时一次淘汰一半数据，使用 {@link BoundedCache} 代替
  */
+@Deprecated
 public class LimitHashMap<K, V> {
 
     private final int maxSize;
@@ -0,0 +1,176 @@
+package io.nuls.cache;
+
+import io.nuls.cache.model.BoundedCacheStats;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 淘汰、权重、过期、准入的正确性，并输出和LimitHashMap在相同操作下的耗时对比
+ */
+public class BoundedCacheTest {
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        BoundedCache<Integer, String> cache = BoundedCache.ofSize(3);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.put(3, "c");
+        assertEquals("a", cache.get(1));
+        // 访问记录在下一次写操作时回放，1变成最近使用的条目
+        cache.put(4, "d");
+        assertEquals(3, cache.size());
+        assertTrue(cache.containsKey(1));
+        assertFalse(cache.containsKey(2));
+        assertEquals("c", cache.put(3, "e"));
+        assertEquals("e", cache.remove(3));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void weight() {
+        BoundedCache<Integer, byte[]> cache = BoundedCache.<Integer, byte[]>builder()
+                .maximumWeight(1000)
+                .weigher((k, v) -> v.length)
+                .build();
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, new byte[300]);
+        }
+        assertEquals(3, cache.size());
+        assertEquals(900, cache.weightedSize());
+        cache.put(100, new byte[2000]);
+        assertFalse(cache.containsKey(100));
+        assertTrue(cache.weightedSize() <= 1000);
+    }
+
+    @Test
+    public void expire() throws InterruptedException {
+        BoundedCache<Integer, String> cache = BoundedCache.<Integer, String>builder()
+                .maximumSize(100)
+                .expireAfterWrite(50, TimeUnit.MILLISECONDS)
+                .build();
+        cache.put(1, "a");
+        assertEquals("a", cache.get(1));
+        Thread.sleep(80);
+        assertFalse(cache.containsKey(1));
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+        assertTrue(cache.values().isEmpty());
+        assertEquals(1, cache.getStats().getExpiredCount());
+    }
+
+    @Test
+    public void tinyLfuKeepsHotEntries() {
+        BoundedCache<Integer, Integer> cache = BoundedCache.<Integer, Integer>builder()
+                .maximumSize(100)
+                .tinyLfu()
+                .build();
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                cache.get(i);
+            }
+            cache.cleanUp();
+        }
+        // 一次性扫描大量冷数据，热点数据应该保留下来
+        for (int i = 1000; i < 2000; i++) {
+            cache.put(i, i);
+        }
+        int hot = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.containsKey(i)) {
+                hot++;
+            }
+        }
+        assertTrue("hot entries kept: " + hot, hot > 90);
+        assertEquals(100, cache.size());
+        assertTrue(cache.getStats().getRejectedCount() > 0);
+    }
+
+    @Test
+    public void concurrent() throws InterruptedException {
+        BoundedCache<Integer, Integer> cache = BoundedCache.ofSize(1000);
+        int threads = 8;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 100000; i++) {
+                    int key = random.nextInt(5000);
+                    int op = random.nextInt(10);
+                    if (op < 6) {
+                        cache.get(key);
+                    } else if (op < 9) {
+                        cache.put(key, key);
+                    } else {
+                        cache.remove(key);
+                    }
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        cache.cleanUp();
+        assertTrue(cache.size() <= 1000);
+        assertEquals(cache.size(), cache.weightedSize());
+        for (Integer value : cache.values()) {
+            assertEquals(value, cache.get(value));
+        }
+    }
+
+    @Test
+    public void benchmark() {
+        int size = 200000;
+        List<String> keys = new ArrayList<>(size * 2);
+        for (int i = 0; i < size * 2; i++) {
+            keys.add("tx-" + i);
+        }
+        for (int round = 0; round < 3; round++) {
+            LimitHashMap<String, String> limitHashMap = new LimitHashMap<>(size);
+            long start = System.nanoTime();
+            for (String key : keys) {
+                limitHashMap.put(key, key);
+            }
+            long put = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (String key : keys) {
+                limitHashMap.get(key);
+            }
+            long get = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < 2000; i++) {
+                limitHashMap.remove(keys.get(keys.size() - 1 - i));
+            }
+            long remove = System.nanoTime() - start;
+            System.out.println("LimitHashMap: put " + put / 1000000 + "ms, get " + get / 1000000 + "ms, remove 2000 " + remove / 1000000 + "ms, size " + limitHashMap.size());
+
+            BoundedCache<String, String> cache = BoundedCache.ofSize(size);
+            start = System.nanoTime();
+            for (String key : keys) {
+                cache.put(key, key);
+            }
+            put = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (String key : keys) {
+                cache.get(key);
+            }
+            get = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < 2000; i++) {
+                cache.remove(keys.get(keys.size() - 1 - i));
+            }
+            remove = System.nanoTime() - start;
+            BoundedCacheStats stats = cache.getStats();
+            System.out.println("BoundedCache: put " + put / 1000000 + "ms, get " + get / 1000000 + "ms, remove 2000 " + remove / 1000000 + "ms, size " + cache.size() + ", hit rate " + stats.getHitRate());
+        }
+    }
+}
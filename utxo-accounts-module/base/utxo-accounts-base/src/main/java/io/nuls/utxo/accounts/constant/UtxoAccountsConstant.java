@@ -30,6 +30,15 @@ public interface UtxoAccountsConstant extends NulsConstant {
 
     short MODULE_ID_UTXOACCOUNTS = 11;
 
+    /**
+     * 配置项：追块时一次批量写入的区块数，热点地址余额缓存的条数
+     */
+    String CFG_UTXO_ACCOUNTS_SECTION = "utxo-accounts";
+    String CFG_SYN_BATCH_BLOCKS = "syn.batch.blocks";
+    int DEFAULT_SYN_BATCH_BLOCKS = 200;
+    String CFG_BALANCE_CACHE_SIZE = "balance.cache.size";
+    int DEFAULT_BALANCE_CACHE_SIZE = 20000;
+
     int TX_TYPE_REGISTER_AGENT = 4;
     int TX_TYPE_JOIN_CONSENSUS = 5;
     int TX_TYPE_CANCEL_DEPOSIT = 6;
@@ -25,6 +25,7 @@
 package io.nuls.utxo.accounts.module.impl;
 
 import io.nuls.core.tools.log.Log;
+import io.nuls.kernel.cfg.NulsConfig;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.model.Block;
 import io.nuls.kernel.thread.manager.NulsThreadFactory;
@@ -55,6 +56,8 @@ public class UtxoAccountsModuleBootstrap extends AbstractUtxoAccountsModule {
             UtxoAccountsService utxoAccountsService = NulsContext.getServiceBean(UtxoAccountsService.class);
             UtxoAccountsStorageService utxoAccountsStorageService = NulsContext.getServiceBean(UtxoAccountsStorageService.class);
             BlockService blockService = NulsContext.getServiceBean(BlockService.class);
+            utxoAccountsService.setBalanceCacheSize(NulsConfig.MODULES_CONFIG.getCfgValue(UtxoAccountsConstant.CFG_UTXO_ACCOUNTS_SECTION,
+                    UtxoAccountsConstant.CFG_BALANCE_CACHE_SIZE, UtxoAccountsConstant.DEFAULT_BALANCE_CACHE_SIZE));
             long hadSynBlockHeight = utxoAccountsStorageService.getHadSynBlockHeight();
             //启动处理数据一致性
            if(!utxoAccountsService.validateIntegrityBootstrap(hadSynBlockHeight)){
@@ -67,8 +70,11 @@ public class UtxoAccountsModuleBootstrap extends AbstractUtxoAccountsModule {
             return;
 
         }
+        UtxoAccountsThread utxoAccountsThread = NulsContext.getServiceBean(UtxoAccountsThread.class);
+        utxoAccountsThread.setSynBatchBlocks(NulsConfig.MODULES_CONFIG.getCfgValue(UtxoAccountsConstant.CFG_UTXO_ACCOUNTS_SECTION,
+                UtxoAccountsConstant.CFG_SYN_BATCH_BLOCKS, UtxoAccountsConstant.DEFAULT_SYN_BATCH_BLOCKS));
         ScheduledThreadPoolExecutor executor = TaskManager.createScheduledThreadPool(1, new NulsThreadFactory(UtxoAccountsConstant.MODULE_ID_UTXOACCOUNTS, "utxoAccountsThread"));
-        executor.scheduleAtFixedRate(NulsContext.getServiceBean(UtxoAccountsThread.class), 15, 1, TimeUnit.SECONDS);
+        executor.scheduleAtFixedRate(utxoAccountsThread, 15, 1, TimeUnit.SECONDS);
 
     }
 
@@ -31,4 +31,18 @@ public interface UtxoAccountsService {
 //    public boolean validateBlock();
 //    public boolean rollbackBlock();
     boolean  synBlock(long blockHeight);
+
+    /**
+     * 同步[startHeight, endHeight]之间的区块，所有区块解析完成后一次批量写入
+     * Synchronize the blocks in [startHeight, endHeight] and write them in one batch
+     *
+     * @return 已同步到的高度，没有同步任何区块时返回 startHeight - 1
+     */
+    long synBlocks(long startHeight, long endHeight);
+
+    /**
+     * 设置追块时热点地址余额缓存的条数
+     * Set the entry count of the hot address balance cache
+     */
+    void setBalanceCacheSize(int balanceCacheSize);
 }
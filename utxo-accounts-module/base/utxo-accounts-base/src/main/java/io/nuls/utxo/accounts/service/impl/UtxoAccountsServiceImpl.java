@@ -26,6 +26,7 @@ package io.nuls.utxo.accounts.service.impl;
 
 import io.nuls.contract.dto.ContractTransfer;
 import io.nuls.contract.service.ContractService;
+import io.nuls.core.tools.array.ArraysTool;
 import io.nuls.core.tools.log.Log;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.exception.NulsException;
@@ -37,11 +38,15 @@ import io.nuls.kernel.model.Coin;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Transaction;
 import io.nuls.kernel.utils.AddressTool;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+import io.nuls.kernel.utils.VarInt;
+import io.nuls.utxo.accounts.constant.UtxoAccountsConstant;
 import io.nuls.utxo.accounts.service.UtxoAccountsService;
 import io.nuls.utxo.accounts.storage.constant.UtxoAccountsStorageConstant;
 import io.nuls.utxo.accounts.storage.po.LocalCacheBlockBalance;
 import io.nuls.utxo.accounts.storage.po.LockedBalance;
 import io.nuls.utxo.accounts.storage.po.UtxoAccountsBalancePo;
+import io.nuls.utxo.accounts.storage.po.UtxoAccountsPrevoutPo;
 import io.nuls.utxo.accounts.storage.service.UtxoAccountsStorageService;
 import io.nuls.utxo.accounts.util.UtxoAccountsUtil;
 
@@ -55,10 +60,49 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
     @Autowired
     ContractService contractService;
 
-    private byte[] getInputAddress(Coin from) {
+    /**
+     * 最近写入的地址余额，追块时同一批地址反复出现，命中时不再读库
+     * 只在同步线程上访问，回滚时清空
+     */
+    private Map<String, UtxoAccountsBalancePo> balanceCache = createBalanceCache(UtxoAccountsConstant.DEFAULT_BALANCE_CACHE_SIZE);
+
+    @Override
+    public void setBalanceCacheSize(int balanceCacheSize) {
+        this.balanceCache = createBalanceCache(balanceCacheSize);
+    }
+
+    private static Map<String, UtxoAccountsBalancePo> createBalanceCache(int maxSize) {
+        return new LinkedHashMap<String, UtxoAccountsBalancePo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UtxoAccountsBalancePo> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * 输入所属的地址，先查本批次内产生的输出，再查输出日志，都没有时(日志建立之前产生的输出或回滚后重新同步)加载前置交易
+     */
+    private byte[] getInputAddress(Coin from, SynBatch batch) {
+        byte[] owner = from.getOwner();
+        ByteArrayWrapper outpoint = new ByteArrayWrapper(owner);
+        // 本批次内产生又被花费的输出不需要写入日志
+        UtxoAccountsPrevoutPo prevout = batch.createdPrevouts.remove(outpoint);
+        if (prevout == null) {
+            prevout = utxoAccountsStorageService.getPrevout(owner);
+            if (prevout != null) {
+                batch.spentPrevouts.add(outpoint);
+            }
+        }
+        if (prevout != null) {
+            return prevout.getOwner();
+        }
+        return getInputAddressByTx(owner);
+    }
+
+    private byte[] getInputAddressByTx(byte[] owner) {
         byte[] fromHash;
         int fromIndex;
-        byte[] owner = from.getOwner();
         // owner拆分出txHash和index
         fromHash = UtxoAccountsUtil.getTxHashBytes(owner);
         fromIndex = UtxoAccountsUtil.getIndex(owner);
@@ -73,7 +117,8 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
         }
     }
 
-    private boolean buildUtxoAccountsMap(Map<String, UtxoAccountsBalancePo> utxoAccountsMap, Block block) {
+    private boolean buildUtxoAccountsMap(Map<String, UtxoAccountsBalancePo> utxoAccountsMap, Block block, SynBatch batch,
+                                         List<byte[]> createdPrevoutList) {
         List<Transaction> txs = block.getTxs();
         int txIndex = 0;
         for (Transaction tx : txs) {
@@ -85,12 +130,18 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
                 List<Coin> to = tx.getCoinData().getTo();
 
                 for (Coin inputCoin : from) {
-                    byte[] inputOwner = getInputAddress(inputCoin);
+                    byte[] inputOwner = getInputAddress(inputCoin, batch);
                     inputCoin.setOwner(inputOwner);
                     buildUtxoAccountsBalance(utxoAccountsMap, inputCoin, tx, txIndex, true);
                 }
-                for (Coin outputCoin : to) {
+                byte[] txHashBytes = tx.getHash().serialize();
+                for (int i = 0; i < to.size(); i++) {
+                    Coin outputCoin = to.get(i);
                     buildUtxoAccountsBalance(utxoAccountsMap, outputCoin, tx, txIndex, false);
+                    byte[] outpoint = ArraysTool.concatenate(txHashBytes, new VarInt(i).encode());
+                    batch.createdPrevouts.put(new ByteArrayWrapper(outpoint),
+                            new UtxoAccountsPrevoutPo(outputCoin.getOwner(), outputCoin.getNa().getValue(), outputCoin.getLockTime()));
+                    createdPrevoutList.add(outpoint);
                 }
                 //若区块中得到合约转账(从合约转出)交易，这段代码应该去掉
                 //增加智能合约内部交易逻辑
@@ -191,22 +242,21 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
     }
 
     /**
-     * build utxoAccounts  to list
+     * 把本区块的余额变化合并到批次中，同时记录合并前的余额用于回滚
+     * merge the balance changes of a block into the batch and keep the previous balances for rollback
      *
      * @param utxoAccountsMap
-     * @return
      * @throws NulsException
      */
-    private List<UtxoAccountsBalancePo> utxoAccountsMapToList(Map<String, UtxoAccountsBalancePo> utxoAccountsMap, LocalCacheBlockBalance preSnapshot)
+    private void mergeUtxoAccountsMap(Map<String, UtxoAccountsBalancePo> utxoAccountsMap, LocalCacheBlockBalance preSnapshot, SynBatch batch)
             throws NulsException {
-        List<UtxoAccountsBalancePo> list = new ArrayList<>();
         List<UtxoAccountsBalancePo> preList = new ArrayList<>();
         preSnapshot.setBalanceList(preList);
-        Collection<UtxoAccountsBalancePo> utxoAccountsBalances = utxoAccountsMap.values();
-        for (UtxoAccountsBalancePo balance : utxoAccountsBalances) {
-            UtxoAccountsBalancePo localBalance = utxoAccountsStorageService.getUtxoAccountsBalanceByAddress(balance.getOwner()).getData();
+        for (Map.Entry<String, UtxoAccountsBalancePo> entry : utxoAccountsMap.entrySet()) {
+            UtxoAccountsBalancePo balance = entry.getValue();
+            UtxoAccountsBalancePo localBalance = getLocalBalance(entry.getKey(), balance.getOwner(), batch);
             if (localBalance == null) {
-                list.add(balance);
+                batch.balances.put(entry.getKey(), balance);
                 UtxoAccountsBalancePo preBalance = new UtxoAccountsBalancePo();
                 preBalance.setOwner(balance.getOwner());
                 preList.add(preBalance);
@@ -223,10 +273,24 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
                 newBalance.setLockedPermanentBalance(localBalance.getLockedPermanentBalance() + (balance.getLockedPermanentBalance()));
                 newBalance.setUnLockedPermanentBalance(localBalance.getUnLockedPermanentBalance() + (balance.getUnLockedPermanentBalance()));
                 clearLockedBalance(localBalance, balance, newBalance);
-                list.add(newBalance);
+                batch.balances.put(entry.getKey(), newBalance);
             }
         }
-        return list;
+    }
+
+    /**
+     * 合并前的余额：本批次中已更新的 -> 缓存 -> 数据库
+     * 余额对象合并后不再修改，所以可以直接共享
+     */
+    private UtxoAccountsBalancePo getLocalBalance(String address, byte[] owner, SynBatch batch) throws NulsException {
+        UtxoAccountsBalancePo localBalance = batch.balances.get(address);
+        if (localBalance == null) {
+            localBalance = balanceCache.get(address);
+        }
+        if (localBalance == null) {
+            localBalance = utxoAccountsStorageService.getUtxoAccountsBalanceByAddress(owner).getData();
+        }
+        return localBalance;
     }
 
     private void clearLockedBalance(UtxoAccountsBalancePo dbBalance, UtxoAccountsBalancePo addBalance, UtxoAccountsBalancePo newBalance) {
@@ -260,9 +324,17 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
     }
 
 
+    /**
+     * 回滚顺序：已同步高度 -> 余额 -> 输出日志 -> 区块缓存，每一步都可以重复执行
+     * 被本区块花费的输出不恢复，再次同步时从前置交易中解析
+     */
     public boolean rollbackBlock(LocalCacheBlockBalance block) throws NulsException {
         Log.info("rollbackBlock:" + block.getBlockHeight());
+        balanceCache.clear();
         if (block.getBlockHeight() == 0) {
+            if (!deleteCreatedPrevouts(block)) {
+                return false;
+            }
             utxoAccountsStorageService.deleteLocalCacheBlock(block.getBlockHeight());
             return true;
         }
@@ -274,11 +346,31 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
         if (list.size() > 0) {
             utxoAccountsStorageService.batchSaveByteUtxoAcountsInfo(list);
         }
+        //删除本区块产生的输出
+        if (!deleteCreatedPrevouts(localPreBlock)) {
+            return false;
+        }
         //删除本地缓存区块
         utxoAccountsStorageService.deleteLocalCacheBlock(block.getBlockHeight());
         return true;
     }
 
+    private boolean deleteCreatedPrevouts(LocalCacheBlockBalance block) {
+        List<byte[]> createdPrevoutList = block.getCreatedPrevoutList();
+        if (createdPrevoutList == null || createdPrevoutList.isEmpty()) {
+            return true;
+        }
+        List<ByteArrayWrapper> deleteList = new ArrayList<>();
+        for (byte[] outpoint : createdPrevoutList) {
+            deleteList.add(new ByteArrayWrapper(outpoint));
+        }
+        if (!utxoAccountsStorageService.batchUpdatePrevout(Collections.emptyMap(), deleteList).isSuccess()) {
+            Log.error("utxoAccounts delete prevout faile,blockHeight:" + block.getBlockHeight());
+            return false;
+        }
+        return true;
+    }
+
     @Override
     public boolean validateIntegrityBootstrap(long hadSynBlockHeight) throws NulsException {
         Log.info("utxoAccountsModule validateIntegrityBootstrap hadSynBlockHeight:" + hadSynBlockHeight);
@@ -293,12 +385,19 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
             //无不一致数据
             return true;
         }
-        List<UtxoAccountsBalancePo> utxoAccountsBalances = localCacheNextBlock.getBalanceList();
-        if (utxoAccountsBalances == null) {
-            //无交易数据
-            return true;
+        //批量同步时可能有多个区块的缓存已写入而高度未更新，从最高的开始依次回滚
+        List<LocalCacheBlockBalance> unfinishedList = new ArrayList<>();
+        long height = hadSynBlockHeight + 1;
+        while (localCacheNextBlock != null) {
+            unfinishedList.add(localCacheNextBlock);
+            localCacheNextBlock = utxoAccountsStorageService.getLocalCacheBlock(++height).getData();
+        }
+        for (int i = unfinishedList.size() - 1; i >= 0; i--) {
+            if (!rollbackBlock(unfinishedList.get(i))) {
+                return false;
+            }
         }
-        return rollbackBlock(localCacheNextBlock);
+        return true;
     }
 
 
@@ -308,69 +407,133 @@ public class UtxoAccountsServiceImpl implements UtxoAccountsService {
      */
     @Override
     public boolean synBlock(long blockHeight) {
-        Log.debug("synBlock begin===blockHeight:" + blockHeight);
-        Block nodeBlock = utxoAccountsStorageService.getBlock(blockHeight).getData();
-        if (nodeBlock == null) {
-            Log.error("utxoAccounts getBlock faile,blockHeight:" + blockHeight);
-            return false;
-        }
-        boolean hadRoll = false;
-        try {
-            //get local pre block info /从本地取上一个已同步的区块
-            LocalCacheBlockBalance localLatestCacheBlock = utxoAccountsStorageService.getLocalCacheBlock(blockHeight - 1).getData();
-            //rollback judge /判断回滚
-            while (localLatestCacheBlock != null && !nodeBlock.getHeader().getPreHash().equals(localLatestCacheBlock.getHash())) {
-                //roll back info /进行数据回滚
-                rollbackBlock(localLatestCacheBlock);
-                blockHeight--;
-                //get pre block
-                localLatestCacheBlock = utxoAccountsStorageService.getLocalCacheBlock(blockHeight - 1).getData();
-                nodeBlock = utxoAccountsStorageService.getBlock(blockHeight).getData();
-                hadRoll = true;
+        return synBlocks(blockHeight, blockHeight) == blockHeight;
+    }
+
+    @Override
+    public long synBlocks(long startHeight, long endHeight) {
+        Log.debug("synBlocks begin===blockHeight:" + startHeight + "-" + endHeight);
+        SynBatch batch = new SynBatch();
+        for (long blockHeight = startHeight; blockHeight <= endHeight; blockHeight++) {
+            Block nodeBlock = utxoAccountsStorageService.getBlock(blockHeight).getData();
+            if (nodeBlock == null) {
+                Log.error("utxoAccounts getBlock faile,blockHeight:" + blockHeight);
+                break;
             }
-            if (hadRoll) {
-                return false;
+            if (batch.cacheBlocks.isEmpty()) {
+                try {
+                    if (rollbackForked(nodeBlock, blockHeight)) {
+                        return utxoAccountsStorageService.getHadSynBlockHeight();
+                    }
+                } catch (NulsException e) {
+                    Log.error(e);
+                    Log.error("block syn error======blockHeight:" + blockHeight);
+                    return startHeight - 1;
+                }
+            } else if (!nodeBlock.getHeader().getPreHash().equals(batch.lastBlock().getHash())) {
+                //本地链在批次中途发生了变化，先提交已解析的部分
+                break;
             }
-        } catch (NulsException e) {
-            Log.error(e);
-            Log.error("block syn error======blockHeight:" + blockHeight);
-            return false;
+            if (!synBlock(nodeBlock, blockHeight, batch)) {
+                break;
+            }
+        }
+        if (batch.cacheBlocks.isEmpty()) {
+            return startHeight - 1;
         }
-        //begin syn block/开始同步区块
+        if (!commit(batch)) {
+            Log.error("utxoAccounts commit faile,blockHeight:" + startHeight + "-" + batch.lastBlock().getBlockHeight());
+            return startHeight - 1;
+        }
+        Log.debug("utxoAccounts synBlocks success==blockHeight:" + batch.lastBlock().getBlockHeight());
+        return batch.lastBlock().getBlockHeight();
+    }
+
+    /**
+     * 本地最近同步的区块和节点区块不连续时逐个回滚
+     *
+     * @return 是否发生了回滚
+     */
+    private boolean rollbackForked(Block nodeBlock, long blockHeight) throws NulsException {
+        boolean hadRoll = false;
+        //get local pre block info /从本地取上一个已同步的区块
+        LocalCacheBlockBalance localLatestCacheBlock = utxoAccountsStorageService.getLocalCacheBlock(blockHeight - 1).getData();
+        //rollback judge /判断回滚
+        while (localLatestCacheBlock != null && !nodeBlock.getHeader().getPreHash().equals(localLatestCacheBlock.getHash())) {
+            //roll back info /进行数据回滚
+            rollbackBlock(localLatestCacheBlock);
+            blockHeight--;
+            //get pre block
+            localLatestCacheBlock = utxoAccountsStorageService.getLocalCacheBlock(blockHeight - 1).getData();
+            nodeBlock = utxoAccountsStorageService.getBlock(blockHeight).getData();
+            hadRoll = true;
+        }
+        return hadRoll;
+    }
+
+    /**
+     * 解析一个区块并合并到批次中
+     */
+    private boolean synBlock(Block nodeBlock, long blockHeight, SynBatch batch) {
         //analysis block/解析区块
         Map<String, UtxoAccountsBalancePo> utxoAccountsMap = new HashMap<>();
-        if (!buildUtxoAccountsMap(utxoAccountsMap, nodeBlock)) {
+        LocalCacheBlockBalance localCacheBlockBalance = new LocalCacheBlockBalance();
+        if (!buildUtxoAccountsMap(utxoAccountsMap, nodeBlock, batch, localCacheBlockBalance.getCreatedPrevoutList())) {
             return false;
         }
-        List<UtxoAccountsBalancePo> list = new ArrayList<>();
-
-        LocalCacheBlockBalance localCacheBlockBalance = new LocalCacheBlockBalance();
-//        LocalCacheBlockBalance preSnapshot=new LocalCacheBlockBalance();
         try {
-            list = utxoAccountsMapToList(utxoAccountsMap, localCacheBlockBalance);
+            mergeUtxoAccountsMap(utxoAccountsMap, localCacheBlockBalance, batch);
         } catch (NulsException e) {
             Log.info("utxoAccountsMapToList error======blockHeight:" + blockHeight);
             return false;
         }
         localCacheBlockBalance.setHash(nodeBlock.getHeader().getHash());
         localCacheBlockBalance.setPreHash(nodeBlock.getHeader().getPreHash());
-//        localCacheBlockBalance.setBalanceList(list);
         localCacheBlockBalance.setBlockHeight(blockHeight);
-        //save cache block info/缓存最近解析信息
-        utxoAccountsStorageService.saveLocalCacheBlock(blockHeight, localCacheBlockBalance);
-//        utxoAccountsStorageService.saveLocalCacheChangeSnapshot(blockHeight,localCacheBlockBalance);
-
+        batch.cacheBlocks.add(localCacheBlockBalance);
+        return true;
+    }
 
-        utxoAccountsStorageService.batchSaveByteUtxoAcountsInfo(list);
+    /**
+     * 写入顺序：区块缓存(回滚信息) -> 输出日志 -> 余额 -> 已同步高度
+     * 中途退出时，启动检查会用区块缓存中记录的原余额把未完成的区块全部回滚
+     */
+    private boolean commit(SynBatch batch) {
+        List<Long> deleteHeightList = new ArrayList<>();
+        for (LocalCacheBlockBalance cacheBlock : batch.cacheBlocks) {
+            //delete overdue cache data/删除过期缓存数据
+            if (cacheBlock.getBlockHeight() > UtxoAccountsStorageConstant.MAX_CACHE_BLOCK_NUM) {
+                deleteHeightList.add(cacheBlock.getBlockHeight() - UtxoAccountsStorageConstant.MAX_CACHE_BLOCK_NUM);
+            }
+        }
+        //save cache block info/缓存最近解析信息
+        if (!utxoAccountsStorageService.batchSaveLocalCacheBlock(batch.cacheBlocks, deleteHeightList).isSuccess()) {
+            return false;
+        }
+        if (!utxoAccountsStorageService.batchUpdatePrevout(batch.createdPrevouts, batch.spentPrevouts).isSuccess()) {
+            return false;
+        }
+        if (!utxoAccountsStorageService.batchSaveByteUtxoAcountsInfo(new ArrayList<>(batch.balances.values())).isSuccess()) {
+            return false;
+        }
         //update latest block height/更新最近高度
-        utxoAccountsStorageService.saveHadSynBlockHeight(blockHeight);
+        utxoAccountsStorageService.saveHadSynBlockHeight(batch.lastBlock().getBlockHeight());
+        balanceCache.putAll(batch.balances);
+        return true;
+    }
+
+    /**
+     * 一次批量同步中尚未写入的数据
+     */
+    private static class SynBatch {
+        private final List<LocalCacheBlockBalance> cacheBlocks = new ArrayList<>();
+        private final Map<String, UtxoAccountsBalancePo> balances = new HashMap<>();
+        private final Map<ByteArrayWrapper, UtxoAccountsPrevoutPo> createdPrevouts = new HashMap<>();
+        private final Set<ByteArrayWrapper> spentPrevouts = new HashSet<>();
 
-        //delete overdue cache data/删除过期缓存数据
-        if (blockHeight > UtxoAccountsStorageConstant.MAX_CACHE_BLOCK_NUM) {
-            utxoAccountsStorageService.deleteLocalCacheBlock(blockHeight - UtxoAccountsStorageConstant.MAX_CACHE_BLOCK_NUM);
+        LocalCacheBlockBalance lastBlock() {
+            return cacheBlocks.get(cacheBlocks.size() - 1);
         }
-        Log.debug("utxoAccounts synBlock success==blockHeight:" + blockHeight);
-        return true;
     }
 
 }
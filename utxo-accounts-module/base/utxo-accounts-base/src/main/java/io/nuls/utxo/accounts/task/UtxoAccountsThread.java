@@ -29,6 +29,7 @@ import io.nuls.kernel.constant.NulsConstant;
 import io.nuls.kernel.context.NulsContext;
 import io.nuls.kernel.lite.annotation.Autowired;
 import io.nuls.kernel.lite.annotation.Component;
+import io.nuls.utxo.accounts.constant.UtxoAccountsConstant;
 import io.nuls.utxo.accounts.locker.Lockers;
 import io.nuls.utxo.accounts.service.UtxoAccountsService;
 import io.nuls.utxo.accounts.storage.service.UtxoAccountsStorageService;
@@ -40,6 +41,15 @@ public class UtxoAccountsThread implements Runnable {
     @Autowired
     private UtxoAccountsStorageService utxoAccountsStorageService;
 
+    /**
+     * 追块时每批同步的区块数
+     */
+    private int synBatchBlocks = UtxoAccountsConstant.DEFAULT_SYN_BATCH_BLOCKS;
+
+    public void setSynBatchBlocks(int synBatchBlocks) {
+        this.synBatchBlocks = Math.max(1, synBatchBlocks);
+    }
+
     @Override
     public void run() {
         Lockers.SYN_UTXO_ACCOUNTS_LOCK.lock();
@@ -49,11 +59,14 @@ public class UtxoAccountsThread implements Runnable {
             }
             long hadSynBlockHeight = utxoAccountsStorageService.getHadSynBlockHeight();
             long end = NulsContext.getInstance().getBestHeight();
-            for (long i = hadSynBlockHeight + 1; i <= end; i++) {
-                if (!utxoAccountsService.synBlock(i)) {
+            for (long i = hadSynBlockHeight + 1; i <= end; ) {
+                long batchEnd = Math.min(end, i + synBatchBlocks - 1);
+                long synHeight = utxoAccountsService.synBlocks(i, batchEnd);
+                if (synHeight < batchEnd) {
                     Log.error("utxoAccounts block syn fail!");
                     break;
                 }
+                i = synHeight + 1;
             }
         } catch (Exception e) {
             Log.error(e);
@@ -0,0 +1,288 @@
+package io.nuls.utxo.accounts.service.impl;
+
+import io.nuls.core.tools.array.ArraysTool;
+import io.nuls.kernel.model.Block;
+import io.nuls.kernel.model.BlockHeader;
+import io.nuls.kernel.model.Coin;
+import io.nuls.kernel.model.CoinData;
+import io.nuls.kernel.model.Na;
+import io.nuls.kernel.model.NulsDigestData;
+import io.nuls.kernel.model.Result;
+import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.ByteArrayWrapper;
+import io.nuls.kernel.utils.VarInt;
+import io.nuls.protocol.model.tx.TransferTransaction;
+import io.nuls.utxo.accounts.storage.po.LocalCacheBlockBalance;
+import io.nuls.utxo.accounts.storage.po.UtxoAccountsBalancePo;
+import io.nuls.utxo.accounts.storage.po.UtxoAccountsPrevoutPo;
+import io.nuls.utxo.accounts.storage.service.UtxoAccountsStorageService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class UtxoAccountsServiceImplTest {
+
+    private byte[] address1 = createAddress(1);
+    private byte[] address2 = createAddress(2);
+
+    private long time = 1540000000000L;
+
+    private Map<Long, Block> blocks = new HashMap<>();
+    private Map<NulsDigestData, Transaction> txs = new HashMap<>();
+    private Map<ByteArrayWrapper, byte[]> balances = new HashMap<>();
+    private Map<ByteArrayWrapper, byte[]> prevouts = new HashMap<>();
+    private Map<Long, byte[]> cacheBlocks = new HashMap<>();
+    private long hadSynBlockHeight = -1;
+
+    /**
+     * 为true时写余额失败，模拟提交到一半时退出
+     */
+    private boolean failBalances;
+
+    private UtxoAccountsServiceImpl service;
+
+    private Transaction tx0;
+    private Transaction tx1;
+    private Transaction tx2;
+
+    /**
+     * 0: tx0 -> address1
+     * 1: tx1 花费 tx0:0 -> address2
+     * 2: tx2 花费 tx1:0 -> address1
+     */
+    @Before
+    public void init() throws IOException {
+        service = createService();
+        tx0 = createTx(null, address1, 1000L);
+        tx1 = createTx(tx0, address2, 1000L);
+        tx2 = createTx(tx1, address1, 1000L);
+        Block block0 = createBlock(0, null, tx0);
+        Block block1 = createBlock(1, block0, tx1);
+        createBlock(2, block1, tx2);
+    }
+
+    @Test
+    public void batchCommit() throws Exception {
+        assertEquals(2, service.synBlocks(0, 2));
+        assertEquals(2, hadSynBlockHeight);
+        assertEquals(3, cacheBlocks.size());
+
+        assertBalance(address1, 1000L, 2000L);
+        assertBalance(address2, 1000L, 1000L);
+        //批次内产生又花费的输出不写入日志
+        assertNull(prevouts.get(outpointKey(tx0, 0)));
+        assertNull(prevouts.get(outpointKey(tx1, 0)));
+        assertNotNull(prevouts.get(outpointKey(tx2, 0)));
+    }
+
+    @Test
+    public void rollbackForkedBlock() throws Exception {
+        assertEquals(1, service.synBlocks(0, 1));
+        assertEquals(2, service.synBlocks(2, 2));
+        assertNotNull(prevouts.get(outpointKey(tx2, 0)));
+
+        //高度2被另一个区块替换，同步高度3时回滚本地的高度2
+        Transaction forkTx = createTx(tx1, address2, 1000L);
+        Block forkBlock = createBlock(2, blocks.get(1L), forkTx);
+        createBlock(3, forkBlock, createTx(forkTx, address1, 1000L));
+        assertEquals(1, service.synBlocks(3, 3));
+
+        assertEquals(1, hadSynBlockHeight);
+        assertNull(cacheBlocks.get(2L));
+        assertNull(prevouts.get(outpointKey(tx2, 0)));
+        assertBalance(address1, 1000L, 1000L);
+        assertBalance(address2, 0L, 1000L);
+
+        assertEquals(3, service.synBlocks(2, 3));
+        assertNull(prevouts.get(outpointKey(forkTx, 0)));
+        assertBalance(address1, 1000L, 2000L);
+        assertBalance(address2, 2000L, 2000L);
+    }
+
+    @Test
+    public void recoverUnfinishedCommit() throws Exception {
+        assertEquals(1, service.synBlocks(0, 1));
+        failBalances = true;
+        assertEquals(1, service.synBlocks(2, 2));
+        //区块缓存和输出日志已写入，余额和高度未写入
+        assertNotNull(cacheBlocks.get(2L));
+        assertNotNull(prevouts.get(outpointKey(tx2, 0)));
+        assertNull(prevouts.get(outpointKey(tx1, 0)));
+
+        failBalances = false;
+        service = createService();
+        assertTrue(service.validateIntegrityBootstrap(hadSynBlockHeight));
+        assertEquals(1, hadSynBlockHeight);
+        assertNull(cacheBlocks.get(2L));
+        assertNull(prevouts.get(outpointKey(tx2, 0)));
+        assertBalance(address1, 1000L, 1000L);
+        assertBalance(address2, 0L, 1000L);
+
+        //已删除的 tx1:0 从前置交易中解析
+        assertEquals(2, service.synBlocks(2, 2));
+        assertBalance(address1, 1000L, 2000L);
+        assertBalance(address2, 1000L, 1000L);
+    }
+
+    private void assertBalance(byte[] address, long input, long output) throws Exception {
+        UtxoAccountsBalancePo balance = new UtxoAccountsBalancePo();
+        balance.parse(balances.get(new ByteArrayWrapper(address)), 0);
+        assertEquals(input, (long) balance.getInputBalance());
+        assertEquals(output, (long) balance.getOutputBalance());
+    }
+
+    private UtxoAccountsServiceImpl createService() {
+        UtxoAccountsServiceImpl service = new UtxoAccountsServiceImpl();
+        service.utxoAccountsStorageService = createStorageService();
+        return service;
+    }
+
+    /**
+     * 内存中的存储，数据都按序列化后的字节保存
+     */
+    private UtxoAccountsStorageService createStorageService() {
+        return (UtxoAccountsStorageService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{UtxoAccountsStorageService.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getBlock":
+                            return Result.getSuccess().setData(copyBlock(blocks.get(args[0])));
+                        case "getTx":
+                            return txs.get(args[0]);
+                        case "getHadSynBlockHeight":
+                            return hadSynBlockHeight;
+                        case "saveHadSynBlockHeight":
+                            hadSynBlockHeight = (long) args[0];
+                            return Result.getSuccess();
+                        case "getUtxoAccountsBalanceByAddress": {
+                            byte[] bytes = balances.get(new ByteArrayWrapper((byte[]) args[0]));
+                            if (bytes == null) {
+                                return Result.getSuccess().setData(null);
+                            }
+                            UtxoAccountsBalancePo balance = new UtxoAccountsBalancePo();
+                            balance.parse(bytes, 0);
+                            return Result.getSuccess().setData(balance);
+                        }
+                        case "batchSaveByteUtxoAcountsInfo":
+                            if (failBalances) {
+                                return Result.getFailed();
+                            }
+                            for (UtxoAccountsBalancePo balance : (List<UtxoAccountsBalancePo>) args[0]) {
+                                balances.put(new ByteArrayWrapper(balance.getOwner()), balance.serialize());
+                            }
+                            return Result.getSuccess();
+                        case "getLocalCacheBlock": {
+                            byte[] bytes = cacheBlocks.get(args[0]);
+                            if (bytes == null) {
+                                return Result.getSuccess().setData(null);
+                            }
+                            LocalCacheBlockBalance cacheBlock = new LocalCacheBlockBalance();
+                            cacheBlock.parse(bytes, 0);
+                            return Result.getSuccess().setData(cacheBlock);
+                        }
+                        case "deleteLocalCacheBlock":
+                            cacheBlocks.remove(args[0]);
+                            return Result.getSuccess();
+                        case "batchSaveLocalCacheBlock":
+                            for (LocalCacheBlockBalance cacheBlock : (List<LocalCacheBlockBalance>) args[0]) {
+                                cacheBlocks.put(cacheBlock.getBlockHeight(), cacheBlock.serialize());
+                            }
+                            for (Long height : (List<Long>) args[1]) {
+                                cacheBlocks.remove(height);
+                            }
+                            return Result.getSuccess();
+                        case "getPrevout": {
+                            byte[] bytes = prevouts.get(new ByteArrayWrapper((byte[]) args[0]));
+                            if (bytes == null) {
+                                return null;
+                            }
+                            UtxoAccountsPrevoutPo prevout = new UtxoAccountsPrevoutPo();
+                            prevout.parse(bytes, 0);
+                            return prevout;
+                        }
+                        case "batchUpdatePrevout":
+                            for (Map.Entry<ByteArrayWrapper, UtxoAccountsPrevoutPo> entry : ((Map<ByteArrayWrapper, UtxoAccountsPrevoutPo>) args[0]).entrySet()) {
+                                prevouts.put(entry.getKey(), entry.getValue().serialize());
+                            }
+                            for (ByteArrayWrapper outpoint : (Collection<ByteArrayWrapper>) args[1]) {
+                                prevouts.remove(outpoint);
+                            }
+                            return Result.getSuccess();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private Block createBlock(long height, Block preBlock, Transaction... txList) {
+        BlockHeader header = new BlockHeader();
+        header.setHeight(height);
+        header.setTime(time++);
+        header.setPreHash(preBlock == null ? NulsDigestData.calcDigestData(new byte[32]) : preBlock.getHeader().getHash());
+        header.setHash(NulsDigestData.calcDigestData(ArraysTool.concatenate(new VarInt(height).encode(), new VarInt(header.getTime()).encode())));
+        Block block = new Block();
+        block.setHeader(header);
+        block.setTxs(Arrays.asList(txList));
+        for (Transaction tx : txList) {
+            tx.setBlockHeight(height);
+        }
+        blocks.put(height, block);
+        return block;
+    }
+
+    /**
+     * 同步时会修改输入的owner，和从数据库读取一样每次返回新的对象
+     */
+    private Block copyBlock(Block block) throws Exception {
+        if (block == null) {
+            return null;
+        }
+        List<Transaction> txList = new ArrayList<>();
+        for (Transaction tx : block.getTxs()) {
+            TransferTransaction copy = new TransferTransaction();
+            copy.parse(tx.serialize(), 0);
+            copy.setHash(tx.getHash());
+            copy.setBlockHeight(tx.getBlockHeight());
+            txList.add(copy);
+        }
+        Block copy = new Block();
+        copy.setHeader(block.getHeader());
+        copy.setTxs(txList);
+        return copy;
+    }
+
+    private Transaction createTx(Transaction parent, byte[] address, long value) throws IOException {
+        TransferTransaction tx = new TransferTransaction();
+        tx.setTime(time++);
+        CoinData coinData = new CoinData();
+        if (parent != null) {
+            coinData.addFrom(new Coin(outpoint(parent, 0), Na.valueOf(value), 0));
+        }
+        coinData.addTo(new Coin(address, Na.valueOf(value), 0));
+        tx.setCoinData(coinData);
+        tx.setHash(NulsDigestData.calcDigestData(tx.serializeForHash()));
+        txs.put(tx.getHash(), tx);
+        return tx;
+    }
+
+    private byte[] outpoint(Transaction tx, int index) throws IOException {
+        return ArraysTool.concatenate(tx.getHash().serialize(), new VarInt(index).encode());
+    }
+
+    private ByteArrayWrapper outpointKey(Transaction tx, int index) throws IOException {
+        return new ByteArrayWrapper(outpoint(tx, index));
+    }
+
+    private static byte[] createAddress(int seed) {
+        byte[] address = new byte[23];
+        address[0] = 4;
+        address[1] = 1;
+        address[2] = 1;
+        Arrays.fill(address, 3, 23, (byte) seed);
+        return address;
+    }
+}
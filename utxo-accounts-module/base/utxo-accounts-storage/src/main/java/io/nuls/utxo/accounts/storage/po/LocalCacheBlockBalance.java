@@ -40,6 +40,11 @@ public class LocalCacheBlockBalance extends BaseNulsData{
     private NulsDigestData hash;
     private NulsDigestData preHash;
     private List<UtxoAccountsBalancePo> balanceList=new ArrayList<>();
+    /**
+     * 本区块产生的输出(交易hash + 输出序号)，回滚时从输出日志中删除
+     * outpoints created by this block, removed from the prevout journal on rollback
+     */
+    private List<byte[]> createdPrevoutList = new ArrayList<>();
 
     public NulsDigestData getHash() {
         return hash;
@@ -73,6 +78,14 @@ public class LocalCacheBlockBalance extends BaseNulsData{
         this.balanceList = balanceList;
     }
 
+    public List<byte[]> getCreatedPrevoutList() {
+        return createdPrevoutList;
+    }
+
+    public void setCreatedPrevoutList(List<byte[]> createdPrevoutList) {
+        this.createdPrevoutList = createdPrevoutList;
+    }
+
     @Override
     protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
         stream.writeInt64(blockHeight);
@@ -109,7 +122,13 @@ public class LocalCacheBlockBalance extends BaseNulsData{
                 }
             }
         }
-
+        int prevoutCount = createdPrevoutList == null ? 0 : createdPrevoutList.size();
+        stream.writeVarInt(prevoutCount);
+        if (null != createdPrevoutList) {
+            for (byte[] outpoint : createdPrevoutList) {
+                stream.writeBytesWithLength(outpoint);
+            }
+        }
     }
 
     @Override
@@ -125,6 +144,15 @@ public class LocalCacheBlockBalance extends BaseNulsData{
             }
             this.balanceList = list;
         }
+        //旧版本的缓存区块没有输出列表
+        if (!byteBuffer.isFinished()) {
+            int prevoutCount = (int) byteBuffer.readVarInt();
+            List<byte[]> prevoutList = new ArrayList<>();
+            for (int i = 0; i < prevoutCount; i++) {
+                prevoutList.add(byteBuffer.readByLengthByte());
+            }
+            this.createdPrevoutList = prevoutList;
+        }
     }
 
     @Override
@@ -139,6 +167,12 @@ public class LocalCacheBlockBalance extends BaseNulsData{
                 size += balance.size();
             }
         }
+        size += SerializeUtils.sizeOfVarInt(createdPrevoutList == null ? 0 : createdPrevoutList.size());
+        if (null != createdPrevoutList) {
+            for (byte[] outpoint : createdPrevoutList) {
+                size += SerializeUtils.sizeOfBytes(outpoint);
+            }
+        }
         return size;
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017-2019 nuls.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package io.nuls.utxo.accounts.storage.po;
+
+import io.nuls.kernel.exception.NulsException;
+import io.nuls.kernel.model.BaseNulsData;
+import io.nuls.kernel.utils.NulsByteBuffer;
+import io.nuls.kernel.utils.NulsOutputStreamBuffer;
+import io.nuls.kernel.utils.SerializeUtils;
+
+import java.io.IOException;
+
+/**
+ * 已解析区块中产生的输出，key为 交易hash + 输出序号，被花费时删除
+ * 同步时输入直接从这里取得所属地址，不再加载并解析整笔前置交易
+ * <p>
+ * An output created by a synchronized block, keyed by tx hash + output index and deleted once spent.
+ */
+public class UtxoAccountsPrevoutPo extends BaseNulsData {
+    private byte[] owner;
+    private long amount;
+    private long lockTime;
+
+    public UtxoAccountsPrevoutPo() {
+    }
+
+    public UtxoAccountsPrevoutPo(byte[] owner, long amount, long lockTime) {
+        this.owner = owner;
+        this.amount = amount;
+        this.lockTime = lockTime;
+    }
+
+    public byte[] getOwner() {
+        return owner;
+    }
+
+    public void setOwner(byte[] owner) {
+        this.owner = owner;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(long amount) {
+        this.amount = amount;
+    }
+
+    public long getLockTime() {
+        return lockTime;
+    }
+
+    public void setLockTime(long lockTime) {
+        this.lockTime = lockTime;
+    }
+
+    @Override
+    protected void serializeToStream(NulsOutputStreamBuffer stream) throws IOException {
+        stream.writeBytesWithLength(owner);
+        stream.writeInt64(amount);
+        stream.writeInt64(lockTime);
+    }
+
+    @Override
+    public void parse(NulsByteBuffer byteBuffer) throws NulsException {
+        this.owner = byteBuffer.readByLengthByte();
+        this.amount = byteBuffer.readInt64();
+        this.lockTime = byteBuffer.readInt64();
+    }
+
+    @Override
+    public int size() {
+        int size = SerializeUtils.sizeOfBytes(owner);
+        size += SerializeUtils.sizeOfInt64();
+        size += SerializeUtils.sizeOfInt64();
+        return size;
+    }
+}
@@ -29,11 +29,15 @@ import io.nuls.kernel.model.Block;
 import io.nuls.kernel.model.NulsDigestData;
 import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
+import io.nuls.kernel.utils.ByteArrayWrapper;
 import io.nuls.utxo.accounts.storage.po.LocalCacheBlockBalance;
 import io.nuls.utxo.accounts.storage.po.UtxoAccountsBalancePo;
+import io.nuls.utxo.accounts.storage.po.UtxoAccountsPrevoutPo;
 
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface UtxoAccountsStorageService {
 
@@ -59,6 +63,24 @@ public interface UtxoAccountsStorageService {
 
     Result deleteLocalCacheBlock(long height);
 
+    /**
+     * 批量保存多个区块的缓存信息，并删除过期的缓存区块
+     * Save the cache info of several blocks and delete the overdue ones in one batch
+     */
+    Result batchSaveLocalCacheBlock(List<LocalCacheBlockBalance> list, List<Long> deleteHeightList);
+
+    /**
+     * 根据 交易hash + 输出序号 获取已解析的输出，不存在时返回null
+     * Get a synchronized output by tx hash + output index, null if absent
+     */
+    UtxoAccountsPrevoutPo getPrevout(byte[] outpoint);
+
+    /**
+     * 在一个批次中保存新产生的输出并删除已花费的输出
+     * Save the created outputs and delete the spent ones in one batch
+     */
+    Result batchUpdatePrevout(Map<ByteArrayWrapper, UtxoAccountsPrevoutPo> saveMap, Collection<ByteArrayWrapper> deleteList);
+
     Transaction getTx(NulsDigestData hash);
     Result<Block> getBlock(long height);
 
@@ -37,15 +37,19 @@ import io.nuls.kernel.model.Result;
 import io.nuls.kernel.model.Transaction;
 import io.nuls.kernel.script.Script;
 import io.nuls.kernel.script.SignatureUtil;
+import io.nuls.kernel.utils.ByteArrayWrapper;
 import io.nuls.utxo.accounts.storage.constant.UtxoAccountsStorageConstant;
 import io.nuls.utxo.accounts.storage.po.LocalCacheBlockBalance;
 import io.nuls.utxo.accounts.storage.po.UtxoAccountsBalancePo;
+import io.nuls.utxo.accounts.storage.po.UtxoAccountsPrevoutPo;
 import io.nuls.utxo.accounts.storage.po.UtxoAccountsSynInfo;
 import io.nuls.utxo.accounts.storage.service.UtxoAccountsStorageService;
 import io.nuls.ledger.service.LedgerService;
 import io.nuls.protocol.service.BlockService;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class UtxoAccountsStorageServiceImpl implements UtxoAccountsStorageService, InitializingBean {
@@ -164,6 +168,53 @@ public class UtxoAccountsStorageServiceImpl implements UtxoAccountsStorageServic
         return dbService.delete(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_BLOCK_CACHE,String.valueOf(height).getBytes());
     }
 
+    @Override
+    public Result batchSaveLocalCacheBlock(List<LocalCacheBlockBalance> list, List<Long> deleteHeightList) {
+        BatchOperation batch = dbService.createWriteBatch(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_BLOCK_CACHE);
+        try {
+            for (LocalCacheBlockBalance localCacheBlockBalance : list) {
+                batch.put(String.valueOf(localCacheBlockBalance.getBlockHeight()).getBytes(), localCacheBlockBalance.serialize());
+            }
+            for (Long height : deleteHeightList) {
+                batch.delete(String.valueOf(height).getBytes());
+            }
+            return batch.executeBatch();
+        } catch (Exception e) {
+            return Result.getFailed();
+        }
+    }
+
+    @Override
+    public UtxoAccountsPrevoutPo getPrevout(byte[] outpoint) {
+        byte[] bytes = dbService.get(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_PREVOUT, outpoint);
+        if (bytes == null) {
+            return null;
+        }
+        UtxoAccountsPrevoutPo prevout = new UtxoAccountsPrevoutPo();
+        try {
+            prevout.parse(bytes, 0);
+        } catch (NulsException e) {
+            return null;
+        }
+        return prevout;
+    }
+
+    @Override
+    public Result batchUpdatePrevout(Map<ByteArrayWrapper, UtxoAccountsPrevoutPo> saveMap, Collection<ByteArrayWrapper> deleteList) {
+        BatchOperation batch = dbService.createWriteBatch(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_PREVOUT);
+        try {
+            for (Map.Entry<ByteArrayWrapper, UtxoAccountsPrevoutPo> entry : saveMap.entrySet()) {
+                batch.put(entry.getKey().getBytes(), entry.getValue().serialize());
+            }
+            for (ByteArrayWrapper outpoint : deleteList) {
+                batch.delete(outpoint.getBytes());
+            }
+            return batch.executeBatch();
+        } catch (Exception e) {
+            return Result.getFailed();
+        }
+    }
+
     @Override
     public Transaction getTx(NulsDigestData hash) {
         return ledgerService.getTx(hash);
@@ -179,6 +230,7 @@ public class UtxoAccountsStorageServiceImpl implements UtxoAccountsStorageServic
     public void afterPropertiesSet() throws NulsException {
         dbService.createArea(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_CONFIRMED_BALANCE);
         dbService.createArea(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_BLOCK_CACHE);
+        dbService.createArea(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_PREVOUT);
 //        dbService.createArea(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_LOCKEDTIME_BALANCE);
 //        dbService.createArea(UtxoAccountsStorageConstant.DB_NAME_UTXO_ACCOUNTS_LOCKEDHEIGHT_BALANCE);
 